@@ -47,7 +47,9 @@ import org.apache.flink.api.common.operators.base.GenericDataSourceBase;
 import org.apache.flink.api.common.operators.base.GroupReduceOperatorBase;
 import org.apache.flink.api.common.operators.base.JoinOperatorBase;
 import org.apache.flink.api.common.operators.base.MapOperatorBase;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
 import org.apache.flink.api.common.operators.base.ReduceOperatorBase;
+import org.apache.flink.api.common.operators.base.SemiJoinOperatorBase;
 import org.apache.flink.api.common.operators.base.BulkIterationBase.PartialSolutionPlaceHolder;
 import org.apache.flink.api.common.operators.base.DeltaIterationBase.SolutionSetPlaceHolder;
 import org.apache.flink.api.common.operators.base.DeltaIterationBase.WorksetPlaceHolder;
@@ -69,7 +71,9 @@ import org.apache.flink.compiler.dag.MapNode;
 import org.apache.flink.compiler.dag.MatchNode;
 import org.apache.flink.compiler.dag.OptimizerNode;
 import org.apache.flink.compiler.dag.PactConnection;
+import org.apache.flink.compiler.dag.PartitionNode;
 import org.apache.flink.compiler.dag.ReduceNode;
+import org.apache.flink.compiler.dag.SemiJoinNode;
 import org.apache.flink.compiler.dag.SinkJoiner;
 import org.apache.flink.compiler.dag.SolutionSetNode;
 import org.apache.flink.compiler.dag.TempMode;
@@ -213,6 +217,16 @@ public class PactCompiler {
 	 */
 	public static final String HINT_LOCAL_STRATEGY_COMBINING_SORT = "LOCAL_STRATEGY_COMBINING_SORT";
 	
+	/**
+	 * Value for the local strategy compiler hint that enforces a <b>hash based</b> combiner.
+	 * The combiner aggregates the records in a hash table as they arrive, rather than sorting them.
+	 * For example, a <i>Reduce</i> operator will combine its input in a hash table and sort the combined data.
+	 * A combinable <i>GroupReduce</i> operator without a group order will group its whole input in hash tables.
+	 * 
+	 * @see #HINT_LOCAL_STRATEGY
+	 */
+	public static final String HINT_LOCAL_STRATEGY_COMBINING_HASH = "LOCAL_STRATEGY_COMBINING_HASH";
+	
 	/**
 	 * Value for the local strategy compiler hint that enforces a <b>sort merge based</b> local strategy on both
 	 * inputs with subsequent merging of inputs. 
@@ -692,9 +706,15 @@ public class PactCompiler {
 			else if (c instanceof CoGroupOperatorBase) {
 				n = new CoGroupNode((CoGroupOperatorBase<?, ?, ?, ?>) c);
 			}
+			else if (c instanceof SemiJoinOperatorBase) {
+				n = new SemiJoinNode((SemiJoinOperatorBase<?, ?>) c);
+			}
 			else if (c instanceof CrossOperatorBase) {
 				n = new CrossNode((CrossOperatorBase<?, ?, ?, ?>) c);
 			}
+			else if (c instanceof PartitionOperatorBase) {
+				n = new PartitionNode((PartitionOperatorBase<?>) c);
+			}
 			else if (c instanceof BulkIterationBase) {
 				n = new BulkIterationNode((BulkIterationBase<?>) c);
 			}
@@ -52,6 +52,8 @@ public abstract class CostEstimator {
 	
 	public abstract void addHybridHashCosts(EstimateProvider buildSide, EstimateProvider probeSide, Costs costs, int costWeight);
 	
+	public abstract void addHashAggregationCosts(EstimateProvider input, Costs costs, int costWeight);
+	
 	public abstract void addCachedHybridHashCosts(EstimateProvider buildSide, EstimateProvider probeSide, Costs costs, int costWeight);
 
 	public abstract void addStreamedNestedLoopsCosts(EstimateProvider outerSide, EstimateProvider innerSide, long bufferSize, Costs costs, int costWeight);
@@ -189,10 +191,15 @@ public abstract class CostEstimator {
 		case MERGE:
 			addLocalMergeCost(firstInput, secondInput, driverCosts, costWeight);
 			break;
+		case HASHED_GROUP_REDUCE:
+			addHashAggregationCosts(firstInput, driverCosts, costWeight);
+			break;
 		case HYBRIDHASH_BUILD_FIRST:
 			addHybridHashCosts(firstInput, secondInput, driverCosts, costWeight);
 			break;
 		case HYBRIDHASH_BUILD_SECOND:
+		case HYBRIDHASH_SEMI_JOIN:
+		case HYBRIDHASH_ANTI_JOIN:
 			addHybridHashCosts(secondInput, firstInput, driverCosts, costWeight);
 			break;
 		case HYBRIDHASH_BUILD_FIRST_CACHED:
@@ -175,6 +175,28 @@ public class DefaultCostEstimator extends CostEstimator {
 		costs.multiplyWith(costWeight);
 	}
 	
+	/**
+	 * Calculates the costs for grouping and aggregating the input in hash tables. We assume that the keys
+	 * do not fit into memory, such that the partial aggregates of the input are written and read once.
+	 */
+	@Override
+	public void addHashAggregationCosts(EstimateProvider input, Costs costs, int costWeight) {
+		long s = input.getEstimatedOutputSize();
+		
+		if (s > 0) {
+			costs.addDiskCost(s);
+			costs.addCpuCost((long) (s * HASHING_CPU_FACTOR));
+		} else {
+			costs.setDiskCost(Costs.UNKNOWN);
+			costs.setCpuCost(Costs.UNKNOWN);
+		}
+		costs.addHeuristicDiskCost(HEURISTIC_COST_BASE);
+		costs.addHeuristicCpuCost((long) (HEURISTIC_COST_BASE * HASHING_CPU_FACTOR));
+		
+		// cost weight applies to everything
+		costs.multiplyWith(costWeight);
+	}
+	
 	/**
 	 * Calculates the costs for the cached variant of the hybrid hash join.
 	 * We are assuming by default that half of the cached hash table fit into memory.
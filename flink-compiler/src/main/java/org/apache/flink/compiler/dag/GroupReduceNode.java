@@ -19,6 +19,7 @@
 
 package org.apache.flink.compiler.dag;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import org.apache.flink.compiler.operators.AllGroupReduceProperties;
 import org.apache.flink.compiler.operators.AllGroupWithPartialPreGroupProperties;
 import org.apache.flink.compiler.operators.GroupReduceProperties;
 import org.apache.flink.compiler.operators.GroupReduceWithCombineProperties;
+import org.apache.flink.compiler.operators.HashGroupReduceProperties;
 import org.apache.flink.compiler.operators.OperatorDescriptorSingle;
 import org.apache.flink.configuration.Configuration;
 
@@ -39,6 +41,11 @@ import org.apache.flink.configuration.Configuration;
  */
 public class GroupReduceNode extends SingleInputNode {
 	
+	/**
+	 * The factor by which the estimates must expect the input to shrink to consider grouping it in hash tables.
+	 */
+	private static final int MIN_REDUCTION_FOR_HASH_GROUPING = 10;
+	
 	private GroupReduceNode combinerUtilityNode;
 	
 	/**
@@ -93,6 +100,7 @@ public class GroupReduceNode extends SingleInputNode {
 		final String localStrategy = conf.getString(PactCompiler.HINT_LOCAL_STRATEGY, null);
 
 		final boolean useCombiner;
+		boolean useHash = false;
 		if (localStrategy != null) {
 			if (PactCompiler.HINT_LOCAL_STRATEGY_SORT.equals(localStrategy)) {
 				useCombiner = false;
@@ -102,6 +110,13 @@ public class GroupReduceNode extends SingleInputNode {
 						"' desires combinable reduce, but user function is not marked combinable.");
 				}
 				useCombiner = true;
+			} else if (PactCompiler.HINT_LOCAL_STRATEGY_COMBINING_HASH.equals(localStrategy)) {
+				if (!isCombineable()) {
+					PactCompiler.LOG.warn("Strategy hint for Reduce Pact '" + getPactContract().getName() + 
+						"' desires hash grouping, but user function is not marked combinable.");
+				}
+				useCombiner = true;
+				useHash = isCombineable();
 			} else {
 				throw new CompilerException("Invalid local strategy hint for match contract: " + localStrategy);
 			}
@@ -118,6 +133,20 @@ public class GroupReduceNode extends SingleInputNode {
 			}
 		}
 		
+		// grouping in hash tables aggregates each group with the combine function, so there is no group order
+		if (this.keys != null && groupOrder == null && useCombiner) {
+			if (useHash) {
+				return Collections.<OperatorDescriptorSingle>singletonList(new HashGroupReduceProperties(this.keys));
+			}
+			if (localStrategy == null && isHashGroupingPromising()) {
+				// offer both. the sorted variant wins if a successor needs the groups to be sorted
+				final List<OperatorDescriptorSingle> props = new ArrayList<OperatorDescriptorSingle>(2);
+				props.add(new GroupReduceWithCombineProperties(this.keys));
+				props.add(new HashGroupReduceProperties(this.keys));
+				return props;
+			}
+		}
+		
 		OperatorDescriptorSingle props = useCombiner ?
 			(this.keys == null ? new AllGroupWithPartialPreGroupProperties() : new GroupReduceWithCombineProperties(this.keys, groupOrder)) :
 			(this.keys == null ? new AllGroupReduceProperties() : new GroupReduceProperties(this.keys, groupOrder));
@@ -125,6 +154,13 @@ public class GroupReduceNode extends SingleInputNode {
 			return Collections.singletonList(props);
 	}
 	
+	private boolean isHashGroupingPromising() {
+		// the hash tables hold one partial aggregate per group, so they pay off if the estimates promise few groups
+		final OptimizerNode pred = getPredecessorNode();
+		return pred != null && this.estimatedNumRecords > 0 && pred.getEstimatedNumRecords() > 0 &&
+				pred.getEstimatedNumRecords() / this.estimatedNumRecords >= MIN_REDUCTION_FOR_HASH_GROUPING;
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//  Estimates
 	// --------------------------------------------------------------------------------------------
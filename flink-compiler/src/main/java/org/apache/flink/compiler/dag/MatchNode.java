@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.flink.api.common.operators.base.JoinOperatorBase;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.compiler.CompilerException;
 import org.apache.flink.compiler.DataStatistics;
 import org.apache.flink.compiler.PactCompiler;
@@ -68,6 +69,7 @@ public class MatchNode extends TwoInputNode {
 		// see if an internal hint dictates the strategy to use
 		Configuration conf = getPactContract().getParameters();
 		String localStrategy = conf.getString(PactCompiler.HINT_LOCAL_STRATEGY, null);
+		JoinType joinType = getPactContract().getJoinType();
 
 		if (localStrategy != null) {
 			final OperatorDescriptorDual fixedDriverStrat;
@@ -76,11 +78,11 @@ public class MatchNode extends TwoInputNode {
 				PactCompiler.HINT_LOCAL_STRATEGY_SORT_SECOND_MERGE.equals(localStrategy) ||
 				PactCompiler.HINT_LOCAL_STRATEGY_MERGE.equals(localStrategy) )
 			{
-				fixedDriverStrat = new SortMergeJoinDescriptor(this.keys1, this.keys2);
+				fixedDriverStrat = new SortMergeJoinDescriptor(this.keys1, this.keys2, joinType);
 			} else if (PactCompiler.HINT_LOCAL_STRATEGY_HASH_BUILD_FIRST.equals(localStrategy)) {
-				fixedDriverStrat = new HashJoinBuildFirstProperties(this.keys1, this.keys2);
+				fixedDriverStrat = new HashJoinBuildFirstProperties(this.keys1, this.keys2, joinType);
 			} else if (PactCompiler.HINT_LOCAL_STRATEGY_HASH_BUILD_SECOND.equals(localStrategy)) {
-				fixedDriverStrat = new HashJoinBuildSecondProperties(this.keys1, this.keys2);
+				fixedDriverStrat = new HashJoinBuildSecondProperties(this.keys1, this.keys2, joinType);
 			} else {
 				throw new CompilerException("Invalid local strategy hint for match contract: " + localStrategy);
 			}
@@ -89,14 +91,18 @@ public class MatchNode extends TwoInputNode {
 			return list;
 		} else {
 			ArrayList<OperatorDescriptorDual> list = new ArrayList<OperatorDescriptorDual>();
-			list.add(new SortMergeJoinDescriptor(this.keys1, this.keys2));
-			list.add(new HashJoinBuildFirstProperties(this.keys1, this.keys2));
-			list.add(new HashJoinBuildSecondProperties(this.keys1, this.keys2));
+			list.add(new SortMergeJoinDescriptor(this.keys1, this.keys2, joinType));
+			list.add(new HashJoinBuildFirstProperties(this.keys1, this.keys2, joinType));
+			list.add(new HashJoinBuildSecondProperties(this.keys1, this.keys2, joinType));
 			return list;
 		}
 	}
 	
 	public void makeJoinWithSolutionSet(int solutionsetInputIndex) {
+		if (getPactContract().getJoinType() != JoinType.INNER) {
+			throw new CompilerException("Outer joins with the solution set are not supported.");
+		}
+		
 		OperatorDescriptorDual op;
 		if (solutionsetInputIndex == 0) {
 			op = new HashJoinBuildFirstProperties(this.keys1, this.keys2);
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.compiler.dag;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
+import org.apache.flink.compiler.DataStatistics;
+import org.apache.flink.compiler.operators.OperatorDescriptorSingle;
+import org.apache.flink.compiler.operators.PartitionDescriptor;
+
+/**
+ * The optimizer's internal representation of a <i>Partition</i> operator node.
+ */
+public class PartitionNode extends SingleInputNode {
+
+	private PartitionNode senderUtilityNode;
+
+	public PartitionNode(PartitionOperatorBase<?> operator) {
+		super(operator);
+	}
+
+	private PartitionNode(PartitionNode nodeToCopyForSender) {
+		super(nodeToCopyForSender);
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	@Override
+	public PartitionOperatorBase<?> getPactContract() {
+		return (PartitionOperatorBase<?>) super.getPactContract();
+	}
+
+	@Override
+	public String getName() {
+		return "Partition";
+	}
+
+	@Override
+	public boolean isFieldConstant(int input, int fieldNumber) {
+		return true;
+	}
+
+	@Override
+	protected List<OperatorDescriptorSingle> getPossibleProperties() {
+		final PartitionOperatorBase<?> operator = getPactContract();
+		return Collections.<OperatorDescriptorSingle>singletonList(
+			new PartitionDescriptor(operator.getPartitionMethod(), this.keys, operator.getOrdering()));
+	}
+
+	@Override
+	protected void computeOperatorSpecificDefaultEstimates(DataStatistics statistics) {
+		this.estimatedNumRecords = getPredecessorNode().getEstimatedNumRecords();
+		this.estimatedOutputSize = getPredecessorNode().getEstimatedOutputSize();
+	}
+
+	/**
+	 * Gets the template for the node that selects the partitions of a partitioning that is parameterized by a
+	 * sample. The sender has the same degree of parallelism as this node.
+	 *
+	 * @return The template for the sender of a sampled partitioning.
+	 */
+	public PartitionNode getSenderUtilityNode() {
+		if (this.senderUtilityNode == null) {
+			this.senderUtilityNode = new PartitionNode(this);
+		}
+		return this.senderUtilityNode;
+	}
+}
@@ -23,16 +23,25 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.flink.api.common.operators.base.ReduceOperatorBase;
+import org.apache.flink.compiler.CompilerException;
 import org.apache.flink.compiler.DataStatistics;
+import org.apache.flink.compiler.PactCompiler;
 import org.apache.flink.compiler.operators.AllReduceProperties;
 import org.apache.flink.compiler.operators.OperatorDescriptorSingle;
 import org.apache.flink.compiler.operators.ReduceProperties;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.operators.DriverStrategy;
 
 /**
  * The Optimizer representation of a <i>Reduce</i> operator.
  */
 public class ReduceNode extends SingleInputNode {
 	
+	/**
+	 * The factor by which the estimates must expect the input to shrink to choose a hash based combiner.
+	 */
+	private static final int MIN_REDUCTION_FOR_HASH_COMBINER = 10;
+	
 	private ReduceNode preReduceUtilityNode;
 	
 
@@ -65,11 +74,38 @@ public class ReduceNode extends SingleInputNode {
 	protected List<OperatorDescriptorSingle> getPossibleProperties() {
 		OperatorDescriptorSingle props = this.keys == null ?
 			new AllReduceProperties() :
-			new ReduceProperties(this.keys);
+			new ReduceProperties(this.keys, getCombinerStrategy());
 		
 			return Collections.singletonList(props);
 	}
 	
+	private DriverStrategy getCombinerStrategy() {
+		// see if an internal hint dictates the strategy to use
+		final Configuration conf = getPactContract().getParameters();
+		final String localStrategy = conf.getString(PactCompiler.HINT_LOCAL_STRATEGY, null);
+		
+		if (localStrategy != null) {
+			if (PactCompiler.HINT_LOCAL_STRATEGY_SORT.equals(localStrategy) ||
+					PactCompiler.HINT_LOCAL_STRATEGY_COMBINING_SORT.equals(localStrategy))
+			{
+				return DriverStrategy.SORTED_PARTIAL_REDUCE;
+			} else if (PactCompiler.HINT_LOCAL_STRATEGY_COMBINING_HASH.equals(localStrategy)) {
+				return DriverStrategy.HASHED_PARTIAL_REDUCE;
+			} else {
+				throw new CompilerException("Invalid local strategy hint for reduce contract: " + localStrategy);
+			}
+		}
+		
+		// hash the records in the combiner, if the estimates promise few groups
+		final OptimizerNode pred = getPredecessorNode();
+		if (pred != null && this.estimatedNumRecords > 0 && pred.getEstimatedNumRecords() > 0 &&
+				pred.getEstimatedNumRecords() / this.estimatedNumRecords >= MIN_REDUCTION_FOR_HASH_COMBINER)
+		{
+			return DriverStrategy.HASHED_PARTIAL_REDUCE;
+		}
+		return DriverStrategy.SORTED_PARTIAL_REDUCE;
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//  Estimates
 	// --------------------------------------------------------------------------------------------
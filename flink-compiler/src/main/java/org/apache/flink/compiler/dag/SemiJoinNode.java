@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.compiler.dag;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.flink.api.common.operators.base.SemiJoinOperatorBase;
+import org.apache.flink.compiler.DataStatistics;
+import org.apache.flink.compiler.operators.HashSemiJoinDescriptor;
+import org.apache.flink.compiler.operators.OperatorDescriptorDual;
+
+/**
+ * The Optimizer representation of a semi join or anti join operator.
+ */
+public class SemiJoinNode extends TwoInputNode {
+	
+	public SemiJoinNode(SemiJoinOperatorBase<?, ?> pactContract) {
+		super(pactContract);
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the operator for this semi join node.
+	 * 
+	 * @return The semi join operator.
+	 */
+	@Override
+	public SemiJoinOperatorBase<?, ?> getPactContract() {
+		return (SemiJoinOperatorBase<?, ?>) super.getPactContract();
+	}
+
+	@Override
+	public String getName() {
+		return getPactContract().isAntiJoin() ? "AntiJoin" : "SemiJoin";
+	}
+	
+	@Override
+	public boolean isFieldConstant(int input, int fieldNumber) {
+		// the records of the first input are forwarded unchanged, the second input is never forwarded
+		switch (input) {
+		case 0:
+			return true;
+		case 1:
+			return false;
+		default:
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	@Override
+	protected List<OperatorDescriptorDual> getPossibleProperties() {
+		return Collections.<OperatorDescriptorDual>singletonList(
+			new HashSemiJoinDescriptor(this.keys1, this.keys2, getPactContract().isAntiJoin()));
+	}
+
+	/**
+	 * Computes the estimates for the semi join. Like for the Filter operator, we assume that half of the records
+	 * of the first input are forwarded. The records keep the width of the first input.
+	 */
+	@Override
+	protected void computeOperatorSpecificDefaultEstimates(DataStatistics statistics) {
+		long card1 = getFirstPredecessorNode().getEstimatedNumRecords();
+		this.estimatedNumRecords = card1 < 0 ? -1 : (long) (card1 * 0.5);
+		
+		if (this.estimatedNumRecords >= 0) {
+			float width1 = getFirstPredecessorNode().getEstimatedAvgWidthPerOutputRecord();
+			if (width1 > 0) {
+				this.estimatedOutputSize = (long) (width1 * this.estimatedNumRecords);
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ package org.apache.flink.compiler.operators;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.operators.util.FieldList;
 import org.apache.flink.compiler.dataproperties.GlobalProperties;
 import org.apache.flink.compiler.dataproperties.PartitioningProperty;
@@ -30,8 +31,15 @@ import org.apache.flink.compiler.dataproperties.RequestedGlobalProperties;
 
 public abstract class AbstractJoinDescriptor extends OperatorDescriptorDual {
 	
+	protected final JoinType joinType;
+	
 	protected AbstractJoinDescriptor(FieldList keys1, FieldList keys2) {
+		this(keys1, keys2, JoinType.INNER);
+	}
+	
+	protected AbstractJoinDescriptor(FieldList keys1, FieldList keys2, JoinType joinType) {
 		super(keys1, keys2);
+		this.joinType = joinType;
 	}
 	
 	@Override
@@ -45,13 +53,15 @@ public abstract class AbstractJoinDescriptor extends OperatorDescriptorDual {
 			partitioned2.setHashPartitioned(this.keys2);
 			pairs.add(new GlobalPropertiesPair(partitioned1, partitioned2));
 		}
-		{ // replicate second
+		// an outer join must see all records of a preserved input in one place to decide which of them
+		// have no partner, so a preserved input is never replicated
+		if (!this.joinType.isOuterSecond()) { // replicate second
 			RequestedGlobalProperties any1 = new RequestedGlobalProperties();
 			RequestedGlobalProperties replicated2 = new RequestedGlobalProperties();
 			replicated2.setFullyReplicated();
 			pairs.add(new GlobalPropertiesPair(any1, replicated2));
 		}
-		{ // replicate first
+		if (!this.joinType.isOuterFirst()) { // replicate first
 			RequestedGlobalProperties replicated1 = new RequestedGlobalProperties();
 			replicated1.setFullyReplicated();
 			RequestedGlobalProperties any2 = new RequestedGlobalProperties();
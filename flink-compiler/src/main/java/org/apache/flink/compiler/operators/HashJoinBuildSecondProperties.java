@@ -22,6 +22,7 @@ package org.apache.flink.compiler.operators;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.operators.util.FieldList;
 import org.apache.flink.compiler.CompilerException;
 import org.apache.flink.compiler.dag.TwoInputNode;
@@ -36,6 +37,10 @@ public final class HashJoinBuildSecondProperties extends AbstractJoinDescriptor
 	public HashJoinBuildSecondProperties(FieldList keys1, FieldList keys2) {
 		super(keys1, keys2);
 	}
+	
+	public HashJoinBuildSecondProperties(FieldList keys1, FieldList keys2, JoinType joinType) {
+		super(keys1, keys2, joinType);
+	}
 
 	@Override
 	public DriverStrategy getStrategy() {
@@ -60,7 +65,9 @@ public final class HashJoinBuildSecondProperties extends AbstractJoinDescriptor
 	public DualInputPlanNode instantiate(Channel in1, Channel in2, TwoInputNode node) {
 		DriverStrategy strategy;
 		
-		if (!in2.isOnDynamicPath() && in1.isOnDynamicPath()) {
+		// the cached build side is not available for outer joins. they rebuild the table from the
+		// cached input in every superstep
+		if (!in2.isOnDynamicPath() && in1.isOnDynamicPath() && this.joinType == JoinType.INNER) {
 			// sanity check that the first input is cached and remove that cache
 			if (!in2.getTempMode().isCached()) {
 				throw new CompilerException("No cache at point where static and dynamic parts meet.");
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.compiler.operators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.flink.api.common.operators.util.FieldList;
+import org.apache.flink.compiler.dag.TwoInputNode;
+import org.apache.flink.compiler.dataproperties.GlobalProperties;
+import org.apache.flink.compiler.dataproperties.LocalProperties;
+import org.apache.flink.compiler.dataproperties.RequestedGlobalProperties;
+import org.apache.flink.compiler.dataproperties.RequestedLocalProperties;
+import org.apache.flink.compiler.plan.Channel;
+import org.apache.flink.compiler.plan.DualInputPlanNode;
+import org.apache.flink.runtime.operators.DriverStrategy;
+
+/**
+ * Descriptor for the semi join and the anti join, which build a hash table from the keys of the second
+ * input and probe the first input against it.
+ */
+public final class HashSemiJoinDescriptor extends OperatorDescriptorDual {
+	
+	private final boolean anti;
+	
+	public HashSemiJoinDescriptor(FieldList keys1, FieldList keys2, boolean anti) {
+		super(keys1, keys2);
+		this.anti = anti;
+	}
+
+	@Override
+	public DriverStrategy getStrategy() {
+		return this.anti ? DriverStrategy.HYBRIDHASH_ANTI_JOIN : DriverStrategy.HYBRIDHASH_SEMI_JOIN;
+	}
+	
+	@Override
+	protected List<GlobalPropertiesPair> createPossibleGlobalProperties() {
+		ArrayList<GlobalPropertiesPair> pairs = new ArrayList<GlobalPropertiesPair>();
+		
+		{ // partition both (hash)
+			RequestedGlobalProperties partitioned1 = new RequestedGlobalProperties();
+			partitioned1.setHashPartitioned(this.keys1);
+			RequestedGlobalProperties partitioned2 = new RequestedGlobalProperties();
+			partitioned2.setHashPartitioned(this.keys2);
+			pairs.add(new GlobalPropertiesPair(partitioned1, partitioned2));
+		}
+		{ // replicate second
+			RequestedGlobalProperties any1 = new RequestedGlobalProperties();
+			RequestedGlobalProperties replicated2 = new RequestedGlobalProperties();
+			replicated2.setFullyReplicated();
+			pairs.add(new GlobalPropertiesPair(any1, replicated2));
+		}
+		// the first input is never replicated, because every instance would forward its records
+		return pairs;
+	}
+
+	@Override
+	protected List<LocalPropertiesPair> createPossibleLocalProperties() {
+		// all properties are possible
+		return Collections.singletonList(new LocalPropertiesPair(
+			new RequestedLocalProperties(), new RequestedLocalProperties()));
+	}
+	
+	@Override
+	public boolean areCoFulfilled(RequestedLocalProperties requested1, RequestedLocalProperties requested2,
+			LocalProperties produced1, LocalProperties produced2)
+	{
+		return true;
+	}
+
+	@Override
+	public DualInputPlanNode instantiate(Channel in1, Channel in2, TwoInputNode node) {
+		final String name = (this.anti ? "AntiJoin(" : "SemiJoin(") + node.getPactContract().getName() + ")";
+		return new DualInputPlanNode(node, name, in1, in2, getStrategy(), this.keys1, this.keys2);
+	}
+	
+	@Override
+	public GlobalProperties computeGlobalProperties(GlobalProperties in1, GlobalProperties in2) {
+		// the records of the first input are forwarded unchanged and at most once
+		return in1;
+	}
+	
+	@Override
+	public LocalProperties computeLocalProperties(LocalProperties in1, LocalProperties in2) {
+		// the probe records of spilled partitions are forwarded after the others
+		return new LocalProperties();
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.compiler.operators;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.flink.api.common.operators.Ordering;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase.PartitionMethod;
+import org.apache.flink.api.common.operators.util.FieldSet;
+import org.apache.flink.compiler.util.Utils;
+import org.apache.flink.compiler.costs.Costs;
+import org.apache.flink.compiler.dag.PartitionNode;
+import org.apache.flink.compiler.dag.SingleInputNode;
+import org.apache.flink.compiler.dataproperties.GlobalProperties;
+import org.apache.flink.compiler.dataproperties.LocalProperties;
+import org.apache.flink.compiler.dataproperties.RequestedGlobalProperties;
+import org.apache.flink.compiler.dataproperties.RequestedLocalProperties;
+import org.apache.flink.compiler.plan.Channel;
+import org.apache.flink.compiler.plan.SampledPartitionPlanNode;
+import org.apache.flink.compiler.plan.SingleInputPlanNode;
+import org.apache.flink.runtime.operators.DriverStrategy;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+
+/**
+ * Properties for the partition operator. A hash partitioning is requested from the input channel. Range
+ * partitionings and balanced hash partitionings are done by an additional sender node, because the ranges or
+ * the assignment of key groups are computed at runtime from a sample that the sender receives as a broadcast
+ * variable.
+ * <p>
+ * The assignment of the key groups of a balanced hash partitioning differs from plain hash partitioning, and
+ * between data sets. The result is therefore only marked as partitioned on its keys, which suffices for grouping
+ * operators, but not for operators that require two co-partitioned inputs.
+ */
+public final class PartitionDescriptor extends OperatorDescriptorSingle {
+
+	private final PartitionMethod method;
+
+	private final Ordering ordering;
+
+	public PartitionDescriptor(PartitionMethod method, FieldSet keys, Ordering ordering) {
+		super(keys);
+		this.method = method;
+		this.ordering = ordering;
+	}
+
+	@Override
+	public DriverStrategy getStrategy() {
+		return DriverStrategy.UNARY_NO_OP;
+	}
+
+	@Override
+	public SingleInputPlanNode instantiate(Channel in, SingleInputNode node) {
+		final String name = "Partition (" + node.getPactContract().getName() + ")";
+		if (this.method == PartitionMethod.HASH) {
+			return new SingleInputPlanNode(node, name, in, DriverStrategy.UNARY_NO_OP);
+		}
+
+		// the sender selects the partition of each record. it runs with the degree of parallelism of the partitioning
+		final PartitionNode senderNode = ((PartitionNode) node).getSenderUtilityNode();
+		final String senderName = (this.method == PartitionMethod.RANGE ? "Range Partition (" : "Balanced Hash Partition (") +
+				node.getPactContract().getName() + ")";
+		final SingleInputPlanNode sender = new SingleInputPlanNode(senderNode, senderName, in, DriverStrategy.UNARY_NO_OP);
+		sender.setCosts(new Costs(0, 0));
+		sender.initProperties(in.getGlobalProperties(), in.getLocalProperties());
+
+		final Channel toReceiver = new Channel(sender);
+		if (this.method == PartitionMethod.RANGE) {
+			toReceiver.setShipStrategy(ShipStrategyType.PARTITION_RANGE, this.ordering.getInvolvedIndexes(),
+				this.ordering.getFieldSortDirections());
+		} else {
+			toReceiver.setShipStrategy(ShipStrategyType.PARTITION_HASH, Utils.createOrderedFromSet(this.keys));
+		}
+		return new SampledPartitionPlanNode((PartitionNode) node, name, toReceiver);
+	}
+
+	@Override
+	protected List<RequestedGlobalProperties> createPossibleGlobalProperties() {
+		RequestedGlobalProperties props = new RequestedGlobalProperties();
+		if (this.method == PartitionMethod.HASH) {
+			props.setHashPartitioned(this.keys);
+		}
+		return Collections.singletonList(props);
+	}
+
+	@Override
+	protected List<RequestedLocalProperties> createPossibleLocalProperties() {
+		return Collections.singletonList(new RequestedLocalProperties());
+	}
+
+	@Override
+	public GlobalProperties computeGlobalProperties(GlobalProperties gProps) {
+		if (this.method == PartitionMethod.RANGE) {
+			gProps.setRangePartitioned(this.ordering);
+		} else if (this.method == PartitionMethod.BALANCED_HASH) {
+			gProps.setAnyPartitioning(Utils.createOrderedFromSet(this.keys));
+		}
+		return gProps;
+	}
+
+	@Override
+	public LocalProperties computeLocalProperties(LocalProperties lProps) {
+		// the sampled partitionings happen after the input channel, so they destroy the order of the input
+		return this.method == PartitionMethod.HASH ? lProps : new LocalProperties();
+	}
+}
@@ -38,8 +38,15 @@ import org.apache.flink.runtime.operators.util.LocalStrategy;
 
 public final class ReduceProperties extends OperatorDescriptorSingle {
 	
+	private final DriverStrategy combinerStrategy;
+	
 	public ReduceProperties(FieldSet keys) {
+		this(keys, DriverStrategy.SORTED_PARTIAL_REDUCE);
+	}
+	
+	public ReduceProperties(FieldSet keys, DriverStrategy combinerStrategy) {
 		super(keys);
+		this.combinerStrategy = combinerStrategy;
 	}
 	
 	@Override
@@ -63,7 +70,7 @@ public final class ReduceProperties extends OperatorDescriptorSingle {
 			ReduceNode combinerNode = ((ReduceNode) node).getCombinerUtilityNode();
 			combinerNode.setDegreeOfParallelism(in.getSource().getDegreeOfParallelism());
 
-			SingleInputPlanNode combiner = new SingleInputPlanNode(combinerNode, "Combine ("+node.getPactContract().getName()+")", toCombiner, DriverStrategy.SORTED_PARTIAL_REDUCE, this.keyList);
+			SingleInputPlanNode combiner = new SingleInputPlanNode(combinerNode, "Combine ("+node.getPactContract().getName()+")", toCombiner, this.combinerStrategy, this.keyList);
 			combiner.setCosts(new Costs(0, 0));
 			combiner.initProperties(toCombiner.getGlobalProperties(), toCombiner.getLocalProperties());
 			
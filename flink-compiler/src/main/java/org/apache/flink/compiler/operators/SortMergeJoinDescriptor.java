@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.flink.api.common.operators.Ordering;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.operators.util.FieldList;
 import org.apache.flink.compiler.CompilerException;
 import org.apache.flink.compiler.dag.TwoInputNode;
@@ -41,6 +42,10 @@ public class SortMergeJoinDescriptor extends AbstractJoinDescriptor
 	public SortMergeJoinDescriptor(FieldList keys1, FieldList keys2) {
 		super(keys1, keys2);
 	}
+	
+	public SortMergeJoinDescriptor(FieldList keys1, FieldList keys2, JoinType joinType) {
+		super(keys1, keys2, joinType);
+	}
 
 	@Override
 	public DriverStrategy getStrategy() {
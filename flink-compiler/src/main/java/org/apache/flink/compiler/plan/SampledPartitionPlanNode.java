@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.compiler.plan;
+
+import java.util.List;
+
+import org.apache.flink.compiler.dag.PartitionNode;
+import org.apache.flink.runtime.operators.DriverStrategy;
+
+/**
+ * Plan candidate node that receives the records of a partitioning that is parameterized by a sample, such as a
+ * range partitioning whose boundaries are drawn from the sample. The partitions are selected by the sender, which
+ * is the source of this node's input channel. The broadcast inputs that hold the sample are therefore attached to
+ * the sender rather than to this node.
+ */
+public class SampledPartitionPlanNode extends SingleInputPlanNode {
+
+	public SampledPartitionPlanNode(PartitionNode template, String nodeName, Channel input) {
+		super(template, nodeName, input, DriverStrategy.UNARY_NO_OP);
+	}
+
+	/**
+	 * Gets the node that selects the partition for each record.
+	 *
+	 * @return The sender of the partitioning.
+	 */
+	public SingleInputPlanNode getSender() {
+		return (SingleInputPlanNode) this.input.getSource();
+	}
+
+	@Override
+	public void setBroadcastInputs(List<NamedChannel> broadcastInputs) {
+		final SingleInputPlanNode sender = getSender();
+		sender.setBroadcastInputs(broadcastInputs);
+
+		// the sender may only now know the candidates for the branching points of the broadcast inputs
+		mergeBranchPlanMaps(this.branchPlan, sender.branchPlan);
+		super.setBroadcastInputs(null);
+	}
+}
@@ -427,11 +427,19 @@ public class PlanJSONDumpGenerator {
 			case SORTED_PARTIAL_REDUCE:
 				locString = "Sorted Combine/Reduce";
 				break;
+				
+			case HASHED_PARTIAL_REDUCE:
+				locString = "Hashed Combine/Reduce";
+				break;
 
 			case SORTED_GROUP_REDUCE:
 				locString = "Sorted Group Reduce";
 				break;
 				
+			case HASHED_GROUP_REDUCE:
+				locString = "Hashed Group Reduce";
+				break;
+				
 			case SORTED_GROUP_COMBINE:
 				locString = "Sorted Combine";
 				break;
@@ -449,6 +457,13 @@ public class PlanJSONDumpGenerator {
 			case HYBRIDHASH_BUILD_SECOND_CACHED:
 				locString = "Hybrid Hash (CACHED) (build: " + child2name + ")";
 				break;
+				
+			case HYBRIDHASH_SEMI_JOIN:
+				locString = "Hybrid Hash Semi Join (build: " + child2name + ")";
+				break;
+			case HYBRIDHASH_ANTI_JOIN:
+				locString = "Hybrid Hash Anti Join (build: " + child2name + ")";
+				break;
 
 			case NESTEDLOOP_BLOCKED_OUTER_FIRST:
 				locString = "Nested Loops (Blocked Outer: " + child1name + ")";
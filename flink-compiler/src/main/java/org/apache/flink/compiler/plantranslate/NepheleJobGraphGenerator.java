@@ -19,6 +19,7 @@
 
 package org.apache.flink.compiler.plantranslate;
 
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -35,6 +36,11 @@ import org.apache.flink.api.common.aggregators.LongSumAggregator;
 import org.apache.flink.api.common.cache.DistributedCache;
 import org.apache.flink.api.common.cache.DistributedCache.DistributedCacheEntry;
 import org.apache.flink.api.common.distributions.DataDistribution;
+import org.apache.flink.api.common.io.FileInputFormat;
+import org.apache.flink.api.common.operators.base.GenericDataSourceBase;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
+import org.apache.flink.api.common.operators.util.FieldList;
 import org.apache.flink.api.common.typeutils.TypeSerializerFactory;
 import org.apache.flink.compiler.CompilerException;
 import org.apache.flink.compiler.dag.TempMode;
@@ -56,6 +62,8 @@ import org.apache.flink.compiler.plan.WorksetPlanNode;
 import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.GlobalConfiguration;
+import org.apache.flink.core.fs.FileStatus;
+import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.io.network.channels.ChannelType;
 import org.apache.flink.runtime.iterative.convergence.WorksetEmptyConvergenceCriterion;
 import org.apache.flink.runtime.iterative.io.FakeOutputTask;
@@ -86,6 +94,8 @@ import org.apache.flink.runtime.operators.chaining.ChainedDriver;
 import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
 import org.apache.flink.runtime.operators.util.LocalStrategy;
 import org.apache.flink.runtime.operators.util.TaskConfig;
+import org.apache.flink.util.InstantiationUtil;
+import org.apache.flink.util.StringUtils;
 import org.apache.flink.util.Visitor;
 
 /**
@@ -802,11 +812,82 @@ public class NepheleJobGraphGenerator implements Visitor<PlanNode> {
 		if (node.getPairComparator() != null) {
 			config.setDriverPairComparator(node.getPairComparator());
 		}
+		if (node.getPactContract() instanceof JoinOperatorBase) {
+			config.setDriverJoinType(((JoinOperatorBase<?, ?, ?, ?>) node.getPactContract()).getJoinType());
+		}
+		
+		// mark build sides whose contents are equal across jobs, such that task managers may cache their hash tables
+		if (this.currentIteration == null &&
+				(ds == DriverStrategy.HYBRIDHASH_BUILD_FIRST || ds == DriverStrategy.HYBRIDHASH_BUILD_SECOND))
+		{
+			final String cacheKey = getBuildSideCacheKey(node);
+			if (cacheKey != null) {
+				config.setBuildSideCacheKey(cacheKey);
+			}
+		}
 		
 		// assign memory, file-handles, etc.
 		assignDriverResources(node, config);
 		return vertex;
 	}
+	
+	/**
+	 * Describes the contents that each parallel instance of a hash join receives on its build side, if these
+	 * contents depend only on a file and not on the assignment of input splits at runtime. That is the case when
+	 * the build side is read directly from a file source and is either broadcast, or hash partitioned on the
+	 * join keys.
+	 * 
+	 * @param node The join.
+	 * @return The key describing the build side, or null, if the build side's contents are not reproducible.
+	 */
+	private String getBuildSideCacheKey(DualInputPlanNode node) {
+		final boolean buildFirst = node.getDriverStrategy() == DriverStrategy.HYBRIDHASH_BUILD_FIRST;
+		final Channel buildSide = buildFirst ? node.getInput1() : node.getInput2();
+		final FieldList joinKeys = buildFirst ? node.getKeysForInput1() : node.getKeysForInput2();
+		
+		if (!(buildSide.getSource() instanceof SourcePlanNode) || buildSide.getLocalStrategy() != LocalStrategy.NONE) {
+			return null;
+		}
+		if (buildSide.getShipStrategy() != ShipStrategyType.BROADCAST && !(buildSide.getShipStrategy() ==
+				ShipStrategyType.PARTITION_HASH && joinKeys.equals(buildSide.getShipStrategyKeys())))
+		{
+			return null;
+		}
+		
+		final SourcePlanNode source = (SourcePlanNode) buildSide.getSource();
+		final GenericDataSourceBase<?, ?> contract = source.getDataSourceNode().getPactContract();
+		if (!FileInputFormat.class.isAssignableFrom(contract.getFormatWrapper().getUserCodeClass())) {
+			return null;
+		}
+		
+		try {
+			// the file and its state at compile time
+			final FileInputFormat<?> format = (FileInputFormat<?>) contract.getFormatWrapper().getUserCodeObject();
+			final Configuration parameters = contract.getParameters();
+			parameters.setClassLoader(format.getClass().getClassLoader());
+			format.configure(parameters);
+			
+			final Path path = format.getFilePath();
+			final FileStatus status = path.getFileSystem().getFileStatus(path);
+			if (status.isDir()) {
+				// changes to the files of a directory are not reliably reflected in the directory's status
+				return null;
+			}
+			
+			// the format and its parameters, which determine how the file is parsed
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(InstantiationUtil.serializeObject(contract.getFormatWrapper()));
+			digest.update(parameters.toString().getBytes());
+			
+			return path.toUri() + "@" + status.getModificationTime() + "/" + status.getLen() + "|" +
+				StringUtils.byteToHexString(digest.digest()) + "|" + buildSide.getShipStrategy().name() +
+				buildSide.getShipStrategyKeys() + "|" + source.getDegreeOfParallelism();
+		}
+		catch (Throwable t) {
+			// the build side is not cached
+			return null;
+		}
+	}
 
 	private JobInputVertex createDataSourceVertex(SourcePlanNode node) throws CompilerException {
 		final JobInputVertex vertex = new JobInputVertex(node.getNodeName(), this.jobGraph);
@@ -1045,16 +1126,30 @@ public class NepheleJobGraphGenerator implements Visitor<PlanNode> {
 			sourceConfig.setOutputComparator(channel.getShipStrategyComparator(), outputIndex);
 		}
 		
+		// the producer bounds the time that its records wait in partly filled buffers
+		final long bufferTimeout = channel.getSource().getPactContract().getBufferTimeout();
+		if (bufferTimeout >= 0) {
+			sourceConfig.setOutputBufferTimeout(bufferTimeout, outputIndex);
+		}
+		
 		if (channel.getShipStrategy() == ShipStrategyType.PARTITION_RANGE) {
 			
 			final DataDistribution dataDistribution = channel.getDataDistribution();
 			if(dataDistribution != null) {
 				sourceConfig.setOutputDataDistribution(dataDistribution, outputIndex);
+			} else if (hasBroadcastInput(channel.getSource(), PartitionOperatorBase.RANGE_SAMPLE)) {
+				// the source draws the range boundaries from the sample it receives as broadcast variable
+				sourceConfig.setOutputRangeSample(PartitionOperatorBase.RANGE_SAMPLE, outputIndex);
 			} else {
-				throw new RuntimeException("Range partitioning requires data distribution");
-				// TODO: inject code and configuration for automatic histogram generation
+				throw new RuntimeException("Range partitioning requires a data distribution or a sample of the records.");
 			}
 		}
+		else if (channel.getShipStrategy() == ShipStrategyType.PARTITION_HASH &&
+				hasBroadcastInput(channel.getSource(), PartitionOperatorBase.KEY_GROUP_SAMPLE))
+		{
+			// the source balances the key groups over the channels by the sample it receives as broadcast variable
+			sourceConfig.setOutputKeyGroupSample(PartitionOperatorBase.KEY_GROUP_SAMPLE, outputIndex);
+		}
 //		if (targetContract instanceof GenericDataSink) {
 //			final DataDistribution distri = ((GenericDataSink) targetContract).getDataDistribution();
 //			if (distri != null) {
@@ -1071,6 +1166,15 @@ public class NepheleJobGraphGenerator implements Visitor<PlanNode> {
 		return distributionPattern;
 	}
 	
+	private static boolean hasBroadcastInput(PlanNode node, String name) {
+		for (NamedChannel broadcastInput : node.getBroadcastInputs()) {
+			if (name.equals(broadcastInput.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private void addLocalInfoFromChannelToConfig(Channel channel, TaskConfig config, int inputNum, boolean isBroadcastChannel) {
 		// serializer
 		if (isBroadcastChannel) {
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.compiler.dag.TempMode;
+import org.apache.flink.compiler.dataproperties.GlobalProperties;
+import org.apache.flink.compiler.dataproperties.PartitioningProperty;
+import org.apache.flink.compiler.plan.DualInputPlanNode;
+import org.apache.flink.compiler.plan.OptimizedPlan;
+import org.apache.flink.compiler.plan.PlanNode;
+import org.apache.flink.compiler.plan.SampledPartitionPlanNode;
+import org.apache.flink.compiler.plan.SingleInputPlanNode;
+import org.apache.flink.compiler.plan.SinkPlanNode;
+import org.apache.flink.compiler.plantranslate.NepheleJobGraphGenerator;
+import org.apache.flink.compiler.testfunctions.DummyJoinFunction;
+import org.apache.flink.compiler.testfunctions.IdentityGroupReducer;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobTaskVertex;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+import org.apache.flink.runtime.operators.util.TaskConfig;
+import org.junit.Test;
+
+/**
+ * Tests the plans of balanced hash partitionings, which assign key groups to the channels by a sample of the
+ * partitioned data. The result is only marked as partitioned on its keys.
+ */
+@SuppressWarnings("serial")
+public class BalancedHashPartitionCompilerTest extends CompilerTestBase {
+
+	/**
+	 * A grouping on the keys of the balanced partitioning does not partition the data again.
+	 */
+	@Test
+	public void testGroupingReusesPartitioning() {
+		try {
+			ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+			env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+
+			DataSet<Tuple2<Long, Long>> data = env.readCsvFile(IN_FILE).types(Long.class, Long.class);
+			data.partitionByBalancedHash(0)
+				.groupBy(0).reduceGroup(new IdentityGroupReducer<Tuple2<Long, Long>>()).name("reducer")
+				.print();
+
+			OptimizedPlan oPlan = compileNoStats(env.createProgramPlan());
+
+			SinkPlanNode sink = oPlan.getDataSinks().iterator().next();
+			SingleInputPlanNode reducer = (SingleInputPlanNode) sink.getInput().getSource();
+			assertEquals(ShipStrategyType.FORWARD, reducer.getInput().getShipStrategy());
+
+			SampledPartitionPlanNode partition = checkPartitioning(reducer.getInput().getSource());
+			assertEquals(ShipStrategyType.PARTITION_HASH, partition.getInput().getShipStrategy());
+			assertEquals(0, partition.getInput().getShipStrategyKeys().get(0).intValue());
+			assertEquals(TempMode.PIPELINE_BREAKER, partition.getSender().getInput().getTempMode());
+
+			checkSenderConfig(oPlan);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * A join partitions a balanced partitioned input again, because the other input is not assigned to the
+	 * channels by the same key groups.
+	 */
+	@Test
+	public void testJoinRepartitions() {
+		try {
+			ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+			env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+
+			DataSet<Tuple2<Long, Long>> data1 = env.readCsvFile(IN_FILE).types(Long.class, Long.class);
+			DataSet<Tuple2<Long, Long>> data2 = env.readCsvFile(IN_FILE).types(Long.class, Long.class);
+
+			Configuration joinStrategy = new Configuration();
+			joinStrategy.setString(PactCompiler.HINT_SHIP_STRATEGY, PactCompiler.HINT_SHIP_STRATEGY_REPARTITION_HASH);
+
+			data1.partitionByBalancedHash(0)
+				.join(data2).where(0).equalTo(0).with(new DummyJoinFunction<Tuple2<Long, Long>>())
+				.name("join").withParameters(joinStrategy)
+				.print();
+
+			OptimizedPlan oPlan = compileNoStats(env.createProgramPlan());
+
+			DualInputPlanNode join = getOptimizerPlanNodeResolver(oPlan).getNode("join");
+			assertEquals(ShipStrategyType.PARTITION_HASH, join.getInput1().getShipStrategy());
+			assertEquals(ShipStrategyType.PARTITION_HASH, join.getInput2().getShipStrategy());
+
+			// the first input is the balanced partitioning, which is hash partitioned once more
+			checkPartitioning(join.getInput1().getSource());
+
+			checkSenderConfig(oPlan);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that the given node receives a balanced hash partitioning, which is marked only as partitioned on
+	 * its keys.
+	 */
+	private static SampledPartitionPlanNode checkPartitioning(PlanNode node) {
+		assertTrue(node instanceof SampledPartitionPlanNode);
+		SampledPartitionPlanNode partition = (SampledPartitionPlanNode) node;
+
+		GlobalProperties gProps = partition.getGlobalProperties();
+		assertEquals(PartitioningProperty.ANY_PARTITIONING, gProps.getPartitioning());
+		assertEquals(1, gProps.getPartitioningFields().size());
+		assertEquals(0, gProps.getPartitioningFields().get(0).intValue());
+
+		SingleInputPlanNode sender = partition.getSender();
+		assertEquals(1, sender.getBroadcastInputs().size());
+		assertEquals(PartitionOperatorBase.KEY_GROUP_SAMPLE, sender.getBroadcastInputs().get(0).getName());
+		assertEquals(1, sender.getBroadcastInputs().get(0).getSource().getDegreeOfParallelism());
+
+		return partition;
+	}
+
+	/**
+	 * Checks that the job graph configures the sender to assign the key groups by the broadcast sample.
+	 */
+	private static void checkSenderConfig(OptimizedPlan oPlan) {
+		JobGraph jobGraph = new NepheleJobGraphGenerator().compileJobGraph(oPlan);
+
+		int numSenders = 0;
+		for (Iterator<JobTaskVertex> vertices = jobGraph.getTaskVertices(); vertices.hasNext();) {
+			TaskConfig config = new TaskConfig(vertices.next().getConfiguration());
+			for (int i = 0; i < config.getNumOutputs(); i++) {
+				if (config.getOutputKeyGroupSample(i) != null) {
+					assertEquals(PartitionOperatorBase.KEY_GROUP_SAMPLE, config.getOutputKeyGroupSample(i));
+					assertEquals(ShipStrategyType.PARTITION_HASH, config.getOutputShipStrategy(i));
+					assertEquals(PartitionOperatorBase.KEY_GROUP_SAMPLE, config.getBroadcastInputName(0));
+					numSenders++;
+				}
+			}
+		}
+		// the repartitioning of a join hashes the keys plainly
+		assertEquals(1, numSenders);
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.apache.flink.api.common.Plan;
+import org.apache.flink.api.common.operators.base.GenericDataSourceBase;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.IterativeDataSet;
+import org.apache.flink.api.java.functions.JoinFunction;
+import org.apache.flink.api.java.operators.JoinOperator.EquiJoin;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.compiler.dag.TempMode;
+import org.apache.flink.compiler.plan.DualInputPlanNode;
+import org.apache.flink.compiler.plan.OptimizedPlan;
+import org.apache.flink.compiler.plantranslate.NepheleJobGraphGenerator;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobTaskVertex;
+import org.apache.flink.runtime.operators.DriverStrategy;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+import org.apache.flink.runtime.operators.util.TaskConfig;
+
+/**
+ * Tests that validate the optimizer choices for outer joins.
+ */
+@SuppressWarnings("serial")
+public class OuterJoinCompilerTest extends CompilerTestBase {
+
+	/**
+	 * A small first input is broadcast for an inner join, but must not be replicated when the join
+	 * preserves it.
+	 */
+	@Test
+	public void testPreservedInputIsNotReplicated() {
+		try {
+			OptimizedPlan innerPlan = compileNoStats(getSmallBigPlan(JoinType.INNER));
+			DualInputPlanNode innerJoin = getOptimizerPlanNodeResolver(innerPlan).getNode("DummyJoiner");
+			assertEquals(ShipStrategyType.BROADCAST, innerJoin.getInput1().getShipStrategy());
+			
+			for (JoinType type : new JoinType[] { JoinType.LEFT_OUTER, JoinType.FULL_OUTER }) {
+				OptimizedPlan oPlan = compileNoStats(getSmallBigPlan(type));
+				DualInputPlanNode join = getOptimizerPlanNodeResolver(oPlan).getNode("DummyJoiner");
+				
+				assertEquals(type, ((JoinOperatorBase<?, ?, ?, ?>) join.getPactContract()).getJoinType());
+				assertTrue(join.getInput1().getShipStrategy() != ShipStrategyType.BROADCAST);
+				if (type == JoinType.FULL_OUTER) {
+					assertTrue(join.getInput2().getShipStrategy() != ShipStrategyType.BROADCAST);
+				}
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail("Test errored: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * The join type reaches the task configuration of the join.
+	 */
+	@Test
+	public void testJoinTypeInTaskConfig() {
+		try {
+			OptimizedPlan oPlan = compileNoStats(getSmallBigPlan(JoinType.RIGHT_OUTER));
+			JobGraph jobGraph = new NepheleJobGraphGenerator().compileJobGraph(oPlan);
+			
+			boolean found = false;
+			for (Iterator<JobTaskVertex> vertices = jobGraph.getTaskVertices(); vertices.hasNext();) {
+				TaskConfig config = new TaskConfig(vertices.next().getConfiguration());
+				if (config.getDriverStrategy().getNumInputs() == 2) {
+					assertEquals(JoinType.RIGHT_OUTER, config.getDriverJoinType());
+					found = true;
+				}
+			}
+			assertTrue("No join vertex in the job graph.", found);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail("Test errored: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * An outer join with the hashed input on the static path of an iteration rebuilds the table from
+	 * the cached input, rather than using the cached build side variant.
+	 */
+	@Test
+	public void testOuterJoinOnStaticPathIsNotCached() {
+		try {
+			OptimizedPlan oPlan = compileNoStats(getStaticPathPlan(PactCompiler.HINT_LOCAL_STRATEGY_HASH_BUILD_SECOND));
+			DualInputPlanNode join = getOptimizerPlanNodeResolver(oPlan).getNode("DummyJoiner");
+			
+			assertEquals(DriverStrategy.HYBRIDHASH_BUILD_SECOND, join.getDriverStrategy());
+			assertEquals(TempMode.CACHED, join.getInput2().getTempMode());
+			
+			new NepheleJobGraphGenerator().compileJobGraph(oPlan);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail("Test errored: " + e.getMessage());
+		}
+	}
+	
+	private Plan getSmallBigPlan(JoinType type) {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+		
+		DataSet<Tuple3<Long, Long, Long>> smallInput = env.readCsvFile("file://smallFile").types(Long.class, Long.class, Long.class).name("smallFile");
+		DataSet<Tuple3<Long, Long, Long>> bigInput = env.readCsvFile("file://bigFile").types(Long.class, Long.class, Long.class).name("bigFile");
+		
+		EquiJoin<Tuple3<Long, Long, Long>, Tuple3<Long, Long, Long>, Tuple3<Long, Long, Long>> join =
+				smallInput.join(bigInput).where(0).equalTo(0).with(new DummyJoiner());
+		switch (type) {
+		case LEFT_OUTER:
+			join.leftOuter();
+			break;
+		case RIGHT_OUTER:
+			join.rightOuter();
+			break;
+		case FULL_OUTER:
+			join.fullOuter();
+			break;
+		default:
+			break;
+		}
+		join.name("DummyJoiner").print();
+		
+		Plan plan = env.createProgramPlan();
+		
+		SourceCollectorVisitor sourceCollector = new SourceCollectorVisitor();
+		plan.accept(sourceCollector);
+		for (GenericDataSourceBase<?, ?> s : sourceCollector.getSources()) {
+			if (s.getName().equals("bigFile")) {
+				this.setSourceStatistics(s, 10000000, 1000);
+			}
+			else if (s.getName().equals("smallFile")) {
+				this.setSourceStatistics(s, 100, 100);
+			}
+		}
+		return plan;
+	}
+	
+	private Plan getStaticPathPlan(String strategy) {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+		
+		DataSet<Tuple3<Long, Long, Long>> bigInput = env.readCsvFile("file://bigFile").types(Long.class, Long.class, Long.class).name("bigFile");
+		DataSet<Tuple3<Long, Long, Long>> smallInput = env.readCsvFile("file://smallFile").types(Long.class, Long.class, Long.class).name("smallFile");
+		
+		IterativeDataSet<Tuple3<Long, Long, Long>> iteration = bigInput.iterate(10);
+		
+		Configuration joinStrategy = new Configuration();
+		joinStrategy.setString(PactCompiler.HINT_SHIP_STRATEGY, PactCompiler.HINT_SHIP_STRATEGY_REPARTITION_HASH);
+		joinStrategy.setString(PactCompiler.HINT_LOCAL_STRATEGY, strategy);
+		
+		DataSet<Tuple3<Long, Long, Long>> outer = iteration.join(smallInput).where(0).equalTo(0)
+				.with(new DummyJoiner()).rightOuter().name("DummyJoiner").withParameters(joinStrategy);
+		
+		iteration.closeWith(outer).print();
+		
+		return env.createProgramPlan();
+	}
+	
+	private static class DummyJoiner extends JoinFunction<Tuple3<Long, Long, Long>, Tuple3<Long, Long, Long>, Tuple3<Long, Long, Long>> {
+
+		@Override
+		public Tuple3<Long, Long, Long> join(Tuple3<Long, Long, Long> first, Tuple3<Long, Long, Long> second) {
+			return first != null ? first : second;
+		}
+	}
+}
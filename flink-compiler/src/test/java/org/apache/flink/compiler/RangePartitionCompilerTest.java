@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+
+import org.apache.flink.api.common.Plan;
+import org.apache.flink.api.common.operators.Order;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.compiler.dag.TempMode;
+import org.apache.flink.compiler.plan.NamedChannel;
+import org.apache.flink.compiler.plan.OptimizedPlan;
+import org.apache.flink.compiler.plan.PlanNode;
+import org.apache.flink.compiler.plan.SampledPartitionPlanNode;
+import org.apache.flink.compiler.plan.SingleInputPlanNode;
+import org.apache.flink.compiler.plan.SinkPlanNode;
+import org.apache.flink.compiler.plantranslate.NepheleJobGraphGenerator;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobTaskVertex;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+import org.apache.flink.runtime.operators.util.LocalStrategy;
+import org.apache.flink.runtime.operators.util.TaskConfig;
+import org.junit.Test;
+
+/**
+ * Tests the plans of range partitionings and globally sorted outputs, whose range boundaries are drawn from
+ * a sample of the partitioned data.
+ */
+public class RangePartitionCompilerTest extends CompilerTestBase {
+
+	@Test
+	public void testPartitionByRange() {
+		try {
+			ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+			env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+
+			DataSet<Tuple2<Long, Long>> data = env.readCsvFile(IN_FILE).types(Long.class, Long.class);
+			data.partitionByRange(0).print();
+
+			OptimizedPlan oPlan = compileNoStats(env.createProgramPlan());
+
+			SinkPlanNode sink = oPlan.getDataSinks().iterator().next();
+			SingleInputPlanNode sender = checkSampledPartitioning(sink.getInput().getSource());
+
+			assertEquals(ShipStrategyType.PARTITION_RANGE, sender.getOutgoingChannels().get(0).getShipStrategy());
+			assertEquals(0, sender.getOutgoingChannels().get(0).getShipStrategyKeys().get(0).intValue());
+			assertTrue(sender.getOutgoingChannels().get(0).getShipStrategySortOrder()[0]);
+
+			checkSenderConfig(oPlan);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSortGlobalOutput() {
+		try {
+			ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+			env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+
+			DataSet<Tuple2<Long, Long>> data = env.readCsvFile(IN_FILE).types(Long.class, Long.class);
+			data.writeAsCsv(OUT_FILE).sortGlobalOutput(1, Order.DESCENDING).sortGlobalOutput(0, Order.ASCENDING);
+
+			Plan p = env.createProgramPlan();
+			OptimizedPlan oPlan = compileNoStats(p);
+
+			SinkPlanNode sink = oPlan.getDataSinks().iterator().next();
+			SingleInputPlanNode sender = checkSampledPartitioning(sink.getInput().getSource());
+
+			// the ranges follow the sort order of the output
+			assertEquals(ShipStrategyType.PARTITION_RANGE, sender.getOutgoingChannels().get(0).getShipStrategy());
+			assertEquals(1, sender.getOutgoingChannels().get(0).getShipStrategyKeys().get(0).intValue());
+			assertEquals(0, sender.getOutgoingChannels().get(0).getShipStrategyKeys().get(1).intValue());
+			assertFalse(sender.getOutgoingChannels().get(0).getShipStrategySortOrder()[0]);
+			assertTrue(sender.getOutgoingChannels().get(0).getShipStrategySortOrder()[1]);
+
+			// each instance of the sink sorts its range
+			assertEquals(LocalStrategy.SORT, sink.getInput().getLocalStrategy());
+			assertEquals(1, sink.getInput().getLocalStrategyKeys().get(0).intValue());
+			assertFalse(sink.getInput().getLocalStrategySortOrder()[0]);
+			assertEquals(DEFAULT_PARALLELISM, sink.getDegreeOfParallelism());
+
+			checkSenderConfig(oPlan);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Checks the shape of a range partitioning: The partitioned data is sent by a sender node, which receives a
+	 * sample from a single sampler instance as broadcast variable. Since the sample is drawn from the same input,
+	 * the input of the sender is a pipeline breaker.
+	 */
+	private static SingleInputPlanNode checkSampledPartitioning(PlanNode partitionNode) {
+		assertTrue(partitionNode instanceof SampledPartitionPlanNode);
+		SampledPartitionPlanNode partition = (SampledPartitionPlanNode) partitionNode;
+		assertTrue(partition.getBroadcastInputs().isEmpty());
+
+		SingleInputPlanNode sender = partition.getSender();
+		assertEquals(partition.getDegreeOfParallelism(), sender.getDegreeOfParallelism());
+		assertEquals(TempMode.PIPELINE_BREAKER, sender.getInput().getTempMode());
+
+		assertEquals(1, sender.getBroadcastInputs().size());
+		NamedChannel sample = sender.getBroadcastInputs().get(0);
+		assertEquals(PartitionOperatorBase.RANGE_SAMPLE, sample.getName());
+		assertEquals(ShipStrategyType.BROADCAST, sample.getShipStrategy());
+		assertEquals(1, sample.getSource().getDegreeOfParallelism());
+
+		// the sampler and the sender read the same input
+		PlanNode sampleInput = ((SingleInputPlanNode) sample.getSource()).getInput().getSource();
+		while (sampleInput != sender.getInput().getSource() && sampleInput instanceof SingleInputPlanNode) {
+			sampleInput = ((SingleInputPlanNode) sampleInput).getInput().getSource();
+		}
+		assertEquals(sender.getInput().getSource(), sampleInput);
+
+		return sender;
+	}
+
+	/**
+	 * Checks that the job graph configures the sender to draw its ranges from the broadcast sample.
+	 */
+	private static void checkSenderConfig(OptimizedPlan oPlan) {
+		JobGraph jobGraph = new NepheleJobGraphGenerator().compileJobGraph(oPlan);
+
+		int numSenders = 0;
+		for (Iterator<JobTaskVertex> vertices = jobGraph.getTaskVertices(); vertices.hasNext();) {
+			TaskConfig config = new TaskConfig(vertices.next().getConfiguration());
+			if (config.getNumOutputs() > 0 && config.getOutputRangeSample(0) != null) {
+				assertEquals(PartitionOperatorBase.RANGE_SAMPLE, config.getOutputRangeSample(0));
+				assertEquals(ShipStrategyType.PARTITION_RANGE, config.getOutputShipStrategy(0));
+				assertEquals(1, config.getNumBroadcastInputs());
+				assertEquals(PartitionOperatorBase.RANGE_SAMPLE, config.getBroadcastInputName(0));
+				numSenders++;
+			}
+		}
+		assertEquals(1, numSenders);
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.apache.flink.api.common.Plan;
+import org.apache.flink.api.common.operators.Operator;
+import org.apache.flink.api.common.operators.base.GenericDataSourceBase;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.compiler.plan.DualInputPlanNode;
+import org.apache.flink.compiler.plan.OptimizedPlan;
+import org.apache.flink.compiler.plantranslate.NepheleJobGraphGenerator;
+import org.apache.flink.runtime.operators.DriverStrategy;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+
+/**
+ * Tests that validate the optimizer choices for semi joins and anti joins.
+ */
+public class SemiJoinCompilerTest extends CompilerTestBase {
+
+	/**
+	 * A small second input is broadcast, and the big first input stays where it is.
+	 */
+	@Test
+	public void testSmallSecondInputIsBroadcast() {
+		try {
+			for (boolean anti : new boolean[] { false, true }) {
+				OptimizedPlan oPlan = compileNoStats(getPlan(anti, true));
+				DualInputPlanNode join = getOptimizerPlanNodeResolver(oPlan).getNode("Filter");
+				
+				assertEquals(anti ? DriverStrategy.HYBRIDHASH_ANTI_JOIN : DriverStrategy.HYBRIDHASH_SEMI_JOIN, join.getDriverStrategy());
+				assertEquals(ShipStrategyType.FORWARD, join.getInput1().getShipStrategy());
+				assertEquals(ShipStrategyType.BROADCAST, join.getInput2().getShipStrategy());
+				
+				new NepheleJobGraphGenerator().compileJobGraph(oPlan);
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail("Test errored: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * The first input is never replicated, because each of its records must be returned at most once.
+	 */
+	@Test
+	public void testFirstInputIsNotReplicated() {
+		try {
+			for (boolean anti : new boolean[] { false, true }) {
+				OptimizedPlan oPlan = compileNoStats(getPlan(anti, false));
+				DualInputPlanNode join = getOptimizerPlanNodeResolver(oPlan).getNode("Filter");
+				
+				assertTrue(join.getInput1().getShipStrategy() != ShipStrategyType.BROADCAST);
+				assertEquals(ShipStrategyType.PARTITION_HASH, join.getInput1().getShipStrategy());
+				assertEquals(ShipStrategyType.PARTITION_HASH, join.getInput2().getShipStrategy());
+				
+				new NepheleJobGraphGenerator().compileJobGraph(oPlan);
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail("Test errored: " + e.getMessage());
+		}
+	}
+	
+	private Plan getPlan(boolean anti, boolean bigFirst) {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		env.setDegreeOfParallelism(DEFAULT_PARALLELISM);
+		
+		DataSet<Tuple3<Long, Long, Long>> smallInput = env.readCsvFile("file://smallFile").types(Long.class, Long.class, Long.class).name("smallFile");
+		DataSet<Tuple3<Long, Long, Long>> bigInput = env.readCsvFile("file://bigFile").types(Long.class, Long.class, Long.class).name("bigFile");
+		
+		DataSet<Tuple3<Long, Long, Long>> first = bigFirst ? bigInput : smallInput;
+		DataSet<Tuple3<Long, Long, Long>> second = bigFirst ? smallInput : bigInput;
+		
+		if (anti) {
+			first.antiJoin(second).where(0, 1).equalTo(0, 2).name("Filter").print();
+		} else {
+			first.semiJoin(second).where(0, 1).equalTo(0, 2).name("Filter").print();
+		}
+		
+		Plan plan = env.createProgramPlan();
+		
+		SourceCollectorVisitor sourceCollector = new SourceCollectorVisitor();
+		plan.accept(sourceCollector);
+		for (GenericDataSourceBase<?, ?> s : sourceCollector.getSources()) {
+			if (s.getName().equals("bigFile")) {
+				this.setSourceStatistics(s, 10000000, 1000);
+			}
+			else if (s.getName().equals("smallFile")) {
+				this.setSourceStatistics(s, 100, 100);
+			}
+		}
+		
+		// the projection of the second input to its keys has no width estimate of its own
+		Operator<?> keyProjector = getContractResolver(plan).getNode("Key Projector 2");
+		keyProjector.getCompilerHints().setAvgOutputRecordSize(16);
+		
+		return plan;
+	}
+}
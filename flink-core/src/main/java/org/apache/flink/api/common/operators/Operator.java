@@ -41,6 +41,8 @@ public abstract class Operator<OUT> implements Visitable<Operator<?>> {
 	protected String name;								// the name of the contract instance. optional.
 		
 	private int degreeOfParallelism = -1;				// the number of parallel instances to use. -1, if unknown
+	
+	private long bufferTimeout = -1;					// the max. msecs that records wait in output buffers. -1, if unbounded
 
 	/**
 	 * The return type of the user function.
@@ -181,6 +183,28 @@ public abstract class Operator<OUT> implements Visitable<Operator<?>> {
 		this.degreeOfParallelism = degree;
 	}
 	
+	/**
+	 * Gets the maximal time in milliseconds that the records produced by this contract wait in partly filled
+	 * network buffers, before the buffers are sent. If this value is <code>-1</code>, buffers are only sent
+	 * when they are full or when the producer is done.
+	 * 
+	 * @return The buffer timeout in milliseconds.
+	 */
+	public long getBufferTimeout() {
+		return this.bufferTimeout;
+	}
+	
+	/**
+	 * Sets the maximal time in milliseconds that the records produced by this contract wait in partly filled
+	 * network buffers, before the buffers are sent. A timeout of <code>0</code> sends every record right away.
+	 * Set this value to <code>-1</code> to send buffers only when they are full or when the producer is done.
+	 * 
+	 * @param timeoutMillis The buffer timeout in milliseconds. -1, if unbounded.
+	 */
+	public void setBufferTimeout(long timeoutMillis) {
+		this.bufferTimeout = timeoutMillis < 0 ? -1 : timeoutMillis;
+	}
+	
 	
 	/**
 	 * Gets the user code wrapper. In the case of a pact, that object will be the stub with the user function,
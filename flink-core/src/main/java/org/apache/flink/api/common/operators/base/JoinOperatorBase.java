@@ -31,6 +31,38 @@ import org.apache.flink.api.common.operators.util.UserCodeWrapper;
  */
 public class JoinOperatorBase<IN1, IN2, OUT, FT extends GenericJoiner<IN1, IN2, OUT>> extends DualInputOperator<IN1, IN2, OUT, FT>
 {
+	/**
+	 * The type of the join, which determines whether the records from either side that find no
+	 * join partner are handed to the join function (paired with <code>null</code>) or dropped.
+	 */
+	public static enum JoinType {
+		/** Only pairs of records with equal keys are joined. */
+		INNER,
+		/** Records from the first input without a partner are joined with <code>null</code>. */
+		LEFT_OUTER,
+		/** Records from the second input without a partner are joined with <code>null</code>. */
+		RIGHT_OUTER,
+		/** Records from either input without a partner are joined with <code>null</code>. */
+		FULL_OUTER;
+		
+		/**
+		 * @return True, if records from the first input that find no partner are preserved.
+		 */
+		public boolean isOuterFirst() {
+			return this == LEFT_OUTER || this == FULL_OUTER;
+		}
+		
+		/**
+		 * @return True, if records from the second input that find no partner are preserved.
+		 */
+		public boolean isOuterSecond() {
+			return this == RIGHT_OUTER || this == FULL_OUTER;
+		}
+	}
+	
+	private JoinType joinType = JoinType.INNER;
+	
+	
 	public JoinOperatorBase(UserCodeWrapper<FT> udf, BinaryOperatorInformation<IN1, IN2, OUT> operatorInfo, int[] keyPositions1, int[] keyPositions2, String name) {
 		super(udf, operatorInfo, keyPositions1, keyPositions2, name);
 	}
@@ -42,4 +74,27 @@ public class JoinOperatorBase<IN1, IN2, OUT, FT extends GenericJoiner<IN1, IN2,
 	public JoinOperatorBase(Class<? extends FT> udf, BinaryOperatorInformation<IN1, IN2, OUT> operatorInfo, int[] keyPositions1, int[] keyPositions2, String name) {
 		super(new UserCodeClassWrapper<FT>(udf), operatorInfo, keyPositions1, keyPositions2, name);
 	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Sets the type of the join. The default is an inner join.
+	 * 
+	 * @param joinType The type of the join.
+	 */
+	public void setJoinType(JoinType joinType) {
+		if (joinType == null) {
+			throw new NullPointerException();
+		}
+		this.joinType = joinType;
+	}
+	
+	/**
+	 * Gets the type of the join.
+	 * 
+	 * @return The type of the join.
+	 */
+	public JoinType getJoinType() {
+		return this.joinType;
+	}
 }
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.api.common.operators.base;
+
+import org.apache.flink.api.common.functions.AbstractFunction;
+import org.apache.flink.api.common.operators.Ordering;
+import org.apache.flink.api.common.operators.SingleInputOperator;
+import org.apache.flink.api.common.operators.UnaryOperatorInformation;
+import org.apache.flink.api.common.operators.util.UserCodeClassWrapper;
+
+/**
+ * Operator that redistributes its input among its parallel instances by the keys of the records, without
+ * changing the records. The records are partitioned either by the hash values of their keys, or by ranges
+ * of their keys.
+ * <p>
+ * A range partitioning draws the boundaries of its ranges from a sample of its input, which it expects as
+ * the broadcast variable {@link #RANGE_SAMPLE}. The n-th partition receives the n-th range of keys with
+ * respect to the operator's ordering.
+ * <p>
+ * A balanced hash partitioning hashes the keys into many more key groups than there are partitions, and assigns
+ * the key groups to the partitions such that the partitions receive similar numbers of records. The sizes of the
+ * key groups are estimated from a sample of the input, which the operator expects as the broadcast variable
+ * {@link #KEY_GROUP_SAMPLE}. As the assignment depends on the sample, two data sets partitioned that way are not
+ * co-partitioned.
+ */
+public class PartitionOperatorBase<IN> extends SingleInputOperator<IN, IN, AbstractFunction> {
+
+	/**
+	 * The name of the broadcast variable that holds the sample of a range partitioning.
+	 */
+	public static final String RANGE_SAMPLE = "range-partitioning-sample";
+
+	/**
+	 * The name of the broadcast variable that holds the sample of a balanced hash partitioning.
+	 */
+	public static final String KEY_GROUP_SAMPLE = "key-group-partitioning-sample";
+
+	/**
+	 * The methods to partition the records by their keys.
+	 */
+	public static enum PartitionMethod {
+		HASH,
+		BALANCED_HASH,
+		RANGE
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private final PartitionMethod method;
+
+	private final Ordering ordering;
+
+	/**
+	 * Creates a new operator that partitions its input by the hash values of the given key fields.
+	 *
+	 * @param operatorInfo The type information of the input and output.
+	 * @param keyPositions The positions of the key fields.
+	 * @param name The name of the operator.
+	 */
+	public PartitionOperatorBase(UnaryOperatorInformation<IN, IN> operatorInfo, int[] keyPositions, String name) {
+		this(operatorInfo, PartitionMethod.HASH, keyPositions, name);
+	}
+
+	/**
+	 * Creates a new operator that partitions its input by the hash values of the given key fields, either
+	 * directly or balanced over key groups.
+	 *
+	 * @param operatorInfo The type information of the input and output.
+	 * @param method The partitioning method, either {@link PartitionMethod#HASH} or {@link PartitionMethod#BALANCED_HASH}.
+	 * @param keyPositions The positions of the key fields.
+	 * @param name The name of the operator.
+	 */
+	public PartitionOperatorBase(UnaryOperatorInformation<IN, IN> operatorInfo, PartitionMethod method, int[] keyPositions, String name) {
+		// we pass it an AbstractFunction, because currently all operators expect some form of UDF
+		super(new UserCodeClassWrapper<AbstractFunction>(AbstractFunction.class), operatorInfo, keyPositions, name);
+		if (method != PartitionMethod.HASH && method != PartitionMethod.BALANCED_HASH) {
+			throw new IllegalArgumentException("Key positions describe only hash partitionings.");
+		}
+		this.method = method;
+		this.ordering = null;
+	}
+
+	/**
+	 * Creates a new operator that partitions its input by ranges of the fields of the given ordering.
+	 *
+	 * @param operatorInfo The type information of the input and output.
+	 * @param ordering The ordering that defines the key fields and the order of the ranges.
+	 * @param name The name of the operator.
+	 */
+	public PartitionOperatorBase(UnaryOperatorInformation<IN, IN> operatorInfo, Ordering ordering, String name) {
+		super(new UserCodeClassWrapper<AbstractFunction>(AbstractFunction.class), operatorInfo, ordering.getFieldPositions(), name);
+		this.method = PartitionMethod.RANGE;
+		this.ordering = ordering;
+	}
+
+	/**
+	 * Gets the method by which this operator partitions the records.
+	 *
+	 * @return The partitioning method.
+	 */
+	public PartitionMethod getPartitionMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Gets the ordering of a range partitioning.
+	 *
+	 * @return The ordering of the ranges, or null, if this operator does not partition by ranges.
+	 */
+	public Ordering getOrdering() {
+		return this.ordering;
+	}
+}
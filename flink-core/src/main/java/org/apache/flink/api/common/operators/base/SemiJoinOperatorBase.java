@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.api.common.operators.base;
+
+import org.apache.flink.api.common.functions.AbstractFunction;
+import org.apache.flink.api.common.operators.BinaryOperatorInformation;
+import org.apache.flink.api.common.operators.DualInputOperator;
+import org.apache.flink.api.common.operators.util.UserCodeClassWrapper;
+
+/**
+ * Operator that filters the records of its first input by the keys of its second input. A semi join
+ * forwards the records of the first input whose key occurs in the second input, each of them once.
+ * An anti join forwards the records of the first input whose key does not occur in the second input.
+ * The records of the second input are never forwarded, so only their key fields are relevant.
+ */
+public class SemiJoinOperatorBase<IN1, IN2> extends DualInputOperator<IN1, IN2, IN1, AbstractFunction> {
+	
+	private final boolean anti;
+	
+	/**
+	 * Creates a new semi join or anti join operator.
+	 * 
+	 * @param operatorInfo The type information of the inputs and the output.
+	 * @param keyPositions1 The positions of the key fields in the first input.
+	 * @param keyPositions2 The positions of the key fields in the second input.
+	 * @param anti True, for an anti join, false for a semi join.
+	 * @param name The name of the operator.
+	 */
+	public SemiJoinOperatorBase(BinaryOperatorInformation<IN1, IN2, IN1> operatorInfo,
+			int[] keyPositions1, int[] keyPositions2, boolean anti, String name)
+	{
+		// we pass it an AbstractFunction, because currently all operators expect some form of UDF
+		super(new UserCodeClassWrapper<AbstractFunction>(AbstractFunction.class), operatorInfo, keyPositions1, keyPositions2, name);
+		this.anti = anti;
+	}
+	
+	/**
+	 * Checks whether this operator forwards the records without a partner (anti join) rather than
+	 * the records with a partner (semi join).
+	 * 
+	 * @return True, if this operator is an anti join, false if it is a semi join.
+	 */
+	public boolean isAntiJoin() {
+		return this.anti;
+	}
+}
@@ -87,6 +87,31 @@ public final class ConfigConstants {
 	 */
 	public static final String TASK_MANAGER_MEMORY_LAZY_ALLOCATION_KEY = "taskmanager.memory.lazyalloc";
 	
+	/**
+	 * The key for the config parameter defining the fraction of the memory manager's pages that are kept
+	 * cached for reuse after they were released, if the memory manager allocates memory lazily.
+	 */
+	public static final String TASK_MANAGER_MEMORY_LAZY_CACHE_FRACTION_KEY = "taskmanager.memory.lazyalloc.cacheFraction";
+	
+	/**
+	 * The key for the config parameter defining the time (in msecs) after which a lazily allocating memory
+	 * manager gives its cached pages back to the JVM, if no memory was allocated or released in the meantime.
+	 */
+	public static final String TASK_MANAGER_MEMORY_LAZY_RELEASE_AFTER_IDLE_MS_KEY = "taskmanager.memory.lazyalloc.releaseAfterIdleMs";
+	
+	/**
+	 * The key for the config parameter defining the fraction of the memory manager's pages that may hold built
+	 * hash tables of joins, such that later jobs with an equivalent build side reuse them. Zero disables the cache.
+	 */
+	public static final String TASK_MANAGER_MEMORY_HASH_TABLE_CACHE_FRACTION_KEY = "taskmanager.memory.hashTableCache.fraction";
+	
+	/**
+	 * The key for the config parameter defining whether the memory manager and the network stack allocate
+	 * their memory outside the java heap (as direct memory). The size of the direct memory may have to be
+	 * raised accordingly via the JVM option <tt>-XX:MaxDirectMemorySize</tt>.
+	 */
+	public static final String TASK_MANAGER_MEMORY_OFF_HEAP_KEY = "taskmanager.memory.offheap";
+	
 	
 	/**
 	 * The config parameter defining the number of buffers used in the network stack. This defines the
@@ -120,6 +145,19 @@ public final class ConfigConstants {
 	 * The minimum time in ms a channel must be idle, before it will be closed.
 	 */
 	public static final String TASK_MANAGER_NET_CLOSE_AFTER_IDLE_FOR_MS_KEY = "taskmanager.net.closeAfterIdleForMs";
+
+	/**
+	 * The maximum number of credits per network channel, i.e. the number of buffers the receiver reserves
+	 * for a channel in advance. If set to 0, credit-based flow control is disabled.
+	 */
+	public static final String TASK_MANAGER_NET_NUM_CREDITS_PER_CHANNEL_KEY = "taskmanager.net.numCreditsPerChannel";
+
+	/**
+	 * Key for the compression of the buffers sent to remote receivers. Either "none", "always", or "adaptive",
+	 * which stops compressing channels with a poor compression ratio for a while. May be set per job in the job
+	 * configuration.
+	 */
+	public static final String NETWORK_COMPRESSION_KEY = "taskmanager.net.compression";
 	
 	/**
 	 * Parameter for the interval in which the TaskManager sends the periodic heart beat messages
@@ -150,6 +188,18 @@ public final class ConfigConstants {
 	 */
 	public static final String DEFAULT_SORT_SPILLING_THRESHOLD_KEY = "taskmanager.runtime.sort-spilling-threshold";
 	
+	/**
+	 * Key for the number of threads that sort the buffers of a single sorter, including the sorter's own sorting
+	 * thread. The additional threads are taken from a pool shared by all sorters of the TaskManager.
+	 */
+	public static final String DEFAULT_SORT_THREADS_KEY = "taskmanager.runtime.sort-threads";
+	
+	/**
+	 * Key for the codec that compresses the blocks spilled by sorters and hash tables. Either "none", "lz" for
+	 * the built-in LZ codec, or the class name of a block compressor. May be set per job in the job configuration.
+	 */
+	public static final String SPILL_COMPRESSION_KEY = "taskmanager.runtime.spill-compression";
+	
 	/**
 	 * The config parameter defining the timeout for filesystem stream opening.
 	 * A value of 0 indicates infinite waiting.
@@ -323,6 +373,26 @@ public final class ConfigConstants {
 	 * The default setting for the memory manager lazy allocation feature.
 	 */
 	public static final boolean DEFAULT_TASK_MANAGER_MEMORY_LAZY_ALLOCATION = false;
+	
+	/**
+	 * The default fraction of pages that a lazily allocating memory manager keeps cached for reuse.
+	 */
+	public static final float DEFAULT_TASK_MANAGER_MEMORY_LAZY_CACHE_FRACTION = 0.25f;
+	
+	/**
+	 * The default idle time (in msecs) after which a lazily allocating memory manager releases its cached pages.
+	 */
+	public static final int DEFAULT_TASK_MANAGER_MEMORY_LAZY_RELEASE_AFTER_IDLE_MS = 60000;
+	
+	/**
+	 * The default fraction of pages that may hold cached hash tables. The cache is disabled by default.
+	 */
+	public static final float DEFAULT_TASK_MANAGER_MEMORY_HASH_TABLE_CACHE_FRACTION = 0.0f;
+	
+	/**
+	 * The default setting for the memory manager off-heap allocation feature.
+	 */
+	public static final boolean DEFAULT_TASK_MANAGER_MEMORY_OFF_HEAP = false;
 
 	/**
 	 * Default number of buffers used in the network stack.
@@ -353,6 +423,16 @@ public final class ConfigConstants {
 	 */
 	public static final int DEFAULT_TASK_MANAGER_NET_CLOSE_AFTER_IDLE_FOR_MS = 10000;
 
+	/**
+	 * The default maximum number of credits per network channel.
+	 */
+	public static final int DEFAULT_TASK_MANAGER_NET_NUM_CREDITS_PER_CHANNEL = 4;
+
+	/**
+	 * The default compression of the buffers sent to remote receivers: no compression.
+	 */
+	public static final String DEFAULT_NETWORK_COMPRESSION = "none";
+
 	/**
 	 * The default interval for TaskManager heart beats (2000 msecs).
 	 */
@@ -383,6 +463,16 @@ public final class ConfigConstants {
 	 */
 	public static final float DEFAULT_SORT_SPILLING_THRESHOLD = 0.8f;
 	
+	/**
+	 * The default number of threads that sort the buffers of a single sorter.
+	 */
+	public static final int DEFAULT_SORT_THREADS = 1;
+	
+	/**
+	 * The default codec for spilled blocks: no compression.
+	 */
+	public static final String DEFAULT_SPILL_COMPRESSION = "none";
+	
 	/**
 	 * The default timeout for filesystem stream opening: infinite (means max long milliseconds).
 	 */
@@ -22,13 +22,22 @@ package org.apache.flink.core.memory;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 /**
  * This class represents a piece of memory allocated from the memory manager. The segment is backed
- * by a byte array and features random put and get methods for the basic types that are stored in a byte-wise
- * fashion in the memory.
+ * either by a byte array (heap memory), or by a direct {@link ByteBuffer} (off-heap memory), and features
+ * random put and get methods for the basic types that are stored in a byte-wise fashion in the memory.
+ * 
+ * <p>
+ * 
+ * All accesses go through the "unsafe" methods that take a base object and an offset. For heap segments,
+ * the base object is the byte array and the offset is relative to the array's base offset. For off-heap
+ * segments, the base object is <code>null</code> and the offset is the absolute native address. That way, the
+ * same code paths serve both kinds of memory, and the just-in-time compiler sees a single implementation
+ * of each method.
  * 
  * <p>
  * 
@@ -74,10 +83,29 @@ public class MemorySegment {
 	private static final boolean CHECKED = true;
 	
 	/**
-	 * The array in which the data is stored.
+	 * The array in which the data is stored, or <code>null</code>, if the segment is backed by
+	 * off-heap memory.
 	 */
 	protected byte[] memory;
 	
+	/**
+	 * The direct byte buffer that holds the data, or <code>null</code>, if the segment is backed by
+	 * a byte array.
+	 */
+	protected ByteBuffer offHeapMemory;
+	
+	/**
+	 * The address of the first byte of the segment. For heap segments, this is the base offset of the
+	 * byte array, for off-heap segments, this is the absolute native memory address.
+	 */
+	protected long address;
+	
+	/**
+	 * The size of the segment in bytes. Set to zero when the segment is freed, which makes all
+	 * subsequent accesses fail the boundary checks.
+	 */
+	protected int size;
+	
 	/**
 	 * Wrapper for I/O requests.
 	 */
@@ -94,6 +122,26 @@ public class MemorySegment {
 	 */
 	public MemorySegment(byte[] memory) {
 		this.memory = memory;
+		this.address = BASE_OFFSET;
+		this.size = memory.length;
+	}
+	
+	/**
+	 * Creates a new memory segment that represents the off-heap memory of the given direct byte buffer.
+	 * The segment spans the entire capacity of the buffer, regardless of the buffer's position and limit.
+	 * 
+	 * @param offHeapMemory The direct byte buffer that holds the data.
+	 * 
+	 * @throws IllegalArgumentException Thrown, if the given buffer is not a direct byte buffer.
+	 */
+	public MemorySegment(ByteBuffer offHeapMemory) {
+		if (offHeapMemory == null || !offHeapMemory.isDirect()) {
+			throw new IllegalArgumentException("The memory of an off-heap segment must be a direct byte buffer.");
+		}
+		
+		this.offHeapMemory = offHeapMemory;
+		this.address = MemoryUtils.getAddress(offHeapMemory);
+		this.size = offHeapMemory.capacity();
 	}
 
 	// -------------------------------------------------------------------------
@@ -107,27 +155,40 @@ public class MemorySegment {
 	 * @return True, if the segment has been freed, false otherwise.
 	 */
 	public final boolean isFreed() {
-		return this.memory == null;
+		return this.memory == null && this.offHeapMemory == null;
 	}
 
 	public final void free() {
 		this.wrapper = null;
 		this.memory = null;
+		this.offHeapMemory = null;
+		this.size = 0;
+	}
+	
+	/**
+	 * Checks whether this memory segment is backed by off-heap memory (a direct byte buffer),
+	 * rather than by a byte array on the heap.
+	 * 
+	 * @return True, if the segment is backed by off-heap memory, false otherwise.
+	 */
+	public final boolean isOffHeap() {
+		return this.offHeapMemory != null;
 	}
 	
 	/**
 	 * Gets the size of the memory segment, in bytes. Because segments
-	 * are backed by arrays, they cannot be larger than two GiBytes.
+	 * are backed by arrays or byte buffers, they cannot be larger than two GiBytes.
 	 * 
 	 * @return The size in bytes.
 	 */
 	public final int size() {
-		return this.memory.length;
+		return this.size;
 	}
 
 	/**
 	 * Wraps the chunk of the underlying memory located between <tt>offset<tt> and 
-	 * <tt>length</tt> in a NIO ByteBuffer.
+	 * <tt>length</tt> in a NIO ByteBuffer. For off-heap segments, the returned buffer is a
+	 * direct buffer, such that channels can transfer the data without copying it to the heap.
 	 * 
 	 * @param offset The offset in the memory segment.
 	 * @param length The number of bytes to be wrapped as a buffer.
@@ -136,18 +197,18 @@ public class MemorySegment {
 	 *                                   or if the offset plus the length is larger than the segment size.
 	 */
 	public ByteBuffer wrap(int offset, int length) {
-		if (offset > this.memory.length || offset > this.memory.length - length) {
+		if (offset < 0 || length < 0 || offset > this.size || offset > this.size - length) {
 			throw new IndexOutOfBoundsException();
 		}
 		
 		if (this.wrapper == null) {
-			this.wrapper = ByteBuffer.wrap(this.memory, offset, length);
-		}
-		else {
-			this.wrapper.position(offset);
-			this.wrapper.limit(offset + length);
+			this.wrapper = this.memory != null ? ByteBuffer.wrap(this.memory) : this.offHeapMemory.duplicate();
 		}
 		
+		// set the limit first, such that the position is always valid
+		this.wrapper.limit(offset + length);
+		this.wrapper.position(offset);
+		
 		return this.wrapper;
 	}
 
@@ -175,8 +236,13 @@ public class MemorySegment {
 	 * @throws IndexOutOfBoundsException Thrown, if the index is negative, or larger or equal to the size of
 	 *                                   the memory segment.
 	 */
+	@SuppressWarnings("restriction")
 	public final byte get(int index) {
-		return this.memory[index];
+		if (index >= 0 && index < this.size) {
+			return UNSAFE.getByte(this.memory, this.address + index);
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
 	}
 
 	/**
@@ -188,8 +254,13 @@ public class MemorySegment {
 	 * @throws IndexOutOfBoundsException Thrown, if the index is negative, or larger or equal to the size of
 	 *                                   the memory segment.
 	 */
+	@SuppressWarnings("restriction")
 	public final void put(int index, byte b) {
-		this.memory[index] = b;
+		if (index >= 0 && index < this.size) {
+			UNSAFE.putByte(this.memory, this.address + index, b);
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
 	}
 
 	/**
@@ -235,8 +306,14 @@ public class MemorySegment {
 	 *                                   segment's end.
 	 */
 	public final void get(int index, byte[] dst, int offset, int length) {
-		// system arraycopy does the boundary checks anyways, no need to check extra
-		System.arraycopy(this.memory, index, dst, offset, length);
+		if (this.memory != null) {
+			// system arraycopy does the boundary checks anyways, no need to check extra
+			System.arraycopy(this.memory, index, dst, offset, length);
+		} else {
+			checkRange(index, length, this.size);
+			checkRange(offset, length, dst.length);
+			copyMemory(null, this.address + index, dst, BASE_OFFSET + offset, length);
+		}
 	}
 
 	/**
@@ -254,8 +331,14 @@ public class MemorySegment {
 	 *                                   segment's end.
 	 */
 	public final void put(int index, byte[] src, int offset, int length) {
-		// system arraycopy does the boundary checks anyways, no need to check extra
-		System.arraycopy(src, offset, this.memory, index, length);
+		if (this.memory != null) {
+			// system arraycopy does the boundary checks anyways, no need to check extra
+			System.arraycopy(src, offset, this.memory, index, length);
+		} else {
+			checkRange(index, length, this.size);
+			checkRange(offset, length, src.length);
+			copyMemory(src, BASE_OFFSET + offset, null, this.address + index, length);
+		}
 	}
 
 	/**
@@ -269,7 +352,7 @@ public class MemorySegment {
 	 *                                   size minus 1.
 	 */
 	public final boolean getBoolean(int index) {
-		return this.memory[index] != 0;
+		return get(index) != 0;
 	}
 
 	/**
@@ -283,7 +366,7 @@ public class MemorySegment {
 	 *                                   size minus 1.
 	 */
 	public final void putBoolean(int index, boolean value) {
-		this.memory[index] = (byte) (value ? 1 : 0);
+		put(index, (byte) (value ? 1 : 0));
 	}
 
 	/**
@@ -296,9 +379,14 @@ public class MemorySegment {
 	 * @throws IndexOutOfBoundsException Thrown, if the index is negative, or larger then the segment
 	 *                                   size minus 2.
 	 */
+	@SuppressWarnings("restriction")
 	public final char getChar(int index) {
-		return (char) ( ((this.memory[index    ] & 0xff) << 8) | 
-						(this.memory[index + 1] & 0xff) );
+		if (index >= 0 && index <= this.size - 2) {
+			return (char) ( ((UNSAFE.getByte(this.memory, this.address + index    ) & 0xff) << 8) | 
+							(UNSAFE.getByte(this.memory, this.address + index + 1) & 0xff) );
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
 	}
 
 	/**
@@ -311,9 +399,14 @@ public class MemorySegment {
 	 * @throws IndexOutOfBoundsException Thrown, if the index is negative, or larger then the segment
 	 *                                   size minus 2.
 	 */
+	@SuppressWarnings("restriction")
 	public final void putChar(int index, char value) {
-		this.memory[index    ] = (byte) (value >> 8);
-		this.memory[index + 1] = (byte) value;
+		if (index >= 0 && index <= this.size - 2) {
+			UNSAFE.putByte(this.memory, this.address + index    , (byte) (value >> 8));
+			UNSAFE.putByte(this.memory, this.address + index + 1, (byte) value);
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
 	}
 
 	/**
@@ -326,10 +419,15 @@ public class MemorySegment {
 	 * @throws IndexOutOfBoundsException Thrown, if the index is negative, or larger then the segment
 	 *                                   size minus 2.
 	 */
+	@SuppressWarnings("restriction")
 	public final short getShort(int index) {
-		return (short) (
-				((this.memory[index    ] & 0xff) << 8) |
-				((this.memory[index + 1] & 0xff)) );
+		if (index >= 0 && index <= this.size - 2) {
+			return (short) (
+					((UNSAFE.getByte(this.memory, this.address + index    ) & 0xff) << 8) |
+					((UNSAFE.getByte(this.memory, this.address + index + 1) & 0xff)) );
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
 	}
 
 	/**
@@ -342,9 +440,14 @@ public class MemorySegment {
 	 * @throws IndexOutOfBoundsException Thrown, if the index is negative, or larger then the segment
 	 *                                   size minus 2.
 	 */
+	@SuppressWarnings("restriction")
 	public final void putShort(int index, short value) {
-		this.memory[index    ] = (byte) (value >> 8);
-		this.memory[index + 1] = (byte) value;
+		if (index >= 0 && index <= this.size - 2) {
+			UNSAFE.putByte(this.memory, this.address + index    , (byte) (value >> 8));
+			UNSAFE.putByte(this.memory, this.address + index + 1, (byte) value);
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
 	}
 	
 	/**
@@ -364,13 +467,13 @@ public class MemorySegment {
 	@SuppressWarnings("restriction")
 	public final int getInt(int index) {
 		if (CHECKED) {
-			if (index >= 0 && index <= this.memory.length - 4) {
-				return UNSAFE.getInt(this.memory, BASE_OFFSET + index);
+			if (index >= 0 && index <= this.size - 4) {
+				return UNSAFE.getInt(this.memory, this.address + index);
 			} else {
 				throw new IndexOutOfBoundsException();
 			}
 		} else {
-			return UNSAFE.getInt(this.memory, BASE_OFFSET + index);
+			return UNSAFE.getInt(this.memory, this.address + index);
 		}
 	}
 	
@@ -435,13 +538,13 @@ public class MemorySegment {
 	@SuppressWarnings("restriction")
 	public final void putInt(int index, int value) {
 		if (CHECKED) {
-			if (index >= 0 && index <= this.memory.length - 4) {
-				UNSAFE.putInt(this.memory, BASE_OFFSET + index, value);
+			if (index >= 0 && index <= this.size - 4) {
+				UNSAFE.putInt(this.memory, this.address + index, value);
 			} else {
 				throw new IndexOutOfBoundsException();
 			}
 		} else {
-			UNSAFE.putInt(this.memory, BASE_OFFSET + index, value);
+			UNSAFE.putInt(this.memory, this.address + index, value);
 		}
 	}
 	
@@ -506,13 +609,13 @@ public class MemorySegment {
 	@SuppressWarnings("restriction")
 	public final long getLong(int index) {
 		if (CHECKED) {
-			if (index >= 0 && index <= this.memory.length - 8) {
-				return UNSAFE.getLong(this.memory, BASE_OFFSET + index);
+			if (index >= 0 && index <= this.size - 8) {
+				return UNSAFE.getLong(this.memory, this.address + index);
 			} else {
 				throw new IndexOutOfBoundsException();
 			}
 		} else {
-			return UNSAFE.getLong(this.memory, BASE_OFFSET + index);
+			return UNSAFE.getLong(this.memory, this.address + index);
 		}
 	}
 	
@@ -577,13 +680,13 @@ public class MemorySegment {
 	@SuppressWarnings("restriction")
 	public final void putLong(int index, long value) {
 		if (CHECKED) {
-			if (index >= 0 && index <= this.memory.length - 8) {
-				UNSAFE.putLong(this.memory, BASE_OFFSET + index, value);
+			if (index >= 0 && index <= this.size - 8) {
+				UNSAFE.putLong(this.memory, this.address + index, value);
 			} else {
 				throw new IndexOutOfBoundsException();
 			}
 		} else {
-			UNSAFE.putLong(this.memory, BASE_OFFSET + index, value);
+			UNSAFE.putLong(this.memory, this.address + index, value);
 		}
 	}
 	
@@ -862,7 +965,20 @@ public class MemorySegment {
 	 * @throws IOException Thrown, if the DataOutput encountered a problem upon writing.
 	 */
 	public final void get(DataOutput out, int offset, int length) throws IOException {
-		out.write(this.memory, offset, length);
+		if (this.memory != null) {
+			out.write(this.memory, offset, length);
+		} else {
+			checkRange(offset, length, this.size);
+			
+			final byte[] chunk = new byte[Math.min(length, BULK_CHUNK_SIZE)];
+			while (length > 0) {
+				final int toCopy = Math.min(length, chunk.length);
+				copyMemory(null, this.address + offset, chunk, BASE_OFFSET, toCopy);
+				out.write(chunk, 0, toCopy);
+				offset += toCopy;
+				length -= toCopy;
+			}
+		}
 	}
 
 	/**
@@ -877,7 +993,20 @@ public class MemorySegment {
 	 *                     such as an End-Of-File.
 	 */
 	public final void put(DataInput in, int offset, int length) throws IOException {
-		in.readFully(this.memory, offset, length);
+		if (this.memory != null) {
+			in.readFully(this.memory, offset, length);
+		} else {
+			checkRange(offset, length, this.size);
+			
+			final byte[] chunk = new byte[Math.min(length, BULK_CHUNK_SIZE)];
+			while (length > 0) {
+				final int toCopy = Math.min(length, chunk.length);
+				in.readFully(chunk, 0, toCopy);
+				copyMemory(chunk, BASE_OFFSET, null, this.address + offset, toCopy);
+				offset += toCopy;
+				length -= toCopy;
+			}
+		}
 	}
 	
 	/**
@@ -896,8 +1025,17 @@ public class MemorySegment {
 	 *           not have enough space for the bytes.
 	 */
 	public final void get(int offset, ByteBuffer target, int numBytes) {
-		// ByteBuffer performs the boundy checks
-		target.put(this.memory, offset, numBytes);
+		if (this.memory != null) {
+			// ByteBuffer performs the boundy checks
+			target.put(this.memory, offset, numBytes);
+		} else {
+			checkRange(offset, numBytes, this.size);
+			
+			final ByteBuffer source = this.offHeapMemory.duplicate();
+			source.limit(offset + numBytes);
+			source.position(offset);
+			target.put(source);
+		}
 	}
 	
 	/**
@@ -918,8 +1056,27 @@ public class MemorySegment {
 	 *           not have enough space for the bytes (counting from offset).
 	 */
 	public final void put(int offset, ByteBuffer source, int numBytes) {
-		// ByteBuffer performs the boundy checks
-		source.get(this.memory, offset, numBytes);
+		if (this.memory != null) {
+			// ByteBuffer performs the boundy checks
+			source.get(this.memory, offset, numBytes);
+		} else {
+			checkRange(offset, numBytes, this.size);
+			if (source.remaining() < numBytes) {
+				throw new BufferUnderflowException();
+			}
+			
+			final ByteBuffer target = this.offHeapMemory.duplicate();
+			target.limit(offset + numBytes);
+			target.position(offset);
+			
+			final int sourceLimit = source.limit();
+			source.limit(source.position() + numBytes);
+			try {
+				target.put(source);
+			} finally {
+				source.limit(sourceLimit);
+			}
+		}
 	}
 	
 	/**
@@ -937,28 +1094,227 @@ public class MemorySegment {
 	 *           not have enough space for the bytes (counting from targetOffset).
 	 */
 	public final void copyTo(int offset, MemorySegment target, int targetOffset, int numBytes) {
-		// system arraycopy does the boundary checks anyways, no need to check extra
-		System.arraycopy(this.memory, offset, target.memory, targetOffset, numBytes);
+		if (this.memory != null && target.memory != null) {
+			// system arraycopy does the boundary checks anyways, no need to check extra
+			System.arraycopy(this.memory, offset, target.memory, targetOffset, numBytes);
+		} else {
+			checkRange(offset, numBytes, this.size);
+			checkRange(targetOffset, numBytes, target.size);
+			copyMemory(this.memory, this.address + offset, target.memory, target.address + targetOffset, numBytes);
+		}
 	}
 	
 	// -------------------------------------------------------------------------
 	//                      Comparisons & Swapping
 	// -------------------------------------------------------------------------
 	
+	/**
+	 * Compares two memory segment regions lexicographically, treating the bytes as unsigned values.
+	 * The bulk of the bytes is compared in long words, which are read in big endian order so that their
+	 * unsigned numeric order corresponds to the lexicographic order of the bytes.
+	 * 
+	 * @param seg1 The first memory segment.
+	 * @param seg2 The second memory segment.
+	 * @param offset1 The position where the region starts in the first segment.
+	 * @param offset2 The position where the region starts in the second segment.
+	 * @param len The number of bytes to compare.
+	 * @return A negative integer, zero, or a positive integer, if the first region is smaller than,
+	 *         equal to, or larger than the second region.
+	 * 
+	 * @throws IndexOutOfBoundsException If either region exceeds the bounds of its segment.
+	 */
+	@SuppressWarnings("restriction")
 	public static final int compare(MemorySegment seg1, MemorySegment seg2, int offset1, int offset2, int len) {
+		checkRange(offset1, len, seg1.size);
+		checkRange(offset2, len, seg2.size);
+		
+		final byte[] b1 = seg1.memory;
+		final byte[] b2 = seg2.memory;
+		long a1 = seg1.address + offset1;
+		long a2 = seg2.address + offset2;
+		
+		while (len >= 8) {
+			long l1 = UNSAFE.getLong(b1, a1);
+			long l2 = UNSAFE.getLong(b2, a2);
+			if (l1 != l2) {
+				if (LITTLE_ENDIAN) {
+					l1 = Long.reverseBytes(l1);
+					l2 = Long.reverseBytes(l2);
+				}
+				// unsigned comparison by flipping the sign bits
+				return (l1 ^ Long.MIN_VALUE) < (l2 ^ Long.MIN_VALUE) ? -1 : 1;
+			}
+			a1 += 8;
+			a2 += 8;
+			len -= 8;
+		}
+		while (len > 0) {
+			final int val = (UNSAFE.getByte(b1, a1) & 0xff) - (UNSAFE.getByte(b2, a2) & 0xff);
+			if (val != 0) {
+				return val;
+			}
+			a1++;
+			a2++;
+			len--;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Checks whether two memory segment regions contain the same bytes. The regions are compared in
+	 * long words, which is considerably cheaper than a byte-wise comparison.
+	 * 
+	 * @param seg1 The first memory segment.
+	 * @param seg2 The second memory segment.
+	 * @param offset1 The position where the region starts in the first segment.
+	 * @param offset2 The position where the region starts in the second segment.
+	 * @param len The number of bytes to compare.
+	 * @return True, if both regions contain the same bytes, false otherwise.
+	 * 
+	 * @throws IndexOutOfBoundsException If either region exceeds the bounds of its segment.
+	 */
+	@SuppressWarnings("restriction")
+	public static final boolean equalTo(MemorySegment seg1, MemorySegment seg2, int offset1, int offset2, int len) {
+		checkRange(offset1, len, seg1.size);
+		checkRange(offset2, len, seg2.size);
+		
 		final byte[] b1 = seg1.memory;
 		final byte[] b2 = seg2.memory;
+		long a1 = seg1.address + offset1;
+		long a2 = seg2.address + offset2;
+		
+		while (len >= 8) {
+			if (UNSAFE.getLong(b1, a1) != UNSAFE.getLong(b2, a2)) {
+				return false;
+			}
+			a1 += 8;
+			a2 += 8;
+			len -= 8;
+		}
+		while (len > 0) {
+			if (UNSAFE.getByte(b1, a1) != UNSAFE.getByte(b2, a2)) {
+				return false;
+			}
+			a1++;
+			a2++;
+			len--;
+		}
+		return true;
+	}
+	
+	/**
+	 * Computes a hash code over a region of this memory segment. The bytes are consumed in long words.
+	 * The words are interpreted in big endian order, so the hash code of a byte sequence is the same for
+	 * heap and off-heap segments and independent of the platform's native byte order.
+	 * 
+	 * @param offset The position where the region starts.
+	 * @param length The number of bytes to hash.
+	 * @return The hash code of the region.
+	 * 
+	 * @throws IndexOutOfBoundsException If the region exceeds the bounds of this segment.
+	 */
+	@SuppressWarnings("restriction")
+	public final int hash(int offset, int length) {
+		checkRange(offset, length, this.size);
+		
+		final byte[] b = this.memory;
+		long pos = this.address + offset;
+		int len = length;
+		int code = 0;
+		
+		while (len >= 8) {
+			long word = UNSAFE.getLong(b, pos);
+			if (LITTLE_ENDIAN) {
+				word = Long.reverseBytes(word);
+			}
+			code = 31 * code + (int) (word ^ (word >>> 32));
+			pos += 8;
+			len -= 8;
+		}
+		while (len > 0) {
+			code = 31 * code + (UNSAFE.getByte(b, pos) & 0xff);
+			pos++;
+			len--;
+		}
 		
-		int val = 0;
-		for (int pos = 0; pos < len && (val = (b1[offset1 + pos] & 0xff) - (b2[offset2 + pos] & 0xff)) == 0; pos++);
-		return val;
+		// final avalanche step, so that similar regions spread well over the hash space
+		code ^= length;
+		code ^= code >>> 16;
+		code *= 0x85ebca6b;
+		code ^= code >>> 13;
+		code *= 0xc2b2ae35;
+		code ^= code >>> 16;
+		return code;
 	}
 	
+	/**
+	 * Checks whether {@link #swapBytes(MemorySegment, MemorySegment, byte[], int, int, int)} swaps regions of
+	 * the given length in place, without touching the temporary buffer. Such swaps of disjoint regions may be
+	 * performed by several threads at the same time, even if they share the temporary buffer.
+	 * 
+	 * @param len The number of bytes to swap.
+	 * @return True, if regions of that length are swapped in place.
+	 */
+	public static final boolean isSwappedInPlace(int len) {
+		return len <= IN_PLACE_SWAP_THRESHOLD;
+	}
+	
+	/**
+	 * Swaps two memory segment regions of the same length. Short regions (such as sort index entries)
+	 * are swapped in place in long words. Longer regions are moved through the given temporary buffer,
+	 * which must hold at least {@code len} bytes.
+	 * 
+	 * @param seg1 The first memory segment.
+	 * @param seg2 The second memory segment.
+	 * @param tempBuffer The buffer used to swap longer regions.
+	 * @param offset1 The position where the region starts in the first segment.
+	 * @param offset2 The position where the region starts in the second segment.
+	 * @param len The number of bytes to swap.
+	 * 
+	 * @throws IndexOutOfBoundsException If either region exceeds the bounds of its segment.
+	 */
+	@SuppressWarnings("restriction")
 	public static final void swapBytes(MemorySegment seg1, MemorySegment seg2, byte[] tempBuffer, int offset1, int offset2, int len) {
-		// system arraycopy does the boundary checks anyways, no need to check extra
-		System.arraycopy(seg1.memory, offset1, tempBuffer, 0, len);
-		System.arraycopy(seg2.memory, offset2, seg1.memory, offset1, len);
-		System.arraycopy(tempBuffer, 0, seg2.memory, offset2, len);
+		if (len <= IN_PLACE_SWAP_THRESHOLD) {
+			checkRange(offset1, len, seg1.size);
+			checkRange(offset2, len, seg2.size);
+			
+			final byte[] b1 = seg1.memory;
+			final byte[] b2 = seg2.memory;
+			long a1 = seg1.address + offset1;
+			long a2 = seg2.address + offset2;
+			
+			while (len >= 8) {
+				final long tmp = UNSAFE.getLong(b1, a1);
+				UNSAFE.putLong(b1, a1, UNSAFE.getLong(b2, a2));
+				UNSAFE.putLong(b2, a2, tmp);
+				a1 += 8;
+				a2 += 8;
+				len -= 8;
+			}
+			while (len > 0) {
+				final byte tmp = UNSAFE.getByte(b1, a1);
+				UNSAFE.putByte(b1, a1, UNSAFE.getByte(b2, a2));
+				UNSAFE.putByte(b2, a2, tmp);
+				a1++;
+				a2++;
+				len--;
+			}
+		}
+		else if (seg1.memory != null && seg2.memory != null) {
+			// system arraycopy does the boundary checks anyways, no need to check extra
+			System.arraycopy(seg1.memory, offset1, tempBuffer, 0, len);
+			System.arraycopy(seg2.memory, offset2, seg1.memory, offset1, len);
+			System.arraycopy(tempBuffer, 0, seg2.memory, offset2, len);
+		} else {
+			checkRange(offset1, len, seg1.size);
+			checkRange(offset2, len, seg2.size);
+			checkRange(0, len, tempBuffer.length);
+			
+			copyMemory(seg1.memory, seg1.address + offset1, tempBuffer, BASE_OFFSET, len);
+			copyMemory(seg2.memory, seg2.address + offset2, seg1.memory, seg1.address + offset1, len);
+			copyMemory(tempBuffer, BASE_OFFSET, seg2.memory, seg2.address + offset2, len);
+		}
 	}
 	
 	// --------------------------------------------------------------------------------------------
@@ -972,4 +1328,55 @@ public class MemorySegment {
 	private static final long BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
 	
 	private static final boolean LITTLE_ENDIAN = (MemoryUtils.NATIVE_BYTE_ORDER == ByteOrder.LITTLE_ENDIAN);
+	
+	/**
+	 * The size of the temporary chunks used when off-heap memory is transferred to streams.
+	 */
+	private static final int BULK_CHUNK_SIZE = 4096;
+	
+	/**
+	 * The length up to which {@link #swapBytes(MemorySegment, MemorySegment, byte[], int, int, int)} swaps
+	 * the regions in place, rather than going through the temporary buffer.
+	 */
+	private static final int IN_PLACE_SWAP_THRESHOLD = 64;
+	
+	private static final void checkRange(int offset, int length, int size) {
+		if (offset < 0 || length < 0 || offset > size - length) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+	
+	/**
+	 * Copies memory between two locations, each of which is described by a base object (a byte array or
+	 * <code>null</code> for native memory) and an offset. Overlapping regions are handled correctly. The
+	 * bulk of the data is moved in long words; boundary checks must have been performed by the caller.
+	 */
+	@SuppressWarnings("restriction")
+	private static final void copyMemory(Object srcBase, long srcOffset, Object dstBase, long dstOffset, int len) {
+		if (srcBase == dstBase && srcOffset < dstOffset && dstOffset < srcOffset + len) {
+			// overlapping regions where the target lies behind the source. copy backwards.
+			int remaining = len;
+			while (remaining >= 8) {
+				remaining -= 8;
+				UNSAFE.putLong(dstBase, dstOffset + remaining, UNSAFE.getLong(srcBase, srcOffset + remaining));
+			}
+			while (remaining > 0) {
+				remaining--;
+				UNSAFE.putByte(dstBase, dstOffset + remaining, UNSAFE.getByte(srcBase, srcOffset + remaining));
+			}
+		}
+		else {
+			final long srcEnd = srcOffset + len;
+			while (srcOffset <= srcEnd - 8) {
+				UNSAFE.putLong(dstBase, dstOffset, UNSAFE.getLong(srcBase, srcOffset));
+				srcOffset += 8;
+				dstOffset += 8;
+			}
+			while (srcOffset < srcEnd) {
+				UNSAFE.putByte(dstBase, dstOffset, UNSAFE.getByte(srcBase, srcOffset));
+				srcOffset++;
+				dstOffset++;
+			}
+		}
+	}
 }
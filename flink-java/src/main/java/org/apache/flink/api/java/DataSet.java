@@ -21,6 +21,7 @@ package org.apache.flink.api.java;
 import org.apache.commons.lang3.Validate;
 import org.apache.flink.api.common.io.FileOutputFormat;
 import org.apache.flink.api.common.io.OutputFormat;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase.PartitionMethod;
 import org.apache.flink.api.java.aggregation.Aggregations;
 import org.apache.flink.api.java.functions.CoGroupFunction;
 import org.apache.flink.api.java.functions.FilterFunction;
@@ -44,9 +45,11 @@ import org.apache.flink.api.java.operators.Grouping;
 import org.apache.flink.api.java.operators.JoinOperator;
 import org.apache.flink.api.java.operators.Keys;
 import org.apache.flink.api.java.operators.MapOperator;
+import org.apache.flink.api.java.operators.PartitionOperator;
 import org.apache.flink.api.java.operators.ProjectOperator;
 import org.apache.flink.api.java.operators.ReduceGroupOperator;
 import org.apache.flink.api.java.operators.ReduceOperator;
+import org.apache.flink.api.java.operators.SemiJoinOperator;
 import org.apache.flink.api.java.operators.SortedGrouping;
 import org.apache.flink.api.java.operators.UnionOperator;
 import org.apache.flink.api.java.operators.UnsortedGrouping;
@@ -55,6 +58,7 @@ import org.apache.flink.api.java.operators.CrossOperator.DefaultCross;
 import org.apache.flink.api.java.operators.JoinOperator.JoinHint;
 import org.apache.flink.api.java.operators.JoinOperator.JoinOperatorSets;
 import org.apache.flink.api.java.operators.ProjectOperator.Projection;
+import org.apache.flink.api.java.operators.SemiJoinOperator.SemiJoinOperatorSets;
 import org.apache.flink.api.java.record.functions.CrossFunction;
 import org.apache.flink.api.java.tuple.Tuple;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -346,6 +350,54 @@ public abstract class DataSet<T> {
 		return new DistinctOperator<T>(this, null);
 	}
 	
+	// --------------------------------------------------------------------------------------------
+	//  Partitioning
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Hash-partitions a {@link Tuple} {@link DataSet} on the specified key fields. All elements with the same key
+	 * are processed by the same parallel instance of the following operations.
+	 * <p/>
+	 * Note: Field position keys can only be specified for Tuple DataSets.
+	 * 
+	 * @param fields One or more field positions on which the DataSet is hash-partitioned.
+	 * @return A PartitionOperator that represents the partitioned DataSet.
+	 */
+	public PartitionOperator<T> partitionByHash(int... fields) {
+		return new PartitionOperator<T>(this, PartitionMethod.HASH, new Keys.FieldPositionKeys<T>(fields, getType()));
+	}
+	
+	/**
+	 * Hash-partitions a {@link Tuple} {@link DataSet} on the specified key fields, balancing the numbers of elements
+	 * of the parallel instances of the following operations. The keys are hashed into many key groups, which are
+	 * assigned to the parallel instances by their sizes in a random sample of the DataSet. All elements with the
+	 * same key are processed by the same parallel instance. Use this partitioning for groupings on skewed keys.
+	 * The result is not co-partitioned with other DataSets, so joins and co-groups still repartition it.
+	 * <p/>
+	 * Note: Field position keys can only be specified for Tuple DataSets.
+	 * 
+	 * @param fields One or more field positions on which the DataSet is hash-partitioned.
+	 * @return A PartitionOperator that represents the partitioned DataSet.
+	 */
+	public PartitionOperator<T> partitionByBalancedHash(int... fields) {
+		return new PartitionOperator<T>(this, PartitionMethod.BALANCED_HASH, new Keys.FieldPositionKeys<T>(fields, getType()));
+	}
+	
+	/**
+	 * Range-partitions a {@link Tuple} {@link DataSet} on the specified key fields. The n-th parallel instance of the
+	 * following operations receives the n-th range of keys in ascending order. The boundaries of the ranges are
+	 * computed from a random sample of the DataSet, such that the ranges hold similar numbers of elements rather
+	 * than similar intervals of keys. Elements with the same key are always in the same range.
+	 * <p/>
+	 * Note: Field position keys can only be specified for Tuple DataSets.
+	 * 
+	 * @param fields One or more field positions on which the DataSet is range-partitioned.
+	 * @return A PartitionOperator that represents the partitioned DataSet.
+	 */
+	public PartitionOperator<T> partitionByRange(int... fields) {
+		return new PartitionOperator<T>(this, PartitionMethod.RANGE, new Keys.FieldPositionKeys<T>(fields, getType()));
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//  Grouping
 	// --------------------------------------------------------------------------------------------
@@ -505,7 +557,49 @@ public abstract class DataSet<T> {
 	public <R> JoinOperatorSets<T, R> joinWithHuge(DataSet<R> other) {
 		return new JoinOperatorSets<T, R>(this, other, JoinHint.BROADCAST_HASH_FIRST);
 	}
-	
+
+	/**
+	 * Initiates a SemiJoin transformation.<br/>
+	 * A SemiJoin transformation returns all elements of this DataSet for which the other
+	 *   {@link DataSet} contains at least one element with an equal key. Each element is returned
+	 *   at most once, no matter how many elements of the other DataSet share its key.</br>
+	 * Only the keys of the other DataSet are shipped and held in memory, which makes a SemiJoin cheaper
+	 *   than a Join followed by a projection and a duplicate elimination.</br>
+	 * This method returns a {@link SemiJoinOperatorSets} on which
+	 *   {@link SemiJoinOperatorSets#where(int, int...)} needs to be called to define the key of the first
+	 *   (i.e., this) DataSet.
+	 *
+	 * @param other The DataSet whose keys filter this DataSet.
+	 * @return A SemiJoinOperatorSets to continue the definition of the SemiJoin transformation.
+	 *
+	 * @see SemiJoinOperatorSets
+	 * @see SemiJoinOperator
+	 * @see DataSet
+	 */
+	public <R> SemiJoinOperatorSets<T, R> semiJoin(DataSet<R> other) {
+		return new SemiJoinOperatorSets<T, R>(this, other, false);
+	}
+
+	/**
+	 * Initiates an AntiJoin transformation.<br/>
+	 * An AntiJoin transformation returns all elements of this DataSet for which the other
+	 *   {@link DataSet} contains no element with an equal key.</br>
+	 * Only the keys of the other DataSet are shipped and held in memory.</br>
+	 * This method returns a {@link SemiJoinOperatorSets} on which
+	 *   {@link SemiJoinOperatorSets#where(int, int...)} needs to be called to define the key of the first
+	 *   (i.e., this) DataSet.
+	 *
+	 * @param other The DataSet whose keys filter this DataSet.
+	 * @return A SemiJoinOperatorSets to continue the definition of the AntiJoin transformation.
+	 *
+	 * @see SemiJoinOperatorSets
+	 * @see SemiJoinOperator
+	 * @see DataSet
+	 */
+	public <R> SemiJoinOperatorSets<T, R> antiJoin(DataSet<R> other) {
+		return new SemiJoinOperatorSets<T, R>(this, other, true);
+	}
+
 	// --------------------------------------------------------------------------------------------
 	//  Co-Grouping
 	// --------------------------------------------------------------------------------------------
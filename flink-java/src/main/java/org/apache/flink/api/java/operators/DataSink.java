@@ -18,8 +18,11 @@
 
 package org.apache.flink.api.java.operators;
 
+import org.apache.flink.api.common.InvalidProgramException;
 import org.apache.flink.api.common.io.OutputFormat;
 import org.apache.flink.api.common.operators.Operator;
+import org.apache.flink.api.common.operators.Order;
+import org.apache.flink.api.common.operators.Ordering;
 import org.apache.flink.api.common.operators.UnaryOperatorInformation;
 import org.apache.flink.api.common.operators.base.GenericDataSinkBase;
 import org.apache.flink.types.Nothing;
@@ -41,6 +44,8 @@ public class DataSink<T> {
 	
 	private int dop = -1;
 	
+	private Ordering globalOrdering;
+	
 	public DataSink(DataSet<T> data, OutputFormat<T> format, TypeInformation<T> type) {
 		if (format == null) {
 			throw new IllegalArgumentException("The output format must not be null.");
@@ -78,14 +83,38 @@ public class DataSink<T> {
 		return this;
 	}
 	
+	/**
+	 * Sorts the tuples of the DataSet on the specified field in the specified order before they are written.
+	 * The DataSet is range partitioned on the sort fields, such that the parallel instances of the sink write
+	 * consecutive ranges in their order, and each instance sorts its range. The boundaries of the ranges are
+	 * computed from a random sample of the DataSet.<br/>
+	 * The output can be sorted on multiple fields by chaining {@link #sortGlobalOutput(int, Order)} calls.
+	 * 
+	 * @param field The Tuple field on which the output is sorted.
+	 * @param order The Order in which the specified Tuple field is sorted.
+	 * @return This data sink with the added sort field.
+	 */
+	public DataSink<T> sortGlobalOutput(int field, Order order) {
+		if (!this.type.isTupleType()) {
+			throw new InvalidProgramException("Specifying order keys via field positions is only valid for tuple data types");
+		}
+		if (field >= this.type.getArity()) {
+			throw new IllegalArgumentException("Order key out of tuple bounds.");
+		}
+		
+		if (this.globalOrdering == null) {
+			this.globalOrdering = new Ordering();
+		}
+		this.globalOrdering.appendOrdering(field, null, order);
+		return this;
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	
 	protected GenericDataSinkBase<T> translateToDataFlow(Operator<T> input) {
 		// select the name (or create a default one)
 		String name = this.name != null ? this.name : this.format.toString();
 		GenericDataSinkBase<T> sink = new GenericDataSinkBase<T>(this.format, new UnaryOperatorInformation<T, Nothing>(this.type, new NothingTypeInfo()), name);
-		// set input
-		sink.setInput(input);
 		// set dop
 		if(this.dop > 0) {
 			// use specified dop
@@ -94,6 +123,14 @@ public class DataSink<T> {
 			// if no dop has been specified, use dop of input operator to enable chaining
 			sink.setDegreeOfParallelism(input.getDegreeOfParallelism());
 		}
+		// a globally sorted output is range partitioned among the sink's instances, which sort their ranges
+		if (this.globalOrdering != null) {
+			input = PartitionOperator.translateRangePartition(input, this.globalOrdering, this.type,
+				"Partition (" + name + ")", sink.getDegreeOfParallelism());
+			sink.setLocalOrder(this.globalOrdering);
+		}
+		// set input
+		sink.setInput(input);
 		
 		return sink;
 	}
@@ -29,6 +29,7 @@ import org.apache.flink.api.common.operators.DualInputSemanticProperties;
 import org.apache.flink.api.common.operators.Operator;
 import org.apache.flink.api.common.operators.UnaryOperatorInformation;
 import org.apache.flink.api.common.operators.base.JoinOperatorBase;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.operators.base.MapOperatorBase;
 import org.apache.flink.api.java.DataSet;
 import org.apache.flink.api.java.DeltaIteration.SolutionSetPlaceHolder;
@@ -154,10 +155,7 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 		
 		private final JoinFunction<I1, I2, OUT> function;
 		
-		@SuppressWarnings("unused")
-		private boolean preserve1;
-		@SuppressWarnings("unused")
-		private boolean preserve2;
+		private JoinType joinType = JoinType.INNER;
 		
 		protected EquiJoin(DataSet<I1> input1, DataSet<I2> input2, 
 				Keys<I1> keys1, Keys<I2> keys2, JoinFunction<I1, I2, OUT> function,
@@ -183,24 +181,49 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 			setSemanticProperties(props);
 		}
 
-		// TODO
-//		public EquiJoin<I1, I2, OUT> leftOuter() {
-//			this.preserve1 = true;
-//			return this;
-//		}
+		/**
+		 * Makes this Join a left outer join. Elements of the first input that have no joining element in the
+		 * second input are passed to the {@link JoinFunction}, paired with <code>null</code> for the second element.
+		 * The JoinFunction must handle the <code>null</code> argument.
+		 * 
+		 * @return This Join, as a left outer join.
+		 */
+		public EquiJoin<I1, I2, OUT> leftOuter() {
+			this.joinType = JoinType.LEFT_OUTER;
+			return this;
+		}
 
-		// TODO
-//		public EquiJoin<I1, I2, OUT> rightOuter() {
-//			this.preserve2 = true;
-//			return this;
-//		}
+		/**
+		 * Makes this Join a right outer join. Elements of the second input that have no joining element in the
+		 * first input are passed to the {@link JoinFunction}, paired with <code>null</code> for the first element.
+		 * The JoinFunction must handle the <code>null</code> argument.
+		 * 
+		 * @return This Join, as a right outer join.
+		 */
+		public EquiJoin<I1, I2, OUT> rightOuter() {
+			this.joinType = JoinType.RIGHT_OUTER;
+			return this;
+		}
 		
-		// TODO
-//		public EquiJoin<I1, I2, OUT> fullOuter() {
-//			this.preserve1 = true;
-//			this.preserve2 = true;
-//			return this;
-//		}
+		/**
+		 * Makes this Join a full outer join. Elements of either input that have no joining element in the
+		 * other input are passed to the {@link JoinFunction}, paired with <code>null</code>.
+		 * The JoinFunction must handle the <code>null</code> arguments.
+		 * 
+		 * @return This Join, as a full outer join.
+		 */
+		public EquiJoin<I1, I2, OUT> fullOuter() {
+			this.joinType = JoinType.FULL_OUTER;
+			return this;
+		}
+		
+		protected JoinType getJoinType() {
+			return this.joinType;
+		}
+		
+		protected void setJoinType(JoinType joinType) {
+			this.joinType = joinType;
+		}
 		
 		@Override
 		protected org.apache.flink.api.common.operators.base.JoinOperatorBase<?, ?, OUT, ?> translateToDataFlow(Operator<I1> input1, Operator<I2> input2) {
@@ -220,7 +243,8 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 						translateSelectorFunctionJoin(selectorKeys1, selectorKeys2, function, 
 						getInput1Type(), getInput2Type(), getResultType(), name, input1, input2);
 				
-				// set dop
+				// set join type and dop
+				po.setJoinType(this.joinType);
 				po.setDegreeOfParallelism(this.getParallelism());
 				
 				return po;
@@ -247,7 +271,8 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 				// set inputs
 				po.setFirstInput(input1);
 				po.setSecondInput(input2);
-				// set dop
+				// set join type and dop
+				po.setJoinType(this.joinType);
 				po.setDegreeOfParallelism(this.getParallelism());
 				
 				return po;
@@ -266,7 +291,8 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 						translateSelectorFunctionJoinRight(logicalKeyPositions1, selectorKeys2, function, 
 						getInput1Type(), getInput2Type(), getResultType(), name, input1, input2);
 				
-				// set dop
+				// set join type and dop
+				po.setJoinType(this.joinType);
 				po.setDegreeOfParallelism(this.getParallelism());
 				
 				return po;
@@ -285,7 +311,8 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 						translateSelectorFunctionJoinLeft(selectorKeys1, logicalKeyPositions2, function, 
 						getInput1Type(), getInput2Type(), getResultType(), name, input1, input2);
 				
-				// set dop
+				// set join type and dop
+				po.setJoinType(this.joinType);
 				po.setDegreeOfParallelism(this.getParallelism());
 				
 				return po;
@@ -444,9 +471,61 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 				throw new NullPointerException("Join function must not be null.");
 			}
 			TypeInformation<R> returnType = TypeExtractor.getJoinReturnTypes(function, getInput1Type(), getInput2Type());
-			return new EquiJoin<I1, I2, R>(getInput1(), getInput2(), getKeys1(), getKeys2(), function, returnType, getJoinHint());
+			EquiJoin<I1, I2, R> join = new EquiJoin<I1, I2, R>(getInput1(), getInput2(), getKeys1(), getKeys2(), function, returnType, getJoinHint());
+			join.setJoinType(getJoinType());
+			return join;
 		}
 		
+		/**
+		 * Makes this Join a left outer join. Because the default {@link Tuple2} result can not hold
+		 * <code>null</code>, the Join must be finalized with a {@link JoinFunction} via {@link #with(JoinFunction)}.
+		 * 
+		 * @return This Join, as a left outer join.
+		 * 
+		 * @see EquiJoin#leftOuter()
+		 */
+		@Override
+		public DefaultJoin<I1, I2> leftOuter() {
+			super.leftOuter();
+			return this;
+		}
+		
+		/**
+		 * Makes this Join a right outer join. Because the default {@link Tuple2} result can not hold
+		 * <code>null</code>, the Join must be finalized with a {@link JoinFunction} via {@link #with(JoinFunction)}.
+		 * 
+		 * @return This Join, as a right outer join.
+		 * 
+		 * @see EquiJoin#rightOuter()
+		 */
+		@Override
+		public DefaultJoin<I1, I2> rightOuter() {
+			super.rightOuter();
+			return this;
+		}
+		
+		/**
+		 * Makes this Join a full outer join. Because the default {@link Tuple2} result can not hold
+		 * <code>null</code>, the Join must be finalized with a {@link JoinFunction} via {@link #with(JoinFunction)}.
+		 * 
+		 * @return This Join, as a full outer join.
+		 * 
+		 * @see EquiJoin#fullOuter()
+		 */
+		@Override
+		public DefaultJoin<I1, I2> fullOuter() {
+			super.fullOuter();
+			return this;
+		}
+
+		@Override
+		protected org.apache.flink.api.common.operators.base.JoinOperatorBase<?, ?, Tuple2<I1, I2>, ?> translateToDataFlow(Operator<I1> input1, Operator<I2> input2) {
+			if (getJoinType() != JoinType.INNER) {
+				throw new InvalidProgramException("An outer join must be finalized with a JoinFunction via with(JoinFunction).");
+			}
+			return super.translateToDataFlow(input1, input2);
+		}
+
 		/**
 		 * Initiates a ProjectJoin transformation and projects the first join input<br/>
 		 * If the first join input is a {@link Tuple} {@link DataSet}, fields can be selected by their index.
@@ -469,6 +548,9 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 		 * @see org.apache.flink.api.java.operators.JoinOperator.ProjectJoin
 		 */
 		public JoinProjection<I1, I2> projectFirst(int... firstFieldIndexes) {
+			if (getJoinType() != JoinType.INNER) {
+				throw new InvalidProgramException("Projections are not supported for outer joins.");
+			}
 			return new JoinProjection<I1, I2>(getInput1(), getInput2(), getKeys1(), getKeys2(), getJoinHint(), firstFieldIndexes, null);
 		}
 		
@@ -494,6 +576,9 @@ public abstract class JoinOperator<I1, I2, OUT> extends TwoInputUdfOperator<I1,
 		 * @see org.apache.flink.api.java.operators.JoinOperator.ProjectJoin
 		 */
 		public JoinProjection<I1, I2> projectSecond(int... secondFieldIndexes) {
+			if (getJoinType() != JoinType.INNER) {
+				throw new InvalidProgramException("Projections are not supported for outer joins.");
+			}
 			return new JoinProjection<I1, I2>(getInput1(), getInput2(), getKeys1(), getKeys2(), getJoinHint(), null, secondFieldIndexes);
 		}
 		
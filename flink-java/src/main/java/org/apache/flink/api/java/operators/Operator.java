@@ -33,6 +33,8 @@ public abstract class Operator<OUT, O extends Operator<OUT, O>> extends DataSet<
 	private String name;
 	
 	private int dop = -1;
+	
+	private long bufferTimeout = -1;
 
 	protected Operator(ExecutionEnvironment context, TypeInformation<OUT> resultType) {
 		super(context, resultType);
@@ -65,6 +67,16 @@ public abstract class Operator<OUT, O extends Operator<OUT, O>> extends DataSet<
 	public int getParallelism() {
 		return this.dop;
 	}
+	
+	/**
+	 * Returns the maximal time in milliseconds that the results of this operator wait in partly filled
+	 * network buffers. -1 means that buffers are only sent when they are full.
+	 * 
+	 * @return The buffer timeout of this operator.
+	 */
+	public long getBufferTimeout() {
+		return this.bufferTimeout;
+	}
 
 	/**
 	 * Sets the name of this operator. This overrides the default name, which is either
@@ -98,4 +110,24 @@ public abstract class Operator<OUT, O extends Operator<OUT, O>> extends DataSet<
 		O returnType = (O) this;
 		return returnType;
 	}
+	
+	/**
+	 * Sets the maximal time that the results of this operator wait in partly filled network buffers, before
+	 * the buffers are sent to the following operators. By default, buffers are only sent when they are full,
+	 * which gives the highest throughput. A timeout bounds the latency of slowly produced results.
+	 * A timeout of 0 sends every result right away, -1 restores the default.
+	 * 
+	 * @param timeoutMillis The buffer timeout in milliseconds.
+	 * @return The operator with the set buffer timeout.
+	 */
+	public O setBufferTimeout(long timeoutMillis) {
+		if (timeoutMillis < -1) {
+			throw new IllegalArgumentException("The buffer timeout must be at least 0, or -1 for no timeout.");
+		}
+		this.bufferTimeout = timeoutMillis;
+		
+		@SuppressWarnings("unchecked")
+		O returnType = (O) this;
+		return returnType;
+	}
 }
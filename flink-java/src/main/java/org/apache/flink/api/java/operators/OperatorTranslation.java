@@ -102,6 +102,10 @@ public class OperatorTranslation {
 		
 		this.translated.put(dataSet, dataFlowOp);
 		
+		if (dataSet instanceof org.apache.flink.api.java.operators.Operator) {
+			dataFlowOp.setBufferTimeout(((org.apache.flink.api.java.operators.Operator<?, ?>) dataSet).getBufferTimeout());
+		}
+		
 		// take care of broadcast variables
 		translateBcVariables(dataSet, dataFlowOp);
 		
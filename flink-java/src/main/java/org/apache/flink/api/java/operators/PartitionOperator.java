@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.api.java.operators;
+
+import org.apache.flink.api.common.InvalidProgramException;
+import org.apache.flink.api.common.functions.GenericGroupReduce;
+import org.apache.flink.api.common.operators.Operator;
+import org.apache.flink.api.common.operators.Order;
+import org.apache.flink.api.common.operators.Ordering;
+import org.apache.flink.api.common.operators.UnaryOperatorInformation;
+import org.apache.flink.api.common.operators.base.GroupReduceOperatorBase;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase.PartitionMethod;
+import org.apache.flink.api.java.operators.translation.ReservoirSampler;
+import org.apache.flink.types.TypeInformation;
+
+import org.apache.flink.api.java.DataSet;
+
+/**
+ * This operator represents a partitioning of a data set by the keys of its elements. The elements are not
+ * changed, but redistributed among the parallel instances of the following operations.
+ * <p>
+ * A range partitioning computes the boundaries of its ranges from a random sample of the data set, which is
+ * drawn in a pass over the data set before it is partitioned. The ranges are ascending in the order of the
+ * parallel instances.
+ * <p>
+ * A balanced hash partitioning hashes the keys into many key groups and assigns the key groups to the parallel
+ * instances such that they receive similar numbers of elements. The sizes of the key groups are estimated from a
+ * sample as well. Elements with the same key still end up in the same parallel instance, but a few frequent keys
+ * do not overload a single instance as long as there are other keys to balance them with.
+ *
+ * @param <T> The type of the data set partitioned by the operator.
+ */
+public class PartitionOperator<T> extends SingleInputOperator<T, T, PartitionOperator<T>> {
+
+	/**
+	 * The number of elements that each parallel instance contributes to the sample of a sampled partitioning.
+	 */
+	private static final int SAMPLE_SIZE_PER_INSTANCE = 1000;
+
+	/**
+	 * The maximal number of elements in the sample from which the ranges or key group sizes are computed.
+	 */
+	private static final int SAMPLE_SIZE = 10000;
+
+	private final PartitionMethod method;
+
+	private final Keys<T> keys;
+
+
+	public PartitionOperator(DataSet<T> input, PartitionMethod method, Keys<T> keys) {
+		super(input, input.getType());
+
+		if (method == null) {
+			throw new NullPointerException();
+		}
+		if (!(keys instanceof Keys.FieldPositionKeys)) {
+			throw new InvalidProgramException("Partitioning is currently only supported on field positions of tuple data types.");
+		}
+
+		this.method = method;
+		this.keys = keys;
+	}
+
+	@Override
+	protected PartitionOperatorBase<T> translateToDataFlow(Operator<T> input) {
+		String name = getName() != null ? getName() : "Partition by " + this.method.name().toLowerCase().replace('_', ' ');
+		int[] logicalKeyPositions = this.keys.computeLogicalKeyPositions();
+
+		if (this.method == PartitionMethod.HASH) {
+			UnaryOperatorInformation<T, T> operatorInfo = new UnaryOperatorInformation<T, T>(getInputType(), getResultType());
+			PartitionOperatorBase<T> po = new PartitionOperatorBase<T>(operatorInfo, logicalKeyPositions, name);
+			po.setInput(input);
+			po.setDegreeOfParallelism(this.getParallelism());
+			return po;
+		}
+		else if (this.method == PartitionMethod.RANGE) {
+			Ordering ordering = new Ordering();
+			for (int position : logicalKeyPositions) {
+				ordering.appendOrdering(position, null, Order.ASCENDING);
+			}
+			return translateRangePartition(input, ordering, getInputType(), name, this.getParallelism());
+		}
+		else {
+			UnaryOperatorInformation<T, T> operatorInfo = new UnaryOperatorInformation<T, T>(getInputType(), getResultType());
+			PartitionOperatorBase<T> po = new PartitionOperatorBase<T>(operatorInfo, PartitionMethod.BALANCED_HASH, logicalKeyPositions, name);
+			return addSample(po, input, getInputType(), PartitionOperatorBase.KEY_GROUP_SAMPLE, this.getParallelism());
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates the data flow operators for a range partitioning: A sampler that draws a random sample of the input
+	 * in a single instance, and the partition operator that receives the sample as broadcast variable.
+	 *
+	 * @param input The data flow operator that produces the data to partition.
+	 * @param ordering The key fields and the order of the ranges.
+	 * @param type The type of the partitioned data.
+	 * @param name The name of the partition operator.
+	 * @param dop The degree of parallelism of the partition operator.
+	 * @return The range partition operator.
+	 */
+	static <T> PartitionOperatorBase<T> translateRangePartition(Operator<T> input, Ordering ordering,
+			TypeInformation<T> type, String name, int dop)
+	{
+		UnaryOperatorInformation<T, T> operatorInfo = new UnaryOperatorInformation<T, T>(type, type);
+		PartitionOperatorBase<T> po = new PartitionOperatorBase<T>(operatorInfo, ordering, name);
+		return addSample(po, input, type, PartitionOperatorBase.RANGE_SAMPLE, dop);
+	}
+
+	/**
+	 * Connects a partition operator to its input and to a sampler that draws a random sample of the input in a
+	 * single instance. The sample is passed to the partition operator as the given broadcast variable.
+	 */
+	private static <T> PartitionOperatorBase<T> addSample(PartitionOperatorBase<T> po, Operator<T> input,
+			TypeInformation<T> type, String sampleName, int dop)
+	{
+		UnaryOperatorInformation<T, T> operatorInfo = new UnaryOperatorInformation<T, T>(type, type);
+
+		ReservoirSampler<T> sampler = new ReservoirSampler<T>(type.createSerializer(), SAMPLE_SIZE_PER_INSTANCE, SAMPLE_SIZE);
+		GroupReduceOperatorBase<T, T, GenericGroupReduce<T, T>> sample =
+				new GroupReduceOperatorBase<T, T, GenericGroupReduce<T, T>>(sampler, operatorInfo, "Sample (" + po.getName() + ")");
+		sample.setCombinable(true);
+		sample.setInput(input);
+		sample.setDegreeOfParallelism(1);
+
+		po.setInput(input);
+		po.setDegreeOfParallelism(dop);
+		po.setBroadcastVariable(sampleName, sample);
+		return po;
+	}
+}
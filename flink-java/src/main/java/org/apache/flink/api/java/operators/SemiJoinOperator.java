@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.java.operators;
+
+import org.apache.flink.api.common.InvalidProgramException;
+import org.apache.flink.api.common.functions.GenericMap;
+import org.apache.flink.api.common.operators.BinaryOperatorInformation;
+import org.apache.flink.api.common.operators.Operator;
+import org.apache.flink.api.common.operators.UnaryOperatorInformation;
+import org.apache.flink.api.common.operators.base.MapOperatorBase;
+import org.apache.flink.api.common.operators.base.SemiJoinOperatorBase;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.operators.translation.KeyProjectingMapper;
+import org.apache.flink.api.java.operators.translation.PlanProjectOperator;
+import org.apache.flink.api.java.tuple.Tuple;
+import org.apache.flink.api.java.tuple.Tuple1;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.types.TypeInformation;
+
+/**
+ * A {@link DataSet} that is the result of a SemiJoin or AntiJoin transformation. The result contains the
+ * elements of the first input whose key occurs (SemiJoin) or does not occur (AntiJoin) in the second input.
+ * Each element of the first input is returned at most once, regardless of how many elements of the
+ * second input share its key.
+ * <p>
+ * Only the key fields of the second input are shipped to the join. The second input is projected to its
+ * keys before it is partitioned or broadcast.
+ * 
+ * @param <I1> The type of the first input DataSet, which is also the type of the result.
+ * @param <I2> The type of the second input DataSet.
+ * 
+ * @see DataSet
+ */
+public class SemiJoinOperator<I1, I2> extends TwoInputOperator<I1, I2, I1, SemiJoinOperator<I1, I2>> {
+
+	private final Keys<I1> keys1;
+	private final Keys<I2> keys2;
+	
+	private final boolean anti;
+
+	protected SemiJoinOperator(DataSet<I1> input1, DataSet<I2> input2, Keys<I1> keys1, Keys<I2> keys2, boolean anti) {
+		super(input1, input2, input1.getType());
+
+		if (keys1 == null || keys2 == null) {
+			throw new NullPointerException();
+		}
+
+		this.keys1 = keys1;
+		this.keys2 = keys2;
+		this.anti = anti;
+	}
+
+	protected Keys<I1> getKeys1() {
+		return this.keys1;
+	}
+
+	protected Keys<I2> getKeys2() {
+		return this.keys2;
+	}
+	
+	/**
+	 * Checks whether this operator returns the elements without a partner (AntiJoin) rather than
+	 * the elements with a partner (SemiJoin).
+	 * 
+	 * @return True, if this is an AntiJoin, false if it is a SemiJoin.
+	 */
+	public boolean isAntiJoin() {
+		return this.anti;
+	}
+
+	@Override
+	protected SemiJoinOperatorBase<I1, ?> translateToDataFlow(Operator<I1> input1, Operator<I2> input2) {
+		
+		String name = getName() != null ? getName() : (this.anti ? "AntiJoin " : "SemiJoin ") + this.keys1 + " in " + this.keys2;
+		
+		if (!(this.keys1 instanceof Keys.FieldPositionKeys)) {
+			throw new UnsupportedOperationException("Unrecognized or incompatible key types.");
+		}
+		int[] logicalKeyPositions1 = this.keys1.computeLogicalKeyPositions();
+		
+		final SemiJoinOperatorBase<I1, ?> po;
+		
+		if (this.keys2 instanceof Keys.FieldPositionKeys) {
+			po = translateFieldPositionKeys(logicalKeyPositions1, this.keys2.computeLogicalKeyPositions(), this.anti,
+					getInput1Type(), getInput2Type(), name, input1, input2);
+		}
+		else if (this.keys2 instanceof Keys.SelectorFunctionKeys) {
+			@SuppressWarnings("unchecked")
+			Keys.SelectorFunctionKeys<I2, ?> selectorKeys2 = (Keys.SelectorFunctionKeys<I2, ?>) this.keys2;
+			
+			po = translateSelectorFunctionKeys(logicalKeyPositions1, selectorKeys2, this.anti,
+					getInput1Type(), getInput2Type(), name, input1, input2);
+		}
+		else {
+			throw new UnsupportedOperationException("Unrecognized or incompatible key types.");
+		}
+		
+		// set dop
+		po.setDegreeOfParallelism(this.getParallelism());
+		
+		return po;
+	}
+	
+	private static <I1, I2, K extends Tuple> SemiJoinOperatorBase<I1, K> translateFieldPositionKeys(
+			int[] logicalKeyPositions1, int[] logicalKeyPositions2, boolean anti,
+			TypeInformation<I1> inputType1, TypeInformation<I2> inputType2, String name,
+			Operator<I1> input1, Operator<I2> input2)
+	{
+		TupleTypeInfo<?> tupleType2 = (TupleTypeInfo<?>) inputType2;
+		TypeInformation<?>[] keyTypes = new TypeInformation[logicalKeyPositions2.length];
+		int[] keyPositions = new int[logicalKeyPositions2.length];
+		for (int i = 0; i < logicalKeyPositions2.length; i++) {
+			keyTypes[i] = tupleType2.getTypeAt(logicalKeyPositions2[i]);
+			keyPositions[i] = i;
+		}
+		final TupleTypeInfo<K> keyType = new TupleTypeInfo<K>(keyTypes);
+		
+		final PlanProjectOperator<I2, K> keyProjector = new PlanProjectOperator<I2, K>(logicalKeyPositions2, "Key Projector 2", inputType2, keyType);
+		keyProjector.setInput(input2);
+		keyProjector.setDegreeOfParallelism(input2.getDegreeOfParallelism());
+		
+		final SemiJoinOperatorBase<I1, K> semiJoin = new SemiJoinOperatorBase<I1, K>(
+				new BinaryOperatorInformation<I1, K, I1>(inputType1, keyType, inputType1),
+				logicalKeyPositions1, keyPositions, anti, name);
+		semiJoin.setFirstInput(input1);
+		semiJoin.setSecondInput(keyProjector);
+		
+		return semiJoin;
+	}
+	
+	private static <I1, I2, K> SemiJoinOperatorBase<I1, Tuple1<K>> translateSelectorFunctionKeys(
+			int[] logicalKeyPositions1, Keys.SelectorFunctionKeys<I2, ?> rawKeys2, boolean anti,
+			TypeInformation<I1> inputType1, TypeInformation<I2> inputType2, String name,
+			Operator<I1> input1, Operator<I2> input2)
+	{
+		@SuppressWarnings("unchecked")
+		final Keys.SelectorFunctionKeys<I2, K> keys2 = (Keys.SelectorFunctionKeys<I2, K>) rawKeys2;
+		
+		final TypeInformation<Tuple1<K>> keyType = new TupleTypeInfo<Tuple1<K>>(keys2.getKeyType());
+		
+		final KeyProjectingMapper<I2, K> extractor2 = new KeyProjectingMapper<I2, K>(keys2.getKeyExtractor());
+		final MapOperatorBase<I2, Tuple1<K>, GenericMap<I2, Tuple1<K>>> keyMapper2 =
+				new MapOperatorBase<I2, Tuple1<K>, GenericMap<I2, Tuple1<K>>>(extractor2, new UnaryOperatorInformation<I2, Tuple1<K>>(inputType2, keyType), "Key Extractor 2");
+		keyMapper2.setInput(input2);
+		keyMapper2.setDegreeOfParallelism(input2.getDegreeOfParallelism());
+		
+		final SemiJoinOperatorBase<I1, Tuple1<K>> semiJoin = new SemiJoinOperatorBase<I1, Tuple1<K>>(
+				new BinaryOperatorInformation<I1, Tuple1<K>, I1>(inputType1, keyType, inputType1),
+				logicalKeyPositions1, new int[] {0}, anti, name);
+		semiJoin.setFirstInput(input1);
+		semiJoin.setSecondInput(keyMapper2);
+		
+		return semiJoin;
+	}
+
+	// --------------------------------------------------------------------------------------------
+	// Builder classes for incremental construction
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Intermediate step of a SemiJoin or AntiJoin transformation. <br/>
+	 * To continue the transformation, select the key of the first input {@link DataSet} by calling 
+	 * {@link SemiJoinOperatorSets#where(int, int...)}.
+	 *
+	 * @param <I1> The type of the first input DataSet of the transformation.
+	 * @param <I2> The type of the second input DataSet of the transformation.
+	 */
+	public static final class SemiJoinOperatorSets<I1, I2> {
+
+		private final DataSet<I1> input1;
+		private final DataSet<I2> input2;
+		
+		private final boolean anti;
+
+		public SemiJoinOperatorSets(DataSet<I1> input1, DataSet<I2> input2, boolean anti) {
+			if (input1 == null || input2 == null) {
+				throw new NullPointerException();
+			}
+
+			this.input1 = input1;
+			this.input2 = input2;
+			this.anti = anti;
+		}
+
+		/**
+		 * Continues a SemiJoin or AntiJoin transformation. <br/>
+		 * Defines the {@link Tuple} fields of the first input {@link DataSet} that should be used as keys.<br/>
+		 * <b>Note: Fields can only be selected as keys on Tuple DataSets.</b><br/>
+		 *
+		 * @param field0 The first index of the Tuple fields of the first input DataSet that should be used as key.
+		 * @param fields The indexes of the Tuple fields of the first input DataSet that should be used as keys.
+		 * @return An incomplete SemiJoin or AntiJoin transformation. 
+		 *           Call {@link SemiJoinOperatorSetsPredicate#equalTo(int, int...)} or
+		 *           {@link SemiJoinOperatorSetsPredicate#equalTo(KeySelector)} to complete it.
+		 * 
+		 * @see Tuple
+		 * @see DataSet
+		 */
+		public SemiJoinOperatorSetsPredicate where(int field0, int... fields) {
+			int[] actualFields = new int[fields.length + 1];
+			actualFields[0] = field0;
+			System.arraycopy(fields, 0, actualFields, 1, fields.length);
+			return new SemiJoinOperatorSetsPredicate(new Keys.FieldPositionKeys<I1>(actualFields, input1.getType()));
+		}
+
+		// ----------------------------------------------------------------------------------------
+
+		/**
+		 * Intermediate step of a SemiJoin or AntiJoin transformation. <br/>
+		 * To complete the transformation, select the key of the second input {@link DataSet} by calling 
+		 * {@link SemiJoinOperatorSetsPredicate#equalTo(int, int...)} or {@link SemiJoinOperatorSetsPredicate#equalTo(KeySelector)}.
+		 */
+		public final class SemiJoinOperatorSetsPredicate {
+
+			private final Keys<I1> keys1;
+
+			private SemiJoinOperatorSetsPredicate(Keys<I1> keys1) {
+				if (keys1 == null) {
+					throw new NullPointerException();
+				}
+
+				if (keys1.isEmpty()) {
+					throw new InvalidProgramException("The join keys must not be empty.");
+				}
+
+				this.keys1 = keys1;
+			}
+
+			/**
+			 * Completes a SemiJoin or AntiJoin transformation and defines the {@link Tuple} fields of the second 
+			 * input {@link DataSet} that should be used as keys.<br/>
+			 * <b>Note: Fields can only be selected as keys on Tuple DataSets.</b><br/>
+			 *
+			 * @param field0 The first index of the Tuple fields of the second input DataSet that should be used as key.
+			 * @param fields The indexes of the Tuple fields of the second input DataSet that should be used as keys.
+			 * @return A SemiJoinOperator that represents the filtered first input.
+			 */
+			public SemiJoinOperator<I1, I2> equalTo(int field0, int... fields) {
+				int[] actualFields = new int[fields.length + 1];
+				actualFields[0] = field0;
+				System.arraycopy(fields, 0, actualFields, 1, fields.length);
+				return createSemiJoinOperator(new Keys.FieldPositionKeys<I2>(actualFields, input2.getType()));
+			}
+
+			/**
+			 * Completes a SemiJoin or AntiJoin transformation and defines a {@link KeySelector} function for the 
+			 * second input {@link DataSet}.</br>
+			 * The KeySelector function is called for each element of the second DataSet and extracts a single 
+			 * key value. Only the extracted key values are shipped to the join. </br>
+			 * 
+			 * @param keyExtractor The KeySelector function which extracts the key values from the second DataSet.
+			 * @return A SemiJoinOperator that represents the filtered first input.
+			 * 
+			 * @see KeySelector
+			 */
+			public <K> SemiJoinOperator<I1, I2> equalTo(KeySelector<I2, K> keyExtractor) {
+				return createSemiJoinOperator(new Keys.SelectorFunctionKeys<I2, K>(keyExtractor, input2.getType()));
+			}
+
+			private SemiJoinOperator<I1, I2> createSemiJoinOperator(Keys<I2> keys2) {
+				if (keys2 == null) {
+					throw new NullPointerException();
+				}
+
+				if (keys2.isEmpty()) {
+					throw new InvalidProgramException("The join keys must not be empty.");
+				}
+
+				if (!keys1.areCompatibale(keys2)) {
+					throw new InvalidProgramException("The pair of join keys are not compatible with each other.");
+				}
+
+				return new SemiJoinOperator<I1, I2>(input1, input2, keys1, keys2, anti);
+			}
+		}
+	}
+}
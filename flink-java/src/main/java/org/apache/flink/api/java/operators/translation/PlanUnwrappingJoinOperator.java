@@ -73,7 +73,10 @@ public class PlanUnwrappingJoinOperator<I1, I2, OUT, K>
 		@Override
 		public void join(Tuple2<K, I1> value1, Tuple2<K, I2> value2,
 				Collector<OUT> out) throws Exception {
-			out.collect(wrappedFunction.join((I1)(value1.getField(1)), (I2)(value2.getField(1))));
+			// for outer joins, one of the inputs may be null
+			final I1 unwrapped1 = value1 == null ? null : (I1) value1.getField(1);
+			final I2 unwrapped2 = value2 == null ? null : (I2) value2.getField(1);
+			out.collect(wrappedFunction.join(unwrapped1, unwrapped2));
 		}
 		
 	}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.api.java.operators.translation;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.GroupReduceFunction;
+import org.apache.flink.util.Collector;
+
+/**
+ * Draws a uniform random sample from a data set by reservoir sampling. The combine method samples the input of
+ * each parallel instance, the reduce method samples the union of these samples once more, so that the size of
+ * the final sample is bounded regardless of the degree of parallelism. The final sample is only uniform if the
+ * parallel instances see similar numbers of records.
+ */
+public final class ReservoirSampler<T> extends GroupReduceFunction<T, T> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final TypeSerializer<T> serializer;
+
+	private final int combineSampleSize;
+
+	private final int sampleSize;
+
+	public ReservoirSampler(TypeSerializer<T> serializer, int combineSampleSize, int sampleSize) {
+		if (combineSampleSize < 1 || sampleSize < 1) {
+			throw new IllegalArgumentException("The sample sizes must be positive.");
+		}
+		this.serializer = serializer;
+		this.combineSampleSize = combineSampleSize;
+		this.sampleSize = sampleSize;
+	}
+
+	@Override
+	public void combine(Iterator<T> values, Collector<T> out) {
+		emit(sample(values, this.combineSampleSize), out);
+	}
+
+	@Override
+	public void reduce(Iterator<T> values, Collector<T> out) {
+		emit(sample(values, this.sampleSize), out);
+	}
+
+	private List<T> sample(Iterator<T> values, int size) {
+		final Random random = new Random();
+		final List<T> reservoir = new ArrayList<T>(size);
+
+		long count = 0;
+		while (values.hasNext()) {
+			final T value = values.next();
+			count++;
+
+			if (reservoir.size() < size) {
+				// the iterator may reuse its objects, so the kept records are copied
+				reservoir.add(this.serializer.copy(value, this.serializer.createInstance()));
+			} else {
+				final long position = (long) (random.nextDouble() * count);
+				if (position < size) {
+					reservoir.set((int) position, this.serializer.copy(value, this.serializer.createInstance()));
+				}
+			}
+		}
+		return reservoir;
+	}
+
+	private static <T> void emit(List<T> sample, Collector<T> out) {
+		for (T value : sample) {
+			out.collect(value);
+		}
+	}
+}
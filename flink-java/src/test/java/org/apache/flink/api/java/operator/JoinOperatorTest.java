@@ -25,6 +25,7 @@ import java.util.List;
 import org.junit.Assert;
 
 import org.apache.flink.api.common.InvalidProgramException;
+import org.apache.flink.api.java.functions.JoinFunction;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple5;
 import org.apache.flink.api.java.typeutils.BasicTypeInfo;
@@ -543,6 +544,42 @@ public class JoinOperatorTest {
 		.types(Integer.class);
 	}
 	
+	@Test(expected = InvalidProgramException.class)
+	public void testOuterJoinWithoutJoinFunction() {
+		
+		final ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		DataSet<Tuple5<Integer, Long, String, Long, Integer>> ds1 = env.fromCollection(emptyTupleData, tupleTypeInfo);
+		DataSet<Tuple5<Integer, Long, String, Long, Integer>> ds2 = env.fromCollection(emptyTupleData, tupleTypeInfo);
+
+		// should not work, the default Tuple2 result can not hold null
+		ds1.join(ds2).where(0).equalTo(0).leftOuter().print();
+		env.createProgramPlan();
+	}
+	
+	@Test
+	public void testOuterJoinWithJoinFunction() {
+		
+		final ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		DataSet<Tuple5<Integer, Long, String, Long, Integer>> ds1 = env.fromCollection(emptyTupleData, tupleTypeInfo);
+		DataSet<Tuple5<Integer, Long, String, Long, Integer>> ds2 = env.fromCollection(emptyTupleData, tupleTypeInfo);
+
+		// should work
+		try {
+			ds1.join(ds2).where(0).equalTo(0).fullOuter()
+			.with(new JoinFunction<Tuple5<Integer, Long, String, Long, Integer>, Tuple5<Integer, Long, String, Long, Integer>, Tuple5<Integer, Long, String, Long, Integer>>() {
+				@Override
+				public Tuple5<Integer, Long, String, Long, Integer> join(Tuple5<Integer, Long, String, Long, Integer> first,
+						Tuple5<Integer, Long, String, Long, Integer> second) {
+					return first != null ? first : second;
+				}
+			})
+			.print();
+			env.createProgramPlan();
+		} catch(Exception e) {
+			Assert.fail();
+		}
+	}
+	
 	/*
 	 * ####################################################################
 	 */
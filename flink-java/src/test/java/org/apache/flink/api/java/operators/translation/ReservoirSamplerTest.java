@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.java.operators.translation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.flink.api.common.typeutils.base.IntValueSerializer;
+import org.apache.flink.types.IntValue;
+import org.apache.flink.util.Collector;
+import org.junit.Test;
+
+public class ReservoirSamplerTest {
+
+	@Test
+	public void testSmallInputIsKept() {
+		ReservoirSampler<IntValue> sampler = new ReservoirSampler<IntValue>(IntValueSerializer.INSTANCE, 100, 1000);
+
+		List<IntValue> sample = new ArrayList<IntValue>();
+		sampler.combine(new ReusingIterator(50), new ListCollector(sample));
+
+		assertEquals(50, sample.size());
+		assertEquals(50, toInts(sample).size());
+	}
+
+	@Test
+	public void testSampleSizes() {
+		ReservoirSampler<IntValue> sampler = new ReservoirSampler<IntValue>(IntValueSerializer.INSTANCE, 100, 1000);
+
+		// the combiner samples the input of a parallel instance
+		List<IntValue> combined = new ArrayList<IntValue>();
+		sampler.combine(new ReusingIterator(10000), new ListCollector(combined));
+		assertEquals(100, combined.size());
+
+		// the reducer samples the union of the combined samples
+		List<IntValue> reduced = new ArrayList<IntValue>();
+		sampler.reduce(new ReusingIterator(10000), new ListCollector(reduced));
+		assertEquals(1000, reduced.size());
+
+		// the values are drawn without replacement from the input
+		Set<Integer> values = toInts(reduced);
+		assertEquals(1000, values.size());
+		for (int value : values) {
+			assertTrue(value >= 0 && value < 10000);
+		}
+	}
+
+	@Test
+	public void testSampleIsUniform() {
+		final int numValues = 100;
+		final int sampleSize = 10;
+		final int numSamples = 2000;
+
+		ReservoirSampler<IntValue> sampler = new ReservoirSampler<IntValue>(IntValueSerializer.INSTANCE, sampleSize, sampleSize);
+
+		int[] counts = new int[numValues];
+		for (int i = 0; i < numSamples; i++) {
+			List<IntValue> sample = new ArrayList<IntValue>();
+			sampler.combine(new ReusingIterator(numValues), new ListCollector(sample));
+			for (IntValue value : sample) {
+				counts[value.getValue()]++;
+			}
+		}
+
+		// every value is expected in 200 samples, with a standard deviation of about 13
+		for (int i = 0; i < numValues; i++) {
+			assertTrue("Value " + i + " was sampled " + counts[i] + " times.", counts[i] > 100 && counts[i] < 300);
+		}
+	}
+
+	@Test
+	public void testInvalidSampleSizes() {
+		try {
+			new ReservoirSampler<IntValue>(IntValueSerializer.INSTANCE, 0, 10);
+			fail("A sample size of zero was accepted.");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new ReservoirSampler<IntValue>(IntValueSerializer.INSTANCE, 10, -1);
+			fail("A negative sample size was accepted.");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static Set<Integer> toInts(List<IntValue> values) {
+		Set<Integer> ints = new HashSet<Integer>();
+		for (IntValue value : values) {
+			ints.add(value.getValue());
+		}
+		return ints;
+	}
+
+	/**
+	 * Returns the values 0 to n-1 in a single reused object, like the iterators of the runtime do.
+	 */
+	private static final class ReusingIterator implements Iterator<IntValue> {
+
+		private final IntValue reuse = new IntValue();
+
+		private final int numValues;
+
+		private int next;
+
+		ReusingIterator(int numValues) {
+			this.numValues = numValues;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < this.numValues;
+		}
+
+		@Override
+		public IntValue next() {
+			this.reuse.setValue(this.next++);
+			return this.reuse;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final class ListCollector implements Collector<IntValue> {
+
+		private final List<IntValue> list;
+
+		ListCollector(List<IntValue> list) {
+			this.list = list;
+		}
+
+		@Override
+		public void collect(IntValue record) {
+			this.list.add(record);
+		}
+
+		@Override
+		public void close() {}
+	}
+}
@@ -26,8 +26,10 @@ import org.apache.flink.core.fs.Path;
 import org.apache.flink.core.io.IOReadableWritable;
 import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor;
 import org.apache.flink.runtime.execution.librarycache.LibraryCacheManager;
+import org.apache.flink.runtime.io.disk.iomanager.BlockCompression;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.network.NetworkCompression;
 import org.apache.flink.runtime.io.network.bufferprovider.BufferAvailabilityListener;
 import org.apache.flink.runtime.io.network.bufferprovider.BufferProvider;
 import org.apache.flink.runtime.io.network.bufferprovider.GlobalBufferPool;
@@ -47,6 +49,7 @@ import org.apache.flink.util.StringUtils;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -102,6 +105,16 @@ public class RuntimeEnvironment implements Environment, BufferProvider, LocalBuf
 	 */
 	private final IOManager ioManager;
 
+	/**
+	 * The compression of the blocks spilled by this task, or null, if spilled blocks are not compressed.
+	 */
+	private final BlockCompression spillCompression;
+
+	/**
+	 * The compression of the buffers that this task sends to remote receivers.
+	 */
+	private final NetworkCompression networkCompression;
+
 	/**
 	 * Class of the task to run in this environment.
 	 */
@@ -195,7 +208,9 @@ public class RuntimeEnvironment implements Environment, BufferProvider, LocalBuf
 		this.indexInSubtaskGroup = tdd.getIndexInSubtaskGroup();
 		this.currentNumberOfSubtasks = tdd.getCurrentNumberOfSubtasks();
 		this.memoryManager = memoryManager;
-		this.ioManager = ioManager;
+		this.spillCompression = ioManager == null ? null : BlockCompression.fromConfiguration(this.jobConfiguration);
+		this.ioManager = this.spillCompression == null ? ioManager : ioManager.createCompressingView(this.spillCompression);
+		this.networkCompression = NetworkCompression.fromConfiguration(this.jobConfiguration);
 		this.inputSplitProvider = inputSplitProvider;
 		this.accumulatorProtocolProxy = accumulatorProtocolProxy;
 		this.cacheCopyTasks = cpTasks;
@@ -239,6 +254,7 @@ public class RuntimeEnvironment implements Environment, BufferProvider, LocalBuf
 	@Override
 	public OutputGate createAndRegisterOutputGate() {
 		OutputGate gate = new OutputGate(getJobID(), new GateID(), getNumberOfOutputGates());
+		gate.setNetworkCompression(this.networkCompression);
 		this.outputGates.add(gate);
 
 		return gate;
@@ -290,6 +306,10 @@ public class RuntimeEnvironment implements Environment, BufferProvider, LocalBuf
 			}
 
 			return;
+		} finally {
+			if (this.spillCompression != null && this.spillCompression.getUncompressedBytes() > 0) {
+				LOG.info("Spill compression of " + getTaskNameWithIndex() + ": " + this.spillCompression);
+			}
 		}
 
 		// Task finished running, but there may be unconsumed output data in some of the channels
@@ -770,6 +790,11 @@ public class RuntimeEnvironment implements Environment, BufferProvider, LocalBuf
 		return this.outputBufferPool.requestBufferBlocking(minBufferSize);
 	}
 
+	@Override
+	public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) {
+		return this.outputBufferPool.requestBuffers(minBufferSize, numBuffers, target);
+	}
+
 	@Override
 	public int getBufferSize() {
 		return this.outputBufferPool.getBufferSize();
@@ -65,6 +65,11 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 	 * Flag marking this channel as closed;
 	 */
 	protected volatile boolean closed;
+	
+	/**
+	 * The compression of the blocks, or null, if the blocks are stored uncompressed.
+	 */
+	final ChannelCompression compression;
 
 	// --------------------------------------------------------------------------------------------
 	
@@ -83,6 +88,25 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 	protected BlockChannelAccess(Channel.ID channelID, RequestQueue<R> requestQueue,
 			C returnQueue, boolean writeEnabled)
 	throws IOException
+	{
+		this(channelID, requestQueue, returnQueue, writeEnabled, null);
+	}
+	
+	/**
+	 * Creates a new channel access to the path indicated by the given ID, which optionally compresses the blocks.
+	 * A channel that reads compressed blocks must use the same codec as the channel that wrote them.
+	 * 
+	 * @param channelID The id describing the path of the file that the channel accessed.
+	 * @param requestQueue The queue that this channel hands its IO requests to.
+	 * @param returnQueue The queue to which the segments are added after their buffer was written.
+	 * @param writeEnabled Flag describing whether the channel should be opened in read/write mode, rather
+	 *                     than in read-only mode.
+	 * @param compression The compression of the blocks, or null, to store the blocks uncompressed.
+	 * @throws IOException Thrown, if the channel could no be opened.
+	 */
+	protected BlockChannelAccess(Channel.ID channelID, RequestQueue<R> requestQueue,
+			C returnQueue, boolean writeEnabled, BlockCompression compression)
+	throws IOException
 	{
 		super(channelID, requestQueue, writeEnabled);
 		
@@ -91,6 +115,7 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 		}
 		
 		this.returnBuffers = returnQueue;
+		this.compression = compression == null ? null : new ChannelCompression(compression);
 	}
 	
 	// --------------------------------------------------------------------------------------------
@@ -217,8 +242,12 @@ final class SegmentReadRequest implements ReadRequest
 		final FileChannel c = this.channel.fileChannel;
 		if (c.size() - c.position() > 0) {
 			try {
-				final ByteBuffer wrapper = this.segment.wrap(0, this.segment.size());
-				this.channel.fileChannel.read(wrapper);
+				if (this.channel.compression != null) {
+					this.channel.compression.readBlock(c, this.segment);
+				} else {
+					final ByteBuffer wrapper = this.segment.wrap(0, this.segment.size());
+					this.channel.fileChannel.read(wrapper);
+				}
 			} catch (NullPointerException npex) {
 				// the memory has been cleared asynchronouosly through task failing or canceling
 				// ignore the request, since the result cannot be read
@@ -256,7 +285,11 @@ final class SegmentWriteRequest implements WriteRequest
 	public void write() throws IOException
 	{
 		try {
-			this.channel.fileChannel.write(this.segment.wrap(0, this.segment.size()));
+			if (this.channel.compression != null) {
+				this.channel.compression.writeBlock(this.channel.fileChannel, this.segment);
+			} else {
+				this.channel.fileChannel.write(this.segment.wrap(0, this.segment.size()));
+			}
 		} catch (NullPointerException npex) {
 			// the memory has been cleared asynchronouosly through task failing or canceling
 			// ignore the request, since there is nothing to write.
@@ -57,7 +57,24 @@ public class BlockChannelReader extends BlockChannelAccess<ReadRequest, LinkedBl
 			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle)
 	throws IOException
 	{
-		super(channelID, requestQueue, returnSegments, false);
+		this(channelID, requestQueue, returnSegments, numRequestsToBundle, null);
+	}
+	
+	/**
+	 * Creates a new block channel reader for the given channel, which decompresses the blocks.
+	 *  
+	 * @param channelID The ID of the channel to read.
+	 * @param requestQueue The request queue of the asynchronous reader thread, to which the I/O requests
+	 *                     are added.
+	 * @param returnSegments The return queue, to which the full Memory Segments are added.
+	 * @param compression The compression of the blocks, or null, if the blocks are stored uncompressed.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened.
+	 */
+	protected BlockChannelReader(Channel.ID channelID, RequestQueue<ReadRequest> requestQueue,
+			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle, BlockCompression compression)
+	throws IOException
+	{
+		super(channelID, requestQueue, returnSegments, false, compression);
 	}	
 
 	/**
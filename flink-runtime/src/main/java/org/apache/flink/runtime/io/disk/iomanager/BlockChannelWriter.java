@@ -57,7 +57,24 @@ public class BlockChannelWriter extends BlockChannelAccess<WriteRequest, LinkedB
 			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle)
 	throws IOException
 	{
-		super(channelID, requestQueue, returnSegments, true);
+		this(channelID, requestQueue, returnSegments, numRequestsToBundle, null);
+	}
+	
+	/**
+	 * Creates a new block channel writer for the given channel, which compresses the blocks.
+	 *  
+	 * @param channelID The ID of the channel to write to.
+	 * @param requestQueue The request queue of the asynchronous writer thread, to which the I/O requests
+	 *                     are added.
+	 * @param returnSegments The return queue, to which the processed Memory Segments are added.
+	 * @param compression The compression of the blocks, or null, to write the blocks uncompressed.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened exclusively.
+	 */
+	protected BlockChannelWriter(Channel.ID channelID, RequestQueue<WriteRequest> requestQueue,
+			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle, BlockCompression compression)
+	throws IOException
+	{
+		super(channelID, requestQueue, returnSegments, true, compression);
 	}
 
 	/**
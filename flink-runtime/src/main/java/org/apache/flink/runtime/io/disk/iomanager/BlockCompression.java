@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.disk.iomanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.GlobalConfiguration;
+import org.apache.flink.util.InstantiationUtil;
+
+/**
+ * The compression of the blocks that a task spills through the I/O manager. It creates the compressors for the
+ * individual channels and accumulates the compression statistics over all channels of the task.
+ * <p>
+ * The codec is either the built-in pure Java {@link LZBlockCompressor}, or any {@link BlockCompressor} given by its
+ * class name, for example an adapter to a native LZ4 or Snappy library. If the class cannot be instantiated, the
+ * built-in codec is used instead.
+ */
+public final class BlockCompression {
+	
+	private static final Log LOG = LogFactory.getLog(BlockCompression.class);
+	
+	/**
+	 * The configuration value that disables spill compression.
+	 */
+	public static final String CODEC_NONE = "none";
+	
+	/**
+	 * The configuration value for the built-in pure Java codec.
+	 */
+	public static final String CODEC_LZ = "lz";
+	
+	private final Class<? extends BlockCompressor> codecClass;
+	
+	private final AtomicLong uncompressedBytes = new AtomicLong();
+	
+	private final AtomicLong compressedBytes = new AtomicLong();
+	
+	private final AtomicLong compressionNanos = new AtomicLong();
+	
+	private final AtomicLong decompressionNanos = new AtomicLong();
+	
+	/**
+	 * Creates a new block compression with the given codec.
+	 * 
+	 * @param codecClass The class of the compressors.
+	 */
+	public BlockCompression(Class<? extends BlockCompressor> codecClass) {
+		if (codecClass == null) {
+			throw new NullPointerException();
+		}
+		this.codecClass = codecClass;
+	}
+	
+	/**
+	 * Creates the block compression for a job, as configured by the key
+	 * {@link ConfigConstants#SPILL_COMPRESSION_KEY} in the job configuration, or, if not set there, in the global
+	 * configuration.
+	 * 
+	 * @param jobConfiguration The configuration of the job.
+	 * @return The block compression, or null, if spill compression is disabled.
+	 */
+	public static BlockCompression fromConfiguration(Configuration jobConfiguration) {
+		final String defaultCodec = GlobalConfiguration.getString(ConfigConstants.SPILL_COMPRESSION_KEY,
+			ConfigConstants.DEFAULT_SPILL_COMPRESSION);
+		final String codec = jobConfiguration == null ? defaultCodec :
+			jobConfiguration.getString(ConfigConstants.SPILL_COMPRESSION_KEY, defaultCodec);
+		
+		if (codec == null || codec.trim().isEmpty() || CODEC_NONE.equalsIgnoreCase(codec.trim())) {
+			return null;
+		}
+		if (CODEC_LZ.equalsIgnoreCase(codec.trim())) {
+			return new BlockCompression(LZBlockCompressor.class);
+		}
+		
+		try {
+			final Class<? extends BlockCompressor> clazz = Class.forName(codec.trim()).asSubclass(BlockCompressor.class);
+			InstantiationUtil.checkForInstantiation(clazz);
+			return new BlockCompression(clazz);
+		}
+		catch (Throwable t) {
+			LOG.warn("Cannot load spill compression codec '" + codec + "', using the built-in codec instead: " +
+				t.getMessage());
+			return new BlockCompression(LZBlockCompressor.class);
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Creates a new compressor for a single channel.
+	 * 
+	 * @return A new compressor.
+	 */
+	public BlockCompressor createCompressor() {
+		return InstantiationUtil.instantiate(this.codecClass, BlockCompressor.class);
+	}
+	
+	void reportCompression(int uncompressed, int compressed, long nanos) {
+		this.uncompressedBytes.addAndGet(uncompressed);
+		this.compressedBytes.addAndGet(compressed);
+		this.compressionNanos.addAndGet(nanos);
+	}
+	
+	void reportDecompression(long nanos) {
+		this.decompressionNanos.addAndGet(nanos);
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Gets the number of bytes that were handed to the compressors.
+	 * 
+	 * @return The number of uncompressed bytes.
+	 */
+	public long getUncompressedBytes() {
+		return this.uncompressedBytes.get();
+	}
+	
+	/**
+	 * Gets the number of bytes that the compressed blocks occupy on disk, including their headers.
+	 * 
+	 * @return The number of compressed bytes.
+	 */
+	public long getCompressedBytes() {
+		return this.compressedBytes.get();
+	}
+	
+	/**
+	 * Gets the ratio of the uncompressed to the compressed bytes.
+	 * 
+	 * @return The compression ratio, or 1.0, if nothing was compressed yet.
+	 */
+	public double getCompressionRatio() {
+		final long compressed = this.compressedBytes.get();
+		return compressed == 0 ? 1.0 : ((double) this.uncompressedBytes.get()) / compressed;
+	}
+	
+	/**
+	 * Gets the CPU time spent compressing, in milliseconds.
+	 * 
+	 * @return The compression time.
+	 */
+	public long getCompressionTimeMillis() {
+		return this.compressionNanos.get() / 1000000;
+	}
+	
+	/**
+	 * Gets the CPU time spent decompressing, in milliseconds.
+	 * 
+	 * @return The decompression time.
+	 */
+	public long getDecompressionTimeMillis() {
+		return this.decompressionNanos.get() / 1000000;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s: %d bytes compressed to %d bytes (ratio %.2f), %d msecs compressing, %d msecs decompressing",
+			this.codecClass.getSimpleName(), getUncompressedBytes(), getCompressedBytes(), getCompressionRatio(),
+			getCompressionTimeMillis(), getDecompressionTimeMillis());
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.disk.iomanager;
+
+import java.io.IOException;
+
+/**
+ * A codec that compresses the blocks written by the block channels of the I/O manager. Each channel uses its own
+ * compressor instance from a single thread, so implementations need not be thread-safe. Implementations must have
+ * a public nullary constructor.
+ */
+public interface BlockCompressor {
+	
+	/**
+	 * Gets the maximal length of the compressed form of a block with the given length.
+	 * 
+	 * @param length The length of the uncompressed block.
+	 * @return The maximal length of the compressed block.
+	 */
+	int getMaxCompressedLength(int length);
+	
+	/**
+	 * Compresses a block.
+	 * 
+	 * @param src The array holding the uncompressed block.
+	 * @param srcOff The offset of the block in the source array.
+	 * @param srcLen The length of the uncompressed block.
+	 * @param dst The array to write the compressed block to. Must hold at least
+	 *            {@link #getMaxCompressedLength(int)} bytes after the offset.
+	 * @param dstOff The offset in the target array.
+	 * @return The length of the compressed block.
+	 */
+	int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff);
+	
+	/**
+	 * Decompresses a block.
+	 * 
+	 * @param src The array holding the compressed block.
+	 * @param srcOff The offset of the block in the source array.
+	 * @param srcLen The length of the compressed block.
+	 * @param dst The array to write the uncompressed block to.
+	 * @param dstOff The offset in the target array.
+	 * @param dstLen The length of the uncompressed block.
+	 * @throws IOException Thrown, if the compressed block is corrupt.
+	 */
+	void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen) throws IOException;
+}
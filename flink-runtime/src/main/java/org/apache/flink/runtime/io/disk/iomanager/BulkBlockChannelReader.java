@@ -38,7 +38,14 @@ public class BulkBlockChannelReader extends BlockChannelAccess<ReadRequest, Arra
 			List<MemorySegment> sourceSegments, int numBlocks)
 	throws IOException
 	{
-		super(channelID, requestQueue, new ArrayList<MemorySegment>(numBlocks), false);
+		this(channelID, requestQueue, sourceSegments, numBlocks, null);
+	}
+	
+	protected BulkBlockChannelReader(Channel.ID channelID, RequestQueue<ReadRequest> requestQueue, 
+			List<MemorySegment> sourceSegments, int numBlocks, BlockCompression compression)
+	throws IOException
+	{
+		super(channelID, requestQueue, new ArrayList<MemorySegment>(numBlocks), false, compression);
 		
 		// sanity check
 		if (sourceSegments.size() < numBlocks) {
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.disk.iomanager;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.flink.core.memory.MemorySegment;
+
+/**
+ * Compresses and decompresses the blocks of a single block channel. Each block is stored as a header with the
+ * stored length and the uncompressed length, followed by the stored bytes. Blocks that do not become smaller are
+ * stored uncompressed, which is marked by a stored length equal to the uncompressed length.
+ * <p>
+ * The blocks of a channel are all written, or all read, by the same I/O thread, so the scratch buffers are not
+ * shared between threads.
+ */
+final class ChannelCompression {
+	
+	private static final int HEADER_LENGTH = 8;
+	
+	private final BlockCompression compression;
+	
+	private final BlockCompressor compressor;
+	
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+	
+	private byte[] uncompressed = new byte[0];
+	
+	private byte[] compressed = new byte[0];
+	
+	ChannelCompression(BlockCompression compression) {
+		this.compression = compression;
+		this.compressor = compression.createCompressor();
+	}
+	
+	/**
+	 * Compresses the contents of the segment and writes the block to the channel.
+	 */
+	void writeBlock(FileChannel channel, MemorySegment segment) throws IOException {
+		final int size = segment.size();
+		ensureCapacity(size);
+		
+		final long start = System.nanoTime();
+		segment.get(0, this.uncompressed, 0, size);
+		int storedLen = this.compressor.compress(this.uncompressed, 0, size, this.compressed, HEADER_LENGTH);
+		
+		final byte[] stored;
+		if (storedLen < size) {
+			stored = this.compressed;
+		} else {
+			// store the block uncompressed
+			System.arraycopy(this.uncompressed, 0, this.compressed, HEADER_LENGTH, size);
+			stored = this.compressed;
+			storedLen = size;
+		}
+		this.compression.reportCompression(size, storedLen + HEADER_LENGTH, System.nanoTime() - start);
+		
+		final ByteBuffer buffer = ByteBuffer.wrap(stored, 0, storedLen + HEADER_LENGTH);
+		buffer.putInt(0, storedLen);
+		buffer.putInt(4, size);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+	
+	/**
+	 * Reads the next block from the channel and decompresses it into the segment.
+	 */
+	void readBlock(FileChannel channel, MemorySegment segment) throws IOException {
+		this.header.clear();
+		readFully(channel, this.header);
+		
+		final int storedLen = this.header.getInt(0);
+		final int size = this.header.getInt(4);
+		if (size != segment.size() || storedLen < 0 || storedLen > size) {
+			throw new IOException("Corrupt compressed block header: Stored length " + storedLen + 
+				", block size " + size + ", segment size " + segment.size() + ".");
+		}
+		ensureCapacity(size);
+		readFully(channel, ByteBuffer.wrap(this.compressed, 0, storedLen));
+		
+		if (storedLen == size) {
+			segment.put(0, this.compressed, 0, size);
+		} else {
+			final long start = System.nanoTime();
+			this.compressor.decompress(this.compressed, 0, storedLen, this.uncompressed, 0, size);
+			segment.put(0, this.uncompressed, 0, size);
+			this.compression.reportDecompression(System.nanoTime() - start);
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private void ensureCapacity(int size) {
+		if (this.uncompressed.length < size) {
+			this.uncompressed = new byte[size];
+			this.compressed = new byte[Math.max(size, this.compressor.getMaxCompressedLength(size)) + HEADER_LENGTH];
+		}
+	}
+	
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Compressed block is truncated.");
+			}
+		}
+	}
+}
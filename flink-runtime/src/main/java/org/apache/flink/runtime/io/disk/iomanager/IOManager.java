@@ -69,6 +69,16 @@ public final class IOManager implements UncaughtExceptionHandler
 	 * A boolean flag indicating whether the close() has already been invoked.
 	 */
 	private volatile boolean isClosed = false;
+	
+	/**
+	 * The I/O manager that owns the I/O threads. This I/O manager itself, unless it is a compressing view.
+	 */
+	private final IOManager root;
+	
+	/**
+	 * The compression for the blocks of the created channels, or null, if the blocks are not compressed.
+	 */
+	private final BlockCompression compression;
 
 	
 	// -------------------------------------------------------------------------
@@ -103,6 +113,8 @@ public final class IOManager implements UncaughtExceptionHandler
 		this.paths = paths;
 		this.random = new Random();
 		this.nextPath = 0;
+		this.root = this;
+		this.compression = null;
 		
 		// start a write worker thread for each directory
 		this.writers = new WriterThread[paths.length];
@@ -127,6 +139,45 @@ public final class IOManager implements UncaughtExceptionHandler
 		}
 	}
 
+	/**
+	 * Creates a view on the given I/O manager that compresses the blocks of all channels it creates.
+	 */
+	private IOManager(IOManager root, BlockCompression compression)
+	{
+		this.paths = root.paths;
+		this.random = root.random;
+		this.writers = root.writers;
+		this.readers = root.readers;
+		this.root = root;
+		this.compression = compression;
+	}
+	
+	/**
+	 * Creates a view on this I/O manager whose block channels compress their blocks with the given compression.
+	 * The view shares the I/O threads with this I/O manager, shutting it down has no effect. Channels written
+	 * through the view must be read through a view with the same codec.
+	 * 
+	 * @param compression The compression for the blocks.
+	 * @return The compressing view.
+	 */
+	public IOManager createCompressingView(BlockCompression compression)
+	{
+		if (compression == null) {
+			throw new NullPointerException();
+		}
+		return new IOManager(this.root, compression);
+	}
+	
+	/**
+	 * Gets the compression of the blocks of the channels created by this I/O manager.
+	 * 
+	 * @return The compression, or null, if the blocks are not compressed.
+	 */
+	public BlockCompression getCompression()
+	{
+		return this.compression;
+	}
+
 	/**
 	 * Close method. Shuts down the reader and writer threads immediately, not waiting for their
 	 * pending requests to be served. This method waits until the threads have actually ceased their
@@ -134,6 +185,11 @@ public final class IOManager implements UncaughtExceptionHandler
 	 */
 	public synchronized final void shutdown()
 	{
+		if (this.root != this) {
+			// views do not own the I/O threads
+			return;
+		}
+		
 		if (!this.isClosed) {
 			this.isClosed = true;
 
@@ -180,6 +236,10 @@ public final class IOManager implements UncaughtExceptionHandler
 	 */
 	public final boolean isProperlyShutDown()
 	{
+		if (this.root != this) {
+			return this.root.isProperlyShutDown();
+		}
+		
 		boolean readersShutDown = true;
 		for (int i = 0; i < this.readers.length; i++) {
 			readersShutDown &= this.readers[i].getState() == Thread.State.TERMINATED;
@@ -215,7 +275,7 @@ public final class IOManager implements UncaughtExceptionHandler
 	 */
 	public Channel.ID createChannel()
 	{
-		final int num = getNextPathNum();
+		final int num = this.root.getNextPathNum();
 		return new Channel.ID(this.paths[num], num, this.random);
 	}
 
@@ -249,11 +309,11 @@ public final class IOManager implements UncaughtExceptionHandler
 								LinkedBlockingQueue<MemorySegment> returnQueue)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue, 1);
+		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue, 1, this.compression);
 	}
 	
 	/**
@@ -279,11 +339,11 @@ public final class IOManager implements UncaughtExceptionHandler
 								LinkedBlockingQueue<MemorySegment> returnQueue, int numRequestsToCombine)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue, numRequestsToCombine);
+		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue, numRequestsToCombine, this.compression);
 	}
 	
 	/**
@@ -297,11 +357,11 @@ public final class IOManager implements UncaughtExceptionHandler
 	public BlockChannelWriter createBlockChannelWriter(Channel.ID channelID)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), 1);
+		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), 1, this.compression);
 	}
 	
 	/**
@@ -324,11 +384,11 @@ public final class IOManager implements UncaughtExceptionHandler
 	public BlockChannelWriter createBlockChannelWriter(Channel.ID channelID, int numRequestsToCombine)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine);
+		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine, this.compression);
 	}
 	
 	/**
@@ -345,11 +405,11 @@ public final class IOManager implements UncaughtExceptionHandler
 										LinkedBlockingQueue<MemorySegment> returnQueue)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue, 1);
+		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue, 1, this.compression);
 	}
 	
 	/**
@@ -375,11 +435,11 @@ public final class IOManager implements UncaughtExceptionHandler
 					LinkedBlockingQueue<MemorySegment> returnQueue, int numRequestsToCombine)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue, numRequestsToCombine);
+		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue, numRequestsToCombine, this.compression);
 	}
 	
 	/**
@@ -394,11 +454,11 @@ public final class IOManager implements UncaughtExceptionHandler
 	public BlockChannelReader createBlockChannelReader(Channel.ID channelID)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), 1);
+		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), 1, this.compression);
 	}
 	
 	/**
@@ -422,12 +482,12 @@ public final class IOManager implements UncaughtExceptionHandler
 	public BlockChannelReader createBlockChannelReader(Channel.ID channelID, int numRequestsToCombine)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
 		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, 
-			new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine);
+			new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine, this.compression);
 	}
 	
 	/**
@@ -449,11 +509,11 @@ public final class IOManager implements UncaughtExceptionHandler
 			List<MemorySegment> targetSegments,	int numBlocks)
 	throws IOException
 	{
-		if (this.isClosed) {
+		if (this.root.isClosed) {
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BulkBlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, targetSegments, numBlocks);
+		return new BulkBlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, targetSegments, numBlocks, this.compression);
 	}
 	
 	// ========================================================================
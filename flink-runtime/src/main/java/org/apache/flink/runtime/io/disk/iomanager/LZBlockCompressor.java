@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.disk.iomanager;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java block compressor in the style of LZ4. The compressed block is a sequence of literal runs and
+ * back-references of at least four bytes into the previous 64 KiBytes, found through a hash table over
+ * four-byte prefixes. Compression is fast rather than tight, which suits serialized records that spill to disk.
+ * <p>
+ * Each sequence starts with a token byte, whose upper four bits hold the literal length and whose lower four bits
+ * hold the match length minus four. Lengths of 15 continue in additional bytes, each adding up to 255. The
+ * literals follow, then the little-endian two-byte offset of the match. The last sequence holds literals only.
+ */
+public final class LZBlockCompressor implements BlockCompressor {
+	
+	private static final int MIN_MATCH = 4;
+	
+	private static final int HASH_LOG = 14;
+	
+	private static final int MAX_OFFSET = 0xffff;
+	
+	private static final int LAST_LITERALS = 5;			// the block always ends with some literals
+	
+	private static final int MIN_LENGTH_FOR_MATCHES = 12;	// matches may not start in the last bytes
+	
+	private static final int SKIP_TRIGGER = 6;			// speeds up the search in incompressible data
+	
+	private final int[] hashTable = new int[1 << HASH_LOG];
+
+	@Override
+	public int getMaxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	@Override
+	public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+		final int srcEnd = srcOff + srcLen;
+		final int matchStartLimit = srcEnd - MIN_LENGTH_FOR_MATCHES;
+		final int matchEndLimit = srcEnd - LAST_LITERALS;
+		final int[] table = this.hashTable;
+		Arrays.fill(table, -1);
+		
+		int sp = srcOff;
+		int dp = dstOff;
+		int anchor = srcOff;
+		
+		while (sp < matchStartLimit) {
+			final int seq = readInt(src, sp);
+			final int h = hash(seq);
+			final int ref = table[h];
+			table[h] = sp;
+			
+			if (ref < 0 || sp - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+				sp += 1 + ((sp - anchor) >>> SKIP_TRIGGER);
+				continue;
+			}
+			
+			// extend the match
+			int matchLen = MIN_MATCH;
+			while (sp + matchLen < matchEndLimit && src[ref + matchLen] == src[sp + matchLen]) {
+				matchLen++;
+			}
+			
+			dp = writeSequence(src, anchor, sp - anchor, sp - ref, matchLen, dst, dp);
+			sp += matchLen;
+			anchor = sp;
+		}
+		
+		// the remaining bytes are literals
+		dp = writeLiterals(src, anchor, srcEnd - anchor, dst, dp);
+		return dp - dstOff;
+	}
+
+	@Override
+	public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen) throws IOException {
+		final int srcEnd = srcOff + srcLen;
+		final int dstEnd = dstOff + dstLen;
+		int sp = srcOff;
+		int dp = dstOff;
+		
+		try {
+			while (true) {
+				final int token = src[sp++] & 0xff;
+				
+				// copy the literals
+				int literalLen = token >>> 4;
+				if (literalLen == 15) {
+					int b;
+					do {
+						b = src[sp++] & 0xff;
+						literalLen += b;
+					} while (b == 255);
+				}
+				if (dp + literalLen > dstEnd || sp + literalLen > srcEnd) {
+					throw new IOException("Corrupt compressed block: Literals exceed the block.");
+				}
+				System.arraycopy(src, sp, dst, dp, literalLen);
+				sp += literalLen;
+				dp += literalLen;
+				
+				if (sp >= srcEnd) {
+					break;
+				}
+				
+				// copy the match. it may overlap with the bytes it produces, so copy byte by byte
+				final int offset = (src[sp] & 0xff) | ((src[sp + 1] & 0xff) << 8);
+				sp += 2;
+				int matchLen = token & 0xf;
+				if (matchLen == 15) {
+					int b;
+					do {
+						b = src[sp++] & 0xff;
+						matchLen += b;
+					} while (b == 255);
+				}
+				matchLen += MIN_MATCH;
+				
+				int ref = dp - offset;
+				if (offset == 0 || ref < dstOff || dp + matchLen > dstEnd) {
+					throw new IOException("Corrupt compressed block: Invalid back-reference.");
+				}
+				for (final int end = dp + matchLen; dp < end; ) {
+					dst[dp++] = dst[ref++];
+				}
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException aioobex) {
+			throw new IOException("Corrupt compressed block: Block is truncated.");
+		}
+		
+		if (dp != dstEnd) {
+			throw new IOException("Corrupt compressed block: Expected " + dstLen + " bytes, but found " +
+				(dp - dstOff) + ".");
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private static int writeSequence(byte[] src, int literalOff, int literalLen, int offset, int matchLen,
+			byte[] dst, int dp)
+	{
+		final int tokenPos = dp++;
+		final int extraMatchLen = matchLen - MIN_MATCH;
+		
+		int token = (literalLen >= 15 ? 15 : literalLen) << 4;
+		token |= extraMatchLen >= 15 ? 15 : extraMatchLen;
+		dst[tokenPos] = (byte) token;
+		
+		if (literalLen >= 15) {
+			dp = writeLength(literalLen - 15, dst, dp);
+		}
+		System.arraycopy(src, literalOff, dst, dp, literalLen);
+		dp += literalLen;
+		
+		dst[dp++] = (byte) offset;
+		dst[dp++] = (byte) (offset >>> 8);
+		
+		if (extraMatchLen >= 15) {
+			dp = writeLength(extraMatchLen - 15, dst, dp);
+		}
+		return dp;
+	}
+	
+	private static int writeLiterals(byte[] src, int literalOff, int literalLen, byte[] dst, int dp) {
+		dst[dp++] = (byte) ((literalLen >= 15 ? 15 : literalLen) << 4);
+		if (literalLen >= 15) {
+			dp = writeLength(literalLen - 15, dst, dp);
+		}
+		System.arraycopy(src, literalOff, dst, dp, literalLen);
+		return dp + literalLen;
+	}
+	
+	private static int writeLength(int len, byte[] dst, int dp) {
+		while (len >= 255) {
+			dst[dp++] = (byte) 255;
+			len -= 255;
+		}
+		dst[dp++] = (byte) len;
+		return dp;
+	}
+	
+	private static int readInt(byte[] b, int pos) {
+		return (b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8) | ((b[pos + 2] & 0xff) << 16) | (b[pos + 3] << 24);
+	}
+	
+	private static int hash(int seq) {
+		return (seq * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
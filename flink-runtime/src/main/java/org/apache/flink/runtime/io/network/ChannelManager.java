@@ -80,12 +80,18 @@ public class ChannelManager implements EnvelopeDispatcher, BufferProviderBroker
 
 	public ChannelManager(ChannelLookupProtocol channelLookupService, InstanceConnectionInfo connectionInfo,
 			int numNetworkBuffers, int networkBufferSize, NetworkConnectionManager networkConnectionManager) throws IOException {
+		this(channelLookupService, connectionInfo, numNetworkBuffers, networkBufferSize, false, networkConnectionManager);
+	}
+
+	public ChannelManager(ChannelLookupProtocol channelLookupService, InstanceConnectionInfo connectionInfo,
+			int numNetworkBuffers, int networkBufferSize, boolean offHeapNetworkBuffers,
+			NetworkConnectionManager networkConnectionManager) throws IOException {
 
 		this.channelLookupService = channelLookupService;
 		this.connectionInfo = connectionInfo;
 
 		try {
-			this.globalBufferPool = new GlobalBufferPool(numNetworkBuffers, networkBufferSize);
+			this.globalBufferPool = new GlobalBufferPool(numNetworkBuffers, networkBufferSize, offHeapNetworkBuffers);
 		} catch (Throwable e) {
 			throw new IOException("Failed to instantiate GlobalBufferPool.", e);
 		}
@@ -419,6 +425,15 @@ public class ChannelManager implements EnvelopeDispatcher, BufferProviderBroker
 
 	@Override
 	public void dispatchFromOutputChannel(Envelope envelope) throws IOException, InterruptedException {
+		dispatchFromOutputChannel(envelope, true);
+	}
+
+	@Override
+	public boolean tryDispatchFromOutputChannel(Envelope envelope) throws IOException, InterruptedException {
+		return dispatchFromOutputChannel(envelope, false);
+	}
+
+	private boolean dispatchFromOutputChannel(Envelope envelope, boolean blocking) throws IOException, InterruptedException {
 		EnvelopeReceiverList receiverList = getReceiverListForEnvelope(envelope, true);
 
 		Buffer srcBuffer = envelope.getBuffer();
@@ -443,10 +458,19 @@ public class ChannelManager implements EnvelopeDispatcher, BufferProviderBroker
 				
 				// copy the buffer into the memory space of the receiver 
 				if (srcBuffer != null) {
-					try {
-						destBuffer = inputChannel.requestBufferBlocking(srcBuffer.size());
-					} catch (InterruptedException e) {
-						throw new IOException(e.getMessage());
+					if (blocking) {
+						try {
+							destBuffer = inputChannel.requestBufferBlocking(srcBuffer.size());
+						} catch (InterruptedException e) {
+							throw new IOException(e.getMessage());
+						}
+					} else {
+						destBuffer = inputChannel.requestBuffer(srcBuffer.size());
+						if (destBuffer == null) {
+							// the receiver has no free buffer, the source buffer stays with the sender
+							success = true;
+							return false;
+						}
 					}
 
 					srcBuffer.copyToBuffer(destBuffer);
@@ -478,6 +502,8 @@ public class ChannelManager implements EnvelopeDispatcher, BufferProviderBroker
 				}
 			}
 		}
+
+		return true;
 	}
 
 	@Override
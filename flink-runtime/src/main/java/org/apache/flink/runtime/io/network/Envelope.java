@@ -44,6 +44,8 @@ public final class Envelope {
 
 	private Buffer buffer;
 
+	private NetworkCompression compression = NetworkCompression.NONE;
+
 	public Envelope(int sequenceNumber, JobID jobID, ChannelID source) {
 		this.sequenceNumber = sequenceNumber;
 		this.jobID = jobID;
@@ -56,6 +58,7 @@ public final class Envelope {
 		this.sequenceNumber = toDuplicate.sequenceNumber;
 		this.serializedEventList = null;
 		this.buffer = null;
+		this.compression = toDuplicate.compression;
 	}
 
 	public Envelope duplicate() {
@@ -170,6 +173,21 @@ public final class Envelope {
 		}
 	}
 
+	/**
+	 * Gets the compression of the buffer, if the envelope is sent to a remote receiver.
+	 */
+	public NetworkCompression getCompression() {
+		return this.compression;
+	}
+
+	public void setCompression(NetworkCompression compression) {
+		if (compression == null) {
+			throw new NullPointerException();
+		}
+
+		this.compression = compression;
+	}
+
 	public boolean hasBuffer() {
 		return this.buffer != null;
 	}
@@ -33,6 +33,16 @@ public interface EnvelopeDispatcher {
 	 */
 	void dispatchFromOutputChannel(Envelope envelope) throws IOException, InterruptedException;
 
+	/**
+	 * Dispatches an envelope from an output channel to the receiving input channels, unless this would need to
+	 * wait for a buffer of a local receiver. In that case, nothing is dispatched and the buffer of the envelope
+	 * stays with the caller.
+	 *
+	 * @param envelope envelope to be sent
+	 * @return <code>true</code>, if the envelope was dispatched, <code>false</code> otherwise
+	 */
+	boolean tryDispatchFromOutputChannel(Envelope envelope) throws IOException, InterruptedException;
+
 	/**
 	 * Dispatches an envelope from an input channel to the receiving output channels (backwards flow).
 	 *
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.network;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.GlobalConfiguration;
+
+/**
+ * The compression of the buffers that a task sends to remote receivers. The buffers are compressed by the
+ * network stack with the built-in LZ block codec, right before they are written to the TCP connection. Buffers
+ * to receivers on the same TaskManager are never compressed.
+ */
+public enum NetworkCompression {
+
+	/** Buffers are sent uncompressed. */
+	NONE,
+
+	/** Every buffer is compressed. Buffers that do not become smaller are sent uncompressed. */
+	ALWAYS,
+
+	/**
+	 * Buffers are compressed, but a channel stops compressing for a while, when its buffers do not compress
+	 * well. The pause grows with every poorly compressing probe.
+	 */
+	ADAPTIVE;
+
+	private static final Log LOG = LogFactory.getLog(NetworkCompression.class);
+
+	/**
+	 * Gets the network compression of a job, as configured by the key
+	 * {@link ConfigConstants#NETWORK_COMPRESSION_KEY} in the job configuration, or, if not set there, in the global
+	 * configuration.
+	 *
+	 * @param jobConfiguration The configuration of the job.
+	 * @return The network compression of the job.
+	 */
+	public static NetworkCompression fromConfiguration(Configuration jobConfiguration) {
+		final String defaultMode = GlobalConfiguration.getString(ConfigConstants.NETWORK_COMPRESSION_KEY,
+				ConfigConstants.DEFAULT_NETWORK_COMPRESSION);
+		final String mode = jobConfiguration == null ? defaultMode :
+				jobConfiguration.getString(ConfigConstants.NETWORK_COMPRESSION_KEY, defaultMode);
+
+		if (mode == null || mode.trim().isEmpty()) {
+			return NONE;
+		}
+
+		try {
+			return valueOf(mode.trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e) {
+			LOG.warn("Unknown network compression '" + mode + "', sending buffers uncompressed.");
+			return NONE;
+		}
+	}
+}
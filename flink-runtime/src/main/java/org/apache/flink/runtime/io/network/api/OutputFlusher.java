@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.network.api;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Periodically sends the partly filled buffers of the record writers that have a buffer timeout. A single
+ * daemon thread serves all record writers of the TaskManager, so that the number of threads does not grow
+ * with the number of tasks and outputs.
+ * <p>
+ * The flusher does not wait for writers or receivers, so that a slow consumer cannot hold up the flushes of
+ * other writers: If the writing thread is currently emitting records, the writer skips the flush, since it
+ * sends its buffers itself when they are full. If a local receiver has no free buffer, the partly filled
+ * buffer stays with the writer until a later flush or until it is full. Buffers to remote receivers are
+ * handed to the network connection, which only waits while the connection is being established.
+ */
+public final class OutputFlusher {
+
+	private static final Log LOG = LogFactory.getLog(OutputFlusher.class);
+
+	private static final OutputFlusher INSTANCE = new OutputFlusher();
+
+	private final ScheduledThreadPoolExecutor executor;
+
+
+	private OutputFlusher() {
+		this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "Output Flusher");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Gets the flusher shared by all record writers of this TaskManager.
+	 *
+	 * @return The output flusher.
+	 */
+	public static OutputFlusher getInstance() {
+		return INSTANCE;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Schedules the given writer to send its partly filled buffers whenever the given timeout has elapsed
+	 * since its last flush.
+	 *
+	 * @param writer The record writer to flush.
+	 * @param timeoutMillis The buffer timeout in milliseconds. Must be positive.
+	 * @return The handle through which the periodic flush is cancelled.
+	 */
+	ScheduledFuture<?> schedule(final RecordWriter<?> writer, long timeoutMillis) {
+		if (timeoutMillis <= 0) {
+			throw new IllegalArgumentException("The buffer timeout must be positive.");
+		}
+
+		return this.executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writer.flushOnTimeout();
+				}
+				catch (Throwable t) {
+					// the writing thread encounters the same problem and reports it with the task
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Flushing the buffers of a record writer after its timeout failed: " + t.getMessage(), t);
+					}
+					writer.disableBufferTimeout();
+				}
+			}
+		}, timeoutMillis, timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+}
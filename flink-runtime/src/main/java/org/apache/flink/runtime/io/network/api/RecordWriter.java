@@ -20,6 +20,8 @@
 package org.apache.flink.runtime.io.network.api;
 
 import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.flink.core.io.IOReadableWritable;
 import org.apache.flink.runtime.event.task.AbstractEvent;
@@ -34,12 +36,21 @@ import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
  * A record writer connects the application to an output gate. It allows the application
  * of emit (send out) to the output gate. The output gate will then take care of distributing
  * the emitted records among the output channels.
+ * <p>
+ * By default, a buffer is sent when it is full, or when the writer is flushed. A buffer timeout bounds the
+ * time that records wait in a partly filled buffer: A timeout of zero sends the buffer after each record,
+ * a positive timeout lets the {@link OutputFlusher} send the partly filled buffers periodically.
  * 
  * @param <T>
  *        the type of the record that can be emitted with this record writer
  */
 public class RecordWriter<T extends IOReadableWritable> extends BufferWriter {
 
+	/**
+	 * The buffer timeout that sends buffers only when they are full.
+	 */
+	public static final long NO_BUFFER_TIMEOUT = -1;
+
 	private final BufferProvider bufferPool;
 
 	private final ChannelSelector<T> channelSelector;
@@ -49,6 +60,21 @@ public class RecordWriter<T extends IOReadableWritable> extends BufferWriter {
 	/** RecordSerializer per outgoing channel */
 	private RecordSerializer<T>[] serializers;
 
+	/** The maximal time in milliseconds that records wait in a partly filled buffer */
+	private long bufferTimeout = NO_BUFFER_TIMEOUT;
+
+	/** Guards the serializers against the flusher, if the writer has a positive buffer timeout */
+	private ReentrantLock flushLock;
+
+	/** The periodic flush by the flusher, if the writer has a positive buffer timeout */
+	private volatile ScheduledFuture<?> flushTask;
+
+	private long numBuffersSent;
+
+	private long numBytesSent;
+
+	private long numBuffersSentOnTimeout;
+
 	// -----------------------------------------------------------------------------------------------------------------
 
 	public RecordWriter(AbstractInvokable invokable) {
@@ -63,6 +89,33 @@ public class RecordWriter<T extends IOReadableWritable> extends BufferWriter {
 		this.channelSelector = channelSelector;
 	}
 
+	/**
+	 * Gets the channel selector that decides to which channels a record is written.
+	 *
+	 * @return The channel selector of this writer.
+	 */
+	public ChannelSelector<T> getChannelSelector() {
+		return this.channelSelector;
+	}
+
+	/**
+	 * Sets the maximal time that records wait in a partly filled buffer before the buffer is sent. A timeout
+	 * of zero sends each record right away, {@link #NO_BUFFER_TIMEOUT} sends buffers only when they are full.
+	 * The timeout must be set before the serializers are initialized.
+	 *
+	 * @param timeoutMillis The buffer timeout in milliseconds.
+	 */
+	public void setBufferTimeout(long timeoutMillis) {
+		if (this.serializers != null) {
+			throw new IllegalStateException("The buffer timeout must be set before the serializers are initialized.");
+		}
+		this.bufferTimeout = timeoutMillis < 0 ? NO_BUFFER_TIMEOUT : timeoutMillis;
+	}
+
+	public long getBufferTimeout() {
+		return this.bufferTimeout;
+	}
+
 	// -----------------------------------------------------------------------------------------------------------------
 
 	@SuppressWarnings("unchecked")
@@ -72,9 +125,28 @@ public class RecordWriter<T extends IOReadableWritable> extends BufferWriter {
 		for (int i = 0; i < this.numChannels; i++) {
 			this.serializers[i] = new SpanningRecordSerializer<T>();
 		}
+
+		if (this.bufferTimeout > 0) {
+			this.flushLock = new ReentrantLock();
+			this.flushTask = OutputFlusher.getInstance().schedule(this, this.bufferTimeout);
+		}
 	}
 
 	public void emit(final T record) throws IOException, InterruptedException {
+		final ReentrantLock lock = this.flushLock;
+		if (lock == null) {
+			emitRecord(record);
+		} else {
+			lock.lock();
+			try {
+				emitRecord(record);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void emitRecord(final T record) throws IOException, InterruptedException {
 		for (int targetChannel : this.channelSelector.selectChannels(record, this.numChannels)) {
 			// serialize with corresponding serializer and send full buffer
 			RecordSerializer<T> serializer = this.serializers[targetChannel];
@@ -89,53 +161,213 @@ public class RecordWriter<T extends IOReadableWritable> extends BufferWriter {
 				buffer = this.bufferPool.requestBufferBlocking(this.bufferPool.getBufferSize());
 				result = serializer.setNextBuffer(buffer);
 			}
+
+			if (this.bufferTimeout == 0) {
+				flushChannel(targetChannel);
+			}
 		}
 	}
 
 	public void flush() throws IOException, InterruptedException {
-		for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
-			RecordSerializer<T> serializer = this.serializers[targetChannel];
+		final ReentrantLock lock = this.flushLock;
+		if (lock != null) {
+			lock.lock();
+		}
+		try {
+			for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
+				RecordSerializer<T> serializer = this.serializers[targetChannel];
 
+				Buffer buffer = serializer.getCurrentBuffer();
+				if (buffer != null) {
+					sendBuffer(buffer, targetChannel);
+				}
+
+				serializer.clear();
+			}
+		} finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Sends the partly filled buffers, unless the writing thread is currently emitting records. Called by the
+	 * {@link OutputFlusher} when the buffer timeout has elapsed.
+	 * <p>
+	 * The buffers are sent without waiting for the receivers: A buffer, for which the receiver has no free
+	 * buffer, stays with the writer and is sent at a later timeout or when it is full.
+	 */
+	void flushOnTimeout() throws IOException, InterruptedException {
+		if (this.outputGate.isClosed()) {
+			disableBufferTimeout();
+			return;
+		}
+
+		final ReentrantLock lock = this.flushLock;
+		if (lock == null || !lock.tryLock()) {
+			return;
+		}
+		try {
+			for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
+				if (flushChannelOnTimeout(targetChannel)) {
+					this.numBuffersSentOnTimeout++;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the periodic flush of this writer's buffers by the {@link OutputFlusher}. The writer sends its
+	 * remaining records when it is flushed.
+	 */
+	public void disableBufferTimeout() {
+		final ScheduledFuture<?> task = this.flushTask;
+		if (task != null) {
+			task.cancel(false);
+			this.flushTask = null;
+		}
+	}
+
+	private boolean flushChannel(int targetChannel) throws IOException, InterruptedException {
+		RecordSerializer<T> serializer = this.serializers[targetChannel];
+
+		if (serializer.hasData()) {
 			Buffer buffer = serializer.getCurrentBuffer();
 			if (buffer != null) {
 				sendBuffer(buffer, targetChannel);
+				serializer.clear();
+				return true;
 			}
+		}
+		return false;
+	}
+
+	private boolean flushChannelOnTimeout(int targetChannel) throws IOException, InterruptedException {
+		RecordSerializer<T> serializer = this.serializers[targetChannel];
 
-			serializer.clear();
+		if (serializer.hasData()) {
+			Buffer buffer = serializer.getCurrentBuffer();
+			if (buffer != null) {
+				// the buffer belongs to the receiver once it is sent
+				final int size = buffer.size();
+				if (this.outputGate.trySendBuffer(buffer, targetChannel)) {
+					countSentBuffer(size);
+					serializer.clear();
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void sendBuffer(Buffer buffer, int targetChannel) throws IOException, InterruptedException {
+		countSentBuffer(buffer.size());
+		super.sendBuffer(buffer, targetChannel);
+	}
+
+	@Override
+	public void sendBufferAndEvent(Buffer buffer, AbstractEvent event, int targetChannel) throws IOException, InterruptedException {
+		countSentBuffer(buffer.size());
+		super.sendBufferAndEvent(buffer, event, targetChannel);
+	}
+
+	private void countSentBuffer(int size) {
+		// empty buffers are discarded by the channels
+		if (size > 0) {
+			this.numBuffersSent++;
+			this.numBytesSent += size;
 		}
 	}
 
 	@Override
 	public void broadcastEvent(AbstractEvent event) throws IOException, InterruptedException {
-		for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
-			RecordSerializer<T> serializer = this.serializers[targetChannel];
+		final ReentrantLock lock = this.flushLock;
+		if (lock != null) {
+			lock.lock();
+		}
+		try {
+			for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
+				RecordSerializer<T> serializer = this.serializers[targetChannel];
 
-			Buffer buffer = serializer.getCurrentBuffer();
-			if (buffer == null) {
-				super.sendEvent(event, targetChannel);
-			} else {
-				super.sendBufferAndEvent(buffer, event, targetChannel);
+				Buffer buffer = serializer.getCurrentBuffer();
+				if (buffer == null) {
+					super.sendEvent(event, targetChannel);
+				} else {
+					sendBufferAndEvent(buffer, event, targetChannel);
 
-				buffer = this.bufferPool.requestBufferBlocking(this.bufferPool.getBufferSize());
-				serializer.setNextBuffer(buffer);
+					buffer = this.bufferPool.requestBufferBlocking(this.bufferPool.getBufferSize());
+					serializer.setNextBuffer(buffer);
+				}
+			}
+		} finally {
+			if (lock != null) {
+				lock.unlock();
 			}
 		}
 	}
 
 	@Override
 	public void sendEndOfSuperstep() throws IOException, InterruptedException {
-		for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
-			RecordSerializer<T> serializer = this.serializers[targetChannel];
+		final ReentrantLock lock = this.flushLock;
+		if (lock != null) {
+			lock.lock();
+		}
+		try {
+			for (int targetChannel = 0; targetChannel < this.numChannels; targetChannel++) {
+				RecordSerializer<T> serializer = this.serializers[targetChannel];
 
-			Buffer buffer = serializer.getCurrentBuffer();
-			if (buffer == null) {
-				super.sendEvent(EndOfSuperstepEvent.INSTANCE, targetChannel);
-			} else {
-				super.sendBufferAndEvent(buffer, EndOfSuperstepEvent.INSTANCE, targetChannel);
+				Buffer buffer = serializer.getCurrentBuffer();
+				if (buffer == null) {
+					super.sendEvent(EndOfSuperstepEvent.INSTANCE, targetChannel);
+				} else {
+					sendBufferAndEvent(buffer, EndOfSuperstepEvent.INSTANCE, targetChannel);
 
-				buffer = this.bufferPool.requestBufferBlocking(this.bufferPool.getBufferSize());
-				serializer.setNextBuffer(buffer);
+					buffer = this.bufferPool.requestBufferBlocking(this.bufferPool.getBufferSize());
+					serializer.setNextBuffer(buffer);
+				}
+			}
+		} finally {
+			if (lock != null) {
+				lock.unlock();
 			}
 		}
 	}
+
+	// -----------------------------------------------------------------------------------------------------------------
+	//                                                  Metrics
+	// -----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the number of buffers with data that this writer has sent, including buffers that were sent with events.
+	 *
+	 * @return The number of sent buffers.
+	 */
+	public long getNumberOfSentBuffers() {
+		return this.numBuffersSent;
+	}
+
+	/**
+	 * Gets the number of buffers that were sent partly filled, because the buffer timeout had elapsed.
+	 *
+	 * @return The number of buffers sent by the flusher.
+	 */
+	public long getNumberOfBuffersSentOnTimeout() {
+		return this.numBuffersSentOnTimeout;
+	}
+
+	/**
+	 * Gets the average fraction of the buffer capacity that was filled with data when the buffers were sent.
+	 * A low fill level means that many buffers were sent partly filled, because of the buffer timeout or
+	 * events.
+	 *
+	 * @return The average fill level of the sent buffers between 0 and 1, or 0, if no buffer was sent.
+	 */
+	public double getAverageBufferFillLevel() {
+		final long numBuffers = this.numBuffersSent;
+		return numBuffers == 0 ? 0.0 : ((double) this.numBytesSent) / numBuffers / this.bufferPool.getBufferSize();
+	}
 }
@@ -20,6 +20,7 @@
 package org.apache.flink.runtime.io.network.bufferprovider;
 
 import java.io.IOException;
+import java.util.Collection;
 
 import org.apache.flink.runtime.io.network.Buffer;
 
@@ -46,6 +47,18 @@ public interface BufferProvider {
 	 */
 	Buffer requestBufferBlocking(int minBufferSize) throws IOException, InterruptedException;
 
+	/**
+	 * Requests up to <code>numBuffers</code> buffers with a minimum size of <code>minBufferSize</code>. The method
+	 * returns immediately, even if the request could only be fulfilled partly or not at all.
+	 *
+	 * @param minBufferSize minimum size of the requested buffers (in bytes)
+	 * @param numBuffers maximum number of requested buffers
+	 * @param target collection to add the requested buffers to
+	 * @return number of buffers added to the target collection
+	 * @throws IOException
+	 */
+	int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) throws IOException;
+
 	/**
 	 * Returns the size of buffers (in bytes) available at this buffer provider.
 	 * 
@@ -19,6 +19,8 @@
 
 package org.apache.flink.runtime.io.network.bufferprovider;
 
+import java.util.Collection;
+
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.network.Buffer;
 import org.apache.flink.runtime.io.network.BufferRecycler;
@@ -35,6 +37,11 @@ public final class DiscardBufferPool implements BufferProvider, BufferRecycler {
 		return null;
 	}
 
+	@Override
+	public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) {
+		return 0;
+	}
+
 	@Override
 	public int getBufferSize() {
 		return 0;
@@ -19,8 +19,11 @@
 
 package org.apache.flink.runtime.io.network.bufferprovider;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,7 +35,12 @@ import org.apache.flink.core.memory.MemorySegment;
  * All buffers used by the network stack come from this pool. Requests to this pool are mediated by instances of
  * {@link LocalBufferPool}.
  * <p>
- * The size and number of buffers can be configured via the global system config.
+ * The size and number of buffers can be configured via the global system config. The buffers are either
+ * allocated on the java heap, or outside the java heap as direct byte buffers, in which case the network
+ * stack can transfer them to and from sockets without an intermediate copy.
+ * <p>
+ * The pool is lock-free, so that the local buffer pools of many channels can request and return buffers
+ * concurrently without contending for a common lock.
  */
 public final class GlobalBufferPool {
 
@@ -47,25 +55,33 @@ public final class GlobalBufferPool {
 	private final int bufferSize;
 
 	/** The available buffers */
-	private final Queue<MemorySegment> buffers;
+	private final Queue<MemorySegment> buffers = new ConcurrentLinkedQueue<MemorySegment>();
+
+	/** Number of available buffers (the size of the concurrent queue is not a constant time operation) */
+	private final AtomicInteger numAvailableBuffers = new AtomicInteger();
 
 	private boolean isDestroyed;
 
 	// -----------------------------------------------------------------------------------------------------------------
 
 	public GlobalBufferPool(int numBuffers, int bufferSize) {
+		this(numBuffers, bufferSize, false);
+	}
+
+	public GlobalBufferPool(int numBuffers, int bufferSize, boolean offHeap) {
 		this.numBuffers = numBuffers;
 		this.bufferSize = bufferSize;
 
-		buffers = new ArrayBlockingQueue<MemorySegment>(numBuffers);
-
 		final int mb = 1 << 20;
 		final int memRequiredMb = (numBuffers * bufferSize) / mb;
 
 		for (int i = 0; i < numBuffers; i++) {
 			try {
-				byte[] buf = new byte[bufferSize];
-				buffers.add(new MemorySegment(buf));
+				if (offHeap) {
+					buffers.add(new MemorySegment(ByteBuffer.allocateDirect(bufferSize)));
+				} else {
+					buffers.add(new MemorySegment(new byte[bufferSize]));
+				}
 			} catch (OutOfMemoryError err) {
 				int memAllocatedMb = ((i + 1) * bufferSize) / mb;
 
@@ -76,8 +92,10 @@ public final class GlobalBufferPool {
 			}
 		}
 
-		LOG.info(String.format("Allocated %d buffers of size %d bytes each (total: %d MB).",
-				numBuffers, bufferSize, memRequiredMb));
+		this.numAvailableBuffers.set(numBuffers);
+
+		LOG.info(String.format("Allocated %d %s buffers of size %d bytes each (total: %d MB).",
+				numBuffers, offHeap ? "off-heap" : "heap", bufferSize, memRequiredMb));
 	}
 
 	// -----------------------------------------------------------------------------------------------------------------
@@ -88,7 +106,37 @@ public final class GlobalBufferPool {
 	 * @return buffer from pool or <code>null</code>, if no buffer available
 	 */
 	public MemorySegment requestBuffer() {
-		return this.buffers.poll();
+		final MemorySegment buffer = this.buffers.poll();
+		if (buffer != null) {
+			this.numAvailableBuffers.decrementAndGet();
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * Requests up to <code>numBuffers</code> buffers <strong>from</strong> the pool.
+	 *
+	 * @param numBuffers maximum number of requested buffers
+	 * @param target collection to add the requested buffers to
+	 * @return number of buffers added to the target collection
+	 */
+	public int requestBuffers(int numBuffers, Collection<MemorySegment> target) {
+		int numRequested = 0;
+
+		while (numRequested < numBuffers) {
+			final MemorySegment buffer = this.buffers.poll();
+			if (buffer == null) {
+				break;
+			}
+
+			target.add(buffer);
+			numRequested++;
+		}
+
+		this.numAvailableBuffers.addAndGet(-numRequested);
+
+		return numRequested;
 	}
 
 	/**
@@ -98,6 +146,19 @@ public final class GlobalBufferPool {
 	 */
 	public void returnBuffer(MemorySegment buffer) {
 		this.buffers.add(buffer);
+		this.numAvailableBuffers.incrementAndGet();
+	}
+
+	/**
+	 * Returns the given buffers <em>to</em> the pool.
+	 *
+	 * @param buffers the buffers to be returned
+	 */
+	public void returnBuffers(Collection<MemorySegment> buffers) {
+		if (!buffers.isEmpty()) {
+			this.buffers.addAll(buffers);
+			this.numAvailableBuffers.addAndGet(buffers.size());
+		}
 	}
 
 	/**
@@ -124,7 +185,7 @@ public final class GlobalBufferPool {
 	 * @return currently available number of buffers
 	 */
 	public int numAvailableBuffers() {
-		return this.buffers.size();
+		return this.numAvailableBuffers.get();
 	}
 
 	public synchronized void destroy() {
@@ -137,6 +198,7 @@ public final class GlobalBufferPool {
 			}
 
 			this.buffers.clear();
+			this.numAvailableBuffers.set(0);
 		}
 	}
 }
@@ -21,7 +21,12 @@ package org.apache.flink.runtime.io.network.bufferprovider;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.network.Buffer;
@@ -33,6 +38,11 @@ import org.apache.flink.runtime.io.network.BufferRecycler;
  * A local buffer pool mediates buffer requests to the global buffer pool to ensure dead-lock free operation of the
  * network stack by limiting the number of designated buffers per local buffer pool. It also implements the default
  * mechanism for buffer recycling, which ensures that every buffer is ultimately returned to the global buffer pool.
+ * <p>
+ * Requesting and recycling buffers is lock-free: The available buffers are kept in a concurrent queue, which is
+ * filled by the recycling threads and drained by the requesting threads, and the number of requested buffers is
+ * updated with compare-and-set. A lock is only taken on the slow paths, namely to block until a buffer becomes
+ * available, to (un)register buffer availability listeners, and to destroy the pool.
  */
 public final class LocalBufferPool implements BufferProvider {
 
@@ -59,28 +69,40 @@ public final class LocalBufferPool implements BufferProvider {
 	private final GlobalBufferPool globalBufferPool;
 
 	/** Buffers managed by this local buffer pool */
-	private final Queue<MemorySegment> buffers = new ArrayDeque<MemorySegment>();
+	private final Queue<MemorySegment> buffers = new ConcurrentLinkedQueue<MemorySegment>();
+
+	/** Number of buffers available in this local buffer pool */
+	private final AtomicInteger numAvailableBuffers = new AtomicInteger();
+
+	/** Number of buffers requested from the global buffer pool */
+	private final AtomicInteger numRequestedBuffers = new AtomicInteger();
 
 	/** The recycler via which to return buffers to this local buffer pool */
 	private final LocalBufferPoolRecycler recycler;
 
-	/** Queue of buffer availability listeners */
+	/** Lock for blocking buffer requests, listener registrations and the destruction of this pool */
+	private final Object lock = new Object();
+
+	/** Queue of buffer availability listeners (guarded by lock) */
 	private final Queue<BufferAvailabilityListener> listeners = new ArrayDeque<BufferAvailabilityListener>();
 
+	/** Number of registered buffer availability listeners (written under lock) */
+	private volatile int numListeners;
+
+	/** Number of threads blocking in a buffer request (written under lock) */
+	private volatile int numWaiters;
+
 	/** Size of each buffer in this pool (in bytes) */
 	private final int bufferSize;
 
 	/** Number of buffers assigned to this local buffer pool */
-	private int numDesignatedBuffers;
-
-	/** Number of buffers requested from the global buffer pool */
-	private int numRequestedBuffers;
+	private volatile int numDesignatedBuffers;
 
-	/** Flag to indicate whether an asynchronous event has been reported */
+	/** Flag to indicate whether an asynchronous event has been reported (guarded by lock) */
 	private boolean hasAsyncEventOccurred;
 
 	/** Flag to indicate whether this local buffer pool has been destroyed */
-	private boolean isDestroyed;
+	private volatile boolean isDestroyed;
 
 	// -----------------------------------------------------------------------------------------------------------------
 
@@ -123,59 +145,97 @@ public final class LocalBufferPool implements BufferProvider {
 	 * @throws InterruptedException
 	 */
 	private Buffer requestBuffer(int minBufferSize, boolean isBlocking) throws IOException, InterruptedException {
-		if (minBufferSize > this.bufferSize) {
-			throw new IllegalArgumentException(String.format("Too large buffer requested (requested %d, maximum %d).",
-					minBufferSize, this.bufferSize));
-		}
+		checkBufferSize(minBufferSize);
 
 		while (true) {
-			boolean isAsyncRequest = false;
-
-			synchronized (this.buffers) {
-				// Return excess buffers to global buffer pool
-				while (this.numRequestedBuffers > this.numDesignatedBuffers) {
-					final MemorySegment buffer = this.buffers.poll();
-					if (buffer == null) {
-						break;
-					}
+			returnExcessBuffers();
 
-					this.globalBufferPool.returnBuffer(buffer);
-					this.numRequestedBuffers--;
-				}
+			MemorySegment buffer = pollAvailableBuffer();
 
-				// Request buffers from global buffer pool
-				while (this.buffers.isEmpty()) {
-					if (this.numRequestedBuffers < this.numDesignatedBuffers) {
-						final MemorySegment buffer = this.globalBufferPool.requestBuffer();
+			if (buffer == null && reserveBuffers(1) == 1) {
+				buffer = this.globalBufferPool.requestBuffer();
 
-						if (buffer != null) {
-							this.buffers.add(buffer);
+				if (buffer == null) {
+					this.numRequestedBuffers.decrementAndGet();
+				}
+			}
 
-							this.numRequestedBuffers++;
-							continue;
-						}
-					}
+			if (buffer != null) {
+				return new Buffer(buffer, minBufferSize, this.recycler);
+			}
 
-					if (this.hasAsyncEventOccurred && isBlocking) {
-						this.hasAsyncEventOccurred = false;
-						isAsyncRequest = true;
-						break;
-					}
+			if (!isBlocking) {
+				return null;
+			}
 
-					if (isBlocking) {
-						this.buffers.wait(WAIT_TIME);
-					} else {
-						return null;
-					}
+			synchronized (this.lock) {
+				if (this.hasAsyncEventOccurred) {
+					this.hasAsyncEventOccurred = false;
+					continue;
 				}
 
-				if (!isAsyncRequest) {
-					return new Buffer(this.buffers.poll(), minBufferSize, this.recycler);
+				// recycling threads check the number of waiters after adding a buffer, see recycleBuffer()
+				this.numWaiters++;
+				try {
+					if (this.numAvailableBuffers.get() <= 0) {
+						this.lock.wait(WAIT_TIME);
+					}
+				} finally {
+					this.numWaiters--;
 				}
 			}
 		}
 	}
 
+	/**
+	 * Requests up to <code>numBuffers</code> buffers from this local buffer pool without blocking.
+	 * <p>
+	 * The buffers are taken from the available buffers of this pool first. The remaining buffers are requested from the
+	 * global buffer pool in a single batch, as far as the designated number of buffers permits.
+	 *
+	 * @param minBufferSize minimum size of the requested buffers (in bytes)
+	 * @param numBuffers maximum number of requested buffers
+	 * @param target collection to add the requested buffers to
+	 * @return number of buffers added to the target collection
+	 */
+	@Override
+	public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) {
+		checkBufferSize(minBufferSize);
+
+		returnExcessBuffers();
+
+		int numReturned = 0;
+
+		while (numReturned < numBuffers) {
+			final MemorySegment buffer = pollAvailableBuffer();
+			if (buffer == null) {
+				break;
+			}
+
+			target.add(new Buffer(buffer, minBufferSize, this.recycler));
+			numReturned++;
+		}
+
+		final int numReserved = numReturned < numBuffers ? reserveBuffers(numBuffers - numReturned) : 0;
+
+		if (numReserved > 0) {
+			final List<MemorySegment> requested = new ArrayList<MemorySegment>(numReserved);
+			final int numRequested = this.globalBufferPool.requestBuffers(numReserved, requested);
+
+			if (numRequested < numReserved) {
+				this.numRequestedBuffers.addAndGet(numRequested - numReserved);
+			}
+
+			for (MemorySegment buffer : requested) {
+				target.add(new Buffer(buffer, minBufferSize, this.recycler));
+			}
+
+			numReturned += numRequested;
+		}
+
+		return numReturned;
+	}
+
 	@Override
 	public int getBufferSize() {
 		return this.bufferSize;
@@ -183,16 +243,16 @@ public final class LocalBufferPool implements BufferProvider {
 
 	@Override
 	public void reportAsynchronousEvent() {
-		synchronized (this.buffers) {
+		synchronized (this.lock) {
 			this.hasAsyncEventOccurred = true;
-			this.buffers.notify();
+			this.lock.notify();
 		}
 	}
 
 	@Override
 	public BufferAvailabilityRegistration registerBufferAvailabilityListener(BufferAvailabilityListener listener) {
-		synchronized (this.buffers) {
-			if (!this.buffers.isEmpty()) {
+		synchronized (this.lock) {
+			if (this.numAvailableBuffers.get() > 0) {
 				return BufferAvailabilityRegistration.FAILED_BUFFER_AVAILABLE;
 			}
 
@@ -201,6 +261,16 @@ public final class LocalBufferPool implements BufferProvider {
 			}
 
 			this.listeners.add(listener);
+			this.numListeners = this.listeners.size();
+
+			// a buffer, which has been recycled concurrently, might have missed the listener
+			// => recheck after the registration, see recycleBuffer()
+			if (this.numAvailableBuffers.get() > 0) {
+				this.listeners.remove(listener);
+				this.numListeners = this.listeners.size();
+
+				return BufferAvailabilityRegistration.FAILED_BUFFER_AVAILABLE;
+			}
 		}
 
 		return BufferAvailabilityRegistration.SUCCEEDED_REGISTERED;
@@ -213,24 +283,20 @@ public final class LocalBufferPool implements BufferProvider {
 	 * The designated number of buffers determines how many buffers this buffer pool is allowed to manage. New buffers
 	 * can only be requested, if the requested number of buffers is less than the designated number. If possible, excess
 	 * buffers will be returned to the global buffer pool.
+	 * <p>
+	 * Concurrent buffer requests are not blocked by the redistribution. Buffers, which are in use, are returned when
+	 * they are recycled.
 	 *
 	 * @param numDesignatedBuffers number of buffers designated for this local buffer pool
 	 */
 	public void setNumDesignatedBuffers(int numDesignatedBuffers) {
-		synchronized (this.buffers) {
-			this.numDesignatedBuffers = numDesignatedBuffers;
-
-			// Return excess buffers to global buffer pool
-			while (this.numRequestedBuffers > this.numDesignatedBuffers) {
-				if (this.buffers.isEmpty()) {
-					break;
-				}
+		this.numDesignatedBuffers = numDesignatedBuffers;
 
-				this.globalBufferPool.returnBuffer(this.buffers.poll());
-				this.numRequestedBuffers--;
-			}
+		// Return excess buffers to global buffer pool
+		returnExcessBuffers();
 
-			this.buffers.notify();
+		synchronized (this.lock) {
+			this.lock.notifyAll();
 		}
 	}
 
@@ -240,9 +306,7 @@ public final class LocalBufferPool implements BufferProvider {
 	 * @return number of available buffers
 	 */
 	public int numAvailableBuffers() {
-		synchronized (this.buffers) {
-			return this.buffers.size();
-		}
+		return this.numAvailableBuffers.get();
 	}
 
 	/**
@@ -251,9 +315,7 @@ public final class LocalBufferPool implements BufferProvider {
 	 * @return number of buffers requested from the global buffer pool
 	 */
 	public int numRequestedBuffers() {
-		synchronized (this.buffers) {
-			return this.numRequestedBuffers;
-		}
+		return this.numRequestedBuffers.get();
 	}
 
 	/**
@@ -262,9 +324,7 @@ public final class LocalBufferPool implements BufferProvider {
 	 * @return number of designated buffers for this buffer pool
 	 */
 	public int numDesignatedBuffers() {
-		synchronized (this.buffers) {
-			return this.numDesignatedBuffers;
-		}
+		return this.numDesignatedBuffers;
 	}
 
 	/**
@@ -274,19 +334,16 @@ public final class LocalBufferPool implements BufferProvider {
 	 * immediately and will be returned when the respective buffer is recycled (see {@link #recycleBuffer(MemorySegment)}).
 	 */
 	public void destroy() {
-		synchronized (this.buffers) {
+		synchronized (this.lock) {
 			if (this.isDestroyed) {
 				return;
 			}
 
 			this.isDestroyed = true;
-
-			// return all buffers
-			while (!this.buffers.isEmpty()) {
-				this.globalBufferPool.returnBuffer(this.buffers.poll());
-				this.numRequestedBuffers--;
-			}
 		}
+
+		// return all buffers
+		returnAvailableBuffers();
 	}
 
 	/**
@@ -295,31 +352,157 @@ public final class LocalBufferPool implements BufferProvider {
 	 * @param buffer buffer to return to the buffer pool
 	 */
 	private void recycleBuffer(MemorySegment buffer) {
-		synchronized (this.buffers) {
+		if (this.isDestroyed) {
+			this.globalBufferPool.returnBuffer(buffer);
+			this.numRequestedBuffers.decrementAndGet();
+
+		// if the number of designated buffers changed in the meantime, make sure
+		// to return the buffer to the global buffer pool
+		} else if (releaseExcessBuffer()) {
+			this.globalBufferPool.returnBuffer(buffer);
+
+		} else {
+			addAvailableBuffer(buffer);
+
+			// the checks follow the publication of the buffer, so that a concurrent
+			// destruction, listener registration, or blocking request cannot miss it
 			if (this.isDestroyed) {
-				this.globalBufferPool.returnBuffer(buffer);
-				this.numRequestedBuffers--;
-			} else {
-				// if the number of designated buffers changed in the meantime, make sure
-				// to return the buffer to the global buffer pool
-				if (this.numRequestedBuffers > this.numDesignatedBuffers) {
-					this.globalBufferPool.returnBuffer(buffer);
-					this.numRequestedBuffers--;
-
-				} else if (!this.listeners.isEmpty()) {
-					Buffer availableBuffer = new Buffer(buffer, buffer.size(), this.recycler);
-					try {
-						this.listeners.poll().bufferAvailable(availableBuffer);
-					} catch (Exception e) {
-						this.buffers.add(buffer);
-						this.buffers.notify();
-					}
+				returnAvailableBuffers();
+			} else if (this.numListeners > 0 || this.numWaiters > 0) {
+				notifyBufferAvailability();
+			}
+		}
+	}
 
-				} else {
-					this.buffers.add(buffer);
-					this.buffers.notify();
+	/**
+	 * Hands available buffers over to the registered listeners and wakes up blocked buffer requests.
+	 */
+	private void notifyBufferAvailability() {
+		synchronized (this.lock) {
+			while (!this.listeners.isEmpty()) {
+				final MemorySegment buffer = pollAvailableBuffer();
+				if (buffer == null) {
+					break;
 				}
+
+				final BufferAvailabilityListener listener = this.listeners.poll();
+				this.numListeners = this.listeners.size();
+
+				try {
+					listener.bufferAvailable(new Buffer(buffer, buffer.size(), this.recycler));
+				} catch (Exception e) {
+					addAvailableBuffer(buffer);
+				}
+			}
+
+			if (this.numWaiters > 0) {
+				this.lock.notifyAll();
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------------------
+
+	private void checkBufferSize(int minBufferSize) {
+		if (minBufferSize > this.bufferSize) {
+			throw new IllegalArgumentException(String.format("Too large buffer requested (requested %d, maximum %d).",
+					minBufferSize, this.bufferSize));
+		}
+	}
+
+	private MemorySegment pollAvailableBuffer() {
+		final MemorySegment buffer = this.buffers.poll();
+		if (buffer != null) {
+			this.numAvailableBuffers.decrementAndGet();
+		}
+
+		return buffer;
+	}
+
+	private void addAvailableBuffer(MemorySegment buffer) {
+		this.buffers.add(buffer);
+		this.numAvailableBuffers.incrementAndGet();
+	}
+
+	/**
+	 * Increases the number of requested buffers by up to <code>numBuffers</code> without exceeding the designated
+	 * number of buffers.
+	 *
+	 * @param numBuffers number of buffers to reserve
+	 * @return number of reserved buffers, which may be requested from the global buffer pool
+	 */
+	private int reserveBuffers(int numBuffers) {
+		while (true) {
+			final int numRequested = this.numRequestedBuffers.get();
+			final int numReserved = Math.min(numBuffers, this.numDesignatedBuffers - numRequested);
+
+			if (numReserved <= 0) {
+				return 0;
 			}
+
+			if (this.numRequestedBuffers.compareAndSet(numRequested, numRequested + numReserved)) {
+				return numReserved;
+			}
+		}
+	}
+
+	/**
+	 * Decreases the number of requested buffers by one, if it exceeds the designated number of buffers.
+	 *
+	 * @return <code>true</code> if the caller has to return one buffer to the global buffer pool
+	 */
+	private boolean releaseExcessBuffer() {
+		while (true) {
+			final int numRequested = this.numRequestedBuffers.get();
+
+			if (numRequested <= this.numDesignatedBuffers) {
+				return false;
+			}
+
+			if (this.numRequestedBuffers.compareAndSet(numRequested, numRequested - 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns available buffers in excess of the designated number of buffers to the global buffer pool in one batch.
+	 */
+	private void returnExcessBuffers() {
+		if (this.numRequestedBuffers.get() <= this.numDesignatedBuffers) {
+			return;
+		}
+
+		final List<MemorySegment> excessBuffers = new ArrayList<MemorySegment>();
+
+		while (releaseExcessBuffer()) {
+			final MemorySegment buffer = pollAvailableBuffer();
+			if (buffer == null) {
+				// the excess buffers are in use and will be returned when they are recycled
+				this.numRequestedBuffers.incrementAndGet();
+				break;
+			}
+
+			excessBuffers.add(buffer);
+		}
+
+		this.globalBufferPool.returnBuffers(excessBuffers);
+	}
+
+	/**
+	 * Returns all available buffers to the global buffer pool in one batch.
+	 */
+	private void returnAvailableBuffers() {
+		final List<MemorySegment> availableBuffers = new ArrayList<MemorySegment>();
+
+		MemorySegment buffer;
+		while ((buffer = pollAvailableBuffer()) != null) {
+			availableBuffers.add(buffer);
+		}
+
+		if (!availableBuffers.isEmpty()) {
+			this.numRequestedBuffers.addAndGet(-availableBuffers.size());
+			this.globalBufferPool.returnBuffers(availableBuffers);
 		}
 	}
 }
@@ -38,6 +38,7 @@ import org.apache.flink.runtime.jobgraph.JobID;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
@@ -397,6 +398,11 @@ public class InputChannel<T extends IOReadableWritable> extends Channel implemen
 		return this.inputGate.requestBufferBlocking(minBufferSize);
 	}
 
+	@Override
+	public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) throws IOException {
+		return this.inputGate.requestBuffers(minBufferSize, numBuffers, target);
+	}
+
 	@Override
 	public int getBufferSize() {
 		return this.inputGate.getBufferSize();
@@ -81,6 +81,32 @@ public class OutputChannel extends Channel {
 		this.envelopeDispatcher.dispatchFromOutputChannel(envelope);
 	}
 
+	/**
+	 * Sends the given buffer, unless this would need to wait for a buffer of the receiver. In that case, the
+	 * buffer is not sent and stays with the caller.
+	 *
+	 * @param buffer the buffer to send
+	 * @return <code>true</code>, if the buffer was sent, <code>false</code> otherwise
+	 */
+	public boolean trySendBuffer(Buffer buffer) throws IOException, InterruptedException {
+		checkStatus();
+
+		// discard empty buffers
+		if (buffer.size() == 0) {
+			buffer.recycleBuffer();
+			return true;
+		}
+
+		// the sequence number is only taken if the envelope is dispatched
+		Envelope envelope = createEnvelope(this.currentSeqNum);
+		envelope.setBuffer(buffer);
+		if (this.envelopeDispatcher.tryDispatchFromOutputChannel(envelope)) {
+			this.currentSeqNum++;
+			return true;
+		}
+		return false;
+	}
+
 	public void sendEvent(AbstractEvent event) throws IOException, InterruptedException {
 		checkStatus();
 
@@ -179,7 +205,14 @@ public class OutputChannel extends Channel {
 	}
 
 	private Envelope createNextEnvelope() {
-		return new Envelope(this.currentSeqNum++, getJobID(), getID());
+		return createEnvelope(this.currentSeqNum++);
+	}
+
+	private Envelope createEnvelope(int sequenceNumber) {
+		Envelope envelope = new Envelope(sequenceNumber, getJobID(), getID());
+		envelope.setCompression(this.outputGate.getNetworkCompression());
+
+		return envelope;
 	}
 
 	@Override
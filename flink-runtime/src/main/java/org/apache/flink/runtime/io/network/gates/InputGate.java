@@ -20,6 +20,7 @@
 package org.apache.flink.runtime.io.network.gates;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
@@ -340,6 +341,11 @@ public class InputGate<T extends IOReadableWritable> extends Gate<T> implements
 		return this.bufferPool.requestBufferBlocking(minBufferSize);
 	}
 
+	@Override
+	public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) {
+		return this.bufferPool.requestBuffers(minBufferSize, numBuffers, target);
+	}
+
 	@Override
 	public int getBufferSize() {
 		return this.bufferPool.getBufferSize();
@@ -26,6 +26,7 @@ import org.apache.flink.runtime.deployment.ChannelDeploymentDescriptor;
 import org.apache.flink.runtime.deployment.GateDeploymentDescriptor;
 import org.apache.flink.runtime.event.task.AbstractEvent;
 import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.network.NetworkCompression;
 import org.apache.flink.runtime.io.network.channels.ChannelID;
 import org.apache.flink.runtime.io.network.channels.OutputChannel;
 import org.apache.flink.runtime.jobgraph.JobID;
@@ -35,6 +36,8 @@ public class OutputGate extends Gate<IOReadableWritable> {
 	private OutputChannel[] channels;
 
 	private boolean closed;
+
+	private NetworkCompression networkCompression = NetworkCompression.NONE;
 	
 	/**
 	 * Constructs a new output gate.
@@ -47,6 +50,23 @@ public class OutputGate extends Gate<IOReadableWritable> {
 		super(jobId, gateId, index);
 	}
 
+	/**
+	 * Sets the compression of the buffers, which this gate sends to remote receivers.
+	 *
+	 * @param networkCompression the network compression
+	 */
+	public void setNetworkCompression(NetworkCompression networkCompression) {
+		if (networkCompression == null) {
+			throw new NullPointerException();
+		}
+
+		this.networkCompression = networkCompression;
+	}
+
+	public NetworkCompression getNetworkCompression() {
+		return this.networkCompression;
+	}
+
 	// -----------------------------------------------------------------------------------------------------------------
 	//                                             Data processing
 	// -----------------------------------------------------------------------------------------------------------------
@@ -55,6 +75,18 @@ public class OutputGate extends Gate<IOReadableWritable> {
 		this.channels[targetChannel].sendBuffer(buffer);
 	}
 
+	/**
+	 * Sends the given buffer to the target channel, unless this would need to wait for a buffer of the receiver.
+	 * In that case, the buffer is not sent and stays with the caller.
+	 *
+	 * @param buffer the buffer to send
+	 * @param targetChannel the index of the channel to send the buffer to
+	 * @return <code>true</code>, if the buffer was sent, <code>false</code> otherwise
+	 */
+	public boolean trySendBuffer(Buffer buffer, int targetChannel) throws IOException, InterruptedException {
+		return this.channels[targetChannel].trySendBuffer(buffer);
+	}
+
 	public void sendEvent(AbstractEvent event, int targetChannel) throws IOException, InterruptedException {
 		this.channels[targetChannel].sendEvent(event);
 	}
@@ -25,6 +25,8 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.flink.runtime.io.disk.iomanager.BlockCompressor;
+import org.apache.flink.runtime.io.disk.iomanager.LZBlockCompressor;
 import org.apache.flink.runtime.io.network.Buffer;
 import org.apache.flink.runtime.io.network.Envelope;
 import org.apache.flink.runtime.io.network.bufferprovider.BufferAvailabilityListener;
@@ -35,10 +37,29 @@ import org.apache.flink.runtime.jobgraph.JobID;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Decodes the envelopes of a TCP connection and copies their buffers into buffers of the receiving
+ * channels.
+ * <p/>
+ * If the sender requests credits for a channel, the decoder reserves a buffer of the receiving channel
+ * for each requested credit and announces the credits to the sender, as soon as the buffers have been
+ * reserved. The envelopes of credited channels are decoded into the reserved buffers and never stall the
+ * connection. Envelopes without credit fall back to requesting a buffer on arrival, which stops reading
+ * from the whole connection, if the receiving channel has no buffer available.
+ */
 public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter implements BufferAvailabilityListener {
 
+	/** Size of a credit announcement: magic number, channel ID, and number of credits. */
+	public static final int CREDIT_ANNOUNCEMENT_SIZE = 24;
+
+	public static final int CREDIT_ANNOUNCEMENT_MAGIC_NUMBER = 0xC0FFEE11;
+
 	private static final Log LOG = LogFactory.getLog(InboundEnvelopeDecoder.class);
 
 	private final BufferProviderBroker bufferProviderBroker;
@@ -57,6 +78,14 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 
 	private int currentBufferRequestSize;
 
+	private boolean currentBufferCompressed;
+
+	private BlockCompressor decompressor;
+
+	private byte[] compressedBytes = new byte[0];
+
+	private byte[] decompressedBytes = new byte[0];
+
 	private BufferProvider currentBufferProvider;
 
 	private JobID lastJobId;
@@ -69,10 +98,16 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 
 	private int bytesToSkip;
 
+	// channels, for which the sender requested credits (only accessed by the IO thread)
+	private final Map<ChannelID, CreditedChannel> creditedChannels = new HashMap<ChannelID, CreditedChannel>();
+
+	private volatile boolean isReleased;
+
 	private enum DecoderState {
 		COMPLETE,
 		PENDING,
-		NO_BUFFER_AVAILABLE
+		NO_BUFFER_AVAILABLE,
+		CREDIT_REQUEST
 	}
 
 	public InboundEnvelopeDecoder(BufferProviderBroker bufferProviderBroker) {
@@ -89,6 +124,21 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 		super.channelActive(ctx);
 	}
 
+	/**
+	 * Returns the reserved buffers of all credited channels, after the connection has been closed.
+	 */
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		this.isReleased = true;
+
+		for (CreditedChannel creditedChannel : this.creditedChannels.values()) {
+			creditedChannel.releaseReservedBuffers();
+		}
+		this.creditedChannels.clear();
+
+		super.channelInactive(ctx);
+	}
+
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 		if (this.stagedBuffer != null) {
@@ -198,10 +248,7 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 
 			// This alters the state of the last `decodeEnvelope(ByteBuf)`
 			// call to set the buffer, which has become available again
-			availableBuffer.limitSize(currentBufferRequestSize);
-			currentEnvelope.setBuffer(availableBuffer);
-			currentDataBuffer = availableBuffer.getMemorySegment().wrap(0, InboundEnvelopeDecoder.this.currentBufferRequestSize);
-			currentBufferRequestSize = 0;
+			assignBuffer(availableBuffer);
 
 			stagedBuffer.release();
 
@@ -235,7 +282,9 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 				this.headerBuffer.flip();
 
 				int magicNum = this.headerBuffer.getInt();
-				if (magicNum != OutboundEnvelopeEncoder.MAGIC_NUMBER) {
+				if (magicNum != OutboundEnvelopeEncoder.MAGIC_NUMBER
+						&& magicNum != OutboundEnvelopeEncoder.COMPRESSED_MAGIC_NUMBER
+						&& magicNum != OutboundEnvelopeEncoder.CREDIT_REQUEST_MAGIC_NUMBER) {
 					throw new IOException("Network stream corrupted: invalid magic" +
 							"number in current envelope header.");
 				}
@@ -244,6 +293,14 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 				JobID jobId = JobID.fromByteBuffer(this.headerBuffer);
 				ChannelID sourceId = ChannelID.fromByteBuffer(this.headerBuffer);
 
+				if (magicNum == OutboundEnvelopeEncoder.CREDIT_REQUEST_MAGIC_NUMBER) {
+					// the sequence number field holds the number of requested credits
+					this.headerBuffer.clear();
+
+					requestCredits(jobId, sourceId, seqNum);
+					return DecoderState.CREDIT_REQUEST;
+				}
+
 				this.currentEnvelope = new Envelope(seqNum, jobId, sourceId);
 
 				int eventsSize = this.headerBuffer.getInt();
@@ -251,6 +308,7 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 
 				this.currentEventsBuffer = eventsSize > 0 ? ByteBuffer.allocate(eventsSize) : null;
 				this.currentBufferRequestSize = bufferSize > 0 ? bufferSize : 0;
+				this.currentBufferCompressed = magicNum == OutboundEnvelopeEncoder.COMPRESSED_MAGIC_NUMBER;
 
 				this.headerBuffer.clear();
 			}
@@ -279,19 +337,21 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 		if (this.currentBufferRequestSize > 0) {
 			JobID jobId = this.currentEnvelope.getJobID();
 			ChannelID sourceId = this.currentEnvelope.getSource();
-			Buffer buffer = requestBufferForTarget(jobId, sourceId, this.currentBufferRequestSize);
+			Buffer buffer = takeReservedBuffer(sourceId, this.currentBufferRequestSize);
+			if (buffer == null) {
+				buffer = requestBufferForTarget(jobId, sourceId, this.currentBufferRequestSize);
+			}
 
 			if (buffer == null) {
 				return DecoderState.NO_BUFFER_AVAILABLE;
 			}
 			else {
-				this.currentEnvelope.setBuffer(buffer);
-				this.currentDataBuffer = buffer.getMemorySegment().wrap(0, this.currentBufferRequestSize);
-				this.currentBufferRequestSize = 0;
+				assignBuffer(buffer);
 			}
 		}
 
-		// (b) copy data to OUR buffer
+		// (b) copy data to OUR buffer (compressed data is copied to the
+		// scratch array first and then decompressed into OUR buffer)
 		if (this.currentDataBuffer != null) {
 			copy(in, this.currentDataBuffer);
 
@@ -299,6 +359,10 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 				return DecoderState.PENDING;
 			}
 			else {
+				if (this.currentBufferCompressed) {
+					decompressBuffer(this.currentDataBuffer.position());
+				}
+
 				this.currentDataBuffer = null;
 			}
 		}
@@ -308,6 +372,203 @@ public class InboundEnvelopeDecoder extends ChannelInboundHandlerAdapter impleme
 		return DecoderState.COMPLETE;
 	}
 
+	private void assignBuffer(Buffer buffer) {
+		final int size = this.currentBufferRequestSize;
+
+		buffer.limitSize(size);
+		this.currentEnvelope.setBuffer(buffer);
+
+		if (this.currentBufferCompressed) {
+			if (this.compressedBytes.length < size) {
+				this.compressedBytes = new byte[size];
+			}
+			this.currentDataBuffer = ByteBuffer.wrap(this.compressedBytes, 0, size);
+		}
+		else {
+			this.currentDataBuffer = buffer.getMemorySegment().wrap(0, size);
+		}
+
+		this.currentBufferRequestSize = 0;
+	}
+
+	/**
+	 * Decompresses the compressed buffer (uncompressed size, followed by the compressed bytes) from the
+	 * scratch array into the buffer of the current envelope.
+	 */
+	private void decompressBuffer(int compressedSize) throws IOException {
+		final Buffer buffer = this.currentEnvelope.getBuffer();
+		final int size = ByteBuffer.wrap(this.compressedBytes).getInt(0);
+
+		if (size < 0 || size > buffer.getMemorySegment().size()) {
+			throw new IOException("Network stream corrupted: invalid uncompressed buffer size " + size + ".");
+		}
+
+		if (this.decompressor == null) {
+			this.decompressor = new LZBlockCompressor();
+		}
+		if (this.decompressedBytes.length < size) {
+			this.decompressedBytes = new byte[size];
+		}
+
+		this.decompressor.decompress(this.compressedBytes, 4, compressedSize - 4, this.decompressedBytes, 0, size);
+
+		buffer.getMemorySegment().put(0, this.decompressedBytes, 0, size);
+		buffer.limitSize(size);
+	}
+
+	private void requestCredits(JobID jobId, ChannelID sourceId, int numCredits) throws IOException {
+		CreditedChannel creditedChannel = this.creditedChannels.get(sourceId);
+		if (creditedChannel == null) {
+			creditedChannel = new CreditedChannel(sourceId, this.bufferProviderBroker.getBufferProvider(jobId, sourceId));
+			this.creditedChannels.put(sourceId, creditedChannel);
+		}
+
+		creditedChannel.numPendingCredits += numCredits;
+		creditedChannel.reserveBuffers();
+	}
+
+	private Buffer takeReservedBuffer(ChannelID sourceId, int size) {
+		CreditedChannel creditedChannel = this.creditedChannels.get(sourceId);
+		if (creditedChannel == null) {
+			return null;
+		}
+
+		Buffer buffer = creditedChannel.reservedBuffers.poll();
+		if (buffer != null) {
+			buffer.limitSize(size);
+		}
+
+		if (creditedChannel.reservedBuffers.isEmpty() && creditedChannel.numPendingCredits == 0
+				&& !creditedChannel.isListenerRegistered) {
+			this.creditedChannels.remove(sourceId);
+		}
+
+		return buffer;
+	}
+
+	private void announceCredits(ChannelID sourceId, int numCredits) {
+		ByteBuf announcement = this.channelHandlerContext.alloc().directBuffer(CREDIT_ANNOUNCEMENT_SIZE);
+
+		announcement.writeInt(CREDIT_ANNOUNCEMENT_MAGIC_NUMBER); // 4 bytes
+		sourceId.writeTo(announcement); // 16 bytes
+		announcement.writeInt(numCredits); // 4 bytes
+
+		this.channelHandlerContext.writeAndFlush(announcement);
+	}
+
+	/**
+	 * The buffers reserved for a channel, for which the sender requested credits. The credits are
+	 * announced after the buffers have been reserved. If the buffer pool of the receiving channel has
+	 * been destroyed, the credits are announced without reservation and the data is skipped on arrival.
+	 * <p/>
+	 * Except for {@link #bufferAvailable(Buffer)}, all methods must be called by the IO thread.
+	 */
+	private final class CreditedChannel implements BufferAvailabilityListener, Runnable {
+
+		private final ChannelID sourceId;
+
+		private final BufferProvider bufferProvider;
+
+		private final Queue<Buffer> reservedBuffers = new ArrayDeque<Buffer>();
+
+		private final ConcurrentLinkedQueue<Buffer> availableBuffers = new ConcurrentLinkedQueue<Buffer>();
+
+		// requested credits, for which no buffer has been reserved yet
+		private int numPendingCredits;
+
+		private boolean isListenerRegistered;
+
+		private CreditedChannel(ChannelID sourceId, BufferProvider bufferProvider) {
+			this.sourceId = sourceId;
+			this.bufferProvider = bufferProvider;
+		}
+
+		private void reserveBuffers() throws IOException {
+			if (this.isListenerRegistered) {
+				return;
+			}
+
+			int numReserved = 0;
+
+			while (this.numPendingCredits > 0) {
+				// reserve the buffers for all pending credits in one batch
+				int numRequested = this.bufferProvider.requestBuffers(
+						this.bufferProvider.getBufferSize(), this.numPendingCredits, this.reservedBuffers);
+
+				if (numRequested > 0) {
+					this.numPendingCredits -= numRequested;
+					numReserved += numRequested;
+				}
+				else {
+					BufferProvider.BufferAvailabilityRegistration registration =
+							this.bufferProvider.registerBufferAvailabilityListener(this);
+
+					if (registration == BufferProvider.BufferAvailabilityRegistration.SUCCEEDED_REGISTERED) {
+						this.isListenerRegistered = true;
+						break;
+					}
+					else if (registration == BufferProvider.BufferAvailabilityRegistration.FAILED_BUFFER_POOL_DESTROYED) {
+						// the receiver is gone, the data of these credits will be skipped
+						numReserved += this.numPendingCredits;
+						this.numPendingCredits = 0;
+					}
+				}
+			}
+
+			if (numReserved > 0) {
+				announceCredits(this.sourceId, numReserved);
+			}
+		}
+
+		private void releaseReservedBuffers() {
+			Buffer buffer;
+			while ((buffer = this.reservedBuffers.poll()) != null) {
+				buffer.recycleBuffer();
+			}
+		}
+
+		/**
+		 * Hands the available buffer over to the IO thread. This method is called by the buffer pool of the
+		 * receiving channel.
+		 */
+		@Override
+		public void bufferAvailable(Buffer buffer) throws Exception {
+			if (isReleased) {
+				buffer.recycleBuffer();
+				return;
+			}
+
+			this.availableBuffers.offer(buffer);
+			channelHandlerContext.channel().eventLoop().execute(this);
+		}
+
+		@Override
+		public void run() {
+			Buffer buffer = this.availableBuffers.poll();
+			if (buffer == null) {
+				return;
+			}
+
+			if (isReleased) {
+				buffer.recycleBuffer();
+				return;
+			}
+
+			this.isListenerRegistered = false;
+
+			this.reservedBuffers.add(buffer);
+			this.numPendingCredits--;
+			announceCredits(this.sourceId, 1);
+
+			try {
+				reserveBuffers();
+			}
+			catch (IOException e) {
+				channelHandlerContext.fireExceptionCaught(e);
+			}
+		}
+	}
+
 	private Buffer requestBufferForTarget(JobID jobId, ChannelID sourceId, int size) throws IOException {
 		// Request the buffer from the target buffer provider, which is the
 		// InputGate of the receiving InputChannel.
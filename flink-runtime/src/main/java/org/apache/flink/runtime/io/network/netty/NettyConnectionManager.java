@@ -32,6 +32,7 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.runtime.io.network.ChannelManager;
 import org.apache.flink.runtime.io.network.Envelope;
 import org.apache.flink.runtime.io.network.EnvelopeDispatcher;
@@ -70,6 +71,8 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 
 	private final int closeAfterIdleForMs;
 
+	private final int numCreditsPerChannel;
+
 	private ServerBootstrap in;
 
 	private Bootstrap out;
@@ -82,6 +85,19 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 			int numOutThreads,
 			int closeAfterIdleForMs) {
 
+		this(bindAddress, bindPort, bufferSize, numInThreads, numOutThreads, closeAfterIdleForMs,
+				ConfigConstants.DEFAULT_TASK_MANAGER_NET_NUM_CREDITS_PER_CHANNEL);
+	}
+
+	public NettyConnectionManager(
+			InetAddress bindAddress,
+			int bindPort,
+			int bufferSize,
+			int numInThreads,
+			int numOutThreads,
+			int closeAfterIdleForMs,
+			int numCreditsPerChannel) {
+
 		this.bindAddress = bindAddress;
 		this.bindPort = bindPort;
 
@@ -96,6 +112,8 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 		this.highWaterMark = bufferSize;
 
 		this.closeAfterIdleForMs = closeAfterIdleForMs;
+
+		this.numCreditsPerChannel = numCreditsPerChannel;
 	}
 
 	@Override
@@ -105,6 +123,10 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 		LOG.info(String.format("Setting low water mark to %d and high water mark to %d bytes.",
 				lowWaterMark, highWaterMark));
 		LOG.info(String.format("Close channels after idle for %d ms.", closeAfterIdleForMs));
+		if (numCreditsPerChannel > 0) {
+			LOG.info(String.format("Using credit-based flow control with up to %d credits per channel.",
+					numCreditsPerChannel));
+		}
 
 		final BufferProviderBroker bufferProviderBroker = channelManager;
 		final EnvelopeDispatcher envelopeDispatcher = channelManager;
@@ -216,7 +238,8 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 			// We create a "buildup future" and atomically add it to the map.
 			// Only the thread that really added it establishes the channel.
 			// The others need to wait on that original establisher's future.
-			ChannelInBuildup inBuildup = new ChannelInBuildup(out, receiver, this, closeAfterIdleForMs);
+			ChannelInBuildup inBuildup = new ChannelInBuildup(
+					out, receiver, this, closeAfterIdleForMs, numCreditsPerChannel);
 			Object old = outConnections.putIfAbsent(receiver, inBuildup);
 
 			if (old == null) {
@@ -320,16 +343,20 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 
 		private final int closeAfterIdleMs;
 
+		private final int numCreditsPerChannel;
+
 		private ChannelInBuildup(
 				Bootstrap out,
 				RemoteReceiver receiver,
 				NetworkConnectionManager connectionManager,
-				int closeAfterIdleMs) {
+				int closeAfterIdleMs,
+				int numCreditsPerChannel) {
 
 			this.out = out;
 			this.receiver = receiver;
 			this.connectionManager = connectionManager;
 			this.closeAfterIdleMs = closeAfterIdleMs;
+			this.numCreditsPerChannel = numCreditsPerChannel;
 		}
 
 		private void handInChannel(OutboundConnectionQueue c) {
@@ -372,7 +399,7 @@ public class NettyConnectionManager implements NetworkConnectionManager {
 				}
 
 				handInChannel(new OutboundConnectionQueue(
-						future.channel(), receiver, connectionManager, closeAfterIdleMs));
+						future.channel(), receiver, connectionManager, closeAfterIdleMs, numCreditsPerChannel));
 			}
 			else if (numRetries > 0) {
 				LOG.debug(String.format("Connection request did not succeed, retrying (%d attempts left)", numRetries));
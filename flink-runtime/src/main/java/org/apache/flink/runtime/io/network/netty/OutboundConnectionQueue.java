@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -30,11 +31,25 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.flink.runtime.io.network.Envelope;
 import org.apache.flink.runtime.io.network.NetworkConnectionManager;
 import org.apache.flink.runtime.io.network.RemoteReceiver;
+import org.apache.flink.runtime.io.network.channels.ChannelID;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Queues the envelopes of all channels, which are sent to the same receiver, and writes them to the
+ * TCP connection to that receiver.
+ * <p/>
+ * The envelopes are queued per channel and the channels take turns in writing their next envelope. If
+ * credit-based flow control is enabled, an envelope with a buffer is only written, after the receiver
+ * has announced a credit for its channel, i.e. after the receiver has reserved a buffer for it. A channel,
+ * whose receiver runs out of buffers, therefore only holds back its own envelopes and not the envelopes
+ * of the other channels of the connection.
+ */
 public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 
 	private static enum QueueEvent {
@@ -45,9 +60,23 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 
 	private final ChannelWriteListener writeListener = new ChannelWriteListener();
 
+	private final ChannelWriteErrorListener writeErrorListener = new ChannelWriteErrorListener();
+
 	private final Channel channel;
 
-	private final Queue<Envelope> queuedEnvelopes = new ArrayDeque<Envelope>();
+	private final Map<ChannelID, ChannelQueue> channelQueues = new HashMap<ChannelID, ChannelQueue>();
+
+	// Channels with an envelope, which can be written right away. The channels
+	// are polled in round-robin fashion.
+	private final Queue<ChannelQueue> writableChannelQueues = new ArrayDeque<ChannelQueue>();
+
+	private final ByteBuffer announcementBuffer = ByteBuffer.allocate(InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_SIZE);
+
+	// Maximum number of credits per channel (requested or announced). If zero,
+	// envelopes are sent without credits.
+	private final int maxCreditsPerChannel;
+
+	private int numQueuedEnvelopes;
 
 	private final RemoteReceiver receiver;
 
@@ -64,9 +93,24 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 			NetworkConnectionManager connectionManager,
 			int closeAfterIdleForMs) {
 
+		this(channel, receiver, connectionManager, closeAfterIdleForMs, 0);
+	}
+
+	public OutboundConnectionQueue(
+			Channel channel,
+			RemoteReceiver receiver,
+			NetworkConnectionManager connectionManager,
+			int closeAfterIdleForMs,
+			int maxCreditsPerChannel) {
+
+		if (maxCreditsPerChannel < 0) {
+			throw new IllegalArgumentException("The number of credits per channel must not be negative.");
+		}
+
 		this.channel = channel;
 		this.receiver = receiver;
 		this.connectionManager = connectionManager;
+		this.maxCreditsPerChannel = maxCreditsPerChannel;
 
 		channel.pipeline().addFirst("Outbound Connection Queue", this);
 		channel.pipeline().addFirst("Idle State Handler",
@@ -86,7 +130,8 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 	 * @return true, if successfully enqueued or false, if the channel was requested to be closed
 	 */
 	public boolean enqueue(Envelope env) {
-		boolean triggerWrite;
+		boolean triggerWrite = false;
+		int numRequestedCredits = 0;
 
 		synchronized (channel) {
 			if (hasRequestedClose) {
@@ -95,11 +140,32 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 				return false;
 			}
 
-			// Initiate envelope processing, after the queue state has
-			// changed from empty to non-empty.
-			triggerWrite = queuedEnvelopes.isEmpty();
+			ChannelQueue channelQueue = channelQueues.get(env.getSource());
+			if (channelQueue == null) {
+				channelQueue = new ChannelQueue();
+				channelQueues.put(env.getSource(), channelQueue);
+			}
+
+			channelQueue.envelopes.add(env);
+			numQueuedEnvelopes++;
+
+			if (env.hasBuffer()) {
+				channelQueue.numQueuedBuffers++;
+				numRequestedCredits = channelQueue.requestMissingCredits();
+			}
+
+			// Initiate envelope processing, after the state of the writable
+			// channels has changed from empty to non-empty.
+			if (!channelQueue.isScheduled && channelQueue.hasWritableEnvelope()) {
+				triggerWrite = writableChannelQueues.isEmpty();
 
-			queuedEnvelopes.add(env);
+				channelQueue.isScheduled = true;
+				writableChannelQueues.add(channelQueue);
+			}
+		}
+
+		if (numRequestedCredits > 0) {
+			writeCreditRequest(env, numRequestedCredits);
 		}
 
 		if (triggerWrite) {
@@ -124,7 +190,7 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 			// to ensure that there is no race between closing the channel and
 			// enqueuing a new envelope.
 			synchronized (channel) {
-				if (queuedEnvelopes.isEmpty() && !hasRequestedClose) {
+				if (numQueuedEnvelopes == 0 && !hasRequestedClose) {
 
 					hasRequestedClose = true;
 
@@ -145,6 +211,44 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Reads the credit announcements of the receiver.
+	 */
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		ByteBuf in = (ByteBuf) msg;
+
+		try {
+			while (in.isReadable()) {
+				int numBytes = Math.min(in.readableBytes(), announcementBuffer.remaining());
+
+				in.readBytes(announcementBuffer.array(), announcementBuffer.position(), numBytes);
+				announcementBuffer.position(announcementBuffer.position() + numBytes);
+
+				if (!announcementBuffer.hasRemaining()) {
+					announcementBuffer.flip();
+
+					if (announcementBuffer.getInt() != InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_MAGIC_NUMBER) {
+						throw new IllegalStateException("Network stream corrupted: invalid magic " +
+								"number in credit announcement.");
+					}
+
+					ChannelID sourceId = ChannelID.fromByteBuffer(announcementBuffer);
+					int numCredits = announcementBuffer.getInt();
+
+					announcementBuffer.clear();
+
+					addCredits(sourceId, numCredits);
+				}
+			}
+		}
+		finally {
+			in.release();
+		}
+
+		writeAndFlushNextEnvelopeIfPossible();
+	}
+
 	@Override
 	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
 		writeAndFlushNextEnvelopeIfPossible();
@@ -152,7 +256,7 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 
 	public int getNumQueuedEnvelopes() {
 		synchronized (channel) {
-			return queuedEnvelopes.size();
+			return numQueuedEnvelopes;
 		}
 	}
 
@@ -163,18 +267,119 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 
 	private void writeAndFlushNextEnvelopeIfPossible() {
 		Envelope nextEnvelope = null;
+		int numRequestedCredits = 0;
 
 		synchronized (channel) {
-			if (channel.isWritable() && !queuedEnvelopes.isEmpty()) {
-				nextEnvelope = queuedEnvelopes.poll();
+			if (channel.isWritable() && !writableChannelQueues.isEmpty()) {
+				ChannelQueue channelQueue = writableChannelQueues.poll();
+
+				nextEnvelope = channelQueue.envelopes.poll();
+				numQueuedEnvelopes--;
+
+				if (nextEnvelope.hasBuffer()) {
+					channelQueue.numQueuedBuffers--;
+					if (maxCreditsPerChannel > 0) {
+						channelQueue.numCredits--;
+						numRequestedCredits = channelQueue.requestMissingCredits();
+					}
+				}
+
+				if (channelQueue.hasWritableEnvelope()) {
+					writableChannelQueues.add(channelQueue);
+				}
+				else {
+					channelQueue.isScheduled = false;
+
+					if (channelQueue.envelopes.isEmpty() && channelQueue.numCredits == 0
+							&& channelQueue.numRequestedCredits == 0) {
+						channelQueues.remove(nextEnvelope.getSource());
+					}
+				}
 			}
 		}
 
 		if (nextEnvelope != null) {
+			if (numRequestedCredits > 0) {
+				writeCreditRequest(nextEnvelope, numRequestedCredits);
+			}
+
 			channel.writeAndFlush(nextEnvelope).addListener(writeListener);
 		}
 	}
 
+	private void addCredits(ChannelID sourceId, int numCredits) {
+		synchronized (channel) {
+			ChannelQueue channelQueue = channelQueues.get(sourceId);
+			if (channelQueue == null || numCredits > channelQueue.numRequestedCredits) {
+				throw new IllegalStateException("Received credits for channel " + sourceId +
+						", which have not been requested.");
+			}
+
+			channelQueue.numRequestedCredits -= numCredits;
+			channelQueue.numCredits += numCredits;
+
+			if (!channelQueue.isScheduled && channelQueue.hasWritableEnvelope()) {
+				channelQueue.isScheduled = true;
+				writableChannelQueues.add(channelQueue);
+			}
+		}
+	}
+
+	private void writeCreditRequest(Envelope env, int numCredits) {
+		ByteBuf request = channel.alloc().directBuffer(OutboundEnvelopeEncoder.HEADER_SIZE);
+		OutboundEnvelopeEncoder.encodeCreditRequest(env.getJobID(), env.getSource(), numCredits, request);
+
+		channel.writeAndFlush(request).addListener(writeErrorListener);
+	}
+
+	/**
+	 * The envelopes and credits of a single channel. Access is guarded by the Netty channel.
+	 */
+	private final class ChannelQueue {
+
+		private final Queue<Envelope> envelopes = new ArrayDeque<Envelope>();
+
+		// number of queued envelopes with a buffer
+		private int numQueuedBuffers;
+
+		// credits announced by the receiver, which have not been used yet
+		private int numCredits;
+
+		// credits requested from the receiver, which have not been announced yet
+		private int numRequestedCredits;
+
+		// true, iff the channel is in the queue of writable channels
+		private boolean isScheduled;
+
+		private boolean hasWritableEnvelope() {
+			Envelope head = envelopes.peek();
+
+			return head != null && (!head.hasBuffer() || maxCreditsPerChannel == 0 || numCredits > 0);
+		}
+
+		/**
+		 * Requests credits for the queued buffers, which are neither covered by announced nor by
+		 * requested credits, up to the maximum number of credits per channel.
+		 *
+		 * @return the number of credits to request from the receiver
+		 */
+		private int requestMissingCredits() {
+			if (maxCreditsPerChannel == 0) {
+				return 0;
+			}
+
+			int numCovered = numCredits + numRequestedCredits;
+			int numMissing = Math.min(numQueuedBuffers, maxCreditsPerChannel) - numCovered;
+
+			if (numMissing > 0) {
+				numRequestedCredits += numMissing;
+				return numMissing;
+			}
+
+			return 0;
+		}
+	}
+
 	private class ChannelWriteListener implements ChannelFutureListener {
 
 		@Override
@@ -190,6 +395,18 @@ public class OutboundConnectionQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	private class ChannelWriteErrorListener implements ChannelFutureListener {
+
+		@Override
+		public void operationComplete(ChannelFuture future) throws Exception {
+			if (!future.isSuccess()) {
+				exceptionOccurred(future.cause() == null
+						? new Exception("Credit request aborted.")
+						: future.cause());
+			}
+		}
+	}
+
 	private class ChannelCloseListener implements ChannelFutureListener {
 
 		@Override
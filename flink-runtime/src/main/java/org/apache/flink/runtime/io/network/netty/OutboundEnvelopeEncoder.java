@@ -20,46 +20,133 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.disk.iomanager.BlockCompressor;
+import org.apache.flink.runtime.io.disk.iomanager.LZBlockCompressor;
 import org.apache.flink.runtime.io.network.Envelope;
+import org.apache.flink.runtime.io.network.NetworkCompression;
+import org.apache.flink.runtime.io.network.channels.ChannelID;
+import org.apache.flink.runtime.jobgraph.JobID;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 
-@ChannelHandler.Sharable
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes envelopes for the network. The header and the events are written to a pooled direct buffer,
+ * while the buffer of the envelope is only wrapped and not copied. The buffer is recycled, after Netty
+ * has written it to the socket.
+ * <p/>
+ * Buffers of envelopes with a {@link NetworkCompression} are compressed instead, if they become smaller.
+ * The encoder keeps the compression state of its connection and must not be shared between channels.
+ */
 public class OutboundEnvelopeEncoder extends ChannelOutboundHandlerAdapter {
 
 	public static final int HEADER_SIZE = 48;
 
 	public static final int MAGIC_NUMBER = 0xBADC0FFE;
 
+	/**
+	 * Magic number of a credit request, which uses the envelope header layout with the number of
+	 * requested credits in place of the sequence number and no events or buffer.
+	 */
+	public static final int CREDIT_REQUEST_MAGIC_NUMBER = 0xBADC0DE5;
+
+	/**
+	 * Magic number of an envelope with a compressed buffer. The buffer is sent as its uncompressed size
+	 * (4 bytes), followed by the compressed bytes.
+	 */
+	public static final int COMPRESSED_MAGIC_NUMBER = 0xBADC0FFD;
+
+	/** A compressed buffer is poor, if it has more than this fraction of the uncompressed size. */
+	private static final double POOR_COMPRESSION_FRACTION = 0.9;
+
+	/** The maximum number of buffers, for which an adaptive channel pauses compression. */
+	private static final int MAX_ADAPTIVE_PAUSE = 64;
+
+	/** The maximum number of channels, whose adaptive compression state is kept. */
+	private static final int MAX_ADAPTIVE_CHANNELS = 1024;
+
+	private final Map<ChannelID, AdaptiveCompressionState> adaptiveChannels =
+			new LinkedHashMap<ChannelID, AdaptiveCompressionState>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ChannelID, AdaptiveCompressionState> eldest) {
+					return size() > MAX_ADAPTIVE_CHANNELS;
+				}
+			};
+
+	private BlockCompressor compressor;
+
+	private byte[] uncompressedBytes = new byte[0];
+
+	private byte[] compressedBytes = new byte[0];
+
 	@Override
 	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (!(msg instanceof Envelope)) {
+			// credit requests are encoded by the outbound connection queue
+			ctx.write(msg, promise);
+			return;
+		}
+
 		Envelope env = (Envelope) msg;
 
-		ByteBuf buf = ctx.alloc().directBuffer();
+		int eventsSize = env.getEventsSerialized() != null ? env.getEventsSerialized().remaining() : 0;
+
+		int compressedSize = env.getBuffer() != null && shouldCompress(env) ? compress(env) : -1;
 
-		encode(env, buf);
+		if (compressedSize >= 0) {
+			final Buffer envBuffer = env.getBuffer();
+
+			ByteBuf buf = ctx.alloc().directBuffer(HEADER_SIZE + eventsSize + 4 + compressedSize);
+
+			encode(env, buf, COMPRESSED_MAGIC_NUMBER, 4 + compressedSize);
+			buf.writeInt(envBuffer.size());
+			buf.writeBytes(this.compressedBytes, 0, compressedSize);
+
+			// the compressed copy has been written, OUR buffer is not needed anymore
+			envBuffer.recycleBuffer();
 
-		if (buf.isReadable()) {
+			ctx.write(buf, promise);
+			return;
+		}
+
+		ByteBuf buf = ctx.alloc().directBuffer(HEADER_SIZE + eventsSize);
+
+		encode(env, buf, MAGIC_NUMBER, env.getBuffer() != null ? env.getBuffer().size() : 0);
+
+		if (env.getBuffer() == null) {
 			ctx.write(buf, promise);
 		}
 		else {
-			buf.release();
-			ctx.write(Unpooled.EMPTY_BUFFER, promise);
+			final Buffer envBuffer = env.getBuffer();
+
+			// The wrapped buffer shares the memory of OUR buffer, which must
+			// not be recycled before the data has been written to the socket.
+			ByteBuf data = Unpooled.wrappedBuffer(envBuffer.getMemorySegment().wrap(0, envBuffer.size()).slice());
+
+			ChannelPromise writePromise = ctx.newPromise();
+			writePromise.addListener(new RecycleBufferListener(envBuffer, promise));
+
+			ctx.write(Unpooled.wrappedBuffer(buf, data), writePromise);
 		}
 	}
 
-	private void encode(Envelope env, ByteBuf out) {
+	private void encode(Envelope env, ByteBuf out, int magicNumber, int bufferSize) {
 		// --------------------------------------------------------------------
 		// (1) header (48 bytes)
 		// --------------------------------------------------------------------
-		out.writeInt(MAGIC_NUMBER); // 4 bytes
+		out.writeInt(magicNumber); // 4 bytes
 
-		if (out.getInt(out.writerIndex() - 4) != MAGIC_NUMBER) {
+		if (out.getInt(out.writerIndex() - 4) != magicNumber) {
 			throw new RuntimeException();
 		}
 
@@ -67,7 +154,7 @@ public class OutboundEnvelopeEncoder extends ChannelOutboundHandlerAdapter {
 		env.getJobID().writeTo(out); // 16 bytes
 		env.getSource().writeTo(out); // 16 bytes
 		out.writeInt(env.getEventsSerialized() != null ? env.getEventsSerialized().remaining() : 0); // 4 bytes
-		out.writeInt(env.getBuffer() != null ? env.getBuffer().size() : 0); // 4 bytes
+		out.writeInt(bufferSize); // 4 bytes
 		// --------------------------------------------------------------------
 		// (2) events (var length)
 		// --------------------------------------------------------------------
@@ -76,15 +163,116 @@ public class OutboundEnvelopeEncoder extends ChannelOutboundHandlerAdapter {
 		}
 
 		// --------------------------------------------------------------------
-		// (3) buffer (var length)
+		// (3) buffer (var length) is compressed or wrapped by write()
 		// --------------------------------------------------------------------
-		if (env.getBuffer() != null) {
-			Buffer envBuffer = env.getBuffer();
-			out.writeBytes(envBuffer.getMemorySegment().wrap(0, envBuffer.size()));
+	}
 
-			// Recycle the buffer from OUR buffer pool after everything has been
-			// copied to Nettys buffer space.
-			envBuffer.recycleBuffer();
+	private boolean shouldCompress(Envelope env) {
+		if (env.getCompression() == NetworkCompression.NONE) {
+			return false;
+		}
+		if (env.getCompression() == NetworkCompression.ALWAYS) {
+			return true;
 		}
+
+		AdaptiveCompressionState state = this.adaptiveChannels.get(env.getSource());
+		if (state == null) {
+			state = new AdaptiveCompressionState();
+			this.adaptiveChannels.put(env.getSource(), state);
+		}
+
+		if (state.numBuffersToSkip > 0) {
+			state.numBuffersToSkip--;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Compresses the buffer of the envelope into the scratch array and updates the adaptive compression state
+	 * of its channel.
+	 *
+	 * @return the compressed size, or -1, if the buffer does not become smaller
+	 */
+	private int compress(Envelope env) {
+		final Buffer envBuffer = env.getBuffer();
+		final int size = envBuffer.size();
+
+		if (this.compressor == null) {
+			this.compressor = new LZBlockCompressor();
+		}
+		if (this.uncompressedBytes.length < size) {
+			this.uncompressedBytes = new byte[size];
+			this.compressedBytes = new byte[this.compressor.getMaxCompressedLength(size)];
+		}
+
+		envBuffer.getMemorySegment().get(0, this.uncompressedBytes, 0, size);
+		int compressedSize = this.compressor.compress(this.uncompressedBytes, 0, size, this.compressedBytes, 0);
+
+		if (env.getCompression() == NetworkCompression.ADAPTIVE) {
+			AdaptiveCompressionState state = this.adaptiveChannels.get(env.getSource());
+
+			if (compressedSize > size * POOR_COMPRESSION_FRACTION) {
+				// pause compression and double the pause for the next poor probe
+				state.numBuffersToSkip = state.pause;
+				state.pause = Math.min(2 * state.pause, MAX_ADAPTIVE_PAUSE);
+			}
+			else {
+				state.pause = 1;
+			}
+		}
+
+		return 4 + compressedSize < size ? compressedSize : -1;
+	}
+
+	private static final class AdaptiveCompressionState {
+
+		// buffers to send uncompressed, before the next probe
+		private int numBuffersToSkip;
+
+		// the number of buffers to skip after the next poor probe
+		private int pause = 1;
+	}
+
+	/**
+	 * Recycles the buffer from OUR buffer pool after the write has completed (or failed) and
+	 * completes the promise of the envelope write.
+	 */
+	private static final class RecycleBufferListener implements ChannelFutureListener {
+
+		private final Buffer buffer;
+
+		private final ChannelPromise promise;
+
+		private RecycleBufferListener(Buffer buffer, ChannelPromise promise) {
+			this.buffer = buffer;
+			this.promise = promise;
+		}
+
+		@Override
+		public void operationComplete(ChannelFuture future) throws Exception {
+			this.buffer.recycleBuffer();
+
+			if (future.isSuccess()) {
+				this.promise.trySuccess();
+			}
+			else {
+				this.promise.tryFailure(future.cause());
+			}
+		}
+	}
+
+	/**
+	 * Encodes a request for the given number of credits for the channel with the given ID. The receiver
+	 * announces the credits, after it has reserved a buffer for each of them.
+	 */
+	public static void encodeCreditRequest(JobID jobId, ChannelID sourceId, int numCredits, ByteBuf out) {
+		out.writeInt(CREDIT_REQUEST_MAGIC_NUMBER); // 4 bytes
+		out.writeInt(numCredits); // 4 bytes
+		jobId.writeTo(out); // 16 bytes
+		sourceId.writeTo(out); // 16 bytes
+		out.writeInt(0); // 4 bytes
+		out.writeInt(0); // 4 bytes
 	}
 }
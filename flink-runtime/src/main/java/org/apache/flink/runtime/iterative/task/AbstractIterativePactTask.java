@@ -131,6 +131,7 @@ public abstract class AbstractIterativePactTask<S extends Function, OT> extends
 				final String name = getTaskConfig().getBroadcastInputName(i);
 				readAndSetBroadcastInput(i, name, this.runtimeUdfContext);
 			}
+			setPartitioningSamples();
 		}
 
 		// call the parent to execute the superstep
@@ -19,7 +19,7 @@
 
 package org.apache.flink.runtime.memorymanager;
 
-import java.util.ArrayDeque;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -27,13 +27,25 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
 
-
+/**
+ * The default memory manager. It hands out pages of a fixed size and keeps track of the pages per owner.
+ * <p>
+ * To keep concurrent allocations and releases of different tasks from contending for a single lock, the
+ * memory manager is split into stripes, by default one per task slot. Each owner is assigned to one stripe,
+ * which holds the bookkeeping of the owner's pages and a local cache of free pages. The stripes share an
+ * overflow pool of free pages and a counter of the remaining capacity, both of which are accessed without
+ * locks. Only the bookkeeping of the pages per owner is guarded by the lock of the owner's stripe.
+ */
 public class DefaultMemoryManager implements MemoryManager {
 	
 	/**
@@ -46,6 +58,11 @@ public class DefaultMemoryManager implements MemoryManager {
 	 */
 	public static final int MIN_PAGE_SIZE = 4 * 1024;
 	
+	/**
+	 * The maximal number of stripes, independent of the number of slots.
+	 */
+	private static final int MAX_NUM_STRIPES = 256;
+	
 	/**
 	 * The Log.
 	 */
@@ -53,11 +70,13 @@ public class DefaultMemoryManager implements MemoryManager {
 	
 	// --------------------------------------------------------------------------------------------
 	
-	private final Object lock = new Object();	 	// The lock used on the shared structures.
+	private final MemoryStripe[] stripes;		// the stripes holding the per-owner bookkeeping
+	
+	private final MemoryPool<?> memoryPool;		// the pool of free memory pages
 	
-	private final ArrayDeque<byte[]> freeSegments;	// the free memory segments
+	private final AtomicInteger numAvailablePages;	// the number of pages that can still be handed out
 	
-	private final HashMap<AbstractInvokable, Set<DefaultMemorySegment>> allocatedSegments;
+	private final MemoryCache memoryCache;	// the cache of data structures that outlive their tasks
 	
 	private final long roundingMask;		// mask used to round down sizes to multiples of the page size
 	
@@ -67,22 +86,30 @@ public class DefaultMemoryManager implements MemoryManager {
 	
 	private final int totalNumPages;		// The initial total size, for verification.
 	
-	private boolean isShutDown;				// flag whether the close() has already been invoked.
-
+	private volatile boolean isShutDown;	// flag whether the close() has already been invoked.
+	
 	/**
 	 * Number of slots of the task manager
 	 */
 	private final int numberOfSlots;
-
+	
 	private final long memorySize;
-
+	
+	private final boolean offHeap;			// flag whether pages are allocated outside the java heap
+	
+	private final boolean lazyAllocation;	// flag whether pages are allocated on demand
+	
+	private final long releaseAfterIdleMillis;	// idle time after which cached pages are given back to the JVM
+	
+	private final Timer idleReleaseTimer;	// timer that periodically checks for idle cached memory (lazy mode only)
+	
 	// ------------------------------------------------------------------------
 	// Constructors / Destructors
 	// ------------------------------------------------------------------------
-
+	
 	/**
 	 * Creates a memory manager with the given capacity, using the default page size.
-	 * 
+	 *
 	 * @param memorySize The total size of the memory to be managed by this memory manager.
 	 */
 	public DefaultMemoryManager(long memorySize, int numberOfSlots) {
@@ -91,11 +118,46 @@ public class DefaultMemoryManager implements MemoryManager {
 
 	/**
 	 * Creates a memory manager with the given capacity and given page size.
-	 * 
+	 *
 	 * @param memorySize The total size of the memory to be managed by this memory manager.
 	 * @param pageSize The size of the pages handed out by the memory manager.
 	 */
 	public DefaultMemoryManager(long memorySize, int numberOfSlots, int pageSize) {
+		this(memorySize, numberOfSlots, pageSize, false);
+	}
+
+	/**
+	 * Creates a memory manager with the given capacity and given page size. The pages are either allocated
+	 * as byte arrays on the java heap, or as direct byte buffers outside the java heap. Off-heap pages are not
+	 * scanned by the garbage collector, and they can be handed to I/O and network channels without copying.
+	 *
+	 * @param memorySize The total size of the memory to be managed by this memory manager.
+	 * @param pageSize The size of the pages handed out by the memory manager.
+	 * @param offHeap True, if the pages should be allocated outside the java heap, false otherwise.
+	 */
+	public DefaultMemoryManager(long memorySize, int numberOfSlots, int pageSize, boolean offHeap) {
+		this(memorySize, numberOfSlots, pageSize, offHeap, false, 0, -1);
+	}
+
+	/**
+	 * Creates a memory manager with the given capacity and given page size. In lazy allocation mode, the pages
+	 * are not allocated when the memory manager is created, but when they are requested for the first time.
+	 * Released pages are kept in a cache of bounded size, pages beyond that bound are given back to the JVM.
+	 * When no memory has been allocated or released for the given idle time, the cached pages are given back
+	 * as well. Independent of the mode, the memory manager never hands out more than its total capacity.
+	 *
+	 * @param memorySize The total size of the memory to be managed by this memory manager.
+	 * @param pageSize The size of the pages handed out by the memory manager.
+	 * @param offHeap True, if the pages should be allocated outside the java heap, false otherwise.
+	 * @param lazyAllocation True, if the pages should be allocated on demand, false if they should be
+	 *                       allocated eagerly, when the memory manager is created.
+	 * @param maxCachedPages The maximum number of released pages kept for reuse in lazy allocation mode.
+	 * @param releaseAfterIdleMillis The time after which the cached pages are given back to the JVM, if no memory
+	 *                               was allocated or released. A non-positive value disables the release.
+	 */
+	public DefaultMemoryManager(long memorySize, int numberOfSlots, int pageSize, boolean offHeap,
+			boolean lazyAllocation, int maxCachedPages, long releaseAfterIdleMillis)
+	{
 		// sanity checks
 		if (memorySize <= 0) {
 			throw new IllegalArgumentException("Size of total memory must be positive.");
@@ -107,11 +169,17 @@ public class DefaultMemoryManager implements MemoryManager {
 			// not a power of two
 			throw new IllegalArgumentException("The given page size is not a power of two.");
 		}
-
+		
 		this.memorySize = memorySize;
-
+		
 		this.numberOfSlots = numberOfSlots;
 		
+		this.offHeap = offHeap;
+		
+		this.lazyAllocation = lazyAllocation;
+		
+		this.releaseAfterIdleMillis = releaseAfterIdleMillis;
+		
 		// assign page size and bit utilities
 		this.pageSize = pageSize;
 		this.roundingMask = ~((long) (pageSize - 1));
@@ -126,53 +194,85 @@ public class DefaultMemoryManager implements MemoryManager {
 			throw new IllegalArgumentException("The given amount of memory amounted to less than one page.");
 		}
 		
-		// initialize the free segments and allocated segments tracking structures
-		this.freeSegments = new ArrayDeque<byte[]>(this.totalNumPages);
-		this.allocatedSegments = new HashMap<AbstractInvokable, Set<DefaultMemorySegment>>();
-
+		if (lazyAllocation && maxCachedPages < 0) {
+			throw new IllegalArgumentException("The maximum number of cached pages must not be negative.");
+		}
 		
-		// add the full chunks
-		for (int i = 0; i < this.totalNumPages; i++) {
-			// allocate memory of the specified size
-			this.freeSegments.add(new byte[this.pageSize]);
+		// one stripe per slot, such that the tasks of different slots do not contend for the same lock
+		final int numStripes = Math.max(1, Math.min(numberOfSlots, MAX_NUM_STRIPES));
+		this.stripes = new MemoryStripe[numStripes];
+		for (int i = 0; i < numStripes; i++) {
+			this.stripes[i] = new MemoryStripe();
+		}
+		
+		// initialize the free segments
+		final int maxCached = lazyAllocation ? Math.min(maxCachedPages, this.totalNumPages) : this.totalNumPages;
+		this.memoryPool = offHeap ? new OffHeapMemoryPool(this.totalNumPages, this.pageSize, lazyAllocation, maxCached, numStripes) :
+									new HeapMemoryPool(this.totalNumPages, this.pageSize, lazyAllocation, maxCached, numStripes);
+		this.numAvailablePages = new AtomicInteger(this.totalNumPages);
+		this.memoryCache = new MemoryCache(0);
+		
+		// in lazy mode, periodically give cached memory back to the JVM
+		if (lazyAllocation && releaseAfterIdleMillis > 0) {
+			this.idleReleaseTimer = new Timer("Memory Manager Idle Memory Release", true);
+			this.idleReleaseTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					releaseIdleMemory();
+				}
+			}, releaseAfterIdleMillis, releaseAfterIdleMillis);
+		} else {
+			this.idleReleaseTimer = null;
 		}
 	}
 
 	@Override
 	public void shutdown() {
-		// -------------------- BEGIN CRITICAL SECTION -------------------
-		synchronized (this.lock)
-		{
-			if (!this.isShutDown) {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("Shutting down MemoryManager instance " + toString());
-				}
-	
-				// mark as shutdown and release memory
-				this.isShutDown = true;
-				this.freeSegments.clear();
-				
-				// go over all allocated segments and release them
-				for (Set<DefaultMemorySegment> segments : this.allocatedSegments.values()) {
+		if (this.isShutDown) {
+			return;
+		}
+		
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Shutting down MemoryManager instance " + toString());
+		}
+		
+		// release the cached entries while their memory can still be returned regularly
+		this.memoryCache.clear();
+		
+		// mark as shutdown, such that no further memory is handed out
+		this.isShutDown = true;
+		
+		if (this.idleReleaseTimer != null) {
+			this.idleReleaseTimer.cancel();
+		}
+		
+		// go over all allocated segments and release them
+		for (MemoryStripe stripe : this.stripes) {
+			// -------------------- BEGIN CRITICAL SECTION -------------------
+			synchronized (stripe)
+			{
+				for (Set<DefaultMemorySegment> segments : stripe.allocatedSegments.values()) {
 					for (DefaultMemorySegment seg : segments) {
 						seg.destroy();
 					}
 				}
+				stripe.allocatedSegments.clear();
+				stripe.brokers.clear();
 			}
+			// -------------------- END CRITICAL SECTION -------------------
 		}
-		// -------------------- END CRITICAL SECTION -------------------
+		
+		this.memoryPool.clear();
 	}
 
 	public boolean verifyEmpty() {
-		synchronized (this.lock) {
-			return this.freeSegments.size() == this.totalNumPages;
-		}
+		return this.numAvailablePages.get() == this.totalNumPages;
 	}
 
 	// ------------------------------------------------------------------------
 	//                 MemoryManager interface implementation
 	// ------------------------------------------------------------------------
-
+	
 	@Override
 	public List<MemorySegment> allocatePages(AbstractInvokable owner, int numPages) throws MemoryAllocationException {
 		final ArrayList<MemorySegment> segs = new ArrayList<MemorySegment>(numPages);
@@ -188,42 +288,83 @@ public class DefaultMemoryManager implements MemoryManager {
 		if (owner == null) {
 			throw new IllegalAccessError("The memory owner must not be null.");
 		}
+		if (this.isShutDown) {
+			throw new IllegalStateException("Memory manager has been shut down.");
+		}
+		
+		// reserve the capacity for the pages, without locking
+		while (true) {
+			final int available = this.numAvailablePages.get();
+			if (numPages > available) {
+				// idle cached entries must not starve running tasks
+				if (this.memoryCache.releasePages(numPages - available) > 0) {
+					continue;
+				}
+				throw new MemoryAllocationException("Could not allocate " + numPages + " pages. Only " +
+					available + " pages are remaining.");
+			}
+			if (this.numAvailablePages.compareAndSet(available, available - numPages)) {
+				break;
+			}
+		}
+		
+		// obtain the memory for the reserved pages from the owner's stripe, or the shared pool
+		final int stripeIndex = getStripeIndex(owner);
+		final DefaultMemorySegment[] segments = new DefaultMemorySegment[numPages];
+		
+		for (int i = 0; i < numPages; i++) {
+			try {
+				segments[i] = this.memoryPool.requestSegmentFromPool(owner, stripeIndex);
+			}
+			catch (OutOfMemoryError e) {
+				// lazy allocation could not obtain the memory from the JVM. undo this request, such that
+				// the request either succeeds completely or has no effect
+				for (int k = 0; k < i; k++) {
+					this.memoryPool.returnSegmentToPool(segments[k], stripeIndex);
+				}
+				this.numAvailablePages.addAndGet(numPages);
+				
+				throw new MemoryAllocationException("Could not allocate " + numPages + " pages. The JVM ran out of " +
+					(this.offHeap ? "direct" : "heap") + " memory while allocating the pages lazily.");
+			}
+		}
 		
 		// reserve array space, if applicable
 		if (target instanceof ArrayList) {
 			((ArrayList<MemorySegment>) target).ensureCapacity(numPages);
 		}
 		
+		// register the pages for the owner
+		final MemoryStripe stripe = this.stripes[stripeIndex];
+		
 		// -------------------- BEGIN CRITICAL SECTION -------------------
-		synchronized (this.lock)
+		synchronized (stripe)
 		{
 			if (this.isShutDown) {
+				for (DefaultMemorySegment seg : segments) {
+					seg.destroy();
+				}
 				throw new IllegalStateException("Memory manager has been shut down.");
 			}
 			
-			if (numPages > this.freeSegments.size()) {
-				throw new MemoryAllocationException("Could not allocate " + numPages + " pages. Only " + 
-					this.freeSegments.size() + " pages are remaining.");
-			}
-			
-			Set<DefaultMemorySegment> segmentsForOwner = this.allocatedSegments.get(owner);
+			Set<DefaultMemorySegment> segmentsForOwner = stripe.allocatedSegments.get(owner);
 			if (segmentsForOwner == null) {
 				segmentsForOwner = new HashSet<DefaultMemorySegment>(4 * numPages / 3 + 1);
-				this.allocatedSegments.put(owner, segmentsForOwner);
+				stripe.allocatedSegments.put(owner, segmentsForOwner);
 			}
 			
-			for (int i = numPages; i > 0; i--) {
-				byte[] buffer = this.freeSegments.poll();
-				final DefaultMemorySegment segment = new DefaultMemorySegment(owner, buffer);
+			for (DefaultMemorySegment segment : segments) {
 				target.add(segment);
 				segmentsForOwner.add(segment);
 			}
+			
+			stripe.lastAccessTimestamp = System.currentTimeMillis();
 		}
 		// -------------------- END CRITICAL SECTION -------------------
 	}
-	
-	// ------------------------------------------------------------------------
 
+	// ------------------------------------------------------------------------
+	
 	@Override
 	public void release(MemorySegment segment) {
 		// check if segment is null or has already been freed
@@ -233,22 +374,31 @@ public class DefaultMemoryManager implements MemoryManager {
 		
 		final DefaultMemorySegment defSeg = (DefaultMemorySegment) segment;
 		final AbstractInvokable owner = defSeg.owner;
+		final int stripeIndex = getStripeIndex(owner);
+		final MemoryStripe stripe = this.stripes[stripeIndex];
 		
 		// -------------------- BEGIN CRITICAL SECTION -------------------
-		synchronized (this.lock)
+		synchronized (stripe)
 		{
 			if (this.isShutDown) {
 				throw new IllegalStateException("Memory manager has been shut down.");
 			}
-
+			
+			// the segment may have been released concurrently
+			if (defSeg.isFreed()) {
+				return;
+			}
+			
+			stripe.lastAccessTimestamp = System.currentTimeMillis();
+			
 			// remove the reference in the map for the owner
 			try {
-				Set<DefaultMemorySegment> segsForOwner = this.allocatedSegments.get(owner);
+				Set<DefaultMemorySegment> segsForOwner = stripe.allocatedSegments.get(owner);
 				
 				if (segsForOwner != null) {
 					segsForOwner.remove(defSeg);
 					if (segsForOwner.isEmpty()) {
-						this.allocatedSegments.remove(owner);
+						stripe.allocatedSegments.remove(owner);
 					}
 				}
 			}
@@ -257,11 +407,12 @@ public class DefaultMemoryManager implements MemoryManager {
 			}
 			finally {
 				// release the memory in any case
-				byte[] buffer = defSeg.destroy();
-				this.freeSegments.add(buffer);
+				this.memoryPool.returnSegmentToPool(defSeg, stripeIndex);
 			}
 		}
 		// -------------------- END CRITICAL SECTION -------------------
+		
+		this.numAvailablePages.incrementAndGet();
 	}
 
 	@Override
@@ -272,42 +423,42 @@ public class DefaultMemoryManager implements MemoryManager {
 			return;
 		}
 		
-		// -------------------- BEGIN CRITICAL SECTION -------------------
-		synchronized (this.lock)
-		{
-			if (this.isShutDown) {
-				throw new IllegalStateException("Memory manager has been shut down.");
+		if (this.isShutDown) {
+			throw new IllegalStateException("Memory manager has been shut down.");
+		}
+		
+		final Iterator<T> segmentsIterator = segments.iterator();
+		
+		int numReleased = 0;
+		
+		// go over all segments
+		while (segmentsIterator.hasNext()) {
+			
+			final MemorySegment seg = segmentsIterator.next();
+			if (seg.isFreed()) {
+				continue;
 			}
-
-			final Iterator<T> segmentsIterator = segments.iterator();
 			
-			AbstractInvokable lastOwner = null;
-			Set<DefaultMemorySegment> segsForOwner = null;
-
-			// go over all segments
-			while (segmentsIterator.hasNext()) {
-				
-				final MemorySegment seg = segmentsIterator.next();
-				if (seg.isFreed()) {
+			final DefaultMemorySegment defSeg = (DefaultMemorySegment) seg;
+			final AbstractInvokable owner = defSeg.owner;
+			final int stripeIndex = getStripeIndex(owner);
+			final MemoryStripe stripe = this.stripes[stripeIndex];
+			
+			// -------------------- BEGIN CRITICAL SECTION -------------------
+			synchronized (stripe)
+			{
+				// the segment may have been released concurrently
+				if (defSeg.isFreed()) {
 					continue;
 				}
 				
-				final DefaultMemorySegment defSeg = (DefaultMemorySegment) seg;
-				final AbstractInvokable owner = defSeg.owner;
-				
 				try {
-					// get the list of segments by this owner only if it is a different owner than for
-					// the previous one (or it is the first segment)
-					if (lastOwner != owner) {
-						lastOwner = owner;
-						segsForOwner = this.allocatedSegments.get(owner);
-					}
-					
 					// remove the segment from the list
+					final Set<DefaultMemorySegment> segsForOwner = stripe.allocatedSegments.get(owner);
 					if (segsForOwner != null) {
 						segsForOwner.remove(defSeg);
 						if (segsForOwner.isEmpty()) {
-							this.allocatedSegments.remove(owner);
+							stripe.allocatedSegments.remove(owner);
 						}
 					}
 				}
@@ -316,46 +467,80 @@ public class DefaultMemoryManager implements MemoryManager {
 				}
 				finally {
 					// release the memory in any case
-					byte[] buffer = defSeg.destroy();
-					this.freeSegments.add(buffer);
+					this.memoryPool.returnSegmentToPool(defSeg, stripeIndex);
+					numReleased++;
 				}
+				
+				stripe.lastAccessTimestamp = System.currentTimeMillis();
 			}
-			
-			segments.clear();
+			// -------------------- END CRITICAL SECTION -------------------
 		}
-		// -------------------- END CRITICAL SECTION -------------------
+		
+		this.numAvailablePages.addAndGet(numReleased);
+		
+		segments.clear();
 	}
 
 	@Override
 	public void releaseAll(AbstractInvokable owner) {
+		final int stripeIndex = getStripeIndex(owner);
+		final MemoryStripe stripe = this.stripes[stripeIndex];
+		
+		final int numReleased;
+		
 		// -------------------- BEGIN CRITICAL SECTION -------------------
-		synchronized (this.lock)
+		synchronized (stripe)
 		{
 			if (this.isShutDown) {
 				throw new IllegalStateException("Memory manager has been shut down.");
 			}
-
+			
+			stripe.lastAccessTimestamp = System.currentTimeMillis();
+			
+			stripe.brokers.remove(owner);
+			
 			// get all segments
-			final Set<DefaultMemorySegment> segments = this.allocatedSegments.remove(owner);
-
+			final Set<DefaultMemorySegment> segments = stripe.allocatedSegments.remove(owner);
+			
 			// all segments may have been freed previously individually
 			if (segments == null || segments.isEmpty()) {
 				return;
 			}
-
+			
 			// free each segment
 			for (DefaultMemorySegment seg : segments) {
-				final byte[] buffer = seg.destroy();
-				this.freeSegments.add(buffer);
+				this.memoryPool.returnSegmentToPool(seg, stripeIndex);
 			}
-
+			
+			numReleased = segments.size();
 			segments.clear();
 		}
 		// -------------------- END CRITICAL SECTION -------------------
+		
+		this.numAvailablePages.addAndGet(numReleased);
 	}
-	
-	// ------------------------------------------------------------------------
 
+	@Override
+	public MemoryBroker getMemoryBroker(AbstractInvokable owner) {
+		final MemoryStripe stripe = this.stripes[getStripeIndex(owner)];
+		
+		synchronized (stripe) {
+			MemoryBroker broker = stripe.brokers.get(owner);
+			if (broker == null) {
+				broker = new MemoryBroker(this, owner);
+				stripe.brokers.put(owner, broker);
+			}
+			return broker;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	
+	@Override
+	public MemoryCache getMemoryCache() {
+		return this.memoryCache;
+	}
+	
 	@Override
 	public int getPageSize() {
 		return this.pageSize;
@@ -380,9 +565,91 @@ public class DefaultMemoryManager implements MemoryManager {
 	public long roundDownToPageSizeMultiple(long numBytes) {
 		return numBytes & this.roundingMask;
 	}
-	
+
+	/**
+	 * Checks whether this memory manager allocates its pages outside the java heap.
+	 *
+	 * @return True, if the pages are off-heap memory, false if they are byte arrays on the heap.
+	 */
+	public boolean isOffHeap() {
+		return this.offHeap;
+	}
+
+	/**
+	 * Checks whether this memory manager allocates its pages on demand.
+	 *
+	 * @return True, if the pages are allocated lazily, false if they were allocated upfront.
+	 */
+	public boolean isLazyAllocation() {
+		return this.lazyAllocation;
+	}
+
+	/**
+	 * Gets the number of pages that are currently held by the memory manager, either because they are
+	 * handed out to tasks, or because they are cached for reuse.
+	 *
+	 * @return The number of reserved pages.
+	 */
+	public int getNumberOfReservedPages() {
+		return getNumberOfPagesInUse() + getNumberOfCachedPages();
+	}
+
+	/**
+	 * Gets the number of pages that are currently handed out to tasks.
+	 *
+	 * @return The number of pages in use.
+	 */
+	public int getNumberOfPagesInUse() {
+		return this.totalNumPages - this.numAvailablePages.get();
+	}
+
+	/**
+	 * Gets the number of pages that are allocated, but currently not handed out to any task.
+	 *
+	 * @return The number of cached pages.
+	 */
+	public int getNumberOfCachedPages() {
+		return this.lazyAllocation ? this.memoryPool.getNumberOfCachedPages() : this.numAvailablePages.get();
+	}
+
+	/**
+	 * Gives all cached pages back to the JVM. This method has no effect, if the memory manager does not
+	 * allocate its pages lazily, because in that case the pages are never given back.
+	 *
+	 * @return The number of pages that were given back.
+	 */
+	public int releaseCachedMemory() {
+		if (this.isShutDown) {
+			return 0;
+		}
+		return this.memoryPool.releaseCachedMemory();
+	}
+
+	/**
+	 * Gives the cached pages back to the JVM, if no memory has been allocated or released for the
+	 * configured idle time.
+	 */
+	private void releaseIdleMemory() {
+		final long now = System.currentTimeMillis();
+		for (MemoryStripe stripe : this.stripes) {
+			if (now - stripe.lastAccessTimestamp < this.releaseAfterIdleMillis) {
+				return;
+			}
+		}
+		
+		final int released = releaseCachedMemory();
+		if (released > 0 && LOG.isDebugEnabled()) {
+			LOG.debug("Memory manager was idle for " + this.releaseAfterIdleMillis + " msecs. Gave " +
+				released + " cached pages back to the JVM.");
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	
+	private final int getStripeIndex(AbstractInvokable owner) {
+		return (System.identityHashCode(owner) & Integer.MAX_VALUE) % this.stripes.length;
+	}
+
 	private final int getNumPages(long numBytes) {
 		if (numBytes < 0) {
 			throw new IllegalArgumentException("The number of bytes to allocate must not be negative.");
@@ -400,10 +667,10 @@ public class DefaultMemoryManager implements MemoryManager {
 		if (fraction <= 0 || fraction > 1) {
 			throw new IllegalArgumentException("The fraction of memory to allocate must within (0, 1].");
 		}
-
+		
 		return (int)(this.totalNumPages * fraction / this.numberOfSlots);
 	}
-	
+
 	// ------------------------------------------------------------------------
 	
 	private static final class DefaultMemorySegment extends MemorySegment {
@@ -415,11 +682,238 @@ public class DefaultMemoryManager implements MemoryManager {
 			this.owner = owner;
 		}
 		
-		byte[] destroy() {
-			final byte[] buffer = this.memory;
-			this.memory = null;
-			this.wrapper = null;
-			return buffer;
+		DefaultMemorySegment(AbstractInvokable owner, ByteBuffer offHeapMemory) {
+			super(offHeapMemory);
+			this.owner = owner;
+		}
+		
+		byte[] getHeapMemory() {
+			return this.memory;
+		}
+		
+		ByteBuffer getOffHeapMemory() {
+			return this.offHeapMemory;
+		}
+		
+		void destroy() {
+			free();
+		}
+	}
+
+	/**
+	 * A stripe of the memory manager. The stripe's monitor guards the bookkeeping of the pages of
+	 * the owners that are assigned to this stripe.
+	 */
+	private static final class MemoryStripe {
+		
+		private final HashMap<AbstractInvokable, Set<DefaultMemorySegment>> allocatedSegments =
+				new HashMap<AbstractInvokable, Set<DefaultMemorySegment>>();
+		
+		private final HashMap<AbstractInvokable, MemoryBroker> brokers = new HashMap<AbstractInvokable, MemoryBroker>();
+		
+		private volatile long lastAccessTimestamp = System.currentTimeMillis();
+	}
+
+	// ------------------------------------------------------------------------
+	//                    Pools for the memory of free pages
+	// ------------------------------------------------------------------------
+	
+	/**
+	 * A pool of the memory of the pages that are currently not handed out. Each stripe has a local cache
+	 * of free memory of bounded size, released memory beyond that bound goes to a pool shared by all stripes.
+	 * Requests are served from the stripe's local cache first, then from the shared pool, and finally from the
+	 * local caches of the other stripes. All caches are lock-free queues. The capacity bookkeeping happens
+	 * in the memory manager, which only requests memory for pages it has reserved.
+	 * <p>
+	 * In eager mode, the pool allocates all pages when it is created and keeps them forever. In lazy mode, the
+	 * pool allocates pages when no free memory is found and keeps at most a bounded number of released pages.
+	 *
+	 * @param <T> The type of the memory that backs the pages.
+	 */
+	private static abstract class MemoryPool<T> {
+		
+		private final ConcurrentLinkedQueue<T>[] localMemory;
+		
+		private final AtomicInteger[] localMemorySizes;
+		
+		private final ConcurrentLinkedQueue<T> sharedMemory;
+		
+		private final AtomicInteger numCachedPages;
+		
+		private final int localCacheLimit;
+		
+		private final int pageSize;
+		
+		private final boolean lazy;
+		
+		private final int maxCachedPages;
+		
+		@SuppressWarnings("unchecked")
+		MemoryPool(int numPages, int pageSize, boolean lazy, int maxCachedPages, int numStripes) {
+			this.pageSize = pageSize;
+			this.lazy = lazy;
+			this.maxCachedPages = maxCachedPages;
+			this.localCacheLimit = Math.max(1, maxCachedPages / numStripes);
+			
+			this.localMemory = new ConcurrentLinkedQueue[numStripes];
+			this.localMemorySizes = new AtomicInteger[numStripes];
+			for (int i = 0; i < numStripes; i++) {
+				this.localMemory[i] = new ConcurrentLinkedQueue<T>();
+				this.localMemorySizes[i] = new AtomicInteger();
+			}
+			this.sharedMemory = new ConcurrentLinkedQueue<T>();
+			this.numCachedPages = new AtomicInteger();
+			
+			if (!lazy) {
+				for (int i = 0; i < numPages; i++) {
+					this.sharedMemory.add(allocateMemory(pageSize));
+				}
+				this.numCachedPages.set(numPages);
+			}
+		}
+		
+		abstract T allocateMemory(int size);
+		
+		abstract DefaultMemorySegment createSegment(AbstractInvokable owner, T memory);
+		
+		abstract T getMemory(DefaultMemorySegment segment);
+		
+		DefaultMemorySegment requestSegmentFromPool(AbstractInvokable owner, int stripe) {
+			T memory;
+			while ((memory = pollCachedMemory(stripe)) == null) {
+				if (this.lazy) {
+					return createSegment(owner, allocateMemory(this.pageSize));
+				}
+				// in eager mode, the memory of a reserved page is guaranteed to be in one of the caches,
+				// possibly just being returned by a concurrent release
+				Thread.yield();
+			}
+			return createSegment(owner, memory);
+		}
+		
+		void returnSegmentToPool(DefaultMemorySegment segment, int stripe) {
+			final T memory = getMemory(segment);
+			segment.destroy();
+			
+			if (this.numCachedPages.incrementAndGet() > this.maxCachedPages) {
+				// the cache is full, give the memory back to the JVM
+				this.numCachedPages.decrementAndGet();
+				return;
+			}
+			
+			if (this.localMemorySizes[stripe].incrementAndGet() <= this.localCacheLimit) {
+				this.localMemory[stripe].add(memory);
+			} else {
+				this.localMemorySizes[stripe].decrementAndGet();
+				this.sharedMemory.add(memory);
+			}
+		}
+		
+		private T pollCachedMemory(int stripe) {
+			T memory = pollLocalMemory(stripe);
+			if (memory == null) {
+				memory = this.sharedMemory.poll();
+				
+				// steal from the other stripes
+				for (int i = 1; memory == null && i < this.localMemory.length; i++) {
+					memory = pollLocalMemory((stripe + i) % this.localMemory.length);
+				}
+			}
+			
+			if (memory != null) {
+				this.numCachedPages.decrementAndGet();
+			}
+			return memory;
+		}
+		
+		private T pollLocalMemory(int stripe) {
+			final T memory = this.localMemory[stripe].poll();
+			if (memory != null) {
+				this.localMemorySizes[stripe].decrementAndGet();
+			}
+			return memory;
+		}
+		
+		int getNumberOfCachedPages() {
+			return this.numCachedPages.get();
+		}
+		
+		int releaseCachedMemory() {
+			if (!this.lazy) {
+				return 0;
+			}
+			
+			int released = 0;
+			for (int i = 0; i < this.localMemory.length; i++) {
+				while (pollLocalMemory(i) != null) {
+					released++;
+				}
+			}
+			while (this.sharedMemory.poll() != null) {
+				released++;
+			}
+			
+			this.numCachedPages.addAndGet(-released);
+			return released;
+		}
+		
+		void clear() {
+			for (int i = 0; i < this.localMemory.length; i++) {
+				this.localMemory[i].clear();
+				this.localMemorySizes[i].set(0);
+			}
+			this.sharedMemory.clear();
+			this.numCachedPages.set(0);
+		}
+	}
+
+	/**
+	 * Memory pool that holds its pages as byte arrays on the java heap.
+	 */
+	private static final class HeapMemoryPool extends MemoryPool<byte[]> {
+		
+		HeapMemoryPool(int numPages, int pageSize, boolean lazy, int maxCachedPages, int numStripes) {
+			super(numPages, pageSize, lazy, maxCachedPages, numStripes);
+		}
+		
+		@Override
+		byte[] allocateMemory(int size) {
+			return new byte[size];
+		}
+		
+		@Override
+		DefaultMemorySegment createSegment(AbstractInvokable owner, byte[] memory) {
+			return new DefaultMemorySegment(owner, memory);
+		}
+		
+		@Override
+		byte[] getMemory(DefaultMemorySegment segment) {
+			return segment.getHeapMemory();
+		}
+	}
+
+	/**
+	 * Memory pool that holds its pages as direct byte buffers, outside the java heap.
+	 */
+	private static final class OffHeapMemoryPool extends MemoryPool<ByteBuffer> {
+		
+		OffHeapMemoryPool(int numPages, int pageSize, boolean lazy, int maxCachedPages, int numStripes) {
+			super(numPages, pageSize, lazy, maxCachedPages, numStripes);
+		}
+		
+		@Override
+		ByteBuffer allocateMemory(int size) {
+			return ByteBuffer.allocateDirect(size);
+		}
+		
+		@Override
+		DefaultMemorySegment createSegment(AbstractInvokable owner, ByteBuffer memory) {
+			return new DefaultMemorySegment(owner, memory);
+		}
+		
+		@Override
+		ByteBuffer getMemory(DefaultMemorySegment segment) {
+			return segment.getOffHeapMemory();
 		}
 	}
 }
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.memorymanager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+
+/**
+ * Rebalances managed memory between the memory consumers of one task, such as the hash tables, sorters and
+ * resettable iterators of a task chain. The memory fractions of these consumers are fixed when the plan is
+ * compiled, which frequently leaves one consumer with idle pages while another one spills.
+ * <p>
+ * Consumers register with the broker of their task (see {@link MemoryManager#getMemoryBroker(AbstractInvokable)})
+ * and offer their idle pages through {@link MemoryConsumer#lendPages(int)}. A consumer that runs short of memory
+ * borrows these pages before it starts spilling. Borrowed pages belong to the same task as the borrower's own
+ * pages, so the borrower releases them together with its own memory.
+ * <p>
+ * The exchange is one-way: pages that were handed over are never reclaimed by the lender, and the broker never
+ * asks a consumer to spill in order to free pages for another one. Consumers therefore only offer pages that
+ * they will not need again for the rest of their lifetime.
+ * <p>
+ * When a consumer requests its memory through {@link #allocatePages(int, int)}, it states the minimal amount
+ * of memory it can work with. If the memory manager cannot serve the full request, the broker collects idle
+ * pages from the other consumers and finally grants a smaller amount of memory, rather than failing. The
+ * consumer then spills earlier, instead of failing the task with a {@link MemoryAllocationException}.
+ */
+public class MemoryBroker {
+	
+	private static final Log LOG = LogFactory.getLog(MemoryBroker.class);
+	
+	private final MemoryManager memoryManager;
+	
+	private final AbstractInvokable owner;
+	
+	private final ArrayList<MemoryConsumer> consumers;
+	
+	private int numPagesExchanged;
+	
+	
+	/**
+	 * Creates a new broker for the memory of the given task.
+	 * 
+	 * @param memoryManager The memory manager that the task allocates its memory from.
+	 * @param owner The task whose memory consumers are served by this broker.
+	 */
+	public MemoryBroker(MemoryManager memoryManager, AbstractInvokable owner) {
+		if (memoryManager == null || owner == null) {
+			throw new NullPointerException();
+		}
+		
+		this.memoryManager = memoryManager;
+		this.owner = owner;
+		this.consumers = new ArrayList<MemoryConsumer>(4);
+	}
+	
+	// ------------------------------------------------------------------------
+	
+	/**
+	 * Registers a consumer, such that its idle pages can be lent to other consumers.
+	 * 
+	 * @param consumer The consumer to register.
+	 */
+	public void register(MemoryConsumer consumer) {
+		synchronized (this.consumers) {
+			if (!this.consumers.contains(consumer)) {
+				this.consumers.add(consumer);
+			}
+		}
+	}
+	
+	/**
+	 * Unregisters a consumer. The broker will not ask the consumer for pages any more.
+	 * 
+	 * @param consumer The consumer to unregister.
+	 */
+	public void unregister(MemoryConsumer consumer) {
+		synchronized (this.consumers) {
+			this.consumers.remove(consumer);
+		}
+	}
+	
+	/**
+	 * Borrows up to the given number of pages from the idle memory of the other registered consumers.
+	 * The method never blocks and never causes another consumer to spill.
+	 * 
+	 * @param borrower The consumer that borrows the pages. It is not asked to lend pages itself.
+	 * @param numPages The maximal number of pages to borrow.
+	 * @return The borrowed pages, possibly an empty list.
+	 */
+	public List<MemorySegment> borrowPages(MemoryConsumer borrower, int numPages) {
+		final ArrayList<MemorySegment> pages = new ArrayList<MemorySegment>(numPages);
+		collectIdlePages(borrower, pages, numPages);
+		return pages;
+	}
+	
+	/**
+	 * Allocates memory for a consumer of this broker's task. The broker tries to allocate {@code maxPages} pages
+	 * from the memory manager. If that is not possible, it collects idle pages from the registered consumers and
+	 * allocates the remainder from the memory manager, reducing the request down to {@code minPages}, if needed.
+	 * 
+	 * @param minPages The minimal number of pages that the consumer can work with.
+	 * @param maxPages The number of pages that the consumer would like to use.
+	 * @return A list with at least {@code minPages} and at most {@code maxPages} pages.
+	 * 
+	 * @throws MemoryAllocationException Thrown, if not even {@code minPages} pages could be obtained.
+	 */
+	public List<MemorySegment> allocatePages(int minPages, int maxPages) throws MemoryAllocationException {
+		if (minPages < 0 || maxPages < minPages) {
+			throw new IllegalArgumentException("Invalid page range: " + minPages + " to " + maxPages + " pages.");
+		}
+		
+		final ArrayList<MemorySegment> pages = new ArrayList<MemorySegment>(maxPages);
+		
+		try {
+			this.memoryManager.allocatePages(this.owner, pages, maxPages);
+			return pages;
+		}
+		catch (MemoryAllocationException maex) {
+			// fall through and try to satisfy the request with the help of the other consumers
+		}
+		
+		collectIdlePages(null, pages, maxPages);
+		
+		final int required = minPages - pages.size();
+		int request = maxPages - pages.size();
+		
+		while (request > 0) {
+			try {
+				this.memoryManager.allocatePages(this.owner, pages, request);
+				break;
+			}
+			catch (MemoryAllocationException maex) {
+				if (request <= required) {
+					this.memoryManager.release(pages);
+					throw maex;
+				}
+				request = Math.max(request / 2, required);
+			}
+		}
+		
+		if (pages.size() < maxPages && LOG.isDebugEnabled()) {
+			LOG.debug("Granting " + pages.size() + " instead of " + maxPages + " requested pages. " +
+					"The consumer will spill earlier.");
+		}
+		return pages;
+	}
+	
+	/**
+	 * Gets the total number of pages that have been moved between consumers by this broker.
+	 * 
+	 * @return The number of pages moved between consumers.
+	 */
+	public int getNumberOfExchangedPages() {
+		synchronized (this.consumers) {
+			return this.numPagesExchanged;
+		}
+	}
+	
+	// ------------------------------------------------------------------------
+	
+	private void collectIdlePages(MemoryConsumer requester, List<MemorySegment> target, int numPages) {
+		final MemoryConsumer[] candidates;
+		synchronized (this.consumers) {
+			candidates = this.consumers.toArray(new MemoryConsumer[this.consumers.size()]);
+		}
+		
+		// call the consumers outside the lock, because they synchronize internally and may in turn
+		// call the broker
+		int collected = 0;
+		for (MemoryConsumer consumer : candidates) {
+			if (collected >= numPages) {
+				break;
+			}
+			if (consumer == requester) {
+				continue;
+			}
+			
+			final List<MemorySegment> lent = consumer.lendPages(numPages - collected);
+			if (lent != null && !lent.isEmpty()) {
+				target.addAll(lent);
+				collected += lent.size();
+			}
+		}
+		
+		if (collected > 0) {
+			synchronized (this.consumers) {
+				this.numPagesExchanged += collected;
+			}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Moved " + collected + " idle pages between the memory consumers of task " + this.owner + ".");
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.memorymanager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+
+/**
+ * Keeps memory-resident data structures, such as the built hash tables of joins, alive between the tasks of
+ * independent jobs, such that a later task with an equivalent input can reuse them instead of building them again.
+ * <p>
+ * The memory of a cached entry is allocated for the cache's own owner (see {@link #getOwner()}) rather than for the
+ * task that built the entry, so that it survives the {@link MemoryManager#releaseAll(AbstractInvokable)} call at the
+ * end of that task. Idle entries are kept in least-recently-used order and are evicted when the cache exceeds its
+ * page budget, or when the memory manager runs short of pages for a task (see {@link #releasePages(int)}).
+ * <p>
+ * A task takes an entry out of the cache through {@link #checkOut(String)} and uses it exclusively. When it is done,
+ * it hands the entry back through {@link #checkIn(String, Entry)}. Entries that are checked out are neither counted
+ * against the budget nor evicted.
+ */
+public class MemoryCache {
+
+	private static final Log LOG = LogFactory.getLog(MemoryCache.class);
+
+	private final LinkedHashMap<String, Entry> entries;
+
+	private final AbstractInvokable owner;
+
+	private int maxPages;
+
+	private int numCachedPages;
+
+
+	/**
+	 * Creates a new cache that holds up to the given number of pages in idle entries.
+	 *
+	 * @param maxPages The page budget of the cache. A budget of zero disables the cache.
+	 */
+	public MemoryCache(int maxPages) {
+		if (maxPages < 0) {
+			throw new IllegalArgumentException("The page budget of the cache must not be negative.");
+		}
+
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.owner = new CacheOwner();
+		this.maxPages = maxPages;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Gets the owner under which the memory of cached entries must be allocated.
+	 *
+	 * @return The owner of the cached memory.
+	 */
+	public AbstractInvokable getOwner() {
+		return this.owner;
+	}
+
+	/**
+	 * Checks whether the cache accepts entries at all.
+	 *
+	 * @return True, if the cache has a page budget, false if it is disabled.
+	 */
+	public boolean isEnabled() {
+		synchronized (this.entries) {
+			return this.maxPages > 0;
+		}
+	}
+
+	/**
+	 * Sets the page budget of the cache, evicting idle entries if they exceed the new budget.
+	 *
+	 * @param maxPages The new page budget. A budget of zero disables the cache.
+	 */
+	public void setMaxPages(int maxPages) {
+		if (maxPages < 0) {
+			throw new IllegalArgumentException("The page budget of the cache must not be negative.");
+		}
+
+		final List<Entry> evicted;
+		synchronized (this.entries) {
+			this.maxPages = maxPages;
+			evicted = evict(this.numCachedPages - maxPages);
+		}
+		release(evicted);
+	}
+
+	/**
+	 * Takes the entry with the given key out of the cache. The caller uses the entry exclusively until it
+	 * either checks it in again, or releases it.
+	 *
+	 * @param key The key of the entry.
+	 * @return The entry, or null, if the cache holds no entry under that key.
+	 */
+	public Entry checkOut(String key) {
+		synchronized (this.entries) {
+			final Entry entry = this.entries.remove(key);
+			if (entry != null) {
+				this.numCachedPages -= entry.getNumPages();
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Hands an entry to the cache. An older entry with the same key is replaced, and idle entries are evicted
+	 * in least-recently-used order until the new entry fits into the budget. An entry that is larger than the
+	 * whole budget is not cached.
+	 *
+	 * @param key The key of the entry.
+	 * @param entry The entry, which must hold its memory for the owner of this cache.
+	 * @return True, if the entry was cached, false if the caller remains responsible for releasing it.
+	 */
+	public boolean checkIn(String key, Entry entry) {
+		if (key == null || entry == null) {
+			throw new NullPointerException();
+		}
+
+		final List<Entry> evicted;
+		synchronized (this.entries) {
+			if (entry.getNumPages() > this.maxPages) {
+				return false;
+			}
+
+			final Entry previous = this.entries.remove(key);
+			if (previous != null) {
+				this.numCachedPages -= previous.getNumPages();
+			}
+
+			evicted = evict(this.numCachedPages + entry.getNumPages() - this.maxPages);
+			if (previous != null) {
+				evicted.add(previous);
+			}
+
+			this.entries.put(key, entry);
+			this.numCachedPages += entry.getNumPages();
+		}
+		release(evicted);
+		return true;
+	}
+
+	/**
+	 * Evicts idle entries in least-recently-used order until they freed at least the given number of pages,
+	 * or until the cache is empty. The memory manager calls this method when it cannot serve an allocation.
+	 *
+	 * @param numPages The number of pages that should be freed.
+	 * @return The number of pages that were freed.
+	 */
+	public int releasePages(int numPages) {
+		final List<Entry> evicted;
+		synchronized (this.entries) {
+			evicted = evict(numPages);
+		}
+		return release(evicted);
+	}
+
+	/**
+	 * Evicts and releases all idle entries.
+	 */
+	public void clear() {
+		final List<Entry> evicted;
+		synchronized (this.entries) {
+			evicted = new ArrayList<Entry>(this.entries.values());
+			this.entries.clear();
+			this.numCachedPages = 0;
+		}
+		release(evicted);
+	}
+
+	/**
+	 * Gets the number of pages held by the idle entries of the cache.
+	 *
+	 * @return The number of cached pages.
+	 */
+	public int getNumberOfCachedPages() {
+		synchronized (this.entries) {
+			return this.numCachedPages;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private List<Entry> evict(int numPages) {
+		final ArrayList<Entry> evicted = new ArrayList<Entry>();
+		final Iterator<Map.Entry<String, Entry>> iter = this.entries.entrySet().iterator();
+
+		int freed = 0;
+		while (freed < numPages && iter.hasNext()) {
+			final Entry entry = iter.next().getValue();
+			iter.remove();
+			freed += entry.getNumPages();
+			this.numCachedPages -= entry.getNumPages();
+			evicted.add(entry);
+		}
+		return evicted;
+	}
+
+	private int release(List<Entry> evicted) {
+		// release outside the lock, as releasing returns the pages to the memory manager
+		int freed = 0;
+		for (Entry entry : evicted) {
+			freed += entry.getNumPages();
+			try {
+				entry.release();
+			}
+			catch (Throwable t) {
+				LOG.error("Error while releasing cached entry: " + t.getMessage(), t);
+			}
+		}
+		if (freed > 0 && LOG.isDebugEnabled()) {
+			LOG.debug("Evicted " + evicted.size() + " cached entries, holding " + freed + " pages.");
+		}
+		return freed;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A memory-resident data structure held by the cache.
+	 */
+	public static interface Entry {
+
+		/**
+		 * Gets the number of pages that the entry holds.
+		 *
+		 * @return The number of pages of the entry.
+		 */
+		int getNumPages();
+
+		/**
+		 * Releases all memory of the entry. The entry is not used afterwards.
+		 */
+		void release();
+	}
+
+	/**
+	 * The owner of all memory held by cached entries.
+	 */
+	private static final class CacheOwner extends AbstractInvokable {
+
+		@Override
+		public void registerInputOutput() {}
+
+		@Override
+		public void invoke() {
+			throw new UnsupportedOperationException("The memory cache owner is not a runnable task.");
+		}
+
+		@Override
+		public String toString() {
+			return "Memory Cache";
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.memorymanager;
+
+import java.util.List;
+
+import org.apache.flink.core.memory.MemorySegment;
+
+/**
+ * A component that holds managed memory pages and takes part in the page exchange of a {@link MemoryBroker}.
+ * A consumer that currently holds pages which it does not need (for example a hash table whose build side fit
+ * into a fraction of its memory) may hand them to other consumers of the same task. The consumer does not get
+ * these pages back, so it may only offer pages that it will not need again.
+ */
+public interface MemoryConsumer {
+	
+	/**
+	 * Hands over up to the given number of pages that the consumer holds but does not need any more. The
+	 * pages are removed from the consumer, which must not access or release them afterwards. The method may
+	 * be called concurrently to the consumer's regular work, from another thread.
+	 * 
+	 * @param numPages The maximal number of pages to hand over.
+	 * @return The pages handed over, possibly an empty list.
+	 */
+	List<MemorySegment> lendPages(int numPages);
+}
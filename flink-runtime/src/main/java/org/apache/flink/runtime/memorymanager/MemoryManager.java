@@ -67,6 +67,24 @@ public interface MemoryManager {
 	 */
 	void releaseAll(AbstractInvokable task);
 	
+	/**
+	 * Gets the broker that exchanges memory between the memory consumers of the given task. The broker is
+	 * created on first access and discarded when all memory of the task is released through
+	 * {@link #releaseAll(AbstractInvokable)}.
+	 * 
+	 * @param task The task whose memory broker is requested.
+	 * @return The memory broker for the task.
+	 */
+	MemoryBroker getMemoryBroker(AbstractInvokable task);
+	
+	/**
+	 * Gets the cache that keeps memory-resident data structures alive between the tasks of independent jobs.
+	 * Idle cache entries are evicted when an allocation cannot be served otherwise.
+	 * 
+	 * @return The memory cache of this memory manager.
+	 */
+	MemoryCache getMemoryCache();
+	
 	// --------------------------------------------------------------------------------------------
 	
 	/**
@@ -33,6 +33,7 @@ import org.apache.flink.runtime.util.EmptyIterator;
 import org.apache.flink.runtime.util.KeyGroupedIterator;
 import org.apache.flink.runtime.util.SingleElementIterator;
 import org.apache.flink.util.Collector;
+import org.apache.flink.util.MutableObjectIterator;
 
 public class CoGroupWithSolutionSetFirstDriver<IT1, IT2, OT> implements ResettablePactDriver<GenericCoGrouper<IT1, IT2, OT>, OT> {
 	
@@ -116,8 +117,7 @@ public class CoGroupWithSolutionSetFirstDriver<IT1, IT2, OT> implements Resettab
 	@Override
 	public void prepare() {
 		// nothing to prepare in each iteration
-		// later, if we support out-of-core operation, we need to put the code in here
-		// that brings the initial in-memory partitions into memory
+		// spilled partitions of the solution set are brought back into memory on demand in run()
 	}
 
 	@Override
@@ -130,23 +130,36 @@ public class CoGroupWithSolutionSetFirstDriver<IT1, IT2, OT> implements Resettab
 			
 		final CompactingHashTable<IT1> join = hashTable;
 		
-		final KeyGroupedIterator<IT2> probeSideInput = new KeyGroupedIterator<IT2>(taskContext.<IT2>getInput(0), probeSideSerializer, probeSideComparator);
+		MutableObjectIterator<IT2> input = taskContext.<IT2>getInput(0);
 		final SingleElementIterator<IT1> siIter = new SingleElementIterator<IT1>();
 		final Iterator<IT1> emptySolutionSide = EmptyIterator.<IT1>get();
 		
-		final CompactingHashTable<IT1>.HashTableProber<IT2> prober = join.getProber(this.probeSideComparator, this.pairComparator);
+		final CompactingHashTable<IT1>.HashTableProber<IT2> prober = join.getProber(this.probeSideComparator, this.pairComparator, this.probeSideSerializer);
 		
-		while (this.running && probeSideInput.nextKey()) {
-			IT2 current = probeSideInput.getCurrent();
+		// groups whose solution set partition is on disk are deferred and processed once per partition.
+		// the deferred records of a partition keep their order, so they are still grouped by key.
+		do {
+			final KeyGroupedIterator<IT2> probeSideInput = new KeyGroupedIterator<IT2>(input, probeSideSerializer, probeSideComparator);
 			
-			if (prober.getMatchFor(current, buildSideRecord)) {
-				siIter.set(buildSideRecord);
-				coGroupStub.coGroup(siIter, probeSideInput.getValues(), collector);
-			}
-			else {
-				coGroupStub.coGroup(emptySolutionSide, probeSideInput.getValues(), collector);
+			while (this.running && probeSideInput.nextKey()) {
+				IT2 current = probeSideInput.getCurrent();
+				
+				if (prober.isSpilled(current)) {
+					final Iterator<IT2> values = probeSideInput.getValues();
+					while (values.hasNext()) {
+						prober.defer(values.next());
+					}
+				}
+				else if (prober.getMatchFor(current, buildSideRecord)) {
+					siIter.set(buildSideRecord);
+					coGroupStub.coGroup(siIter, probeSideInput.getValues(), collector);
+				}
+				else {
+					coGroupStub.coGroup(emptySolutionSide, probeSideInput.getValues(), collector);
+				}
 			}
 		}
+		while (this.running && (input = prober.nextDeferredProbes()) != null);
 	}
 
 	@Override
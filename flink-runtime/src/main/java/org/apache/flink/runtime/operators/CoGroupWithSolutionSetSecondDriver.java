@@ -33,6 +33,7 @@ import org.apache.flink.runtime.util.EmptyIterator;
 import org.apache.flink.runtime.util.KeyGroupedIterator;
 import org.apache.flink.runtime.util.SingleElementIterator;
 import org.apache.flink.util.Collector;
+import org.apache.flink.util.MutableObjectIterator;
 
 public class CoGroupWithSolutionSetSecondDriver<IT1, IT2, OT> implements ResettablePactDriver<GenericCoGrouper<IT1, IT2, OT>, OT> {
 	
@@ -116,8 +117,7 @@ public class CoGroupWithSolutionSetSecondDriver<IT1, IT2, OT> implements Resetta
 	@Override
 	public void prepare() {
 		// nothing to prepare in each iteration
-		// later, if we support out-of-core operation, we need to put the code in here
-		// that brings the initial in-memory partitions into memory
+		// spilled partitions of the solution set are brought back into memory on demand in run()
 	}
 
 	@Override
@@ -130,23 +130,36 @@ public class CoGroupWithSolutionSetSecondDriver<IT1, IT2, OT> implements Resetta
 			
 		final CompactingHashTable<IT2> join = hashTable;
 		
-		final KeyGroupedIterator<IT1> probeSideInput = new KeyGroupedIterator<IT1>(taskContext.<IT1>getInput(0), probeSideSerializer, probeSideComparator);
+		MutableObjectIterator<IT1> input = taskContext.<IT1>getInput(0);
 		final SingleElementIterator<IT2> siIter = new SingleElementIterator<IT2>();
 		final Iterator<IT2> emptySolutionSide = EmptyIterator.<IT2>get();
 		
-		final CompactingHashTable<IT2>.HashTableProber<IT1> prober = join.getProber(this.probeSideComparator, this.pairComparator);
+		final CompactingHashTable<IT2>.HashTableProber<IT1> prober = join.getProber(this.probeSideComparator, this.pairComparator, this.probeSideSerializer);
 		
-		while (this.running && probeSideInput.nextKey()) {
-			IT1 current = probeSideInput.getCurrent();
+		// groups whose solution set partition is on disk are deferred and processed once per partition.
+		// the deferred records of a partition keep their order, so they are still grouped by key.
+		do {
+			final KeyGroupedIterator<IT1> probeSideInput = new KeyGroupedIterator<IT1>(input, probeSideSerializer, probeSideComparator);
 			
-			if (prober.getMatchFor(current, buildSideRecord)) {
-				siIter.set(buildSideRecord);
-				coGroupStub.coGroup(probeSideInput.getValues(), siIter, collector);
-			}
-			else {
-				coGroupStub.coGroup(probeSideInput.getValues(), emptySolutionSide, collector);
+			while (this.running && probeSideInput.nextKey()) {
+				IT1 current = probeSideInput.getCurrent();
+				
+				if (prober.isSpilled(current)) {
+					final Iterator<IT1> values = probeSideInput.getValues();
+					while (values.hasNext()) {
+						prober.defer(values.next());
+					}
+				}
+				else if (prober.getMatchFor(current, buildSideRecord)) {
+					siIter.set(buildSideRecord);
+					coGroupStub.coGroup(probeSideInput.getValues(), siIter, collector);
+				}
+				else {
+					coGroupStub.coGroup(probeSideInput.getValues(), emptySolutionSide, collector);
+				}
 			}
 		}
+		while (this.running && (input = prober.nextDeferredProbes()) != null);
 	}
 
 	@Override
@@ -260,10 +260,14 @@ public class DataSourceTask<OT> extends AbstractInvokable {
 				RegularPactTask.logAndThrowException(ex, this);
 			}
 		}
+		finally {
+			RegularPactTask.disableBufferTimeouts(this.eventualOutputs);
+		}
 
 		if (!this.taskCanceled) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug(getLogString("Finished data source operator"));
+				RegularPactTask.logOutputBufferStatistics(this.eventualOutputs, getEnvironment().getTaskName(), this);
 			}
 		}
 		else {
@@ -58,9 +58,13 @@ public enum DriverStrategy {
 	SORTED_REDUCE(ReduceDriver.class, null, PIPELINED, true),
 	// sorted partial reduce is the combiner for the Reduce. same function, but potentially not fully sorted
 	SORTED_PARTIAL_REDUCE(ReduceCombineDriver.class, null, MATERIALIZING, true),
+	// hashed partial reduce is a combiner for the Reduce that aggregates the records in a hash table instead of sorting them
+	HASHED_PARTIAL_REDUCE(ReduceCombineDriver.class, null, MATERIALIZING, true),
 	
 	// grouping the inputs and apply the GroupReduce function
 	SORTED_GROUP_REDUCE(GroupReduceDriver.class, null, PIPELINED, true),
+	// grouping the inputs in spilling hash tables and apply the GroupReduce function. only for combinable functions
+	HASHED_GROUP_REDUCE(HashGroupReduceDriver.class, null, FULL_DAM, true),
 	// partially grouping inputs (best effort resulting possibly in duplicates --> combiner)
 	SORTED_GROUP_COMBINE(GroupReduceCombineDriver.class, SynchronousChainedCombineDriver.class, MATERIALIZING, true),
 
@@ -79,6 +83,11 @@ public enum DriverStrategy {
 	//  cached variant of HYBRIDHASH_BUILD_SECOND, that can only be used inside of iterations
 	HYBRIDHASH_BUILD_SECOND_CACHED(BuildSecondCachedMatchDriver.class, null, MATERIALIZING, FULL_DAM, true),
 	
+	// the keys of the second input are the build side of a hybrid hash table, the first input records with a partner are forwarded
+	HYBRIDHASH_SEMI_JOIN(SemiJoinDriver.class, null, MATERIALIZING, FULL_DAM, true),
+	// the keys of the second input are the build side of a hybrid hash table, the first input records without a partner are forwarded
+	HYBRIDHASH_ANTI_JOIN(SemiJoinDriver.class, null, MATERIALIZING, FULL_DAM, true),
+	
 	// the second input is inner loop, the first input is outer loop and block-wise processed
 	NESTEDLOOP_BLOCKED_OUTER_FIRST(CrossDriver.class, null, MATERIALIZING, FULL_DAM, false),
 	// the first input is inner loop, the second input is outer loop and block-wise processed
@@ -0,0 +1,288 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.api.common.functions.AbstractFunction;
+import org.apache.flink.api.common.functions.GenericCombine;
+import org.apache.flink.api.common.functions.GenericGroupReduce;
+import org.apache.flink.api.common.functions.GenericReduce;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.memorymanager.MemoryManager;
+import org.apache.flink.runtime.operators.hash.SpillingReduceHashTable;
+import org.apache.flink.runtime.operators.util.TaskConfig;
+import org.apache.flink.util.Collector;
+
+/**
+ * GroupReduce driver for combinable GroupReduce functions that groups its input in hash tables instead of sorting it.
+ * <p>
+ * The driver aggregates the records of each key with the function's <code>combine()</code> method into a single
+ * partial aggregate, as they arrive (see {@link SpillingReduceHashTable}). Partitions of keys that do not fit into
+ * memory are spilled and aggregated afterwards. Finally, the <code>reduce()</code> method is called once per key,
+ * with the partial aggregate as the only element of the group. The order of the groups is arbitrary.
+ * <p>
+ * To aggregate two records, the driver calls <code>combine()</code> with these two records as the group. The
+ * combine method must hence emit exactly one record for each group, which holds for all combine functions that
+ * aggregate a group into one record.
+ *
+ * @see DriverStrategy#HASHED_GROUP_REDUCE
+ */
+public class HashGroupReduceDriver<IT, OT> implements PactDriver<GenericGroupReduce<IT, OT>, OT> {
+
+	private static final Log LOG = LogFactory.getLog(HashGroupReduceDriver.class);
+
+	private PactTaskContext<GenericGroupReduce<IT, OT>, OT> taskContext;
+
+	private MemoryManager memManager;
+
+	private SpillingReduceHashTable<IT> table;
+
+	private volatile boolean running;
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void setup(PactTaskContext<GenericGroupReduce<IT, OT>, OT> context) {
+		this.taskContext = context;
+		this.running = true;
+	}
+
+	@Override
+	public int getNumberOfInputs() {
+		return 1;
+	}
+
+	@Override
+	public Class<GenericGroupReduce<IT, OT>> getStubType() {
+		@SuppressWarnings("unchecked")
+		final Class<GenericGroupReduce<IT, OT>> clazz = (Class<GenericGroupReduce<IT, OT>>) (Class<?>) GenericGroupReduce.class;
+		return clazz;
+	}
+
+	@Override
+	public boolean requiresComparatorOnInput() {
+		return true;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	@Override
+	public void prepare() throws Exception {
+		final TaskConfig config = this.taskContext.getTaskConfig();
+		if (config.getDriverStrategy() != DriverStrategy.HASHED_GROUP_REDUCE) {
+			throw new Exception("Unrecognized driver strategy for hash GroupReduce driver: " + config.getDriverStrategy().name());
+		}
+
+		final GenericGroupReduce<IT, OT> stub = this.taskContext.getStub();
+		if (!(stub instanceof GenericCombine)) {
+			throw new Exception("The hash GroupReduce driver requires a combinable GroupReduce function. The function " +
+				stub.getClass().getName() + " does not implement " + GenericCombine.class.getName() + ".");
+		}
+		@SuppressWarnings("unchecked")
+		final GenericCombine<IT> combiner = (GenericCombine<IT>) stub;
+
+		final TypeSerializer<IT> serializer = this.taskContext.<IT>getInputSerializer(0).getSerializer();
+		final TypeComparator<IT> comparator = this.taskContext.getInputComparator(0);
+
+		this.memManager = this.taskContext.getMemoryManager();
+		final int numMemoryPages = this.memManager.computeNumberOfPages(config.getRelativeMemoryDriver());
+		final List<MemorySegment> memory = this.memManager.allocatePages(this.taskContext.getOwningNepheleTask(), numMemoryPages);
+
+		this.table = new SpillingReduceHashTable<IT>(serializer, comparator.duplicate(),
+			new CombiningReducer<IT>(combiner), memory, this.taskContext.getIOManager());
+	}
+
+	@Override
+	public void run() throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(this.taskContext.formatLogString("Hash GroupReducer preprocessing done. Running GroupReducer code."));
+		}
+
+		final GenericGroupReduce<IT, OT> stub = this.taskContext.getStub();
+		final Collector<OT> output = this.taskContext.getOutputCollector();
+
+		this.table.aggregate(this.taskContext.<IT>getInput(0), new Collector<IT>() {
+
+			private final SingletonIterator<IT> group = new SingletonIterator<IT>();
+
+			@Override
+			public void collect(IT record) {
+				if (!running) {
+					return;
+				}
+				this.group.set(record);
+				try {
+					stub.reduce(this.group, output);
+				}
+				catch (RuntimeException rex) {
+					throw rex;
+				}
+				catch (Exception ex) {
+					throw new RuntimeException(ex);
+				}
+			}
+
+			@Override
+			public void close() {}
+		});
+	}
+
+	@Override
+	public void cleanup() {
+		releaseMemory();
+	}
+
+	@Override
+	public void cancel() {
+		this.running = false;
+		releaseMemory();
+	}
+
+	private void releaseMemory() {
+		if (this.table != null) {
+			this.memManager.release(this.table.close());
+			this.table = null;
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Aggregates two records with the combine method of a GroupReduce function, which is called with the two
+	 * records as the group and must emit exactly one record.
+	 */
+	private static final class CombiningReducer<T> extends AbstractFunction implements GenericReduce<T>, Collector<T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final GenericCombine<T> combiner;
+
+		private final PairIterator<T> pair = new PairIterator<T>();
+
+		private T result;
+
+		private int numResults;
+
+		private CombiningReducer(GenericCombine<T> combiner) {
+			this.combiner = combiner;
+		}
+
+		@Override
+		public T reduce(T value1, T value2) throws Exception {
+			this.pair.set(value1, value2);
+			this.result = null;
+			this.numResults = 0;
+
+			this.combiner.combine(this.pair, this);
+
+			if (this.numResults != 1) {
+				throw new Exception("The combine method of a GroupReduce function that is grouped in hash tables must " +
+					"emit exactly one record per group, but " + this.combiner.getClass().getName() + " emitted " +
+					this.numResults + " records.");
+			}
+			return this.result;
+		}
+
+		@Override
+		public void collect(T record) {
+			// the table serializes the result right away, so the record may well be one of the reduced records
+			this.result = record;
+			this.numResults++;
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	private static final class PairIterator<T> implements Iterator<T> {
+
+		private T first;
+
+		private T second;
+
+		private int position;
+
+		private void set(T first, T second) {
+			this.first = first;
+			this.second = second;
+			this.position = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < 2;
+		}
+
+		@Override
+		public T next() {
+			switch (this.position++) {
+			case 0:
+				return this.first;
+			case 1:
+				return this.second;
+			default:
+				throw new NoSuchElementException();
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final class SingletonIterator<T> implements Iterator<T> {
+
+		private T element;
+
+		private boolean available;
+
+		private void set(T element) {
+			this.element = element;
+			this.available = true;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.available;
+		}
+
+		@Override
+		public T next() {
+			if (!this.available) {
+				throw new NoSuchElementException();
+			}
+			this.available = false;
+			return this.element;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -38,6 +38,8 @@ public class JoinWithSolutionSetFirstDriver<IT1, IT2, OT> implements ResettableP
 	
 	private CompactingHashTable<IT1> hashTable;
 	
+	private TypeSerializer<IT2> probeSideSerializer;
+	
 	private TypeComparator<IT2> probeSideComparator;
 	
 	private TypePairComparator<IT2, IT1> pairComparator;
@@ -103,7 +105,7 @@ public class JoinWithSolutionSetFirstDriver<IT1, IT2, OT> implements ResettableP
 		ClassLoader classLoader = taskContext.getUserCodeClassLoader();
 		
 		TypeSerializer<IT1> solutionSetSerializer = this.hashTable.getBuildSideSerializer();
-		TypeSerializer<IT2> probeSideSerializer = taskContext.<IT2>getInputSerializer(0).getSerializer();
+		this.probeSideSerializer = taskContext.<IT2>getInputSerializer(0).getSerializer();
 		
 		TypeComparatorFactory<IT2> probeSideComparatorFactory = config.getDriverComparator(0, classLoader);
 		TypeComparator<IT1> solutionSetComparator = this.hashTable.getBuildSideComparator().duplicate();
@@ -119,8 +121,7 @@ public class JoinWithSolutionSetFirstDriver<IT1, IT2, OT> implements ResettableP
 	@Override
 	public void prepare() {
 		// nothing to prepare in each iteration
-		// later, if we support out-of-core operation, we need to put the code in here
-		// that brings the initial in-memory partitions into memory
+		// spilled partitions of the solution set are brought back into memory on demand in run()
 	}
 
 	@Override
@@ -130,19 +131,27 @@ public class JoinWithSolutionSetFirstDriver<IT1, IT2, OT> implements ResettableP
 		final Collector<OT> collector = taskContext.getOutputCollector();
 		
 		IT1 buildSideRecord = this.solutionSideRecord;
-		IT2 probeSideRecord = this.probeSideRecord;
 			
 		final CompactingHashTable<IT1> join = hashTable;
-		final MutableObjectIterator<IT2> probeSideInput = taskContext.<IT2>getInput(0);
+		MutableObjectIterator<IT2> probeSideInput = taskContext.<IT2>getInput(0);
 			
-		final CompactingHashTable<IT1>.HashTableProber<IT2> prober = join.getProber(probeSideComparator, pairComparator);
-		while (this.running && ((probeSideRecord = probeSideInput.next(probeSideRecord)) != null)) {
-			if (prober.getMatchFor(probeSideRecord, buildSideRecord)) {
-				joinFunction.join(buildSideRecord, probeSideRecord, collector);
-			} else {
-				joinFunction.join(null, probeSideRecord, collector);
+		final CompactingHashTable<IT1>.HashTableProber<IT2> prober = join.getProber(probeSideComparator, pairComparator, probeSideSerializer);
+		
+		// records whose solution set partition is on disk are deferred and joined once per partition
+		do {
+			IT2 probeSideRecord = this.probeSideRecord;
+			while (this.running && ((probeSideRecord = probeSideInput.next(probeSideRecord)) != null)) {
+				if (prober.isSpilled(probeSideRecord)) {
+					prober.defer(probeSideRecord);
+				}
+				else if (prober.getMatchFor(probeSideRecord, buildSideRecord)) {
+					joinFunction.join(buildSideRecord, probeSideRecord, collector);
+				} else {
+					joinFunction.join(null, probeSideRecord, collector);
+				}
 			}
 		}
+		while (this.running && (probeSideInput = prober.nextDeferredProbes()) != null);
 	}
 
 	@Override
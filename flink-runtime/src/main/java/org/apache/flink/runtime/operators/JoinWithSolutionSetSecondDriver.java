@@ -38,6 +38,8 @@ public class JoinWithSolutionSetSecondDriver<IT1, IT2, OT> implements Resettable
 	
 	private CompactingHashTable<IT2> hashTable;
 	
+	private TypeSerializer<IT1> probeSideSerializer;
+	
 	private TypeComparator<IT1> probeSideComparator;
 	
 	private TypePairComparator<IT1, IT2> pairComparator;
@@ -103,7 +105,7 @@ public class JoinWithSolutionSetSecondDriver<IT1, IT2, OT> implements Resettable
 		ClassLoader classLoader = taskContext.getUserCodeClassLoader();
 		
 		TypeSerializer<IT2> solutionSetSerializer = this.hashTable.getBuildSideSerializer();
-		TypeSerializer<IT1> probeSideSerializer = taskContext.<IT1>getInputSerializer(0).getSerializer();
+		this.probeSideSerializer = taskContext.<IT1>getInputSerializer(0).getSerializer();
 		
 		TypeComparatorFactory<IT1> probeSideComparatorFactory = config.getDriverComparator(0, classLoader);
 		TypeComparator<IT2> solutionSetComparator = this.hashTable.getBuildSideComparator().duplicate();
@@ -119,8 +121,7 @@ public class JoinWithSolutionSetSecondDriver<IT1, IT2, OT> implements Resettable
 	@Override
 	public void prepare() {
 		// nothing to prepare in each iteration
-		// later, if we support out-of-core operation, we need to put the code in here
-		// that brings the initial in-memory partitions into memory
+		// spilled partitions of the solution set are brought back into memory on demand in run()
 	}
 
 	@Override
@@ -130,19 +131,27 @@ public class JoinWithSolutionSetSecondDriver<IT1, IT2, OT> implements Resettable
 		final Collector<OT> collector = taskContext.getOutputCollector();
 		
 		IT2 buildSideRecord = this.solutionSideRecord;
-		IT1 probeSideRecord = this.probeSideRecord;
 			
 		final CompactingHashTable<IT2> join = hashTable;
-		final MutableObjectIterator<IT1> probeSideInput = taskContext.getInput(0);
+		MutableObjectIterator<IT1> probeSideInput = taskContext.getInput(0);
 			
-		final CompactingHashTable<IT2>.HashTableProber<IT1> prober = join.getProber(probeSideComparator, pairComparator);
-		while (this.running && ((probeSideRecord = probeSideInput.next(probeSideRecord)) != null)) {
-			if (prober.getMatchFor(probeSideRecord, buildSideRecord)) {
-				joinFunction.join(probeSideRecord, buildSideRecord, collector);
-			} else {
-				joinFunction.join(probeSideRecord, null, collector);
+		final CompactingHashTable<IT2>.HashTableProber<IT1> prober = join.getProber(probeSideComparator, pairComparator, probeSideSerializer);
+		
+		// records whose solution set partition is on disk are deferred and joined once per partition
+		do {
+			IT1 probeSideRecord = this.probeSideRecord;
+			while (this.running && ((probeSideRecord = probeSideInput.next(probeSideRecord)) != null)) {
+				if (prober.isSpilled(probeSideRecord)) {
+					prober.defer(probeSideRecord);
+				}
+				else if (prober.getMatchFor(probeSideRecord, buildSideRecord)) {
+					joinFunction.join(probeSideRecord, buildSideRecord, collector);
+				} else {
+					joinFunction.join(probeSideRecord, null, collector);
+				}
 			}
 		}
+		while (this.running && (probeSideInput = prober.nextDeferredProbes()) != null);
 	}
 
 	@Override
@@ -22,13 +22,18 @@ package org.apache.flink.runtime.operators;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.flink.api.common.functions.GenericJoiner;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparatorFactory;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.memorymanager.MemoryCache;
 import org.apache.flink.runtime.memorymanager.MemoryManager;
 import org.apache.flink.runtime.operators.hash.BuildFirstHashMatchIterator;
+import org.apache.flink.runtime.operators.hash.BuildFirstReOpenableHashMatchIterator;
 import org.apache.flink.runtime.operators.hash.BuildSecondHashMatchIterator;
+import org.apache.flink.runtime.operators.hash.BuildSecondReOpenableHashMatchIterator;
 import org.apache.flink.runtime.operators.sort.MergeMatchIterator;
 import org.apache.flink.runtime.operators.util.JoinTaskIterator;
 import org.apache.flink.runtime.operators.util.TaskConfig;
@@ -40,7 +45,12 @@ import org.apache.flink.util.MutableObjectIterator;
  * It is provided with a JoinFunction implementation.
  * <p>
  * The MatchTask matches all pairs of records that share the same key and come from different inputs. Each pair of 
- * matching records is handed to the <code>match()</code> method of the JoinFunction.
+ * matching records is handed to the <code>match()</code> method of the JoinFunction. For outer joins, the
+ * records that find no partner are handed to the JoinFunction as well, paired with <code>null</code>.
+ * <p>
+ * If the plan marks the build side of a hybrid hash join as cacheable (see {@link TaskConfig#getBuildSideCacheKey()})
+ * and the task manager caches hash tables, the built hash table is handed to the {@link MemoryCache} after the task
+ * finished. A later task with an equivalent build side takes the table from the cache and only probes it.
  * 
  * @see GenericJoiner
  */
@@ -52,6 +62,12 @@ public class MatchDriver<IT1, IT2, OT> implements PactDriver<GenericJoiner<IT1,
 	
 	private volatile JoinTaskIterator<IT1, IT2, OT> matchIterator;		// the iterator that does the actual matching
 	
+	private String buildSideCacheKey;		// the key under which the hash table is cached, or null
+	
+	private int numHashTablePages;			// the number of pages held by a cacheable hash table
+	
+	private boolean completed;				// flag whether the probe side was consumed completely
+	
 	protected volatile boolean running;
 	
 	// ------------------------------------------------------------------------
@@ -93,6 +109,7 @@ public class MatchDriver<IT1, IT2, OT> implements PactDriver<GenericJoiner<IT1,
 		
 		// test minimum memory requirements
 		final DriverStrategy ls = config.getDriverStrategy();
+		final JoinType joinType = config.getDriverJoinType();
 		
 		final MutableObjectIterator<IT1> in1 = this.taskContext.getInput(0);
 		final MutableObjectIterator<IT2> in2 = this.taskContext.getInput(1);
@@ -108,23 +125,51 @@ public class MatchDriver<IT1, IT2, OT> implements PactDriver<GenericJoiner<IT1,
 		if (pairComparatorFactory == null) {
 			throw new Exception("Missing pair comparator factory for Match driver");
 		}
+		
+		// inner hash joins over a build side that is equivalent across jobs may use a cached hash table
+		final MemoryCache cache = memoryManager.getMemoryCache();
+		this.completed = false;
+		this.numHashTablePages = numPages;
+		this.buildSideCacheKey = joinType == JoinType.INNER && cache.isEnabled() &&
+				(ls == DriverStrategy.HYBRIDHASH_BUILD_FIRST || ls == DriverStrategy.HYBRIDHASH_BUILD_SECOND) ?
+			getBuildSideCacheKey(config, ls) : null;
+		
+		if (this.buildSideCacheKey != null && reuseCachedHashTable(cache, ls, in1, in2, serializer1, serializer2)) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(this.taskContext.formatLogString("Match task reuses a cached hash table."));
+			}
+			return;
+		}
 
 		// create and return MatchTaskIterator according to provided local strategy.
 		switch (ls) {
 		case MERGE:
 			this.matchIterator = new MergeMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
 					serializer2, comparator2, pairComparatorFactory.createComparator12(comparator1, comparator2),
-					memoryManager, ioManager, numPages, this.taskContext.getOwningNepheleTask());
+					memoryManager, ioManager, numPages, this.taskContext.getOwningNepheleTask(), joinType);
 			break;
 		case HYBRIDHASH_BUILD_FIRST:
-			this.matchIterator = new BuildFirstHashMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
-				serializer2, comparator2, pairComparatorFactory.createComparator21(comparator1, comparator2),
-				memoryManager, ioManager, this.taskContext.getOwningNepheleTask(), fractionAvailableMemory);
+			if (this.buildSideCacheKey != null) {
+				// the hash table's memory belongs to the cache, such that it survives the task
+				this.matchIterator = new BuildFirstReOpenableHashMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
+					serializer2, comparator2, pairComparatorFactory.createComparator21(comparator1, comparator2),
+					memoryManager, ioManager, cache.getOwner(), fractionAvailableMemory);
+			} else {
+				this.matchIterator = new BuildFirstHashMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
+					serializer2, comparator2, pairComparatorFactory.createComparator21(comparator1, comparator2),
+					memoryManager, ioManager, this.taskContext.getOwningNepheleTask(), fractionAvailableMemory, joinType);
+			}
 			break;
 		case HYBRIDHASH_BUILD_SECOND:
-			this.matchIterator = new BuildSecondHashMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
+			if (this.buildSideCacheKey != null) {
+				this.matchIterator = new BuildSecondReOpenableHashMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
+					serializer2, comparator2, pairComparatorFactory.createComparator12(comparator1, comparator2),
+					memoryManager, ioManager, cache.getOwner(), fractionAvailableMemory);
+			} else {
+				this.matchIterator = new BuildSecondHashMatchIterator<IT1, IT2, OT>(in1, in2, serializer1, comparator1,
 					serializer2, comparator2, pairComparatorFactory.createComparator12(comparator1, comparator2),
-					memoryManager, ioManager, this.taskContext.getOwningNepheleTask(), fractionAvailableMemory);
+					memoryManager, ioManager, this.taskContext.getOwningNepheleTask(), fractionAvailableMemory, joinType);
+			}
 			break;
 		default:
 			throw new Exception("Unsupported driver strategy for Match driver: " + ls.name());
@@ -146,14 +191,27 @@ public class MatchDriver<IT1, IT2, OT> implements PactDriver<GenericJoiner<IT1,
 		final JoinTaskIterator<IT1, IT2, OT> matchIterator = this.matchIterator;
 		
 		while (this.running && matchIterator.callWithNextKey(matchStub, collector));
+		
+		this.completed = this.running;
 	}
 
 	@Override
 	public void cleanup() throws Exception {
-		if (this.matchIterator != null) {
-			this.matchIterator.close();
-			this.matchIterator = null;
+		final JoinTaskIterator<IT1, IT2, OT> matchIterator = this.matchIterator;
+		if (matchIterator == null) {
+			return;
+		}
+		this.matchIterator = null;
+		
+		// a hash table whose probe side was consumed completely can be re-opened by a later task
+		if (this.completed && this.buildSideCacheKey != null && isBuildSideInMemory(matchIterator)) {
+			final CachedHashTable entry = new CachedHashTable(matchIterator, this.numHashTablePages,
+				this.taskContext.getUserCodeClassLoader());
+			if (this.taskContext.getMemoryManager().getMemoryCache().checkIn(this.buildSideCacheKey, entry)) {
+				return;
+			}
 		}
+		matchIterator.close();
 	}
 	
 	@Override
@@ -163,4 +221,110 @@ public class MatchDriver<IT1, IT2, OT> implements PactDriver<GenericJoiner<IT1,
 			this.matchIterator.abort();
 		}
 	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private String getBuildSideCacheKey(TaskConfig config, DriverStrategy ls) {
+		final String key = config.getBuildSideCacheKey();
+		if (key == null) {
+			return null;
+		}
+		
+		// the plan's key describes the build side's data, the subtask determines which part of it this task sees
+		final AbstractInvokable task = this.taskContext.getOwningNepheleTask();
+		return key + '|' + ls.name() + '|' + config.getDriverInputTypeDescription() + '|' +
+			task.getEnvironment().getIndexInSubtaskGroup() + '/' + task.getCurrentNumberOfSubtasks();
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private boolean reuseCachedHashTable(MemoryCache cache, DriverStrategy ls,
+			MutableObjectIterator<IT1> in1, MutableObjectIterator<IT2> in2,
+			TypeSerializer<IT1> serializer1, TypeSerializer<IT2> serializer2)
+	throws Exception
+	{
+		final CachedHashTable cached = (CachedHashTable) cache.checkOut(this.buildSideCacheKey);
+		if (cached == null) {
+			return false;
+		}
+		
+		// a table that holds the types of another job's user code must not be handed to this job's function
+		if (cached.userCodeClassLoader != this.taskContext.getUserCodeClassLoader() &&
+				!isFreeOfUserCode(this.taskContext.getTaskConfig()))
+		{
+			cached.release();
+			return false;
+		}
+		
+		this.matchIterator = (JoinTaskIterator<IT1, IT2, OT>) cached.iterator;
+		this.numHashTablePages = cached.numPages;
+		
+		// the build side input must still be consumed, such that its producer can finish
+		if (ls == DriverStrategy.HYBRIDHASH_BUILD_FIRST) {
+			discard(in1, serializer1);
+			((BuildFirstReOpenableHashMatchIterator) cached.iterator).reopenProbe(in2);
+		} else {
+			discard(in2, serializer2);
+			((BuildSecondReOpenableHashMatchIterator) cached.iterator).reopenProbe(in1);
+		}
+		return true;
+	}
+	
+	private boolean isFreeOfUserCode(TaskConfig config) {
+		// the types are free of user code, if the system class loader can resolve all of them
+		final ClassLoader cl = MatchDriver.class.getClassLoader();
+		try {
+			config.getInputSerializer(0, cl).getSerializer();
+			config.getInputSerializer(1, cl).getSerializer();
+			config.getDriverComparator(0, cl).createComparator();
+			config.getDriverComparator(1, cl).createComparator();
+			config.getPairComparatorFactory(cl);
+			return true;
+		}
+		catch (Throwable t) {
+			return false;
+		}
+	}
+	
+	private static <T> void discard(MutableObjectIterator<T> input, TypeSerializer<T> serializer) throws Exception {
+		T record = serializer.createInstance();
+		while ((record = input.next(record)) != null);
+	}
+	
+	private static boolean isBuildSideInMemory(JoinTaskIterator<?, ?, ?> iterator) {
+		if (iterator instanceof BuildFirstReOpenableHashMatchIterator) {
+			return ((BuildFirstReOpenableHashMatchIterator<?, ?, ?>) iterator).isBuildSideInMemory();
+		} else if (iterator instanceof BuildSecondReOpenableHashMatchIterator) {
+			return ((BuildSecondReOpenableHashMatchIterator<?, ?, ?>) iterator).isBuildSideInMemory();
+		} else {
+			return false;
+		}
+	}
+	
+	/**
+	 * A built hash table, held by the memory cache between the tasks that probe it.
+	 */
+	private static final class CachedHashTable implements MemoryCache.Entry {
+		
+		private final JoinTaskIterator<?, ?, ?> iterator;
+		
+		private final int numPages;
+		
+		private final ClassLoader userCodeClassLoader;
+		
+		private CachedHashTable(JoinTaskIterator<?, ?, ?> iterator, int numPages, ClassLoader userCodeClassLoader) {
+			this.iterator = iterator;
+			this.numPages = numPages;
+			this.userCodeClassLoader = userCodeClassLoader;
+		}
+
+		@Override
+		public int getNumPages() {
+			return this.numPages;
+		}
+
+		@Override
+		public void release() {
+			this.iterator.close();
+		}
+	}
 }
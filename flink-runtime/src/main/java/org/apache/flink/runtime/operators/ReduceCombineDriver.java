@@ -30,10 +30,12 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.TypeSerializerFactory;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.memorymanager.MemoryManager;
+import org.apache.flink.runtime.operators.hash.ReduceHashTable;
 import org.apache.flink.runtime.operators.sort.FixedLengthRecordSorter;
 import org.apache.flink.runtime.operators.sort.InMemorySorter;
+import org.apache.flink.runtime.operators.sort.IndexedSorter;
 import org.apache.flink.runtime.operators.sort.NormalizedKeySorter;
-import org.apache.flink.runtime.operators.sort.QuickSort;
+import org.apache.flink.runtime.operators.sort.RadixSort;
 import org.apache.flink.util.Collector;
 import org.apache.flink.util.MutableObjectIterator;
 
@@ -41,6 +43,10 @@ import org.apache.flink.util.MutableObjectIterator;
  * Combine operator for Reduce functions, standalone (not chained).
  * Sorts and groups and reduces data, but never spills the sort. May produce multiple
  * partially aggregated groups.
+ * <p>
+ * With the {@link DriverStrategy#HASHED_PARTIAL_REDUCE} strategy, the combiner reduces the records in a hash table
+ * as they arrive instead of sorting them, and emits the table whenever it is full. If a full table turns out to
+ * have reduced the records too little (many distinct keys), the combiner sorts the rest of its input instead.
  * 
  * @param <T> The data type consumed and produced by the combiner.
  */
@@ -51,6 +57,9 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 	/** Fix length records with a length below this threshold will be in-place sorted, if possible. */
 	private static final int THRESHOLD_FOR_IN_PLACE_SORTING = 32;
 	
+	/** A full hash table must have reduced the records it consumed at least by this factor to be kept. */
+	private static final int MIN_HASH_REDUCTION_FACTOR = 2;
+	
 	
 	private PactTaskContext<GenericReduce<T>, T> taskContext;
 
@@ -67,7 +76,9 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 	
 	private InMemorySorter<T> sorter;
 	
-	private QuickSort sortAlgo = new QuickSort();
+	private ReduceHashTable<T> table;
+	
+	private IndexedSorter sortAlgo = new RadixSort();
 	
 	
 	private boolean running;
@@ -99,8 +110,9 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 
 	@Override
 	public void prepare() throws Exception {
-		if (this.taskContext.getTaskConfig().getDriverStrategy() != DriverStrategy.SORTED_PARTIAL_REDUCE) {
-			throw new Exception("Invalid strategy " + this.taskContext.getTaskConfig().getDriverStrategy() + " for reduce combiner.");
+		final DriverStrategy strategy = this.taskContext.getTaskConfig().getDriverStrategy();
+		if (strategy != DriverStrategy.SORTED_PARTIAL_REDUCE && strategy != DriverStrategy.HASHED_PARTIAL_REDUCE) {
+			throw new Exception("Invalid strategy " + strategy + " for reduce combiner.");
 		}
 		
 		this.memManager = this.taskContext.getMemoryManager();
@@ -117,13 +129,21 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 
 		final List<MemorySegment> memory = this.memManager.allocatePages(this.taskContext.getOwningNepheleTask(), numMemoryPages);
 
+		if (strategy == DriverStrategy.HASHED_PARTIAL_REDUCE) {
+			this.table = new ReduceHashTable<T>(this.serializer, this.comparator.duplicate(), this.reducer, memory);
+		} else {
+			this.sorter = createSorter(memory);
+		}
+	}
+	
+	private InMemorySorter<T> createSorter(List<MemorySegment> memory) {
 		// instantiate a fix-length in-place sorter, if possible, otherwise the out-of-place sorter
 		if (this.comparator.supportsSerializationWithKeyNormalization() &&
 			this.serializer.getLength() > 0 && this.serializer.getLength() <= THRESHOLD_FOR_IN_PLACE_SORTING)
 		{
-			this.sorter = new FixedLengthRecordSorter<T>(this.serializer, this.comparator, memory);
+			return new FixedLengthRecordSorter<T>(this.serializer, this.comparator, memory);
 		} else {
-			this.sorter = new NormalizedKeySorter<T>(this.serializer, this.comparator.duplicate(), memory);
+			return new NormalizedKeySorter<T>(this.serializer, this.comparator.duplicate(), memory);
 		}
 	}
 
@@ -138,6 +158,18 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 		
 		T value = serializer.createInstance();
 		
+		if (this.table != null) {
+			value = hashAndCombine(in, value);
+			if (value == null) {
+				return;
+			}
+			
+			// the hash table did not pay off, sort the remaining input
+			if (!this.sorter.write(value)) {
+				throw new IOException("Cannot write record to fresh sort buffer. Record too large.");
+			}
+		}
+		
 		while (running && (value = in.next(value)) != null) {
 			
 			// try writing to the sorter first
@@ -159,6 +191,48 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 		sortAndCombine();
 	}
 		
+	/**
+	 * Reduces the input in the hash table until the input is exhausted, or until a full table shows that the
+	 * records have too many distinct keys. In the latter case, the table's memory is handed to a sorter.
+	 * 
+	 * @return The record that did not fit into the last table, or null, if the input is exhausted.
+	 */
+	private T hashAndCombine(MutableObjectIterator<T> in, T value) throws Exception {
+		final ReduceHashTable<T> table = this.table;
+		long numRecordsInTable = 0;
+		
+		while (this.running && (value = in.next(value)) != null) {
+			if (table.processRecordWithReduce(value)) {
+				numRecordsInTable++;
+				continue;
+			}
+			
+			// the table is full, send the partial aggregates
+			final int numKeys = table.size();
+			table.emit(this.output);
+			table.reset();
+			
+			if (numRecordsInTable < ((long) numKeys) * MIN_HASH_REDUCTION_FACTOR) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Hash combiner reduced " + numRecordsInTable + " records only to " + numKeys +
+						" records. Sorting the remaining input.");
+				}
+				this.sorter = createSorter(table.close());
+				this.table = null;
+				return value;
+			}
+			
+			if (!table.processRecordWithReduce(value)) {
+				throw new IOException("Cannot write record to fresh hash table. Record too large.");
+			}
+			numRecordsInTable = 1;
+		}
+		
+		table.emit(this.output);
+		table.reset();
+		return null;
+	}
+		
 	private void sortAndCombine() throws Exception {
 		final InMemorySorter<T> sorter = this.sorter;
 
@@ -199,12 +273,22 @@ public class ReduceCombineDriver<T> implements PactDriver<GenericReduce<T>, T> {
 
 	@Override
 	public void cleanup() {
-		this.memManager.release(this.sorter.dispose());
+		releaseMemory();
 	}
 
 	@Override
 	public void cancel() {
 		this.running = false;
-		this.memManager.release(this.sorter.dispose());
+		releaseMemory();
+	}
+	
+	private void releaseMemory() {
+		if (this.table != null) {
+			this.memManager.release(this.table.close());
+			this.table = null;
+		}
+		if (this.sorter != null) {
+			this.memManager.release(this.sorter.dispose());
+		}
 	}
 }
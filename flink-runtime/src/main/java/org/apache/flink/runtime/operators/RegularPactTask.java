@@ -369,6 +369,10 @@ public class RegularPactTask<S extends Function, OT> extends AbstractInvokable i
 				final String name = this.config.getBroadcastInputName(i);
 				readAndSetBroadcastInput(i, name, this.runtimeUdfContext);
 			}
+			
+			// range partitioned outputs without a data distribution and balanced hash partitioned outputs
+			// are parameterized by a broadcast sample
+			setPartitioningSamples();
 
 			// the work goes here
 			run();
@@ -376,11 +380,13 @@ public class RegularPactTask<S extends Function, OT> extends AbstractInvokable i
 		finally {
 			// clean up in any case!
 			closeLocalStrategiesAndCaches();
+			disableBufferTimeouts(this.eventualOutputs);
 		}
 
 		if (this.running) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug(formatLogString("Finished task code."));
+				logOutputBufferStatistics(this.eventualOutputs, getEnvironment().getTaskName(), this);
 			}
 		} else {
 			if (LOG.isDebugEnabled()) {
@@ -464,6 +470,26 @@ public class RegularPactTask<S extends Function, OT> extends AbstractInvokable i
 		context.setBroadcastVariable(bcVarName, collection);
 	}
 
+	protected void setPartitioningSamples() {
+		for (int i = 0; i < this.config.getNumOutputs(); i++) {
+			final String rangeSampleName = this.config.getOutputRangeSample(i);
+			final String keyGroupSampleName = this.config.getOutputKeyGroupSample(i);
+			if (rangeSampleName == null && keyGroupSampleName == null) {
+				continue;
+			}
+			
+			@SuppressWarnings("unchecked")
+			final RecordWriter<SerializationDelegate<Object>> writer = (RecordWriter<SerializationDelegate<Object>>) this.eventualOutputs.get(i);
+			final OutputEmitter<Object> emitter = (OutputEmitter<Object>) writer.getChannelSelector();
+			if (rangeSampleName != null) {
+				emitter.setRangeSample(this.runtimeUdfContext.getBroadcastVariable(rangeSampleName));
+			}
+			if (keyGroupSampleName != null) {
+				emitter.setKeyGroupSample(this.runtimeUdfContext.getBroadcastVariable(keyGroupSampleName));
+			}
+		}
+	}
+
 	protected void run() throws Exception {
 		// ---------------------------- Now, the actual processing starts ------------------------
 		// check for asynchronous canceling
@@ -1265,7 +1291,9 @@ public class RegularPactTask<S extends Function, OT> extends AbstractInvokable i
 					oe = new RecordOutputEmitter(strategy, comparator, distribution);
 				}
 
-				writers.add(new RecordWriter<Record>(task, oe));
+				final RecordWriter<Record> writer = new RecordWriter<Record>(task, oe);
+				writer.setBufferTimeout(config.getOutputBufferTimeout(i));
+				writers.add(writer);
 			}
 			if (eventualOutputs != null) {
 				eventualOutputs.addAll(writers);
@@ -1298,7 +1326,9 @@ public class RegularPactTask<S extends Function, OT> extends AbstractInvokable i
 					oe = new OutputEmitter<T>(strategy, comparator, dataDist);
 				}
 
-				writers.add(new RecordWriter<SerializationDelegate<T>>(task, oe));
+				final RecordWriter<SerializationDelegate<T>> writer = new RecordWriter<SerializationDelegate<T>>(task, oe);
+				writer.setBufferTimeout(config.getOutputBufferTimeout(i));
+				writers.add(writer);
 			}
 			if (eventualOutputs != null) {
 				eventualOutputs.addAll(writers);
@@ -1370,6 +1400,36 @@ public class RegularPactTask<S extends Function, OT> extends AbstractInvokable i
 		}
 	}
 	
+	/**
+	 * Stops the periodic flushes of the writers that have a buffer timeout. Writers whose output gate is closed
+	 * stop on their own, this releases them right away, also when the task failed.
+	 * 
+	 * @param writers The writers of the task.
+	 */
+	public static void disableBufferTimeouts(List<BufferWriter> writers) {
+		for (BufferWriter writer : writers) {
+			((RecordWriter<?>) writer).disableBufferTimeout();
+		}
+	}
+	
+	/**
+	 * Logs for each writer how many buffers it sent and how full they were, on the debug level.
+	 * 
+	 * @param writers The writers of the task.
+	 * @param taskName The name of the task, for the log message.
+	 * @param parent The task, for the log message.
+	 */
+	public static void logOutputBufferStatistics(List<BufferWriter> writers, String taskName, AbstractInvokable parent) {
+		if (LOG.isDebugEnabled()) {
+			for (int i = 0; i < writers.size(); i++) {
+				final RecordWriter<?> writer = (RecordWriter<?>) writers.get(i);
+				LOG.debug(constructLogString("Output " + i + " sent " + writer.getNumberOfSentBuffers() + " buffers, " +
+					writer.getNumberOfBuffersSentOnTimeout() + " of them on timeout, filled to " +
+					Math.round(writer.getAverageBufferFillLevel() * 100) + "% on average", taskName, parent));
+			}
+		}
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//                                  User Code LifeCycle
 	// --------------------------------------------------------------------------------------------
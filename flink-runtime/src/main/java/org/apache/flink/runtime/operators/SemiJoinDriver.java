@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.api.common.functions.AbstractFunction;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.common.typeutils.TypePairComparatorFactory;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.memorymanager.MemoryManager;
+import org.apache.flink.runtime.operators.hash.MutableHashTable;
+import org.apache.flink.runtime.operators.util.TaskConfig;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.MutableObjectIterator;
+
+/**
+ * Semi join task which is executed by a Nephele task manager. The task has two inputs and forwards records of
+ * its first input. With the {@link DriverStrategy#HYBRIDHASH_SEMI_JOIN} strategy, it forwards the records of the
+ * first input that share their key with at least one record of the second input, each of them exactly once. With
+ * the {@link DriverStrategy#HYBRIDHASH_ANTI_JOIN} strategy, it forwards the records that share their key with none.
+ * <p>
+ * The second input is the build side of a hybrid hash table and the first input is probed against it. The table
+ * spills to disk if the second input does not fit into memory. Since the records of the second input are never
+ * returned, the program should reduce them to their key fields before they are shipped to this task.
+ * 
+ * @param <IT1> The type of the first input, which is also the output type.
+ * @param <IT2> The type of the second input.
+ */
+public class SemiJoinDriver<IT1, IT2> implements PactDriver<AbstractFunction, IT1> {
+	
+	private static final Log LOG = LogFactory.getLog(SemiJoinDriver.class);
+	
+	private PactTaskContext<AbstractFunction, IT1> taskContext;
+	
+	private MutableHashTable<IT2, IT1> hashTable;
+	
+	private boolean anti;
+	
+	private volatile boolean running;
+	
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void setup(PactTaskContext<AbstractFunction, IT1> context) {
+		this.taskContext = context;
+		this.running = true;
+	}
+
+	@Override
+	public int getNumberOfInputs() {
+		return 2;
+	}
+
+	@Override
+	public Class<AbstractFunction> getStubType() {
+		// the semi join has no user code
+		return null;
+	}
+	
+	@Override
+	public boolean requiresComparatorOnInput() {
+		return true;
+	}
+
+	@Override
+	public void prepare() throws Exception {
+		final TaskConfig config = this.taskContext.getTaskConfig();
+		
+		switch (config.getDriverStrategy()) {
+		case HYBRIDHASH_SEMI_JOIN:
+			this.anti = false;
+			break;
+		case HYBRIDHASH_ANTI_JOIN:
+			this.anti = true;
+			break;
+		default:
+			throw new Exception("Unsupported driver strategy for semi join driver: " + config.getDriverStrategy().name());
+		}
+		
+		// obtain task manager's memory manager and I/O manager
+		final MemoryManager memoryManager = this.taskContext.getMemoryManager();
+		final IOManager ioManager = this.taskContext.getIOManager();
+		final int numPages = memoryManager.computeNumberOfPages(config.getRelativeMemoryDriver());
+		
+		final TypeSerializer<IT1> serializer1 = this.taskContext.<IT1>getInputSerializer(0).getSerializer();
+		final TypeSerializer<IT2> serializer2 = this.taskContext.<IT2>getInputSerializer(1).getSerializer();
+		final TypeComparator<IT1> comparator1 = this.taskContext.getInputComparator(0);
+		final TypeComparator<IT2> comparator2 = this.taskContext.getInputComparator(1);
+		
+		final TypePairComparatorFactory<IT1, IT2> pairComparatorFactory = config.getPairComparatorFactory(
+				this.taskContext.getUserCodeClassLoader());
+		if (pairComparatorFactory == null) {
+			throw new Exception("Missing pair comparator factory for semi join driver");
+		}
+		
+		// if the memory is short, work with less memory and spill earlier, rather than failing
+		final List<MemorySegment> memory = memoryManager.getMemoryBroker(this.taskContext.getOwningNepheleTask())
+			.allocatePages(Math.min(numPages, MutableHashTable.MIN_NUM_MEMORY_SEGMENTS), numPages);
+		
+		this.hashTable = new MutableHashTable<IT2, IT1>(serializer2, serializer1, comparator2, comparator1,
+				pairComparatorFactory.createComparator12(comparator1, comparator2), memory, ioManager);
+		this.hashTable.setMemoryBroker(memoryManager.getMemoryBroker(this.taskContext.getOwningNepheleTask()));
+		
+		// the anti join needs the probe records without partner, which the table returns like for an outer join.
+		// duplicate keys on the build side must never produce a probe record twice
+		this.hashTable.setProbeSideOuterJoin(this.anti);
+		this.hashTable.setProbeSideExistenceOnly(true);
+		
+		// open the table - this builds the hash table from the second input and blocks until it is done
+		final MutableObjectIterator<IT1> in1 = this.taskContext.getInput(0);
+		final MutableObjectIterator<IT2> in2 = this.taskContext.getInput(1);
+		this.hashTable.open(in2, in1);
+		
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(this.taskContext.formatLogString((this.anti ? "Anti" : "Semi") + " join hash table ready."));
+		}
+	}
+
+	@Override
+	public void run() throws Exception {
+		final MutableHashTable<IT2, IT1> hashTable = this.hashTable;
+		final Collector<IT1> output = this.taskContext.getOutputCollector();
+		final boolean anti = this.anti;
+		
+		IT2 buildSideRecord = this.taskContext.<IT2>getInputSerializer(1).getSerializer().createInstance();
+		
+		while (this.running && hashTable.nextRecord()) {
+			final boolean hasPartner = hashTable.getBuildSideIterator().next(buildSideRecord) != null;
+			if (hasPartner != anti) {
+				output.collect(hashTable.getCurrentProbeRecord());
+			}
+		}
+	}
+
+	@Override
+	public void cleanup() throws Exception {
+		if (this.hashTable != null) {
+			this.hashTable.close();
+			this.taskContext.getMemoryManager().release(this.hashTable.getFreedMemory());
+			this.hashTable = null;
+		}
+	}
+	
+	@Override
+	public void cancel() {
+		this.running = false;
+		if (this.hashTable != null) {
+			this.hashTable.abort();
+		}
+	}
+}
@@ -74,5 +74,12 @@ public class BuildFirstReOpenableHashMatchIterator<V1, V2, O> extends BuildFirst
 	public void reopenProbe(MutableObjectIterator<V2> probeInput) throws IOException {
 		reopenHashTable.reopenProbe(probeInput);
 	}
+	
+	/**
+	 * Checks whether the build side is completely memory resident.
+	 */
+	public boolean isBuildSideInMemory() {
+		return reopenHashTable.isBuildSideInMemory();
+	}
 
 }
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.List;
 
 import org.apache.flink.api.common.functions.GenericJoiner;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
@@ -58,6 +59,8 @@ public class BuildSecondHashMatchIterator<V1, V2, O> implements JoinTaskIterator
 	
 	private final MutableObjectIterator<V2> secondInput;
 	
+	private final boolean probeSideOuterJoin;
+	
 	private volatile boolean running = true;
 	
 	// --------------------------------------------------------------------------------------------
@@ -68,6 +71,18 @@ public class BuildSecondHashMatchIterator<V1, V2, O> implements JoinTaskIterator
 			TypePairComparator<V1, V2> pairComparator,
 			MemoryManager memManager, IOManager ioManager, AbstractInvokable ownerTask, double memoryFraction)
 	throws MemoryAllocationException
+	{
+		this(firstInput, secondInput, serializer1, comparator1, serializer2, comparator2, pairComparator,
+			memManager, ioManager, ownerTask, memoryFraction, JoinType.INNER);
+	}
+	
+	public BuildSecondHashMatchIterator(MutableObjectIterator<V1> firstInput, MutableObjectIterator<V2> secondInput,
+			TypeSerializer<V1> serializer1, TypeComparator<V1> comparator1,
+			TypeSerializer<V2> serializer2, TypeComparator<V2> comparator2,
+			TypePairComparator<V1, V2> pairComparator,
+			MemoryManager memManager, IOManager ioManager, AbstractInvokable ownerTask, double memoryFraction,
+			JoinType joinType)
+	throws MemoryAllocationException
 	{		
 		this.memManager = memManager;
 		this.firstInput = firstInput;
@@ -80,6 +95,10 @@ public class BuildSecondHashMatchIterator<V1, V2, O> implements JoinTaskIterator
 		
 		this.hashJoin = getHashJoin(serializer2, comparator2, serializer1, comparator1, pairComparator,
 			memManager, ioManager, ownerTask, memoryFraction);
+		this.hashJoin.setMemoryBroker(memManager.getMemoryBroker(ownerTask));
+		this.hashJoin.setBuildSideOuterJoin(joinType.isOuterSecond());
+		this.hashJoin.setProbeSideOuterJoin(joinType.isOuterFirst());
+		this.probeSideOuterJoin = joinType.isOuterFirst();
 	}
 	
 	// --------------------------------------------------------------------------------------------
@@ -107,12 +126,19 @@ public class BuildSecondHashMatchIterator<V1, V2, O> implements JoinTaskIterator
 		{
 			// we have a next record, get the iterators to the probe and build side values
 			final MutableHashTable.HashBucketIterator<V2, V1> buildSideIterator = this.hashJoin.getBuildSideIterator();
+			final V1 probeRecord = this.hashJoin.getCurrentProbeRecord();
 			V2 nextBuildSideRecord = this.nextBuildSideObject;
 			
+			if (probeRecord == null) {
+				// outer join: the build-side records of the current table that found no partner
+				final MutableObjectIterator<V2> unmatched = this.hashJoin.getUnmatchedBuildSideIterator();
+				while (this.running && ((nextBuildSideRecord = unmatched.next(nextBuildSideRecord)) != null)) {
+					matchFunction.join(null, nextBuildSideRecord, collector);
+				}
+			}
 			// get the first build side value
-			if ((nextBuildSideRecord = buildSideIterator.next(nextBuildSideRecord)) != null) {
+			else if ((nextBuildSideRecord = buildSideIterator.next(nextBuildSideRecord)) != null) {
 				V2 tmpRec = this.tempBuildSideRecord;
-				final V1 probeRecord = this.hashJoin.getCurrentProbeRecord();
 				
 				// check if there is another build-side value
 				if ((tmpRec = buildSideIterator.next(tmpRec)) != null) {
@@ -139,6 +165,10 @@ public class BuildSecondHashMatchIterator<V1, V2, O> implements JoinTaskIterator
 					matchFunction.join(probeRecord, nextBuildSideRecord, collector);
 				}
 			}
+			else if (this.probeSideOuterJoin) {
+				// outer join: the probe-side record found no partner
+				matchFunction.join(probeRecord, null, collector);
+			}
 			return true;
 		}
 		else {
@@ -159,7 +189,10 @@ public class BuildSecondHashMatchIterator<V1, V2, O> implements JoinTaskIterator
 	throws MemoryAllocationException
 	{
 		final int numPages = memManager.computeNumberOfPages(memoryFraction);
-		final List<MemorySegment> memorySegments = memManager.allocatePages(ownerTask, numPages);
+		
+		// if the memory is short, work with less memory and spill earlier, rather than failing
+		final List<MemorySegment> memorySegments = memManager.getMemoryBroker(ownerTask).allocatePages(
+			Math.min(numPages, MutableHashTable.MIN_NUM_MEMORY_SEGMENTS), numPages);
 		return new MutableHashTable<BT, PT>(buildSideSerializer, probeSideSerializer, buildSideComparator, probeSideComparator, pairComparator, memorySegments, ioManager);
 	}
 	
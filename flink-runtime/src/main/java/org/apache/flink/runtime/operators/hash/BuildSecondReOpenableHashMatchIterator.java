@@ -73,5 +73,12 @@ public class BuildSecondReOpenableHashMatchIterator<V1, V2, O> extends BuildSeco
 	public void reopenProbe(MutableObjectIterator<V1> probeInput) throws IOException {
 		reopenHashTable.reopenProbe(probeInput);
 	}
+	
+	/**
+	 * Checks whether the build side is completely memory resident.
+	 */
+	public boolean isBuildSideInMemory() {
+		return reopenHashTable.isBuildSideInMemory();
+	}
 
 }
@@ -21,6 +21,7 @@ package org.apache.flink.runtime.operators.hash;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -30,6 +31,11 @@ import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelWriter;
+import org.apache.flink.runtime.io.disk.iomanager.Channel;
+import org.apache.flink.runtime.io.disk.iomanager.ChannelReaderInputView;
+import org.apache.flink.runtime.io.disk.iomanager.ChannelWriterOutputView;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.memorymanager.ListMemorySegmentSource;
 import org.apache.flink.runtime.util.IntArrayList;
 import org.apache.flink.runtime.util.LongArrayList;
@@ -47,7 +53,7 @@ import org.apache.flink.util.MutableObjectIterator;
  * 
  * <pre>
  * +----------------------------- Bucket x ----------------------------
- * |Partition (1 byte) | reserved (3 bytes) | element count (4 bytes) |
+ * |Partition (1 byte) | compaction epoch (1 byte) | reserved (2 bytes) | element count (4 bytes) |
  * | next-bucket-in-chain-pointer (8 bytes) |
  * |
  * |hashCode 1 (4 bytes) | hashCode 2 (4 bytes) | hashCode 3 (4 bytes) |
@@ -57,7 +63,7 @@ import org.apache.flink.util.MutableObjectIterator;
  * | ... pointer n-1 (8 bytes) | pointer n (8 bytes)
  * |
  * +---------------------------- Bucket x + 1--------------------------
- * |Partition (1 byte) | reserved (3 bytes) | element count (4 bytes) |
+ * |Partition (1 byte) | compaction epoch (1 byte) | reserved (2 bytes) | element count (4 bytes) |
  * | next-bucket-in-chain-pointer (8 bytes) |
  * |
  * |hashCode 1 (4 bytes) | hashCode 2 (4 bytes) | hashCode 3 (4 bytes) |
@@ -69,6 +75,21 @@ import org.apache.flink.util.MutableObjectIterator;
  * | ...
  * |
  * </pre>
+ * <p>
+ * If the table is given an {@link IOManager}, it does not fail when the memory is exhausted. Instead, it writes
+ * the partitions that were accessed least to disk. Records inserted into a spilled partition are appended to its file,
+ * where later records replace earlier ones with the same key. A spilled partition is read back as a whole, when
+ * it is probed. Probers that are created with a serializer for the probe side can instead defer the probe side
+ * records of spilled partitions (see {@link HashTableProber#defer(Object)}), so that each spilled partition is
+ * read only once for a whole batch of probes.
+ * <p>
+ * Updates leave the old versions of records behind as garbage. When the free memory runs low, the table starts
+ * to compact a partition that holds garbage, a few buckets at a time: every operation on the table first moves the
+ * records of the next {@value #NUM_BUCKETS_PER_COMPACTION_STEP} buckets of that partition to fresh pages, and an
+ * operation on a bucket that was not moved yet moves that bucket first. The compaction epoch in the bucket header
+ * tells whether a bucket of the partition was already moved. A partition is only compacted in one go, if the memory
+ * runs out before its incremental compaction is done.
+ * 
  * @param <T> Record type stored in hash table
  */
 public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
@@ -135,6 +156,12 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	 */
 	private static final int HEADER_PARTITION_OFFSET = 0;
 	
+	/**
+	 * Offset of the field in the bucket header that holds the compaction epoch of the bucket's partition
+	 * at the time the bucket's records were last moved.
+	 */
+	private static final int HEADER_EPOCH_OFFSET = 1;
+	
 	/**
 	 * Offset of the field in the bucket header indicating the bucket's status (spilled or in-memory).
 	 */
@@ -151,6 +178,21 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	 */
 	private static final long BUCKET_FORWARD_POINTER_NOT_SET = ~0x0L;
 	
+	// ------------------------------------ Spilling ------------------------------------
+	
+	/**
+	 * The number of buffers used to read a spilled partition or a batch of deferred probes back from disk.
+	 */
+	private static final int NUM_READ_BUFFERS = 2;
+	
+	// ----------------------------------- Compaction -----------------------------------
+	
+	/**
+	 * The number of buckets whose records are moved by every operation on the table while a partition is
+	 * compacted incrementally. It bounds the extra work of a single insert, update or lookup.
+	 */
+	private static final int NUM_BUCKETS_PER_COMPACTION_STEP = 4;
+	
 	// ------------------------------------------------------------------------
 	//                              Members
 	// ------------------------------------------------------------------------
@@ -197,10 +239,32 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	private MemorySegment[] buckets;
 	
 	/**
-	 * temporary storage for partition compaction (always attempts to allocate as many segments as the largest partition)
+	 * temporary storage for partition compaction (always attempts to allocate as many segments as the largest partition).
+	 * While a partition is compacted incrementally, this holds the partition's old pages.
 	 */
 	private InMemoryPartition<T> compactionMemory;
 	
+	/**
+	 * The partition that is compacted incrementally, or -1, if there is none.
+	 */
+	private int compactingPartition = -1;
+	
+	/**
+	 * The next bucket of the incrementally compacted partition that is moved by a compaction step.
+	 */
+	private int nextBucketToCompact;
+	
+	/**
+	 * The current compaction epoch of each partition. A bucket whose epoch differs from its partition's
+	 * epoch still points to the old pages of the partition that is compacted incrementally.
+	 */
+	private byte[] compactionEpochs;
+	
+	/**
+	 * The instance that records are deserialized into while they are moved by the incremental compaction.
+	 */
+	private T compactionHolder;
+	
 	/**
 	 * The number of buckets in the current table. The bucket array is not necessarily fully
 	 * used, when not all buckets that would fit into the last segment are actually used.
@@ -217,6 +281,55 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	private boolean running = true;
 		
 	private int pageSizeInBits;
+	
+	// ------------------------------------------------------------------------
+	
+	/**
+	 * The I/O manager used to spill partitions, or null, if the table must keep all records in memory.
+	 */
+	private final IOManager ioManager;
+	
+	/**
+	 * The channel enumerator used to create the files for spilled partitions and deferred probes.
+	 */
+	private Channel.Enumerator currentEnumerator;
+	
+	/**
+	 * The files of the spilled partitions, indexed by partition number. The entry of a partition in memory is null.
+	 */
+	private SpillFile[] spilledPartitions;
+	
+	/**
+	 * The number of partitions that are currently spilled.
+	 */
+	private int numSpilledPartitions;
+	
+	/**
+	 * The number of accesses to each partition, halved whenever a partition is spilled. The partition
+	 * with the lowest count is the next one to go to disk.
+	 */
+	private int[] accessCounts;
+	
+	/**
+	 * Partitions with a pin count greater than zero are never spilled.
+	 */
+	private int[] pinCounts;
+	
+	/**
+	 * The buffer for the file of the next spilled partition. It is reserved up front, because spilling
+	 * happens exactly when no other memory is left.
+	 */
+	private MemorySegment spillBuffer;
+	
+	/**
+	 * The probers that have deferred probe side records to files.
+	 */
+	private final ArrayList<HashTableProber<?>> deferringProbers;
+	
+	/**
+	 * The iterators over spilled files that have not been read to the end.
+	 */
+	private final ArrayList<SpillFileIterator<?>> openIterators;
 
 	// ------------------------------------------------------------------------
 	//                         Construction and Teardown
@@ -227,7 +340,27 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		this(buildSideSerializer, buildSideComparator, memorySegments, DEFAULT_RECORD_LEN);
 	}
 	
+	public CompactingHashTable(TypeSerializer<T> buildSideSerializer, TypeComparator<T> buildSideComparator, List<MemorySegment> memorySegments, IOManager ioManager)
+	{
+		this(buildSideSerializer, buildSideComparator, memorySegments, DEFAULT_RECORD_LEN, ioManager);
+	}
+	
 	public CompactingHashTable(TypeSerializer<T> buildSideSerializer, TypeComparator<T> buildSideComparator, List<MemorySegment> memorySegments, int avgRecordLen)
+	{
+		this(buildSideSerializer, buildSideComparator, memorySegments, avgRecordLen, null);
+	}
+	
+	/**
+	 * Creates a new hash table. If an I/O manager is given, the table spills its coldest partitions to disk
+	 * when the memory is exhausted. Without an I/O manager, running out of memory is an error.
+	 * 
+	 * @param buildSideSerializer The serializer for the stored records.
+	 * @param buildSideComparator The comparator for the keys of the stored records.
+	 * @param memorySegments The memory for the table.
+	 * @param avgRecordLen The estimated average record length, used if the records are of variable length.
+	 * @param ioManager The I/O manager used for spilling, or null, if the table must not spill.
+	 */
+	public CompactingHashTable(TypeSerializer<T> buildSideSerializer, TypeComparator<T> buildSideComparator, List<MemorySegment> memorySegments, int avgRecordLen, IOManager ioManager)
 	{
 		super(buildSideSerializer, buildSideComparator);
 		// some sanity checks first
@@ -261,6 +394,10 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		
 		this.partitions = new ArrayList<InMemoryPartition<T>>();
 		
+		this.ioManager = ioManager;
+		this.deferringProbers = new ArrayList<HashTableProber<?>>();
+		this.openIterators = new ArrayList<SpillFileIterator<?>>();
+		
 		// because we allow to open and close multiple times, the state is initially closed
 		this.closed.set(true);
 		// so far no partition has any MemorySegments
@@ -280,6 +417,12 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			throw new IllegalStateException("Hash Table cannot be opened, because it is currently not closed.");
 		}
 		
+		if (this.ioManager != null) {
+			// reserve the buffer for the first spilled partition
+			this.spillBuffer = getNextBuffer();
+			this.currentEnumerator = this.ioManager.createChannelEnumerator();
+		}
+		
 		// create the partitions
 		final int partitionFanOut = getPartitioningFanOutNoEstimates(this.availableMemory.size()); 
 		createPartitions(partitionFanOut);
@@ -307,6 +450,9 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		
 		LOG.debug("Closing hash table and releasing resources.");
 		
+		// close and delete the files of spilled partitions and deferred probes
+		releaseSpillFiles();
+		
 		// release the table structure
 		releaseTable();
 		
@@ -342,6 +488,8 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		if(this.closed.get()) {
 			return;
 		}
+		compactIncrementally();
+		
 		final int hashCode = hash(this.buildSideComparator.hash(record));
 		final int posHashCode = hashCode % this.numBuckets;
 		
@@ -352,53 +500,37 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		
 		// get the basic characteristics of the bucket
 		final int partitionNumber = bucket.get(bucketInSegmentPos + HEADER_PARTITION_OFFSET);
-		InMemoryPartition<T> partition = this.partitions.get(partitionNumber);
-		
-		
-		long pointer;
-		try {
-			pointer = partition.appendRecord(record);
-			if((pointer >> this.pageSizeInBits) > this.compactionMemory.getBlockCount()) {
-				this.compactionMemory.allocateSegments((int)(pointer >> this.pageSizeInBits));
-			}
-		} catch (EOFException e) {
-			try {
-				compactPartition(partitionNumber);
-				// retry append
-				partition = this.partitions.get(partitionNumber); // compaction invalidates reference
-				pointer = partition.appendRecord(record);
-			} catch (EOFException ex) {
-				throw new RuntimeException("Memory ran out. Compaction failed. " + 
-											getMemoryConsumptionString() +
-											" Message: " + ex.getMessage());
-			} catch (IndexOutOfBoundsException ex) {
-				throw new RuntimeException("Memory ran out. Compaction failed. " + 
-											getMemoryConsumptionString() +
-											" Message: " + ex.getMessage());
-			}
-		} catch (IndexOutOfBoundsException e1) {
-			try {
-				compactPartition(partitionNumber);
-				// retry append
-				partition = this.partitions.get(partitionNumber); // compaction invalidates reference
-				pointer = partition.appendRecord(record);
-			} catch (EOFException ex) {
-				throw new RuntimeException("Memory ran out. Compaction failed. " + 
-											getMemoryConsumptionString() +
-											" Message: " + ex.getMessage());
-			} catch (IndexOutOfBoundsException ex) {
-				throw new RuntimeException("Memory ran out. Compaction failed. " + 
-											getMemoryConsumptionString() +
-											" Message: " + ex.getMessage());
-			}
+		if (this.numSpilledPartitions > 0 && this.spilledPartitions[partitionNumber] != null) {
+			// the partition is on disk, so the record is appended to its file
+			this.spilledPartitions[partitionNumber].write(this.buildSideSerializer, record);
+			return;
 		}
-		insertBucketEntryFromStart(partition, bucket, bucketInSegmentPos, hashCode, pointer);
+		this.accessCounts[partitionNumber]++;
+		prepareBucket(partitionNumber, bucket, bucketInSegmentPos);
+		
+		final long pointer = appendRecordOrReclaimMemory(partitionNumber, record);
+		insertBucketEntryFromStart(this.partitions.get(partitionNumber), bucket, bucketInSegmentPos, hashCode, pointer);
 	}
 	
 	
 	@Override
 	public <PT> HashTableProber<PT> getProber(TypeComparator<PT> probeSideComparator, TypePairComparator<PT, T> pairComparator) {
-		return new HashTableProber<PT>(probeSideComparator, pairComparator);
+		return new HashTableProber<PT>(probeSideComparator, pairComparator, null);
+	}
+	
+	/**
+	 * Creates a prober that can defer probe side records which hit spilled partitions.
+	 * 
+	 * @param probeSideComparator The comparator for the probe side records.
+	 * @param pairComparator The comparator between probe side and build side records.
+	 * @param probeSideSerializer The serializer used to write deferred probe side records to disk.
+	 * @return The prober.
+	 * @see HashTableProber#defer(Object)
+	 */
+	public <PT> HashTableProber<PT> getProber(TypeComparator<PT> probeSideComparator, TypePairComparator<PT, T> pairComparator,
+			TypeSerializer<PT> probeSideSerializer)
+	{
+		return new HashTableProber<PT>(probeSideComparator, pairComparator, probeSideSerializer);
 	}
 	
 	/**
@@ -422,6 +554,7 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		if(this.closed.get()) {
 			return;
 		}
+		compactIncrementally();
 		
 		final int searchHashCode = hash(this.buildSideComparator.hash(record));
 		final int posHashCode = searchHashCode % this.numBuckets;
@@ -434,7 +567,16 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		
 		// get the basic characteristics of the bucket
 		final int partitionNumber = bucket.get(bucketInSegmentOffset + HEADER_PARTITION_OFFSET);
-		InMemoryPartition<T> partition = this.partitions.get(partitionNumber);
+		if (this.numSpilledPartitions > 0 && this.spilledPartitions[partitionNumber] != null) {
+			// the partition is on disk. the record is appended to its file and replaces
+			// older records with the same key when the partition is read back
+			this.spilledPartitions[partitionNumber].write(this.buildSideSerializer, record);
+			return;
+		}
+		this.accessCounts[partitionNumber]++;
+		prepareBucket(partitionNumber, originalBucket, originalBucketOffset);
+		
+		final InMemoryPartition<T> partition = this.partitions.get(partitionNumber);
 		final MemorySegment[] overflowSegments = partition.overflowSegments;
 		
 		this.buildSideComparator.setReference(record);
@@ -442,8 +584,6 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		int countInSegment = bucket.getInt(bucketInSegmentOffset + HEADER_COUNT_OFFSET);
 		int numInSegment = 0;
 		int posInSegment = bucketInSegmentOffset + BUCKET_HEADER_LENGTH;
-		
-		long currentForwardPointer = BUCKET_FORWARD_POINTER_NOT_SET;
 
 		// loop over all segments that are involved in the bucket (original bucket plus overflow buckets)
 		while (true) {
@@ -463,56 +603,16 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 					// deserialize the key to check whether it is really equal, or whether we had only a hash collision
 					try {
 						partition.readRecordAt(pointer, tempHolder);
-						if (this.buildSideComparator.equalToReference(tempHolder)) {
-							long newPointer = partition.appendRecord(record);
-							bucket.putLong(pointerOffset, newPointer);
-							partition.setCompaction(false);
-							if((newPointer >> this.pageSizeInBits) > this.compactionMemory.getBlockCount()) {
-								this.compactionMemory.allocateSegments((int)(newPointer >> this.pageSizeInBits));
-							}
-							return;
-						}
-					} catch (EOFException e) {
-						// system is out of memory so we attempt to reclaim memory with a copy compact run
-						long newPointer;
-						try {
-							compactPartition(partition.getPartitionNumber());
-							// retry append
-							partition = this.partitions.get(partitionNumber); // compaction invalidates reference
-							newPointer = partition.appendRecord(record);
-						} catch (EOFException ex) {
-							throw new RuntimeException("Memory ran out. Compaction failed. " + 
-														getMemoryConsumptionString() +
-														" Message: " + ex.getMessage());
-						} catch (IndexOutOfBoundsException ex) {
-							throw new RuntimeException("Memory ran out. Compaction failed. " + 
-														getMemoryConsumptionString() +
-														" Message: " + ex.getMessage());
-						}
-						bucket.putLong(pointerOffset, newPointer);
-						return;
-					} catch (IndexOutOfBoundsException e) {
-						// system is out of memory so we attempt to reclaim memory with a copy compact run
-						long newPointer;
-						try {
-							compactPartition(partition.getPartitionNumber());
-							// retry append
-							partition = this.partitions.get(partitionNumber); // compaction invalidates reference
-							newPointer = partition.appendRecord(record);
-						} catch (EOFException ex) {
-							throw new RuntimeException("Memory ran out. Compaction failed. " + 
-														getMemoryConsumptionString() +
-														" Message: " + ex.getMessage());
-						} catch (IndexOutOfBoundsException ex) {
-							throw new RuntimeException("Memory ran out. Compaction failed. " + 
-														getMemoryConsumptionString() +
-														" Message: " + ex.getMessage());
-						}
-						bucket.putLong(pointerOffset, newPointer);
-						return;
 					} catch (IOException e) {
 						throw new RuntimeException("Error deserializing record from the hashtable: " + e.getMessage(), e);
-					} 
+					}
+					if (this.buildSideComparator.equalToReference(tempHolder)) {
+						final long newPointer = appendRecordOrReclaimMemory(partitionNumber, record);
+						bucket.putLong(pointerOffset, newPointer);
+						// the old record is garbage now. compaction may have replaced the partition object
+						this.partitions.get(partitionNumber).setCompaction(false);
+						return;
+					}
 				}
 				else {
 					numInSegment++;
@@ -523,12 +623,10 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			long newForwardPointer = bucket.getLong(bucketInSegmentOffset + HEADER_FORWARD_OFFSET);
 			if (newForwardPointer == BUCKET_FORWARD_POINTER_NOT_SET) {
 				// nothing found. append and insert
-				long pointer = partition.appendRecord(record);
-				//insertBucketEntryFromStart(partition, originalBucket, originalBucketOffset, searchHashCode, pointer);
-				insertBucketEntryFromSearch(partition, originalBucket, bucket, originalBucketOffset, bucketInSegmentOffset, countInSegment, currentForwardPointer, searchHashCode, pointer);
-				if((pointer >> this.pageSizeInBits) > this.compactionMemory.getBlockCount()) {
-					this.compactionMemory.allocateSegments((int)(pointer >> this.pageSizeInBits));
-				}
+				// the new entry goes to the first bucket of the chain with free space, so that overflow
+				// buckets are filled before new ones are allocated
+				final long pointer = appendRecordOrReclaimMemory(partitionNumber, record);
+				insertBucketEntryFromStart(this.partitions.get(partitionNumber), originalBucket, originalBucketOffset, searchHashCode, pointer);
 				return;
 			}
 			
@@ -538,10 +636,51 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			countInSegment = bucket.getInt(bucketInSegmentOffset + HEADER_COUNT_OFFSET);
 			posInSegment = bucketInSegmentOffset + BUCKET_HEADER_LENGTH;
 			numInSegment = 0;
-			currentForwardPointer = newForwardPointer;
 		}
 	}
 
+	/**
+	 * Appends the record to the given partition. If the memory is exhausted, the partition is compacted first.
+	 * If that does not free enough memory, cold partitions are spilled to disk until the record fits.
+	 * <p>
+	 * Compaction replaces the partition object, so callers must get the partition from the list again.
+	 * 
+	 * @param partitionNumber The partition to append the record to.
+	 * @param record The record to append.
+	 * @return The pointer to the appended record.
+	 * @throws IOException Thrown, if a partition could not be compacted or spilled.
+	 */
+	private long appendRecordOrReclaimMemory(final int partitionNumber, T record) throws IOException {
+		boolean compacted = false;
+		while (true) {
+			final InMemoryPartition<T> partition = this.partitions.get(partitionNumber); // compaction invalidates reference
+			try {
+				final long pointer = partition.appendRecord(record);
+				if(this.compactingPartition == -1 && (pointer >> this.pageSizeInBits) > this.compactionMemory.getBlockCount()) {
+					this.compactionMemory.allocateSegments((int)(pointer >> this.pageSizeInBits));
+				}
+				return pointer;
+			} catch (EOFException e) {
+				reclaimMemory(partitionNumber, compacted, e);
+			} catch (IndexOutOfBoundsException e) {
+				reclaimMemory(partitionNumber, compacted, e);
+			}
+			compacted = true;
+		}
+	}
+	
+	private void reclaimMemory(final int partitionNumber, boolean compacted, Exception cause) throws IOException {
+		if (!compacted) {
+			// system is out of memory so we attempt to reclaim memory with a copy compact run
+			compactPartition(partitionNumber);
+		}
+		else if (!spillColdestPartition(partitionNumber)) {
+			throw new RuntimeException("Memory ran out. Compaction failed. " + 
+										getMemoryConsumptionString() +
+										" Message: " + cause.getMessage());
+		}
+	}
+	
 	private final void insertBucketEntryFromStart(InMemoryPartition<T> p, MemorySegment bucket, 
 			int bucketInSegmentPos, int hashCode, long pointer)
 	throws IOException
@@ -593,7 +732,7 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			// first, see if there is space for an overflow bucket remaining in the last overflow segment
 			if (p.nextOverflowBucket == 0) {
 				// no space left in last bucket, or no bucket yet, so create an overflow segment
-				overflowSeg = getNextBuffer();
+				overflowSeg = getNextBuffer(p.getPartitionNumber());
 				overflowBucketOffset = 0;
 				overflowBucketNum = p.numOverflowSegments;
 				
@@ -639,68 +778,6 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		}
 	}
 	
-	private final void insertBucketEntryFromSearch(InMemoryPartition<T> partition, MemorySegment originalBucket, MemorySegment currentBucket, int originalBucketOffset, int currentBucketOffset, int countInCurrentBucket, long currentForwardPointer, int hashCode, long pointer) throws IOException {
-		boolean checkForResize = false;
-		if (countInCurrentBucket < NUM_ENTRIES_PER_BUCKET) {
-			// we are good in our current bucket, put the values
-			currentBucket.putInt(currentBucketOffset + BUCKET_HEADER_LENGTH + (countInCurrentBucket * HASH_CODE_LEN), hashCode);	// hash code
-			currentBucket.putLong(currentBucketOffset + BUCKET_POINTER_START_OFFSET + (countInCurrentBucket * POINTER_LEN), pointer); // pointer
-			currentBucket.putInt(currentBucketOffset + HEADER_COUNT_OFFSET, countInCurrentBucket + 1); // update count
-		} else {
-			// we need a new overflow bucket
-			MemorySegment overflowSeg;
-			final int overflowBucketNum;
-			final int overflowBucketOffset;
-			
-			// first, see if there is space for an overflow bucket remaining in the last overflow segment
-			if (partition.nextOverflowBucket == 0) {
-				// no space left in last bucket, or no bucket yet, so create an overflow segment
-				overflowSeg = getNextBuffer();
-				overflowBucketOffset = 0;
-				overflowBucketNum = partition.numOverflowSegments;
-				
-				// add the new overflow segment
-				if (partition.overflowSegments.length <= partition.numOverflowSegments) {
-					MemorySegment[] newSegsArray = new MemorySegment[partition.overflowSegments.length * 2];
-					System.arraycopy(partition.overflowSegments, 0, newSegsArray, 0, partition.overflowSegments.length);
-					partition.overflowSegments = newSegsArray;
-				}
-				partition.overflowSegments[partition.numOverflowSegments] = overflowSeg;
-				partition.numOverflowSegments++;
-				checkForResize = true;
-			} else {
-				// there is space in the last overflow segment
-				overflowBucketNum = partition.numOverflowSegments - 1;
-				overflowSeg = partition.overflowSegments[overflowBucketNum];
-				overflowBucketOffset = partition.nextOverflowBucket << NUM_INTRA_BUCKET_BITS;
-			}
-			
-			// next overflow bucket is one ahead. if the segment is full, the next will be at the beginning
-			// of a new segment
-			partition.nextOverflowBucket = (partition.nextOverflowBucket == this.bucketsPerSegmentMask ? 0 : partition.nextOverflowBucket + 1);
-			
-			// insert the new overflow bucket in the chain of buckets
-			// 1) set the old forward pointer
-			// 2) let the bucket in the main table point to this one
-			overflowSeg.putLong(overflowBucketOffset + HEADER_FORWARD_OFFSET, currentForwardPointer);
-			final long pointerToNewBucket = (((long) overflowBucketNum) << 32) | ((long) overflowBucketOffset);
-			originalBucket.putLong(originalBucketOffset + HEADER_FORWARD_OFFSET, pointerToNewBucket);
-			
-			// finally, insert the values into the overflow buckets
-			overflowSeg.putInt(overflowBucketOffset + BUCKET_HEADER_LENGTH, hashCode);	// hash code
-			overflowSeg.putLong(overflowBucketOffset + BUCKET_POINTER_START_OFFSET, pointer); // pointer
-			
-			// set the count to one
-			overflowSeg.putInt(overflowBucketOffset + HEADER_COUNT_OFFSET, 1);
-			if(checkForResize && !this.isResizing) {
-				// check if we should resize buckets
-				if(this.buckets.length <= getOverflowSegmentCount()) {
-					resizeHashTable();
-				}
-			}
-		}
-	}
-	
 	// --------------------------------------------------------------------------------------------
 	//                          Setup and Tear Down of Structures
 	// --------------------------------------------------------------------------------------------
@@ -715,6 +792,13 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			this.partitions.add(new InMemoryPartition<T>(this.buildSideSerializer, i, memSource, this.segmentSize, pageSizeInBits));
 		}
 		this.compactionMemory = new InMemoryPartition<T>(this.buildSideSerializer, -1, memSource, this.segmentSize, pageSizeInBits);
+		
+		this.spilledPartitions = new SpillFile[numPartitions];
+		this.numSpilledPartitions = 0;
+		this.accessCounts = new int[numPartitions];
+		this.pinCounts = new int[numPartitions];
+		this.compactionEpochs = new byte[numPartitions];
+		this.compactingPartition = -1;
 	}
 	
 	private void clearPartitions() {
@@ -724,6 +808,7 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		}
 		this.partitions.clear();
 		this.compactionMemory.clearAllMemory(availableMemory);
+		this.compactingPartition = -1;
 	}
 	
 	private void initTable(int numBuckets, byte numPartitions) {
@@ -744,6 +829,7 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 				
 				// initialize the header fields
 				seg.put(bucketOffset + HEADER_PARTITION_OFFSET, partition);
+				seg.put(bucketOffset + HEADER_EPOCH_OFFSET, this.compactionEpochs[partition]);
 				seg.putInt(bucketOffset + HEADER_COUNT_OFFSET, 0);
 				seg.putLong(bucketOffset + HEADER_FORWARD_OFFSET, BUCKET_FORWARD_POINTER_NOT_SET);
 			}
@@ -774,6 +860,223 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			throw new RuntimeException("Memory ran out. " + getMemoryConsumptionString());
 		}
 	}
+	
+	/**
+	 * Gets the next free buffer and spills cold partitions to disk, if no buffer is free.
+	 * 
+	 * @param protectedPartition The partition that must not be spilled, or -1.
+	 * @return The next free buffer.
+	 * @throws IOException Thrown, if a partition could not be written to disk.
+	 */
+	private final MemorySegment getNextBuffer(int protectedPartition) throws IOException {
+		while (this.availableMemory.isEmpty()) {
+			if (!spillColdestPartition(protectedPartition)) {
+				throw new RuntimeException("Memory ran out. " + getMemoryConsumptionString());
+			}
+		}
+		return getNextBuffer();
+	}
+	
+	private void releaseSpillFiles() {
+		for (SpillFileIterator<?> iterator : new ArrayList<SpillFileIterator<?>>(this.openIterators)) {
+			try {
+				iterator.close();
+			} catch (IOException e) {
+				LOG.error("Could not close the reader of a spilled hash table file: " + e.getMessage(), e);
+			}
+		}
+		this.openIterators.clear();
+		
+		for (HashTableProber<?> prober : this.deferringProbers) {
+			prober.releaseDeferredProbes();
+		}
+		this.deferringProbers.clear();
+		
+		if (this.spilledPartitions != null) {
+			for (int i = 0; i < this.spilledPartitions.length; i++) {
+				if (this.spilledPartitions[i] != null) {
+					releaseSpillFile(this.spilledPartitions[i]);
+					this.spilledPartitions[i] = null;
+				}
+			}
+		}
+		this.numSpilledPartitions = 0;
+		
+		if (this.spillBuffer != null) {
+			this.availableMemory.add(this.spillBuffer);
+			this.spillBuffer = null;
+		}
+	}
+	
+	private void releaseSpillFile(SpillFile file) {
+		try {
+			this.availableMemory.add(file.finishWriting());
+		} catch (IOException e) {
+			LOG.error("Could not close the writer of a spilled hash table file: " + e.getMessage(), e);
+		}
+		file.delete();
+	}
+
+	// --------------------------------------------------------------------------------------------
+	//                              Spilling and Loading Partitions
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Spills the partition with the lowest access count that is in memory, not pinned and not protected.
+	 * Among partitions with the same access count, the largest one is spilled.
+	 * 
+	 * @param protectedPartition The partition that must not be spilled, or -1.
+	 * @return true, if a partition was spilled, false if there was no partition to spill.
+	 * @throws IOException Thrown, if the partition could not be written to disk.
+	 */
+	private boolean spillColdestPartition(int protectedPartition) throws IOException {
+		if (this.ioManager == null || this.isResizing || this.closed.get()) {
+			return false;
+		}
+		
+		int victim = -1;
+		int victimSize = 0;
+		for (int i = 0; i < this.partitions.size(); i++) {
+			if (i == protectedPartition || i == this.compactingPartition || this.spilledPartitions[i] != null || this.pinCounts[i] > 0) {
+				continue;
+			}
+			final InMemoryPartition<T> p = this.partitions.get(i);
+			final int size = p.getBlockCount() + p.numOverflowSegments;
+			// the file of a spilled partition takes one buffer, so spilling must free at least two
+			if (size < 2) {
+				continue;
+			}
+			if (victim == -1 || this.accessCounts[i] < this.accessCounts[victim] ||
+					(this.accessCounts[i] == this.accessCounts[victim] && size > victimSize))
+			{
+				victim = i;
+				victimSize = size;
+			}
+		}
+		
+		if (victim == -1) {
+			return false;
+		}
+		spillPartition(victim);
+		return true;
+	}
+	
+	/**
+	 * Writes all records of a partition to a new file, empties the partition's buckets and releases
+	 * all of its memory.
+	 * 
+	 * @param partitionNumber The partition to spill.
+	 * @throws IOException Thrown, if the partition could not be written to disk.
+	 */
+	private void spillPartition(final int partitionNumber) throws IOException {
+		final InMemoryPartition<T> partition = this.partitions.get(partitionNumber);
+		final MemorySegment[] overflowSegments = partition.overflowSegments;
+		final int numPartitions = this.partitions.size();
+		
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Spilling hash table partition " + partitionNumber + " with " + partition.getBlockCount() + 
+				" partition blocks and " + partition.numOverflowSegments + " overflow blocks.");
+		}
+		
+		final SpillFile file = new SpillFile(this.ioManager, this.currentEnumerator.next(), this.spillBuffer, this.segmentSize);
+		this.spillBuffer = null;
+		
+		T tempHolder = this.buildSideSerializer.createInstance();
+		for (int bucket = partitionNumber; bucket < this.numBuckets; bucket += numPartitions) {
+			final MemorySegment originalBucket = this.buckets[bucket >>> this.bucketsPerSegmentBits];
+			final int originalBucketOffset = (bucket & this.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+			
+			MemorySegment segment = originalBucket;
+			int bucketOffset = originalBucketOffset;
+			
+			// loop over all segments that are involved in the bucket (original bucket plus overflow buckets)
+			while (true) {
+				final int countInSegment = segment.getInt(bucketOffset + HEADER_COUNT_OFFSET);
+				int pointerOffset = bucketOffset + BUCKET_POINTER_START_OFFSET;
+				for (int numInSegment = 0; numInSegment < countInSegment; numInSegment++) {
+					partition.readRecordAt(segment.getLong(pointerOffset), tempHolder);
+					file.write(this.buildSideSerializer, tempHolder);
+					pointerOffset += POINTER_LEN;
+				}
+				// this segment is done. check if there is another chained bucket
+				final long forwardPointer = segment.getLong(bucketOffset + HEADER_FORWARD_OFFSET);
+				if (forwardPointer == BUCKET_FORWARD_POINTER_NOT_SET) {
+					break;
+				}
+				segment = overflowSegments[(int) (forwardPointer >>> 32)];
+				bucketOffset = (int) (forwardPointer & 0xffffffff);
+			}
+			
+			// the buckets of a spilled partition stay empty until it is loaded again
+			originalBucket.putInt(originalBucketOffset + HEADER_COUNT_OFFSET, 0);
+			originalBucket.putLong(originalBucketOffset + HEADER_FORWARD_OFFSET, BUCKET_FORWARD_POINTER_NOT_SET);
+		}
+		
+		// release the overflow buckets and the record pages
+		this.availableMemory.addAll(partition.resetOverflowBuckets());
+		partition.clearAllMemory(this.availableMemory);
+		partition.resetRecordCounter();
+		partition.setCompaction(true);
+		
+		this.spilledPartitions[partitionNumber] = file;
+		this.numSpilledPartitions++;
+		
+		// age the access counts, so that partitions that were hot a long time ago can become cold
+		for (int i = 0; i < this.accessCounts.length; i++) {
+			this.accessCounts[i] >>>= 1;
+		}
+		
+		this.spillBuffer = getNextBuffer();
+	}
+	
+	/**
+	 * Reads a spilled partition back into memory. Colder partitions are spilled if the memory
+	 * does not suffice to hold it.
+	 * 
+	 * @param partitionNumber The spilled partition to load.
+	 * @throws IOException Thrown, if the partition could not be read from disk.
+	 */
+	private void loadPartition(final int partitionNumber) throws IOException {
+		final SpillFile file = this.spilledPartitions[partitionNumber];
+		this.spilledPartitions[partitionNumber] = null;
+		this.numSpilledPartitions--;
+		this.availableMemory.add(file.finishWriting());
+		
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Loading spilled hash table partition " + partitionNumber + " with " + file.getNumRecords() + " records.");
+		}
+		
+		this.pinCounts[partitionNumber]++;
+		try {
+			// the partition needs a first page to write to
+			final InMemoryPartition<T> partition = this.partitions.get(partitionNumber);
+			partition.allocateSegments(1);
+			partition.pushDownPages();
+			
+			// later records in the file replace earlier ones with the same key
+			final SpillFileIterator<T> records = new SpillFileIterator<T>(file, this.buildSideSerializer, partitionNumber);
+			T record = this.buildSideSerializer.createInstance();
+			T tempHolder = this.buildSideSerializer.createInstance();
+			while ((record = records.next(record)) != null) {
+				insertOrReplaceRecord(record, tempHolder);
+			}
+		} finally {
+			this.pinCounts[partitionNumber]--;
+		}
+	}
+	
+	/**
+	 * Gets the partition that the records with the given hash code belong to.
+	 * 
+	 * @param hashCode The hash code, as computed by {@link #hash(int)}.
+	 * @return The partition number.
+	 */
+	private int getPartitionForHashCode(int hashCode) {
+		final int posHashCode = hashCode % this.numBuckets;
+		final MemorySegment bucket = this.buckets[posHashCode >> this.bucketsPerSegmentBits];
+		final int bucketInSegmentOffset = (posHashCode & this.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+		return bucket.get(bucketInSegmentOffset + HEADER_PARTITION_OFFSET);
+	}
 
 	// --------------------------------------------------------------------------------------------
 	//                             Utility Computational Functions
@@ -914,6 +1217,8 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		final int newNumSegments = (newNumBuckets + (bucketsPerSegment-1)) / bucketsPerSegment;
 		final int additionalSegments = newNumSegments-this.buckets.length;
 		final int numPartitions = this.partitions.size();
+		// the buckets are split by moving their entries, which must all point to the current pages
+		finishIncrementalCompaction(-1);
 		if(this.availableMemory.size() < additionalSegments) {
 			for(int i = 0; i < numPartitions; i++) {
 				compactPartition(i);
@@ -947,7 +1252,9 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 					for (int k = (oldNumBuckets % bucketsPerSegment) ; k < bucketsPerSegment && bucket < this.numBuckets; k++, bucket++) {
 						bucketOffset = k * HASH_BUCKET_SIZE;	
 						// initialize the header fields
-						seg.put(bucketOffset + HEADER_PARTITION_OFFSET, assignPartition(bucket, (byte)numPartitions));
+						final byte partition = assignPartition(bucket, (byte)numPartitions);
+						seg.put(bucketOffset + HEADER_PARTITION_OFFSET, partition);
+						seg.put(bucketOffset + HEADER_EPOCH_OFFSET, this.compactionEpochs[partition]);
 						seg.putInt(bucketOffset + HEADER_COUNT_OFFSET, 0);
 						seg.putLong(bucketOffset + HEADER_FORWARD_OFFSET, BUCKET_FORWARD_POINTER_NOT_SET);
 					}
@@ -957,7 +1264,9 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 					for (int k = 0; k < bucketsPerSegment && bucket < this.numBuckets; k++, bucket++) {
 						bucketOffset = k * HASH_BUCKET_SIZE;	
 						// initialize the header fields
-						seg.put(bucketOffset + HEADER_PARTITION_OFFSET, assignPartition(bucket, (byte)numPartitions));
+						final byte partition = assignPartition(bucket, (byte)numPartitions);
+						seg.put(bucketOffset + HEADER_PARTITION_OFFSET, partition);
+						seg.put(bucketOffset + HEADER_EPOCH_OFFSET, this.compactionEpochs[partition]);
 						seg.putInt(bucketOffset + HEADER_COUNT_OFFSET, 0);
 						seg.putLong(bucketOffset + HEADER_FORWARD_OFFSET, BUCKET_FORWARD_POINTER_NOT_SET);
 					}
@@ -1085,7 +1394,12 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	 */
 	private void compactPartition(final int partitionNumber) throws IOException {
 		// do nothing if table was closed, parameter is invalid or no garbage exists
-		if(this.closed.get() || partitionNumber >= this.partitions.size() || this.partitions.get(partitionNumber).isCompacted()) {
+		if(this.closed.get() || partitionNumber >= this.partitions.size()) {
+			return;
+		}
+		// an incremental compaction holds the compaction partition and frees memory when it is done
+		finishIncrementalCompaction(partitionNumber);
+		if(this.partitions.get(partitionNumber).isCompacted()) {
 			return;
 		}
 		// release all segments owned by compaction partition
@@ -1159,19 +1473,181 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	}
 	
 	/**
-	 * Compacts partition but may not reclaim all garbage
+	 * Starts the incremental compaction of the operation's partition, if the partition holds garbage and the free
+	 * memory runs low. If the partition is compacted incrementally, the given bucket is moved to the partition's
+	 * new pages, so that the operation can read and write its records.
 	 * 
-	 * @param partitionNumber partition number
-	 * @throws IOException 
+	 * @param partitionNumber The partition of the bucket, which must be in memory.
+	 * @param bucket The memory segment of the bucket in the table.
+	 * @param bucketInSegmentOffset The offset of the bucket in the segment.
+	 * @throws IOException Thrown, if a partition could not be spilled to make room for the moved records.
 	 */
-	@SuppressWarnings("unused")
-	private void fastCompactPartition(int partitionNumber) throws IOException {
-		// stop if no garbage exists
-		if(this.partitions.get(partitionNumber).isCompacted()) {
+	private void prepareBucket(int partitionNumber, MemorySegment bucket, int bucketInSegmentOffset) throws IOException {
+		if (this.compactingPartition == -1) {
+			if (this.isResizing || this.partitions.get(partitionNumber).isCompacted() ||
+					this.availableMemory.size() >= getCompactionReserve() ||
+					(this.availableMemory.isEmpty() && this.compactionMemory.getBlockCount() == 0))
+			{
+				return;
+			}
+			startIncrementalCompaction(partitionNumber);
+		}
+		if (partitionNumber == this.compactingPartition) {
+			compactBucket(bucket, bucketInSegmentOffset, partitionNumber);
+		}
+	}
+	
+	/**
+	 * The number of free segments below which the incremental compaction of a partition starts. Every operation
+	 * during the compaction appends about one record, so the reserve must hold the records of all operations
+	 * until the compaction is done.
+	 */
+	private int getCompactionReserve() {
+		final int numSteps = this.numBuckets / this.partitions.size() / NUM_BUCKETS_PER_COMPACTION_STEP + 1;
+		return (int) (((long) numSteps * this.avgRecordLen) / this.segmentSize) + 2;
+	}
+	
+	/**
+	 * Makes the compaction partition the new partition with the given number. The old partition keeps its pages
+	 * until all of its records have been moved.
+	 * 
+	 * @param partitionNumber The partition to compact.
+	 */
+	private void startIncrementalCompaction(final int partitionNumber) {
+		final InMemoryPartition<T> partition = this.partitions.get(partitionNumber);
+		
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Starting incremental compaction of hash table partition " + partitionNumber + 
+				" with " + partition.getBlockCount() + " partition blocks.");
+		}
+		
+		this.compactionMemory.clearAllMemory(this.availableMemory);
+		this.compactionMemory.allocateSegments(1);
+		this.compactionMemory.pushDownPages();
+		this.compactionMemory.setPartitionNumber(partitionNumber);
+		this.compactionMemory.overflowSegments = partition.overflowSegments;
+		this.compactionMemory.numOverflowSegments = partition.numOverflowSegments;
+		this.compactionMemory.nextOverflowBucket = partition.nextOverflowBucket;
+		this.compactionMemory.setCompaction(true);
+		this.partitions.set(partitionNumber, this.compactionMemory);
+		
+		partition.setPartitionNumber(-1);
+		partition.overflowSegments = null;
+		partition.numOverflowSegments = 0;
+		partition.nextOverflowBucket = 0;
+		this.compactionMemory = partition;
+		
+		this.compactionEpochs[partitionNumber] ^= 1;
+		this.compactingPartition = partitionNumber;
+		this.nextBucketToCompact = partitionNumber;
+	}
+	
+	/**
+	 * Moves the records of the next few buckets of the incrementally compacted partition.
+	 * 
+	 * @throws IOException Thrown, if a partition could not be spilled to make room for the moved records.
+	 */
+	private void compactIncrementally() throws IOException {
+		if (this.compactingPartition == -1) {
 			return;
 		}
-		//TODO IMPLEMENT ME
-		return;
+		final int numPartitions = this.partitions.size();
+		for (int i = 0; i < NUM_BUCKETS_PER_COMPACTION_STEP && this.nextBucketToCompact < this.numBuckets; i++) {
+			final int bucket = this.nextBucketToCompact;
+			compactBucket(this.buckets[bucket >>> this.bucketsPerSegmentBits], (bucket & this.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS, -1);
+			this.nextBucketToCompact += numPartitions;
+		}
+		if (this.nextBucketToCompact >= this.numBuckets) {
+			finishIncrementalCompaction(-1);
+		}
+	}
+	
+	/**
+	 * Moves all remaining buckets of the incrementally compacted partition and releases its old pages.
+	 * 
+	 * @param protectedPartition The partition that must not be spilled, or -1.
+	 * @throws IOException Thrown, if a partition could not be spilled to make room for the moved records.
+	 */
+	private void finishIncrementalCompaction(int protectedPartition) throws IOException {
+		if (this.compactingPartition == -1) {
+			return;
+		}
+		final int numPartitions = this.partitions.size();
+		for (; this.nextBucketToCompact < this.numBuckets; this.nextBucketToCompact += numPartitions) {
+			final int bucket = this.nextBucketToCompact;
+			compactBucket(this.buckets[bucket >>> this.bucketsPerSegmentBits], (bucket & this.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS, protectedPartition);
+		}
+		this.compactingPartition = -1;
+		
+		// the old pages hold nothing but garbage now. try to allocate maximum segment count
+		this.compactionMemory.resetRecordCounter();
+		this.compactionMemory.clearAllMemory(this.availableMemory);
+		this.compactionMemory.allocateSegments(Math.max(getMaxPartition(), 1));
+		this.compactionMemory.resetRWViews();
+		this.compactionMemory.pushDownPages();
+	}
+	
+	/**
+	 * Moves the records of a bucket of the incrementally compacted partition and its overflow buckets from the
+	 * old pages to the new ones, unless that was already done.
+	 * 
+	 * @param originalBucket The memory segment of the bucket in the table.
+	 * @param originalBucketOffset The offset of the bucket in the segment.
+	 * @param protectedPartition The partition that must not be spilled, or -1.
+	 * @throws IOException Thrown, if a partition could not be spilled to make room for the moved records.
+	 */
+	private void compactBucket(MemorySegment originalBucket, int originalBucketOffset, int protectedPartition) throws IOException {
+		final byte epoch = this.compactionEpochs[this.compactingPartition];
+		if (originalBucket.get(originalBucketOffset + HEADER_EPOCH_OFFSET) == epoch) {
+			return;
+		}
+		final InMemoryPartition<T> partition = this.partitions.get(this.compactingPartition);
+		final MemorySegment[] overflowSegments = partition.overflowSegments;
+		if (this.compactionHolder == null) {
+			this.compactionHolder = this.buildSideSerializer.createInstance();
+		}
+		
+		MemorySegment segment = originalBucket;
+		int bucketOffset = originalBucketOffset;
+		
+		// loop over all segments that are involved in the bucket (original bucket plus overflow buckets)
+		while (true) {
+			final int countInSegment = segment.getInt(bucketOffset + HEADER_COUNT_OFFSET);
+			int pointerOffset = bucketOffset + BUCKET_POINTER_START_OFFSET;
+			for (int numInSegment = 0; numInSegment < countInSegment; numInSegment++) {
+				this.compactionMemory.readRecordAt(segment.getLong(pointerOffset), this.compactionHolder);
+				
+				long pointer;
+				while (true) {
+					try {
+						pointer = partition.appendRecord(this.compactionHolder);
+						break;
+					} catch (EOFException e) {
+						spillForCompaction(protectedPartition, e);
+					} catch (IndexOutOfBoundsException e) {
+						spillForCompaction(protectedPartition, e);
+					}
+				}
+				segment.putLong(pointerOffset, pointer);
+				pointerOffset += POINTER_LEN;
+			}
+			// this segment is done. check if there is another chained bucket
+			final long forwardPointer = segment.getLong(bucketOffset + HEADER_FORWARD_OFFSET);
+			if (forwardPointer == BUCKET_FORWARD_POINTER_NOT_SET) {
+				break;
+			}
+			segment = overflowSegments[(int) (forwardPointer >>> 32)];
+			bucketOffset = (int) (forwardPointer & 0xffffffff);
+		}
+		originalBucket.put(originalBucketOffset + HEADER_EPOCH_OFFSET, epoch);
+	}
+	
+	private void spillForCompaction(int protectedPartition, Exception cause) throws IOException {
+		if (!spillColdestPartition(protectedPartition)) {
+			throw new RuntimeException("Memory ran out. Compaction failed. " + 
+										getMemoryConsumptionString() +
+										" Message: " + cause.getMessage());
+		}
 	}
 	
 	/**
@@ -1196,7 +1672,9 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 	/**
 	 * Iterator that traverses the whole hash table once
 	 * 
-	 * If entries are inserted during iteration they may be overlooked by the iterator
+	 * If entries are inserted during iteration they may be overlooked by the iterator.
+	 * Partitions that are spilled when all buckets in memory have been read are loaded back
+	 * one after the other, which may spill partitions that were already visited.
 	 */
 	public class EntryIterator implements MutableObjectIterator<T> {
 		
@@ -1205,9 +1683,10 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		private ArrayList<T> cache; // holds full bucket including its overflow buckets
 				
 		private int currentBucketIndex = 0;
-		private int currentSegmentIndex = 0;
-		private int currentBucketOffset = 0;
-		private int bucketsPerSegment;
+		private int bucketIndexIncrement = 1; // the number of partitions, while a loaded partition is read
+		
+		private IntArrayList spilledPartitionsToRead; // null until all buckets in memory have been read
+		private int currentLoadedPartition = -1;
 		
 		private boolean done;
 		
@@ -1215,7 +1694,6 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			this.table = compactingHashTable;
 			this.cache = new ArrayList<T>(64);
 			this.done = false;
-			this.bucketsPerSegment = table.bucketsPerSegmentMask + 1;
 		}
 
 		@Override
@@ -1245,12 +1723,16 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 		 * @throws IOException
 		 */
 		private boolean fillCache() throws IOException {
-			if(currentBucketIndex >= table.numBuckets) {
+			if(currentBucketIndex >= table.numBuckets && !loadNextSpilledPartition()) {
 				return false;
 			}
-			MemorySegment bucket = table.buckets[currentSegmentIndex];
+			final int currentBucketOffset = (currentBucketIndex & table.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+			MemorySegment bucket = table.buckets[currentBucketIndex >>> table.bucketsPerSegmentBits];
 			// get the basic characteristics of the bucket
 			final int partitionNumber = bucket.get(currentBucketOffset + HEADER_PARTITION_OFFSET);
+			if(partitionNumber == table.compactingPartition) {
+				table.compactBucket(bucket, currentBucketOffset, partitionNumber);
+			}
 			final InMemoryPartition<T> partition = table.partitions.get(partitionNumber);
 			final MemorySegment[] overflowSegments = partition.overflowSegments;
 			
@@ -1285,49 +1767,113 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 				posInSegment = bucketOffset + BUCKET_POINTER_START_OFFSET;
 				numInSegment = 0;
 			}
-			currentBucketIndex++;
-			if(currentBucketIndex % bucketsPerSegment == 0) {
-				currentSegmentIndex++;
-				currentBucketOffset = 0;
-			} else {
-				currentBucketOffset += HASH_BUCKET_SIZE;
-			}
+			currentBucketIndex += bucketIndexIncrement;
 			return true;
 		}
 		
+		/**
+		 * Loads the next partition that was spilled when all buckets in memory had been read and
+		 * positions the iterator at the partition's first bucket.
+		 * 
+		 * @return true, if there was another spilled partition
+		 * @throws IOException
+		 */
+		private boolean loadNextSpilledPartition() throws IOException {
+			if(currentLoadedPartition != -1) {
+				table.pinCounts[currentLoadedPartition]--;
+				currentLoadedPartition = -1;
+			}
+			if(spilledPartitionsToRead == null) {
+				spilledPartitionsToRead = new IntArrayList(table.partitions.size());
+				for(int i = table.partitions.size() - 1; i >= 0; i--) {
+					if(table.spilledPartitions[i] != null) {
+						spilledPartitionsToRead.add(i);
+					}
+				}
+			}
+			if(spilledPartitionsToRead.isEmpty()) {
+				return false;
+			}
+			final int partitionNumber = spilledPartitionsToRead.removeInt(spilledPartitionsToRead.size()-1);
+			// the partition must stay in memory while its buckets are read
+			table.pinCounts[partitionNumber]++;
+			currentLoadedPartition = partitionNumber;
+			if(table.spilledPartitions[partitionNumber] != null) {
+				table.loadPartition(partitionNumber);
+			}
+			// the buckets of a partition are the ones with the partition number modulo the number of partitions
+			currentBucketIndex = partitionNumber;
+			bucketIndexIncrement = table.partitions.size();
+			return true;
+		}
 	}
 	
 	public final class HashTableProber<PT> extends AbstractHashTableProber<PT, T>{
 		
-		private InMemoryPartition<T> partition;
+		private final TypeSerializer<PT> probeTypeSerializer;
+		
+		private int partitionNumber;
+		
+		private MemorySegment originalBucket;
+		
+		private int originalBucketOffset;
 		
 		private MemorySegment bucket;
 		
 		private int pointerOffsetInBucket;
 		
+		private SpillFile[] deferredProbes; // files with deferred probe side records, indexed by partition number
 		
-		private HashTableProber(TypeComparator<PT> probeTypeComparator, TypePairComparator<PT, T> pairComparator)
+		private int pinnedPartition = -1; // the partition whose deferred records were returned last
+		
+		
+		private HashTableProber(TypeComparator<PT> probeTypeComparator, TypePairComparator<PT, T> pairComparator,
+				TypeSerializer<PT> probeTypeSerializer)
 		{
 			super(probeTypeComparator, pairComparator);
+			this.probeTypeSerializer = probeTypeSerializer;
 		}
 		
 		public boolean getMatchFor(PT probeSideRecord, T targetForMatch) {
 			if(closed.get()) {
 				return false;
 			}
+			try {
+				compactIncrementally();
+			} catch (IOException e) {
+				throw new RuntimeException("Error compacting the hash table: " + e.getMessage(), e);
+			}
+			
 			final int searchHashCode = hash(this.probeTypeComparator.hash(probeSideRecord));
 			
 			final int posHashCode = searchHashCode % numBuckets;
 			
 			// get the bucket for the given hash code
-			MemorySegment bucket = buckets[posHashCode >> bucketsPerSegmentBits];
-			int bucketInSegmentOffset = (posHashCode & bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+			final MemorySegment originalBucket = buckets[posHashCode >> bucketsPerSegmentBits];
+			final int originalBucketOffset = (posHashCode & bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+			MemorySegment bucket = originalBucket;
+			int bucketInSegmentOffset = originalBucketOffset;
 			
 			// get the basic characteristics of the bucket
 			final int partitionNumber = bucket.get(bucketInSegmentOffset + HEADER_PARTITION_OFFSET);
+			if (numSpilledPartitions > 0 && spilledPartitions[partitionNumber] != null) {
+				// the partition is on disk. read it back and look again, because loading may resize the table
+				try {
+					loadPartition(partitionNumber);
+				} catch (IOException e) {
+					throw new RuntimeException("Error reading spilled partition from disk: " + e.getMessage(), e);
+				}
+				return getMatchFor(probeSideRecord, targetForMatch);
+			}
+			accessCounts[partitionNumber]++;
+			try {
+				prepareBucket(partitionNumber, originalBucket, originalBucketOffset);
+			} catch (IOException e) {
+				throw new RuntimeException("Error compacting the hash table: " + e.getMessage(), e);
+			}
+			
 			final InMemoryPartition<T> p = partitions.get(partitionNumber);
 			final MemorySegment[] overflowSegments = p.overflowSegments;
-			
 			this.pairComparator.setReference(probeSideRecord);
 			
 			int countInSegment = bucket.getInt(bucketInSegmentOffset + HEADER_COUNT_OFFSET);
@@ -1354,7 +1900,9 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 							p.readRecordAt(pointer, targetForMatch);
 							
 							if (this.pairComparator.equalToReference(targetForMatch)) {
-								this.partition = p;
+								this.partitionNumber = partitionNumber;
+								this.originalBucket = originalBucket;
+								this.originalBucketOffset = originalBucketOffset;
 								this.bucket = bucket;
 								this.pointerOffsetInBucket = pointerOffset;
 								return true;
@@ -1388,46 +1936,211 @@ public class CompactingHashTable<T> extends AbstractMutableHashTable<T>{
 			if(closed.get()) {
 				return;
 			}
-			long newPointer;
-			try {
-				newPointer = this.partition.appendRecord(record);
-			} catch (EOFException e) {
-				// system is out of memory so we attempt to reclaim memory with a copy compact run
-				try {
-					int partitionNumber = this.partition.getPartitionNumber();
-					compactPartition(partitionNumber);
-					// retry append
-					this.partition = partitions.get(partitionNumber);
-					newPointer = this.partition.appendRecord(record);
-				} catch (EOFException ex) {
-					throw new RuntimeException("Memory ran out. Compaction failed. " + 
-												getMemoryConsumptionString() +
-												" Message: " + ex.getMessage());
-				} catch (IndexOutOfBoundsException ex) {
-					throw new RuntimeException("Memory ran out. Compaction failed. " + 
-												getMemoryConsumptionString() +
-												" Message: " + ex.getMessage());
+			if (spilledPartitions[this.partitionNumber] != null) {
+				// the partition was spilled after the match was found, so the record goes to its file
+				spilledPartitions[this.partitionNumber].write(buildSideSerializer, record);
+				return;
+			}
+			if (this.partitionNumber == compactingPartition) {
+				// the compaction of the partition may have started after the match was found
+				compactBucket(this.originalBucket, this.originalBucketOffset, this.partitionNumber);
+			}
+			final long newPointer = appendRecordOrReclaimMemory(this.partitionNumber, record);
+			this.bucket.putLong(this.pointerOffsetInBucket, newPointer);
+			partitions.get(this.partitionNumber).setCompaction(false);
+		}
+		
+		/**
+		 * Checks whether the given probe side record belongs to a spilled partition. Probing such
+		 * a record with {@link #getMatchFor(Object, Object)} reads the partition back from disk.
+		 * 
+		 * @param probeSideRecord The probe side record.
+		 * @return true, if the record's partition is on disk.
+		 */
+		public boolean isSpilled(PT probeSideRecord) {
+			if (numSpilledPartitions == 0 || closed.get()) {
+				return false;
+			}
+			return spilledPartitions[getPartitionForHashCode(hash(this.probeTypeComparator.hash(probeSideRecord)))] != null;
+		}
+		
+		/**
+		 * Writes a probe side record to disk, to be probed together with all other deferred records of
+		 * its partition once that partition is back in memory. The records are returned by
+		 * {@link #nextDeferredProbes()}.
+		 * 
+		 * @param probeSideRecord The probe side record, which should belong to a spilled partition.
+		 * @throws IOException Thrown, if the record could not be written to disk.
+		 */
+		public void defer(PT probeSideRecord) throws IOException {
+			if (this.probeTypeSerializer == null) {
+				throw new IllegalStateException("Probe side records can only be deferred by a prober that was created with a serializer for them.");
+			}
+			if (closed.get()) {
+				return;
+			}
+			final int partitionNumber = getPartitionForHashCode(hash(this.probeTypeComparator.hash(probeSideRecord)));
+			
+			if (this.deferredProbes == null) {
+				this.deferredProbes = new SpillFile[partitions.size()];
+				deferringProbers.add(this);
+			}
+			SpillFile file = this.deferredProbes[partitionNumber];
+			if (file == null) {
+				file = new SpillFile(ioManager, currentEnumerator.next(), getNextBuffer(-1), segmentSize);
+				this.deferredProbes[partitionNumber] = file;
+			}
+			file.write(this.probeTypeSerializer, probeSideRecord);
+		}
+		
+		/**
+		 * Returns the deferred probe side records of the next partition. The partition is read back into
+		 * memory and stays there until this method is called again, so that all returned records are probed
+		 * against memory.
+		 * 
+		 * @return The deferred records of one partition, or null, if no deferred records are left.
+		 * @throws IOException Thrown, if the records or the partition could not be read from disk.
+		 */
+		public MutableObjectIterator<PT> nextDeferredProbes() throws IOException {
+			if (this.pinnedPartition != -1) {
+				pinCounts[this.pinnedPartition]--;
+				this.pinnedPartition = -1;
+			}
+			if (closed.get() || this.deferredProbes == null) {
+				return null;
+			}
+			
+			for (int i = 0; i < this.deferredProbes.length; i++) {
+				final SpillFile file = this.deferredProbes[i];
+				if (file == null) {
+					continue;
 				}
-			} catch (IndexOutOfBoundsException e) {
-				// system is out of memory so we attempt to reclaim memory with a copy compact run
-				try {
-					int partitionNumber = this.partition.getPartitionNumber();
-					compactPartition(partitionNumber);
-					// retry append
-					this.partition = partitions.get(partitionNumber);
-					newPointer = this.partition.appendRecord(record);
-				} catch (EOFException ex) {
-					throw new RuntimeException("Memory ran out. Compaction failed. " + 
-												getMemoryConsumptionString() +
-												" Message: " + ex.getMessage());
-				} catch (IndexOutOfBoundsException ex) {
-					throw new RuntimeException("Memory ran out. Compaction failed. " + 
-												getMemoryConsumptionString() +
-												" Message: " + ex.getMessage());
+				this.deferredProbes[i] = null;
+				availableMemory.add(file.finishWriting());
+				
+				this.pinnedPartition = i;
+				pinCounts[i]++;
+				if (spilledPartitions[i] != null) {
+					loadPartition(i);
 				}
+				return new SpillFileIterator<PT>(file, this.probeTypeSerializer, i);
+			}
+			return null;
+		}
+		
+		private void releaseDeferredProbes() {
+			if (this.deferredProbes != null) {
+				for (int i = 0; i < this.deferredProbes.length; i++) {
+					if (this.deferredProbes[i] != null) {
+						releaseSpillFile(this.deferredProbes[i]);
+						this.deferredProbes[i] = null;
+					}
+				}
+			}
+			this.deferredProbes = null;
+			this.pinnedPartition = -1;
+		}
+	}
+	
+	/**
+	 * A file that holds the records of a spilled partition, or deferred probe side records. The file
+	 * is written through a single buffer, which is returned when writing is finished.
+	 */
+	private static final class SpillFile {
+		
+		private final BlockChannelWriter writer;
+		
+		private ChannelWriterOutputView outView;
+		
+		private int numRecords;
+		
+		private int numBlocks;
+		
+		
+		private SpillFile(IOManager ioManager, Channel.ID channel, MemorySegment buffer, int segmentSize) throws IOException {
+			this.writer = ioManager.createBlockChannelWriter(channel);
+			this.outView = new ChannelWriterOutputView(this.writer, Collections.singletonList(buffer), segmentSize);
+		}
+		
+		private <X> void write(TypeSerializer<X> serializer, X record) throws IOException {
+			serializer.serialize(record, this.outView);
+			this.numRecords++;
+		}
+		
+		private MemorySegment finishWriting() throws IOException {
+			final List<MemorySegment> buffers = this.outView.close();
+			this.numBlocks = this.outView.getBlockCount();
+			this.outView = null;
+			return buffers.get(0);
+		}
+		
+		private ChannelReaderInputView openReader(IOManager ioManager, List<MemorySegment> buffers) throws IOException {
+			return new ChannelReaderInputView(ioManager.createBlockChannelReader(this.writer.getChannelID()), buffers, this.numBlocks, false);
+		}
+		
+		private int getNumRecords() {
+			return this.numRecords;
+		}
+		
+		private int getNumBlocks() {
+			return this.numBlocks;
+		}
+		
+		private void delete() {
+			this.writer.deleteChannel();
+		}
+	}
+	
+	/**
+	 * Reads the records of a spilled file that was completely written. The file is deleted and the
+	 * read buffers are returned to the table once the last record was read.
+	 */
+	private final class SpillFileIterator<X> implements MutableObjectIterator<X> {
+		
+		private final SpillFile file;
+		
+		private final TypeSerializer<X> serializer;
+		
+		private final ChannelReaderInputView inView;
+		
+		private int numRecordsRemaining;
+		
+		
+		private SpillFileIterator(SpillFile file, TypeSerializer<X> serializer, int protectedPartition) throws IOException {
+			this.file = file;
+			this.serializer = serializer;
+			this.numRecordsRemaining = file.getNumRecords();
+			
+			if (this.numRecordsRemaining > 0) {
+				final int numBuffers = Math.min(NUM_READ_BUFFERS, file.getNumBlocks());
+				final List<MemorySegment> buffers = new ArrayList<MemorySegment>(numBuffers);
+				for (int i = 0; i < numBuffers; i++) {
+					buffers.add(getNextBuffer(protectedPartition));
+				}
+				this.inView = file.openReader(ioManager, buffers);
+				openIterators.add(this);
+			} else {
+				this.inView = null;
+				file.delete();
+			}
+		}
+
+		@Override
+		public X next(X reuse) throws IOException {
+			if (this.numRecordsRemaining == 0) {
+				close();
+				return null;
+			}
+			this.numRecordsRemaining--;
+			return this.serializer.deserialize(reuse, this.inView);
+		}
+		
+		private void close() throws IOException {
+			if (this.inView != null && !this.inView.isClosed()) {
+				openIterators.remove(this);
+				availableMemory.addAll(this.inView.close());
+				this.file.delete();
 			}
-			this.bucket.putLong(this.pointerOffsetInBucket, newPointer);
-			this.partition.setCompaction(false);
 		}
 	}
 }
@@ -105,6 +105,24 @@ public class HashPartition<BT, PT> extends AbstractPagedInputView implements See
 		furtherPartitioning = v;
 	}
 	
+	private boolean keepBuildSideWithoutProbeSide = false;	// keep a spilled build side, even if no probe record arrived
+	
+	protected void setKeepBuildSideWithoutProbeSide(boolean v) {
+		keepBuildSideWithoutProbeSide = v;
+	}
+	
+	// ---------------------------------------- Skew Detection ------------------------------------------
+	
+	private static final int NUM_HEAVY_HITTER_CANDIDATES = 4;	// the number of counters of the frequency sketch
+	
+	private static final int MIN_SAMPLED_RECORDS = 1000;			// the number of samples before the sketch is trusted
+	
+	private final int[] heavyHitterHashCodes = new int[NUM_HEAVY_HITTER_CANDIDATES];
+	
+	private final long[] heavyHitterCounts = new long[NUM_HEAVY_HITTER_CANDIDATES];
+	
+	private long numSampledRecords;							// the number of hash codes seen by the sketch
+	
 	// --------------------------------------------------------------------------------------------------
 	
 	
@@ -364,7 +382,7 @@ public class HashPartition<BT, PT> extends AbstractPagedInputView implements See
 			this.partitionBuffers = null;
 			return 0;
 		}
-		else if (this.probeSideRecordCounter == 0) { 
+		else if (this.probeSideRecordCounter == 0 && !this.keepBuildSideWithoutProbeSide) { 
 			// partition is empty, no spilled buffers
 			// return the memory buffer
 			freeMemory.add(this.probeSideBuffer.getCurrentSegment());
@@ -435,6 +453,57 @@ public class HashPartition<BT, PT> extends AbstractPagedInputView implements See
 		}
 	}
 	
+	/**
+	 * Adds the hash code of a build-side record to the frequency sketch of this partition. The sketch keeps
+	 * counters for a few candidate hash codes (Misra-Gries), which is enough to find a hash code that covers
+	 * a large fraction of the records. Such a group of records can not be split by recursive partitioning.
+	 * 
+	 * @param hashCode The hash code of the build-side record.
+	 */
+	final void sampleBuildSideHashCode(int hashCode) {
+		this.numSampledRecords++;
+		
+		final int[] hashCodes = this.heavyHitterHashCodes;
+		final long[] counts = this.heavyHitterCounts;
+		int free = -1;
+		for (int i = 0; i < NUM_HEAVY_HITTER_CANDIDATES; i++) {
+			if (counts[i] > 0) {
+				if (hashCodes[i] == hashCode) {
+					counts[i]++;
+					return;
+				}
+			} else if (free == -1) {
+				free = i;
+			}
+		}
+		
+		if (free != -1) {
+			hashCodes[free] = hashCode;
+			counts[free] = 1;
+		} else {
+			for (int i = 0; i < NUM_HEAVY_HITTER_CANDIDATES; i++) {
+				counts[i]--;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the estimated fraction of the build-side records that share the most frequent hash code. The
+	 * estimate is a lower bound. It is zero, if too few records were sampled.
+	 * 
+	 * @return The estimated fraction of records with the most frequent hash code.
+	 */
+	final double getHeavyHitterFraction() {
+		if (this.numSampledRecords < MIN_SAMPLED_RECORDS) {
+			return 0.0;
+		}
+		long max = 0;
+		for (int i = 0; i < NUM_HEAVY_HITTER_CANDIDATES; i++) {
+			max = Math.max(max, this.heavyHitterCounts[i]);
+		}
+		return ((double) max) / this.numSampledRecords;
+	}
+	
 	final PartitionIterator getPartitionIterator(TypeComparator<BT> comparator) throws IOException
 	{
 		return new PartitionIterator(comparator);
@@ -338,8 +338,14 @@ public class InMemoryPartition<T> {
 		}
 		
 		private int resetTo(long pointer) {
-			final int pageNum  = (int) (pointer >>> this.sizeBits);
-			final int offset = (int) (pointer & this.sizeMask);
+			int pageNum  = (int) (pointer >>> this.sizeBits);
+			int offset = (int) (pointer & this.sizeMask);
+			
+			// a pointer to the start of a page that was never added is the end of the last page
+			if (offset == 0 && pageNum - this.segmentNumberOffset == this.pages.size()) {
+				pageNum--;
+				offset = this.sizeMask + 1;
+			}
 			
 			this.currentPageNumber = pageNum;
 			
@@ -22,6 +22,8 @@ package org.apache.flink.runtime.operators.hash;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -42,6 +44,8 @@ import org.apache.flink.runtime.io.disk.iomanager.ChannelReaderInputView;
 import org.apache.flink.runtime.io.disk.iomanager.HeaderlessChannelReaderInputView;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.iterative.io.HashPartitionIterator;
+import org.apache.flink.runtime.memorymanager.MemoryBroker;
+import org.apache.flink.runtime.memorymanager.MemoryConsumer;
 import org.apache.flink.runtime.util.MathUtils;
 import org.apache.flink.util.MutableObjectIterator;
 
@@ -89,7 +93,7 @@ import org.apache.flink.util.MutableObjectIterator;
  * @param <BT> The type of records from the build side that are stored in the hash table.
  * @param <PT> The type of records from the probe side that are stored in the hash table.
  */
-public class MutableHashTable<BT, PT> implements MemorySegmentSource {
+public class MutableHashTable<BT, PT> implements MemorySegmentSource, MemoryConsumer {
 	
 	private static final Log LOG = LogFactory.getLog(MutableHashTable.class);
 	
@@ -98,14 +102,27 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 	// ------------------------------------------------------------------------
 	
 	/**
-	 * The maximum number of recursive partitionings that the join does before giving up.
+	 * The maximum number of recursive partitionings that the join does before it falls back to a
+	 * block nested loop join for a partition.
 	 */
 	private static final int MAX_RECURSION_DEPTH = 3;
 	
+	/**
+	 * The number of memory segments that are held back when a block for the nested loop join is read:
+	 * two for reading the probe side, two as slack for records that span segments.
+	 */
+	private static final int NESTED_LOOP_RESERVED_BUFFERS = 4;
+	
 	/**
 	 * The minimum number of memory segments the hash join needs to be supplied with in order to work.
 	 */
-	private static final int MIN_NUM_MEMORY_SEGMENTS = 33;
+	public static final int MIN_NUM_MEMORY_SEGMENTS = 33;
+	
+	/**
+	 * The number of pages that the hash table tries to borrow from other memory consumers at once,
+	 * before it spills a partition.
+	 */
+	private static final int NUM_PAGES_TO_BORROW = 8;
 	
 	/**
 	 * The maximum number of partitions, which defines the spilling granularity. Each recursion, the
@@ -195,6 +212,31 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 	 */
 	private static final byte BUCKET_STATUS_IN_MEMORY = 0;
 	
+	/**
+	 * Constant for the bucket status, indicating that the bucket belongs to a spilled partition and
+	 * that its entry area holds a Bloom filter over the hash codes of the build-side records.
+	 */
+	private static final byte BUCKET_STATUS_IN_FILTER = 2;
+	
+	/**
+	 * Flag in the stored hash code of a bucket entry, indicating that the build-side record found a
+	 * partner on the probe side. Set only for outer joins that preserve the build side. Because all hash
+	 * codes are non-negative, the flag uses the sign bit.
+	 */
+	private static final int HASH_CODE_MATCHED_FLAG = 0x80000000;
+	
+	// ------------------------------ Bloom Filters ------------------------------
+	
+	/**
+	 * The number of bits in the Bloom filter that replaces the entries of a spilled bucket.
+	 */
+	private static final int BLOOM_FILTER_NUM_BITS = (HASH_BUCKET_SIZE - BUCKET_HEADER_LENGTH) << 3;
+	
+	/**
+	 * The number of bits that are set in the Bloom filter for each hash code.
+	 */
+	private static final int BLOOM_FILTER_NUM_HASH_FUNCTIONS = 3;
+	
 	// ------------------------------------------------------------------------
 	//                              Members
 	// ------------------------------------------------------------------------
@@ -347,6 +389,96 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 	protected boolean furtherPartitioning = false;
 	
 	private boolean running = true;
+	
+	/**
+	 * The broker through which the hash table borrows and lends memory, may be null.
+	 */
+	private MemoryBroker memoryBroker;
+	
+	/**
+	 * Flag indicating that the free memory is idle and may be lent to other consumers. Guarded by the
+	 * lock on the list of available memory.
+	 */
+	private boolean lendingEnabled;
+	
+	/**
+	 * The number of probe-side records that were dropped by the Bloom filters of spilled partitions,
+	 * rather than being spilled.
+	 */
+	private long numProbeRecordsFiltered;
+	
+	/**
+	 * The spilled partition that is currently joined with a block nested loop join, because it can not be
+	 * split by recursive partitioning. Null, if no nested loop join is in progress.
+	 */
+	private HashPartition<BT, PT> nestedLoopPartition;
+	
+	/**
+	 * The view over the build side of the nested loop partition.
+	 */
+	private ChannelReaderInputView nestedLoopBuildView;
+	
+	/**
+	 * The iterator over the build side of the nested loop partition.
+	 */
+	private ChannelReaderInputViewIterator<BT> nestedLoopBuildIterator;
+	
+	/**
+	 * The next build-side record of the nested loop partition that is not yet part of a block, or null, if the
+	 * current block is the last one.
+	 */
+	private BT nestedLoopRecord;
+	
+	/**
+	 * The number of blocks (and passes over the probe side) of the current nested loop join.
+	 */
+	private int nestedLoopPasses;
+	
+	/**
+	 * The reuse object to check whether a probe-side record has partners in the current block of the nested loop join.
+	 */
+	private BT nestedLoopMatchReuse;
+	
+	/**
+	 * The ordinals of the probe-side records of the nested loop partition that found a partner in any block so
+	 * far. Only tracked for outer joins that preserve the probe side and for tables that return each probe-side
+	 * record at most once.
+	 */
+	private BitSet nestedLoopProbeMatches;
+	
+	/**
+	 * The ordinal of the next probe-side record in the current pass of the nested loop join.
+	 */
+	private int nestedLoopProbeOrdinal;
+	
+	/**
+	 * Flag indicating that the build-side records without a partner are returned, as in an outer join that
+	 * preserves the build side.
+	 */
+	private boolean buildSideOuterJoin;
+	
+	/**
+	 * Flag indicating that the probe-side records without a partner are returned, as in an outer join that
+	 * preserves the probe side.
+	 */
+	private boolean probeSideOuterJoin;
+	
+	/**
+	 * Flag indicating that each probe-side record is returned at most once, even if several blocks of a
+	 * nested loop join hold partners for it.
+	 */
+	private boolean probeSideExistenceOnly;
+	
+	/**
+	 * Flag indicating that the current table is done with its probe side and that the build-side records
+	 * without a partner are currently returned.
+	 */
+	private boolean unmatchedBuildSideReturned;
+	
+	/**
+	 * The iterator over the build-side records of the current table that found no partner.
+	 */
+	private UnmatchedBuildSideIterator unmatchedBuildSideIterator;
 
 	// ------------------------------------------------------------------------
 	//                         Construction and Teardown
@@ -437,6 +569,7 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		}
 		// open builds the initial table by consuming the build-side input
 		this.currentRecursionDepth = 0;
+		this.numProbeRecordsFiltered = 0;
 		buildInitialTable(buildSide);
 		
 		// the first prober is the probe-side input
@@ -444,6 +577,12 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		
 		// the bucket iterator can remain constant over the time
 		this.bucketIterator = new HashBucketIterator<BT, PT>(this.buildSideSerializer, this.recordComparator);
+		this.bucketIterator.setMarkMatches(this.buildSideOuterJoin);
+		this.unmatchedBuildSideIterator = this.buildSideOuterJoin ? new UnmatchedBuildSideIterator() : null;
+		this.unmatchedBuildSideReturned = false;
+		
+		// if the build side fit into memory, the probe phase needs none of the remaining memory
+		startLendingIfIdle();
 	}
 	
 	protected boolean processProbeIter() throws IOException{
@@ -468,11 +607,45 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			if (p.isInMemory()) {
 				this.recordComparator.setReference(next);
 				this.bucketIterator.set(bucket, p.overflowSegments, p, hash, bucketInSegmentOffset);
-				return true;
+				if (this.nestedLoopPartition == null) {
+					return true;
+				}
+				// in a nested loop join, the probe record is seen once per block. it is only returned for
+				// the blocks that hold partners, such that every returned match is still produced exactly once
+				final int ordinal = this.nestedLoopProbeOrdinal++;
+				if (this.bucketIterator.next(this.nestedLoopMatchReuse) != null) {
+					this.bucketIterator.reset();
+					if (this.nestedLoopProbeMatches != null) {
+						// a table that only tests for partners returns the probe record only for its first block with partners
+						if (this.probeSideExistenceOnly && this.nestedLoopProbeMatches.get(ordinal)) {
+							continue;
+						}
+						this.nestedLoopProbeMatches.set(ordinal);
+					}
+					return true;
+				}
+				// in the last block, an outer join returns the probe records that found no partner in any block
+				if (this.probeSideOuterJoin && this.nestedLoopRecord == null &&
+						!this.nestedLoopProbeMatches.get(ordinal))
+				{
+					return true;
+				}
 			}
-			else {
+			else if (bucket.get(bucketInSegmentOffset + HEADER_STATUS_OFFSET) != BUCKET_STATUS_IN_FILTER ||
+					testBloomFilter(bucket, bucketInSegmentOffset, hash))
+			{
 				p.insertIntoProbeBuffer(next);
 			}
+			else {
+				// no build-side record of the spilled partition has this hash code, the record cannot match
+				this.numProbeRecordsFiltered++;
+				
+				if (this.probeSideOuterJoin) {
+					// the filter bucket holds no entries, so the iterator returns no partners
+					this.bucketIterator.set(bucket, p.overflowSegments, p, hash, bucketInSegmentOffset);
+					return true;
+				}
+			}
 		}
 		
 		// -------------- partition done ---------------
@@ -481,11 +654,16 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 	}
 	
 	protected boolean prepareNextPartition() throws IOException {
+		// the partitions return their memory into the list of available memory
+		stopLending();
+		this.unmatchedBuildSideReturned = false;
+		
 		// finalize and cleanup the partitions of the current table
 		int buffersAvailable = 0;
 		for (int i = 0; i < this.partitionsBeingBuilt.size(); i++) {
 			final HashPartition<BT, PT> p = this.partitionsBeingBuilt.get(i);
 			p.setFurtherPatitioning(this.furtherPartitioning);
+			p.setKeepBuildSideWithoutProbeSide(this.buildSideOuterJoin);
 			buffersAvailable += p.finalizeProbePhase(this.availableMemory, this.partitionsPending);
 		}
 		
@@ -494,10 +672,28 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		
 		releaseTable();
 
+		final boolean nestedLoopContinues = this.nestedLoopPartition != null && this.nestedLoopRecord != null;
+		
 		if (this.currentSpilledProbeSide != null) {
-			this.currentSpilledProbeSide.closeAndDelete();
+			if (nestedLoopContinues) {
+				// the probe side is read again for the next block of the nested loop join
+				this.currentSpilledProbeSide.close();
+			} else {
+				this.currentSpilledProbeSide.closeAndDelete();
+			}
 			this.currentSpilledProbeSide = null;
 		}
+		
+		// continue a nested loop join with its next block of build-side records
+		if (nestedLoopContinues) {
+			buildNextNestedLoopBlock();
+			setProbeSideFromSpilledPartition(this.nestedLoopPartition);
+			this.nestedLoopProbeOrdinal = 0;
+			return nextRecord();
+		}
+		else if (this.nestedLoopPartition != null) {
+			finishNestedLoop();
+		}
 
 		// check if there are pending partitions
 		if (!this.partitionsPending.isEmpty())
@@ -507,17 +703,8 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			// build the next table
 			buildTableFromSpilledPartition(p);
 
-			// set the probe side - gather memory segments for reading
-			LinkedBlockingQueue<MemorySegment> returnQueue = new LinkedBlockingQueue<MemorySegment>();
-			this.currentSpilledProbeSide = this.ioManager.createBlockChannelReader(p.getProbeSideChannel().getChannelID(), returnQueue);
-
-			List<MemorySegment> memory = new ArrayList<MemorySegment>();
-			memory.add(getNextBuffer());
-			memory.add(getNextBuffer());
-
-			ChannelReaderInputViewIterator<PT> probeReader = new ChannelReaderInputViewIterator<PT>(this.currentSpilledProbeSide,
-				returnQueue, memory, this.availableMemory, this.probeSideSerializer, p.getProbeSideBlockCount());
-			this.probeIterator.set(probeReader);
+			// set the probe side
+			setProbeSideFromSpilledPartition(p);
 
 			// unregister the pending partition
 			this.partitionsPending.remove(0);
@@ -531,15 +718,45 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			return false;
 		}
 	}
+	
+	/**
+	 * Sets the probe iterator to read the spilled probe side of the given partition.
+	 * 
+	 * @param p The spilled partition whose probe side is read.
+	 * @throws IOException Thrown, if the reader for the probe side could not be created.
+	 */
+	private void setProbeSideFromSpilledPartition(HashPartition<BT, PT> p) throws IOException {
+		// gather memory segments for reading
+		LinkedBlockingQueue<MemorySegment> returnQueue = new LinkedBlockingQueue<MemorySegment>();
+		this.currentSpilledProbeSide = this.ioManager.createBlockChannelReader(p.getProbeSideChannel().getChannelID(), returnQueue);
+
+		List<MemorySegment> memory = new ArrayList<MemorySegment>();
+		memory.add(getNextBuffer());
+		memory.add(getNextBuffer());
+
+		ChannelReaderInputViewIterator<PT> probeReader = new ChannelReaderInputViewIterator<PT>(this.currentSpilledProbeSide,
+			returnQueue, memory, this.availableMemory, this.probeSideSerializer, p.getProbeSideBlockCount());
+		this.probeIterator.set(probeReader);
+	}
+	
 	/**
 	 * @return
 	 * @throws IOException
 	 */
 	public boolean nextRecord() throws IOException {
 		
-		final boolean probeProcessing = processProbeIter();
-		if(probeProcessing) {
-			return true;
+		if (!this.unmatchedBuildSideReturned) {
+			final boolean probeProcessing = processProbeIter();
+			if(probeProcessing) {
+				return true;
+			}
+			
+			// before the table is released, an outer join returns the build-side records without partner
+			if (this.buildSideOuterJoin) {
+				this.unmatchedBuildSideReturned = true;
+				this.unmatchedBuildSideIterator.reset();
+				return true;
+			}
 		}
 		return prepareNextPartition();
 	}
@@ -597,10 +814,11 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 //	}
 	
 	/**
-	 * @return
+	 * @return The current probe-side record, or null, if the build-side records of the current table
+	 *         that found no partner are returned.
 	 */
 	public PT getCurrentProbeRecord() {
-		return this.probeIterator.getCurrent();
+		return this.unmatchedBuildSideReturned ? null : this.probeIterator.getCurrent();
 	}
 	
 	/**
@@ -609,6 +827,48 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 	public HashBucketIterator<BT, PT> getBuildSideIterator() {
 		return this.bucketIterator;
 	}
+	
+	/**
+	 * Gets the iterator over the build-side records of the current table that found no partner. The iterator
+	 * is valid when {@link #nextRecord()} returned true and {@link #getCurrentProbeRecord()} returns null.
+	 * 
+	 * @return The iterator over the build-side records without partner.
+	 */
+	public MutableObjectIterator<BT> getUnmatchedBuildSideIterator() {
+		return this.unmatchedBuildSideIterator;
+	}
+	
+	/**
+	 * Makes the hash table return the build-side records that find no partner on the probe side, as
+	 * needed for an outer join that preserves the build side. Must be set before the table is opened.
+	 * 
+	 * @param buildSideOuterJoin True, to return the build-side records without partner.
+	 */
+	public void setBuildSideOuterJoin(boolean buildSideOuterJoin) {
+		this.buildSideOuterJoin = buildSideOuterJoin;
+	}
+	
+	/**
+	 * Makes the hash table return the probe-side records that find no partner on the build side, as
+	 * needed for an outer join that preserves the probe side. Must be set before the table is opened.
+	 * 
+	 * @param probeSideOuterJoin True, to return the probe-side records without partner.
+	 */
+	public void setProbeSideOuterJoin(boolean probeSideOuterJoin) {
+		this.probeSideOuterJoin = probeSideOuterJoin;
+	}
+	
+	/**
+	 * Makes the hash table return each probe-side record at most once, together with its partners in the
+	 * current table, as needed by a semi join that only tests whether a partner exists. Without this flag,
+	 * the block nested loop fallback returns a probe-side record once for each block that holds partners.
+	 * Must be set before the table is opened.
+	 * 
+	 * @param probeSideExistenceOnly True, to return each probe-side record at most once.
+	 */
+	public void setProbeSideExistenceOnly(boolean probeSideExistenceOnly) {
+		this.probeSideExistenceOnly = probeSideExistenceOnly;
+	}
 
 	public MutableObjectIterator<BT> getPartitionEntryIterator() {
 		return new HashPartitionIterator<BT, PT>(this.partitionsBeingBuilt.iterator(), this.buildSideSerializer);
@@ -626,6 +886,8 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			return;
 		}
 		
+		stopLending();
+		
 		// clear the iterators, so the next call to next() will notice
 		this.bucketIterator = null;
 		this.probeIterator = null;
@@ -646,6 +908,23 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			}
 		}
 		
+		// clear the partition of an unfinished nested loop join
+		if (this.nestedLoopPartition != null) {
+			try {
+				if (!this.nestedLoopBuildView.isClosed()) {
+					this.availableMemory.addAll(this.nestedLoopBuildView.close());
+				}
+			}
+			catch (Throwable t) {
+				LOG.warn("Could not close the build side reader of the nested loop join partition.", t);
+			}
+			this.nestedLoopPartition.clearAllMemory(this.availableMemory);
+			this.nestedLoopPartition = null;
+			this.nestedLoopBuildView = null;
+			this.nestedLoopBuildIterator = null;
+			this.nestedLoopRecord = null;
+		}
+		
 		// clear the partitions that are still to be done (that have files on disk)
 		for (int i = 0; i < this.partitionsPending.size(); i++) {
 			final HashPartition<BT, PT> p = this.partitionsPending.get(i);
@@ -667,6 +946,58 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		this.running = false;
 	}
 	
+	/**
+	 * Sets the broker through which the hash table exchanges memory with the other memory consumers of its
+	 * task. Before spilling a partition, the hash table borrows idle pages from the other consumers. If the
+	 * build side fits into memory, the hash table lends its remaining free pages during the probe phase.
+	 * 
+	 * @param memoryBroker The memory broker of the task that owns the hash table's memory.
+	 */
+	public void setMemoryBroker(MemoryBroker memoryBroker) {
+		this.memoryBroker = memoryBroker;
+	}
+	
+	@Override
+	public List<MemorySegment> lendPages(int numPages) {
+		synchronized (this.availableMemory) {
+			if (!this.lendingEnabled || this.availableMemory.isEmpty()) {
+				return Collections.emptyList();
+			}
+			
+			final int num = Math.min(numPages, this.availableMemory.size());
+			final ArrayList<MemorySegment> lent = new ArrayList<MemorySegment>(num);
+			for (int i = 0; i < num; i++) {
+				lent.add(this.availableMemory.remove(this.availableMemory.size() - 1));
+			}
+			return lent;
+		}
+	}
+	
+	private void startLendingIfIdle() {
+		if (this.memoryBroker == null || this.keepBuildSidePartitions) {
+			return;
+		}
+		for (int i = 0; i < this.partitionsBeingBuilt.size(); i++) {
+			if (!this.partitionsBeingBuilt.get(i).isInMemory()) {
+				return;
+			}
+		}
+		
+		synchronized (this.availableMemory) {
+			this.lendingEnabled = true;
+		}
+		this.memoryBroker.register(this);
+	}
+	
+	private void stopLending() {
+		if (this.memoryBroker != null) {
+			this.memoryBroker.unregister(this);
+			synchronized (this.availableMemory) {
+				this.lendingEnabled = false;
+			}
+		}
+	}
+	
 	public List<MemorySegment> getFreedMemory() {
 		if (!this.closed.get()) {
 			throw new IllegalStateException("Cannot return memory while join is open.");
@@ -725,17 +1056,16 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 	protected void buildTableFromSpilledPartition(final HashPartition<BT, PT> p) throws IOException {
 		
 		final int nextRecursionLevel = p.getRecursionLevel() + 1;
-		if (nextRecursionLevel > MAX_RECURSION_DEPTH) {
-			throw new RuntimeException("Hash join exceeded maximum number of recursions, without reducing "
-				+ "partitions enough to be memory resident. Probably cause: Too many duplicate keys.");
-		}
 		
-		// we distinguish two cases here:
+		// we distinguish three cases here:
 		// 1) The partition fits entirely into main memory. That is the case if we have enough buffers for
 		//    all partition segments, plus enough buffers to hold the table structure.
 		//    --> We read the partition in as it is and create a hashtable that references only
 		//        that single partition.
-		// 2) We can not guarantee that enough memory segments are available and read the partition
+		// 2) The partition can not be split, because the recursion is too deep, or because so many records
+		//    share one hash code that they do not fit into memory by themselves.
+		//    --> We join the partition with a block nested loop join.
+		// 3) We can not guarantee that enough memory segments are available and read the partition
 		//    in, distributing its data among newly created partitions.
 		final int totalBuffersAvailable = this.availableMemory.size() + this.writeBehindBuffersAvailable;
 		if (totalBuffersAvailable != this.totalNumBuffers - this.numWriteBehindBuffers) {
@@ -788,6 +1118,12 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 				insertBucketEntry(newPart, bucket, bucketInSegmentPos, hashCode, pointer);
 			}
 		}
+		else if (nextRecursionLevel > MAX_RECURSION_DEPTH ||
+				p.getHeavyHitterFraction() * totalBuffersNeeded >= totalBuffersAvailable)
+		{
+			startNestedLoop(p, nextRecursionLevel > MAX_RECURSION_DEPTH ? "maximum recursion depth reached" :
+				"hash codes are too skewed to split the partition");
+		}
 		else {
 			// we need to partition and partially spill
 			final int avgRecordLenPartition = (int) (((long) p.getBuildSideBlockCount()) * 
@@ -832,6 +1168,137 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		}
 	}
 	
+	/**
+	 * Starts a block nested loop join for a spilled partition that can not be split by recursive partitioning.
+	 * The build side of the partition is read in blocks that fit into memory. For each block, a hash table is
+	 * built and the complete spilled probe side of the partition is probed against it. A probe-side record is
+	 * thus returned once per block, together with the matches in that block.
+	 * 
+	 * @param p The partition to join.
+	 * @param reason The reason for the fallback, for the log.
+	 * @throws IOException Thrown, if the build side of the partition could not be read.
+	 */
+	private void startNestedLoop(HashPartition<BT, PT> p, String reason) throws IOException {
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Hash join falls back to a block nested loop join for partition " + p.getPartitionNumber() +
+				" on recursion level " + p.getRecursionLevel() + " (" + reason + "). The partition has " +
+				p.getBuildSideRecordCount() + " build-side records in " + p.getBuildSideBlockCount() + " blocks and " +
+				p.getProbeSideRecordCount() + " probe-side records. The most frequent hash code covers " +
+				Math.round(p.getHeavyHitterFraction() * 100) + "% of the sampled build-side records.");
+		}
+		
+		this.nestedLoopPartition = p;
+		this.nestedLoopPasses = 0;
+		this.nestedLoopProbeOrdinal = 0;
+		this.nestedLoopProbeMatches = this.probeSideOuterJoin || this.probeSideExistenceOnly ? new BitSet() : null;
+		if (this.nestedLoopMatchReuse == null) {
+			this.nestedLoopMatchReuse = this.buildSideSerializer.createInstance();
+		}
+		
+		final List<MemorySegment> segments = new ArrayList<MemorySegment>(2);
+		segments.add(getNextBuffer());
+		segments.add(getNextBuffer());
+		
+		final BlockChannelReader inReader = this.ioManager.createBlockChannelReader(p.getBuildSideChannel().getChannelID());
+		this.nestedLoopBuildView = new HeaderlessChannelReaderInputView(inReader, segments,
+					p.getBuildSideBlockCount(), p.getLastSegmentLimit(), false);
+		this.nestedLoopBuildIterator = new ChannelReaderInputViewIterator<BT>(this.nestedLoopBuildView, 
+				this.availableMemory, this.buildSideSerializer);
+		this.nestedLoopRecord = this.nestedLoopBuildIterator.next(this.buildSideSerializer.createInstance());
+		
+		buildNextNestedLoopBlock();
+	}
+	
+	/**
+	 * Reads the next block of build-side records of the nested loop partition into memory and builds a
+	 * hash table over it. The block takes as many records as fit into the free memory, while the table
+	 * structure and the reader for the probe side are guaranteed to fit as well.
+	 * 
+	 * @throws IOException Thrown, if the build side of the partition could not be read.
+	 */
+	private void buildNextNestedLoopBlock() throws IOException {
+		final int nextRecursionLevel = this.nestedLoopPartition.getRecursionLevel() + 1;
+		
+		ensureNumBuffersReturned(1);
+		final HashPartition<BT, PT> newPart = getNewInMemoryPartition(0, nextRecursionLevel);
+		this.partitionsBeingBuilt.add(newPart);
+		
+		// fill the partition, until the next record might not leave enough memory for the table
+		BT record = this.nestedLoopRecord;
+		long numRecords = 0;
+		do {
+			if (numRecords > 0 && this.availableMemory.size() + this.writeBehindBuffersAvailable <
+					getNumBuffersReservedForNestedLoopBlock(numRecords + 1))
+			{
+				break;
+			}
+			newPart.insertIntoBuildBuffer(record);
+			numRecords++;
+		}
+		while ((record = this.nestedLoopBuildIterator.next(record)) != null);
+		
+		this.nestedLoopRecord = record;
+		this.nestedLoopPasses++;
+		newPart.finalizeBuildPhase(this.ioManager, this.currentEnumerator, this.writeBehindBuffers);
+		
+		// erect the buckets and index the block
+		final long numBuckets = (numRecords * RECORD_TABLE_BYTES) / (HASH_BUCKET_SIZE - BUCKET_HEADER_LENGTH) + 1;
+		initTable((int) numBuckets, (byte) 1);
+		
+		final HashPartition<BT, PT>.PartitionIterator pIter = newPart.getPartitionIterator(this.buildSideComparator);
+		BT buildRecord = this.buildSideSerializer.createInstance();
+		
+		while ((buildRecord = pIter.next(buildRecord)) != null) {
+			final int hashCode = hash(pIter.getCurrentHashCode(), nextRecursionLevel);
+			final int posHashCode = hashCode % this.numBuckets;
+			final long pointer = pIter.getPointer();
+			
+			// get the bucket for the given hash code
+			final int bucketArrayPos = posHashCode >> this.bucketsPerSegmentBits;
+			final int bucketInSegmentPos = (posHashCode & this.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+			final MemorySegment bucket = this.buckets[bucketArrayPos];
+			
+			insertBucketEntry(newPart, bucket, bucketInSegmentPos, hashCode, pointer);
+		}
+	}
+	
+	/**
+	 * Computes the number of memory segments that must remain free while a block of the nested loop join is
+	 * filled, such that the table for the block, all overflow buckets in the worst case, and the reader for
+	 * the probe side still fit into memory.
+	 * 
+	 * @param numRecords The number of records in the block.
+	 * @return The number of memory segments to keep free.
+	 */
+	private int getNumBuffersReservedForNestedLoopBlock(long numRecords) {
+		final long numBuckets = (numRecords * RECORD_TABLE_BYTES) / (HASH_BUCKET_SIZE - BUCKET_HEADER_LENGTH) + 1;
+		final long numOverflowBuckets = numRecords / NUM_ENTRIES_PER_BUCKET + 1;
+		return (int) ((numBuckets + numOverflowBuckets) >>> this.bucketsPerSegmentBits) + 2 + NESTED_LOOP_RESERVED_BUFFERS;
+	}
+	
+	/**
+	 * Cleans up after the last block of a nested loop join was probed.
+	 */
+	private void finishNestedLoop() {
+		final HashPartition<BT, PT> p = this.nestedLoopPartition;
+		
+		// the build side reader has been closed when the last record was read
+		if (!(this.keepBuildSidePartitions && p.getRecursionLevel() == 0)) {
+			p.getBuildSideChannel().deleteChannel();
+		}
+		
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Block nested loop join for partition " + p.getPartitionNumber() + " on recursion level " +
+				p.getRecursionLevel() + " finished after " + this.nestedLoopPasses + " passes over " +
+				p.getProbeSideRecordCount() + " probe-side records.");
+		}
+		
+		this.nestedLoopPartition = null;
+		this.nestedLoopBuildView = null;
+		this.nestedLoopBuildIterator = null;
+		this.nestedLoopProbeMatches = null;
+	}
+	
 	/**
 	 * @param record
 	 * @param hashCode
@@ -861,6 +1328,11 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			// record was inserted into an in-memory partition. a pointer must be inserted into the buckets
 			insertBucketEntry(p, bucket, bucketInSegmentPos, hashCode, pointer);
 		}
+		else {
+			// the partition is spilled, remember the hash code for the probe phase and for the skew detection
+			addToBloomFilter(bucket, bucketInSegmentPos, hashCode);
+			p.sampleBuildSideHashCode(hashCode);
+		}
 	}
 	
 	/**
@@ -931,7 +1403,9 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 					// no memory available to create overflow bucket. we need to spill a partition
 					final int spilledPart = spillPartition();
 					if (spilledPart == p.getPartitionNumber()) {
-						// this bucket is no longer in-memory
+						// this bucket is no longer in-memory. the record went to disk with the partition,
+						// but its hash code is not yet part of the bucket's Bloom filter
+						addToBloomFilter(bucket, bucketInSegmentPos, hashCode);
 						return;
 					}
 					overflowSeg = getNextBuffer();
@@ -1100,6 +1574,9 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		}
 		final HashPartition<BT, PT> p = partitions.get(largestPartNum);
 		
+		// replace the partition's bucket entries by Bloom filters, while the overflow buckets are still there
+		buildBloomFilterForBucketsInPartition(largestPartNum, p);
+		
 		// spill the partition
 		int numBuffersFreed = p.spillPartition(this.availableMemory, this.ioManager, 
 										this.currentEnumerator.next(), this.writeBehindBuffers);
@@ -1113,6 +1590,121 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		return largestPartNum;
 	}
 	
+	/**
+	 * Turns every bucket of the given partition into a Bloom filter over the hash codes of the entries
+	 * in the bucket and in its chain of overflow buckets. The probe phase uses the filters to drop
+	 * probe-side records that cannot find a partner in the spilled partition, before they are spilled.
+	 * 
+	 * @param partNum The number of the partition whose buckets are converted.
+	 * @param p The partition, still holding its overflow buckets.
+	 */
+	final void buildBloomFilterForBucketsInPartition(int partNum, HashPartition<BT, PT> p) {
+		final int[] hashCodes = new int[NUM_ENTRIES_PER_BUCKET];
+		
+		for (int bucketNum = 0; bucketNum < this.numBuckets; bucketNum++) {
+			final MemorySegment bucket = this.buckets[bucketNum >> this.bucketsPerSegmentBits];
+			final int bucketInSegmentPos = (bucketNum & this.bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+			
+			if (bucket.get(bucketInSegmentPos + HEADER_PARTITION_OFFSET) != partNum) {
+				continue;
+			}
+			
+			// the hash codes have to be saved first, as the filter bits overwrite them
+			int count = bucket.getShort(bucketInSegmentPos + HEADER_COUNT_OFFSET);
+			for (int i = 0; i < count; i++) {
+				hashCodes[i] = bucket.getInt(bucketInSegmentPos + BUCKET_HEADER_LENGTH + (i * HASH_CODE_LEN));
+			}
+			long forwardPointer = bucket.getLong(bucketInSegmentPos + HEADER_FORWARD_OFFSET);
+			
+			bucket.put(bucketInSegmentPos + HEADER_STATUS_OFFSET, BUCKET_STATUS_IN_FILTER);
+			bucket.putShort(bucketInSegmentPos + HEADER_COUNT_OFFSET, (short) 0);
+			bucket.putLong(bucketInSegmentPos + HEADER_FORWARD_OFFSET, BUCKET_FORWARD_POINTER_NOT_SET);
+			for (int pos = BUCKET_HEADER_LENGTH; pos < HASH_BUCKET_SIZE; pos += 8) {
+				bucket.putLong(bucketInSegmentPos + pos, 0L);
+			}
+			
+			for (int i = 0; i < count; i++) {
+				addToBloomFilter(bucket, bucketInSegmentPos, hashCodes[i]);
+			}
+			
+			// add the hash codes from the overflow buckets
+			while (forwardPointer != BUCKET_FORWARD_POINTER_NOT_SET) {
+				final MemorySegment overflowSeg = p.overflowSegments[(int) (forwardPointer >>> 32)];
+				final int overflowPos = (int) (forwardPointer & 0xffffffff);
+				
+				count = overflowSeg.getShort(overflowPos + HEADER_COUNT_OFFSET);
+				for (int i = 0; i < count; i++) {
+					addToBloomFilter(bucket, bucketInSegmentPos,
+						overflowSeg.getInt(overflowPos + BUCKET_HEADER_LENGTH + (i * HASH_CODE_LEN)));
+				}
+				forwardPointer = overflowSeg.getLong(overflowPos + HEADER_FORWARD_OFFSET);
+			}
+		}
+	}
+	
+	/**
+	 * Sets the bits for the given hash code in the Bloom filter of a bucket that belongs to a spilled partition.
+	 * 
+	 * @param bucket The memory segment holding the bucket.
+	 * @param bucketInSegmentPos The offset of the bucket in the segment.
+	 * @param hashCode The hash code to add.
+	 */
+	static final void addToBloomFilter(MemorySegment bucket, int bucketInSegmentPos, int hashCode) {
+		final int filterPos = bucketInSegmentPos + BUCKET_HEADER_LENGTH;
+		final int h1 = bloomFilterHash(hashCode);
+		final int h2 = (h1 >>> 16) | 0x1;
+		
+		for (int i = 0, h = h1; i < BLOOM_FILTER_NUM_HASH_FUNCTIONS; i++, h += h2) {
+			final int bit = (h & 0x7fffffff) % BLOOM_FILTER_NUM_BITS;
+			final int bytePos = filterPos + (bit >>> 3);
+			bucket.put(bytePos, (byte) (bucket.get(bytePos) | (1 << (bit & 0x7))));
+		}
+	}
+	
+	/**
+	 * Checks whether the given hash code may have been added to the Bloom filter of the bucket.
+	 * 
+	 * @param bucket The memory segment holding the bucket.
+	 * @param bucketInSegmentPos The offset of the bucket in the segment.
+	 * @param hashCode The hash code to test.
+	 * @return False, if the hash code was definitely not added to the filter, true otherwise.
+	 */
+	static final boolean testBloomFilter(MemorySegment bucket, int bucketInSegmentPos, int hashCode) {
+		final int filterPos = bucketInSegmentPos + BUCKET_HEADER_LENGTH;
+		final int h1 = bloomFilterHash(hashCode);
+		final int h2 = (h1 >>> 16) | 0x1;
+		
+		for (int i = 0, h = h1; i < BLOOM_FILTER_NUM_HASH_FUNCTIONS; i++, h += h2) {
+			final int bit = (h & 0x7fffffff) % BLOOM_FILTER_NUM_BITS;
+			if ((bucket.get(filterPos + (bit >>> 3)) & (1 << (bit & 0x7))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Re-mixes a hash code for the Bloom filter. All hash codes in one bucket agree on their value modulo
+	 * the number of buckets, so the filter must not derive its bits from the plain hash code.
+	 */
+	private static final int bloomFilterHash(int hashCode) {
+		int h = hashCode * 0x9e3779b9;
+		h ^= h >>> 15;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+	
+	/**
+	 * Gets the number of probe-side records that were dropped by the Bloom filters of spilled partitions,
+	 * because no build-side record of their partition can match them.
+	 * 
+	 * @return The number of probe-side records that were not spilled thanks to the Bloom filters.
+	 */
+	public long getNumProbeRecordsFiltered() {
+		return this.numProbeRecordsFiltered;
+	}
+	
 	/**
 	 * This method makes sure that at least a certain number of memory segments is in the list of free segments.
 	 * Free memory can be in the list of free segments, or in the return-queue where segments used to write behind are
@@ -1173,7 +1765,18 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 				this.writeBehindBuffersAvailable--;
 			}
 			return toReturn;
-		} else {
+		}
+		else if (this.memoryBroker != null) {
+			// try to borrow idle memory from the other consumers of the task, before anything is spilled
+			final List<MemorySegment> borrowed = this.memoryBroker.borrowPages(this, NUM_PAGES_TO_BORROW);
+			if (borrowed.isEmpty()) {
+				return null;
+			}
+			final MemorySegment toReturn = borrowed.remove(borrowed.size() - 1);
+			this.availableMemory.addAll(borrowed);
+			return toReturn;
+		}
+		else {
 			// no memory available
 			return null;
 		}
@@ -1330,12 +1933,18 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 		
 		private long lastPointer;
 		
+		private boolean markMatches;
+		
 		
 		HashBucketIterator(TypeSerializer<BT> accessor, TypePairComparator<PT, BT> comparator) {
 			this.accessor = accessor;
 			this.comparator = comparator;
 		}
 		
+		void setMarkMatches(boolean markMatches) {
+			this.markMatches = markMatches;
+		}
+		
 		
 		void set(MemorySegment bucket, MemorySegment[] overflowSegments, HashPartition<BT, PT> partition,
 				int searchHashCode, int bucketInSegmentOffset)
@@ -1364,7 +1973,7 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 					this.posInSegment += HASH_CODE_LEN;
 						
 					// check if the hash code matches
-					if (thisCode == this.searchHashCode) {
+					if ((thisCode & ~HASH_CODE_MATCHED_FLAG) == this.searchHashCode) {
 						// get the pointer to the pair
 						final long pointer = this.bucket.getLong(this.bucketInSegmentOffset + 
 													BUCKET_POINTER_START_OFFSET + (this.numInSegment * POINTER_LEN));
@@ -1376,6 +1985,9 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 							reuse = this.accessor.deserialize(reuse, this.partition);
 							if (this.comparator.equalToReference(reuse)) {
 								this.lastPointer = pointer;
+								if (this.markMatches) {
+									this.bucket.putInt(this.posInSegment - HASH_CODE_LEN, thisCode | HASH_CODE_MATCHED_FLAG);
+								}
 								return reuse;
 							}
 						}
@@ -1421,6 +2033,88 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 
 	} // end HashBucketIterator
 	
+	// ======================================================================================================
+	
+	/**
+	 * Iterates over the entries of all in-memory partitions of the current table whose build-side
+	 * record was not marked as matched while probing the table.
+	 */
+	private final class UnmatchedBuildSideIterator implements MutableObjectIterator<BT> {
+		
+		private MemorySegment bucket;
+		
+		private HashPartition<BT, PT> partition;
+		
+		private int bucketInSegmentOffset;
+		
+		private int countInSegment;
+		
+		private int numInSegment;
+		
+		private int nextBucket;
+		
+		
+		void reset() {
+			this.bucket = null;
+			this.partition = null;
+			this.countInSegment = 0;
+			this.numInSegment = 0;
+			this.nextBucket = 0;
+		}
+
+		@Override
+		public BT next(BT reuse) throws IOException {
+			while (true) {
+				while (this.numInSegment < this.countInSegment) {
+					final int code = this.bucket.getInt(this.bucketInSegmentOffset + BUCKET_HEADER_LENGTH +
+												(this.numInSegment * HASH_CODE_LEN));
+					final long pointer = this.bucket.getLong(this.bucketInSegmentOffset + 
+												BUCKET_POINTER_START_OFFSET + (this.numInSegment * POINTER_LEN));
+					this.numInSegment++;
+					
+					if ((code & HASH_CODE_MATCHED_FLAG) == 0) {
+						this.partition.setReadPosition(pointer);
+						return buildSideSerializer.deserialize(reuse, this.partition);
+					}
+				}
+				
+				// this segment is done. check if there is another chained bucket
+				if (this.bucket != null) {
+					final long forwardPointer = this.bucket.getLong(this.bucketInSegmentOffset + HEADER_FORWARD_OFFSET);
+					if (forwardPointer != BUCKET_FORWARD_POINTER_NOT_SET) {
+						final int overflowSegNum = (int) (forwardPointer >>> 32);
+						this.bucket = this.partition.overflowSegments[overflowSegNum];
+						this.bucketInSegmentOffset = (int) (forwardPointer & 0xffffffff);
+						this.countInSegment = this.bucket.getShort(this.bucketInSegmentOffset + HEADER_COUNT_OFFSET);
+						this.numInSegment = 0;
+						continue;
+					}
+				}
+				
+				// move to the next bucket of the table that belongs to an in-memory partition
+				this.bucket = null;
+				this.countInSegment = 0;
+				this.numInSegment = 0;
+				
+				if (this.nextBucket >= numBuckets) {
+					return null;
+				}
+				
+				final int bucketPos = this.nextBucket++;
+				final MemorySegment seg = buckets[bucketPos >> bucketsPerSegmentBits];
+				final int offset = (bucketPos & bucketsPerSegmentMask) << NUM_INTRA_BUCKET_BITS;
+				final HashPartition<BT, PT> p = partitionsBeingBuilt.get(seg.get(offset + HEADER_PARTITION_OFFSET));
+				
+				if (p.isInMemory()) {
+					this.bucket = seg;
+					this.partition = p;
+					this.bucketInSegmentOffset = offset;
+					this.countInSegment = seg.getShort(offset + HEADER_COUNT_OFFSET);
+				}
+			}
+		}
+	}
+	
 
 	// ======================================================================================================
 	
@@ -127,6 +127,24 @@ public class ReOpenableMutableHashTable<BT, PT> extends MutableHashTable<BT, PT>
 	}
 	
 
+	/**
+	 * Checks whether the initial hash table is completely memory resident, such that re-opening the probe
+	 * side neither reads spilled build-side partitions nor rebuilds the table from disk.
+	 * 
+	 * @return True, if no part of the build side was spilled, false otherwise.
+	 */
+	public boolean isBuildSideInMemory() {
+		if (this.spilled || this.initialPartitions == null) {
+			return false;
+		}
+		for (int partIdx = 0; partIdx < this.initialPartitions.size(); partIdx++) {
+			if (!this.initialPartitions.get(partIdx).isInMemory()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * This method stores the initial hash table's contents on disk if hash join needs the memory
 	 * for further partition processing.
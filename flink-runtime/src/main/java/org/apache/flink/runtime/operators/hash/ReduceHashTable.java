@@ -0,0 +1,403 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.hash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.flink.api.common.functions.GenericReduce;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.RandomAccessInputView;
+import org.apache.flink.runtime.io.disk.RandomAccessOutputView;
+import org.apache.flink.runtime.io.network.serialization.DataInputDeserializer;
+import org.apache.flink.runtime.io.network.serialization.DataOutputSerializer;
+import org.apache.flink.runtime.util.MathUtils;
+import org.apache.flink.util.Collector;
+
+/**
+ * A hash table that aggregates records with a reduce function as they arrive. The table holds one record per key
+ * and reduces every inserted record with the record of the same key in place, so the size of the table depends
+ * only on the number of distinct keys, not on the number of inserted records. As for all Reduce functions, the
+ * reduce function must not change the key of the records.
+ * <p>
+ * The memory is split into a bucket area and a record area. Each bucket holds the pointer to the first entry of
+ * its chain. The entries are appended to the record area and have the layout
+ * {@code [pointer to next entry (8 bytes)][hash code (4 bytes)][capacity (4 bytes)][serialized record]}.
+ * A reduced record that fits into the capacity of its entry overwrites the old record, otherwise it is appended
+ * as a new entry with twice the capacity that replaces the old one in the chain.
+ * <p>
+ * The table never spills. Once the record area is exhausted, {@link #processRecordWithReduce(Object)} returns
+ * false without having touched the given record, and the owner emits the aggregated records and resets the table.
+ * A reduced record that grew and finds no space left is taken out of its chain and kept aside until the table
+ * is emitted; the table counts as full from then on.
+ *
+ * @param <T> The type of the aggregated records.
+ */
+public class ReduceHashTable<T> {
+	
+	/** The number of bytes of the entry header. */
+	private static final int ENTRY_HEADER_LENGTH = 16;
+	
+	/** The size of a bucket, which holds the pointer to the first entry of the chain. */
+	private static final int BUCKET_SIZE = 8;
+	
+	/** The record length assumed for variable length records when dividing the memory. */
+	private static final int DEFAULT_RECORD_LENGTH = 24;
+	
+	/** The pointer that marks the end of a chain. */
+	private static final long END_OF_CHAIN = -1L;
+	
+	/** The minimal number of memory segments: one for the buckets, one for the records. */
+	public static final int MIN_NUM_MEMORY_SEGMENTS = 2;
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private final TypeSerializer<T> serializer;
+	
+	private final TypeComparator<T> comparator;
+	
+	private final GenericReduce<T> reducer;
+	
+	private final List<MemorySegment> memory;
+	
+	private final MemorySegment[] bucketSegments;
+	
+	private final RandomAccessOutputView recordOutput;
+	
+	private final RandomAccessInputView recordInput;
+	
+	private final DataOutputSerializer stagingBuffer;
+	
+	private final long recordAreaSize;
+	
+	private final int bucketsPerSegmentBits;
+	
+	private final int bucketsPerSegmentMask;
+	
+	private final int numBucketsMask;
+	
+	private T reuse;
+	
+	private long appendPosition;
+	
+	private int numEntries;
+	
+	private byte[] overflowRecord;
+	
+	private boolean closed;
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Creates a new table that aggregates records with the given reduce function in the given memory.
+	 * 
+	 * @param serializer The serializer for the records.
+	 * @param comparator The comparator that hashes the records and compares their keys.
+	 * @param reducer The reduce function that aggregates two records with the same key.
+	 * @param memory The memory segments for the table. Their size must be a power of two.
+	 */
+	public ReduceHashTable(TypeSerializer<T> serializer, TypeComparator<T> comparator, GenericReduce<T> reducer,
+			List<MemorySegment> memory)
+	{
+		if (serializer == null || comparator == null || reducer == null || memory == null) {
+			throw new NullPointerException();
+		}
+		if (memory.size() < MIN_NUM_MEMORY_SEGMENTS) {
+			throw new IllegalArgumentException("Too few memory segments provided. The reduce hash table needs at least " + 
+				MIN_NUM_MEMORY_SEGMENTS + " memory segments.");
+		}
+		
+		this.serializer = serializer;
+		this.comparator = comparator;
+		this.reducer = reducer;
+		this.memory = memory;
+		this.reuse = serializer.createInstance();
+		this.stagingBuffer = new DataOutputSerializer(64);
+		
+		final int segmentSize = memory.get(0).size();
+		final int segmentSizeBits = MathUtils.log2strict(segmentSize);
+		
+		// give the buckets about one pointer per expected entry, as a power of two number of segments
+		final int recordLength = serializer.getLength() > 0 ? serializer.getLength() : DEFAULT_RECORD_LENGTH;
+		final int entryLength = ENTRY_HEADER_LENGTH + recordLength;
+		final long bucketShare = ((long) memory.size()) * BUCKET_SIZE / (BUCKET_SIZE + entryLength);
+		final int numBucketSegments = MathUtils.roundDownToPowerOf2(
+			(int) Math.max(1, Math.min(bucketShare, memory.size() - 1)));
+		
+		this.bucketSegments = new MemorySegment[numBucketSegments];
+		for (int i = 0; i < numBucketSegments; i++) {
+			this.bucketSegments[i] = memory.get(i);
+		}
+		this.bucketsPerSegmentBits = segmentSizeBits - MathUtils.log2strict(BUCKET_SIZE);
+		this.bucketsPerSegmentMask = (1 << this.bucketsPerSegmentBits) - 1;
+		this.numBucketsMask = (numBucketSegments << this.bucketsPerSegmentBits) - 1;
+		
+		final ArrayList<MemorySegment> recordSegments = new ArrayList<MemorySegment>(memory.size() - numBucketSegments);
+		for (int i = numBucketSegments; i < memory.size(); i++) {
+			recordSegments.add(memory.get(i));
+		}
+		this.recordOutput = new RandomAccessOutputView(recordSegments.toArray(new MemorySegment[recordSegments.size()]),
+			segmentSize, segmentSizeBits);
+		this.recordInput = new RandomAccessInputView(recordSegments, segmentSize);
+		this.recordAreaSize = ((long) recordSegments.size()) << segmentSizeBits;
+		
+		reset();
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Reduces the given record with the record of the same key in the table, or inserts it, if the table holds
+	 * no record with that key.
+	 * 
+	 * @param record The record to aggregate.
+	 * @return True, if the record was aggregated, false, if the table has no space left for it.
+	 * @throws Exception Thrown, if the reduce function or the serialization fails.
+	 */
+	public boolean processRecordWithReduce(T record) throws Exception {
+		if (this.closed) {
+			throw new IllegalStateException("The hash table is closed.");
+		}
+		if (this.overflowRecord != null) {
+			return false;
+		}
+		
+		final TypeComparator<T> comparator = this.comparator;
+		final int hashCode = hash(comparator.hash(record));
+		final int bucket = hashCode & this.numBucketsMask;
+		final MemorySegment bucketSegment = this.bucketSegments[bucket >>> this.bucketsPerSegmentBits];
+		final int bucketOffset = (bucket & this.bucketsPerSegmentMask) << 3;
+		
+		final long head = bucketSegment.getLong(bucketOffset);
+		long previous = END_OF_CHAIN;
+		long pointer = head;
+		
+		comparator.setReference(record);
+		
+		while (pointer != END_OF_CHAIN) {
+			this.recordInput.setReadPosition(pointer);
+			final long next = this.recordInput.readLong();
+			final int entryHash = this.recordInput.readInt();
+			final int capacity = this.recordInput.readInt();
+			
+			if (entryHash == hashCode) {
+				this.reuse = this.serializer.deserialize(this.reuse, this.recordInput);
+				if (comparator.equalToReference(this.reuse)) {
+					final T reduced = this.reducer.reduce(this.reuse, record);
+					final byte[] bytes = stage(reduced);
+					final int length = this.stagingBuffer.length();
+					
+					if (length <= capacity) {
+						// overwrite the record in place
+						this.recordOutput.setWritePosition(pointer + ENTRY_HEADER_LENGTH);
+						this.recordOutput.write(bytes, 0, length);
+						return true;
+					}
+					
+					// the record grew: append it as a new entry that takes the place of the old one in the chain.
+					// if there is no space left, the reduced record replaces the old entry outside of the table
+					long newEntry = append(next, hashCode, bytes, length, Math.max(length, 2 * capacity));
+					if (newEntry == END_OF_CHAIN) {
+						newEntry = append(next, hashCode, bytes, length, length);
+					}
+					if (newEntry == END_OF_CHAIN) {
+						this.overflowRecord = new byte[length];
+						System.arraycopy(bytes, 0, this.overflowRecord, 0, length);
+						this.numEntries--;
+						newEntry = next;
+					}
+					if (previous == END_OF_CHAIN) {
+						bucketSegment.putLong(bucketOffset, newEntry);
+					} else {
+						this.recordOutput.setWritePosition(previous);
+						this.recordOutput.writeLong(newEntry);
+					}
+					return true;
+				}
+			}
+			
+			previous = pointer;
+			pointer = next;
+		}
+		
+		// new key: prepend a new entry to the chain
+		final byte[] bytes = stage(record);
+		final int length = this.stagingBuffer.length();
+		final long newEntry = append(head, hashCode, bytes, length, length);
+		if (newEntry == END_OF_CHAIN) {
+			return false;
+		}
+		bucketSegment.putLong(bucketOffset, newEntry);
+		this.numEntries++;
+		return true;
+	}
+	
+	/**
+	 * Emits all aggregated records of the table to the given collector.
+	 * 
+	 * @param out The collector to emit the records to.
+	 * @throws IOException Thrown, if a record cannot be deserialized.
+	 */
+	public void emit(Collector<T> out) throws IOException {
+		if (this.overflowRecord != null) {
+			final DataInputDeserializer in = new DataInputDeserializer(ByteBuffer.wrap(this.overflowRecord));
+			out.collect(this.serializer.deserialize(this.serializer.createInstance(), in));
+		}
+		if (this.numEntries == 0) {
+			return;
+		}
+		
+		final int numBuckets = this.numBucketsMask + 1;
+		for (int bucket = 0; bucket < numBuckets; bucket++) {
+			final MemorySegment bucketSegment = this.bucketSegments[bucket >>> this.bucketsPerSegmentBits];
+			long pointer = bucketSegment.getLong((bucket & this.bucketsPerSegmentMask) << 3);
+			
+			while (pointer != END_OF_CHAIN) {
+				this.recordInput.setReadPosition(pointer);
+				final long next = this.recordInput.readLong();
+				this.recordInput.skipBytesToRead(ENTRY_HEADER_LENGTH - 8);
+				
+				// emit a fresh object, the collector may hold on to it
+				out.collect(this.serializer.deserialize(this.serializer.createInstance(), this.recordInput));
+				pointer = next;
+			}
+		}
+	}
+	
+	/**
+	 * Writes all aggregated records of the table in their serialized form to the given view, for example to
+	 * spill them. The records are copied without being deserialized.
+	 * 
+	 * @param target The view to write the records to.
+	 * @throws IOException Thrown, if a record cannot be copied to the view.
+	 */
+	public void writeTo(DataOutputView target) throws IOException {
+		if (this.overflowRecord != null) {
+			target.write(this.overflowRecord);
+		}
+		if (this.numEntries == 0) {
+			return;
+		}
+		
+		final int numBuckets = this.numBucketsMask + 1;
+		for (int bucket = 0; bucket < numBuckets; bucket++) {
+			final MemorySegment bucketSegment = this.bucketSegments[bucket >>> this.bucketsPerSegmentBits];
+			long pointer = bucketSegment.getLong((bucket & this.bucketsPerSegmentMask) << 3);
+			
+			while (pointer != END_OF_CHAIN) {
+				this.recordInput.setReadPosition(pointer);
+				final long next = this.recordInput.readLong();
+				this.recordInput.skipBytesToRead(ENTRY_HEADER_LENGTH - 8);
+				
+				this.serializer.copy(this.recordInput, target);
+				pointer = next;
+			}
+		}
+	}
+	
+	/**
+	 * Removes all records from the table.
+	 */
+	public void reset() {
+		for (MemorySegment segment : this.bucketSegments) {
+			for (int offset = 0; offset < segment.size(); offset += BUCKET_SIZE) {
+				segment.putLong(offset, END_OF_CHAIN);
+			}
+		}
+		this.appendPosition = 0;
+		this.numEntries = 0;
+		this.overflowRecord = null;
+	}
+	
+	/**
+	 * Closes the table and returns its memory.
+	 * 
+	 * @return The memory segments of the table.
+	 */
+	public List<MemorySegment> close() {
+		this.closed = true;
+		return this.memory;
+	}
+	
+	/**
+	 * Gets the number of distinct keys in the table.
+	 * 
+	 * @return The number of records in the table.
+	 */
+	public int size() {
+		return this.overflowRecord == null ? this.numEntries : this.numEntries + 1;
+	}
+	
+	/**
+	 * Checks whether the table holds no records.
+	 * 
+	 * @return True, if the table holds no records, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private byte[] stage(T record) throws IOException {
+		this.stagingBuffer.clear();
+		this.serializer.serialize(record, this.stagingBuffer);
+		final ByteBuffer buffer = this.stagingBuffer.wrapAsByteBuffer();
+		return buffer.array();
+	}
+	
+	/**
+	 * Appends an entry with the given capacity to the record area.
+	 * 
+	 * @return The pointer to the entry, or {@link #END_OF_CHAIN}, if the record area has no space left.
+	 */
+	private long append(long next, int hashCode, byte[] bytes, int length, int capacity) throws IOException {
+		final long entry = this.appendPosition;
+		if (entry + ENTRY_HEADER_LENGTH + capacity > this.recordAreaSize) {
+			return END_OF_CHAIN;
+		}
+		
+		this.recordOutput.setWritePosition(entry);
+		this.recordOutput.writeLong(next);
+		this.recordOutput.writeInt(hashCode);
+		this.recordOutput.writeInt(capacity);
+		this.recordOutput.write(bytes, 0, length);
+		
+		this.appendPosition = entry + ENTRY_HEADER_LENGTH + capacity;
+		return entry;
+	}
+	
+	/**
+	 * Spreads the bits of the hash code, so that the bucket bits depend on all bits of the code.
+	 */
+	private static final int hash(int code) {
+		code ^= code >>> 16;
+		code *= 0x85ebca6b;
+		code ^= code >>> 13;
+		code *= 0xc2b2ae35;
+		code ^= code >>> 16;
+		return code;
+	}
+}
@@ -0,0 +1,384 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.hash;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.flink.api.common.functions.GenericReduce;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelReader;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelWriter;
+import org.apache.flink.runtime.io.disk.iomanager.Channel;
+import org.apache.flink.runtime.io.disk.iomanager.ChannelReaderInputView;
+import org.apache.flink.runtime.io.disk.iomanager.ChannelWriterOutputView;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.MutableObjectIterator;
+
+/**
+ * Fully aggregates its input with a reduce function in hash tables, spilling to disk what does not fit into memory.
+ * The result holds exactly one record per key.
+ * <p>
+ * The records are hash partitioned into a number of {@link ReduceHashTable}s that share the memory. When the table
+ * of a partition runs full, its partial aggregates are written to a new file on disk and the table starts over.
+ * When the input is exhausted, the partitions that never spilled emit their records, and the spilled partitions
+ * write the rest of their partial aggregates to disk. Each spilled partition is then read back and aggregated in
+ * the same way, with a different hash function to partition its records. Since a spilled partition holds only
+ * a fraction of the keys, it typically fits into memory at that point. A partition that still spills after
+ * {@link #MAX_RECURSION_DEPTH} rounds is considered to have too many records with colliding hash codes, and
+ * the aggregation fails.
+ *
+ * @param <T> The type of the aggregated records.
+ */
+public class SpillingReduceHashTable<T> {
+
+	private static final Log LOG = LogFactory.getLog(SpillingReduceHashTable.class);
+
+	/** The maximal number of partitions. */
+	private static final int MAX_NUM_PARTITIONS = 32;
+
+	/** The number of memory segments a partition should have at least, before the number of partitions is reduced. */
+	private static final int MIN_SEGMENTS_PER_PARTITION = 8;
+
+	/** The number of memory segments used to write a partition to disk, and to read it back. */
+	private static final int NUM_IO_BUFFERS = 2;
+
+	/** The number of times a spilled partition is partitioned again, before the aggregation fails. */
+	private static final int MAX_RECURSION_DEPTH = 3;
+
+	/** The minimal number of memory segments: the write and read buffers, and two partitions. */
+	public static final int MIN_NUM_MEMORY_SEGMENTS = 2 * NUM_IO_BUFFERS + 2 * ReduceHashTable.MIN_NUM_MEMORY_SEGMENTS;
+
+	// --------------------------------------------------------------------------------------------
+
+	private final TypeSerializer<T> serializer;
+
+	private final TypeComparator<T> comparator;
+
+	private final IOManager ioManager;
+
+	private final Channel.Enumerator channelEnumerator;
+
+	private final List<MemorySegment> memory;
+
+	private final ReduceHashTable<T>[] partitions;
+
+	private final List<SpilledFile>[] spilledFiles;
+
+	private final ArrayDeque<SpilledPartition> pendingPartitions;
+
+	private final int segmentSize;
+
+	private List<MemorySegment> writeBuffers;
+
+	private List<MemorySegment> readBuffers;
+
+	private SpilledPartitionIterator currentSpilledPartition;
+
+	private volatile boolean closed;
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new table that aggregates records with the given reduce function in the given memory.
+	 *
+	 * @param serializer The serializer for the records.
+	 * @param comparator The comparator that hashes the records and compares their keys.
+	 * @param reducer The reduce function that aggregates two records with the same key.
+	 * @param memory The memory segments for the table. Their size must be a power of two.
+	 * @param ioManager The I/O manager used to spill partitions.
+	 */
+	@SuppressWarnings("unchecked")
+	public SpillingReduceHashTable(TypeSerializer<T> serializer, TypeComparator<T> comparator, GenericReduce<T> reducer,
+			List<MemorySegment> memory, IOManager ioManager)
+	{
+		if (serializer == null || comparator == null || reducer == null || memory == null || ioManager == null) {
+			throw new NullPointerException();
+		}
+		if (memory.size() < MIN_NUM_MEMORY_SEGMENTS) {
+			throw new IllegalArgumentException("Too few memory segments provided. The spilling reduce hash table needs at least " +
+				MIN_NUM_MEMORY_SEGMENTS + " memory segments.");
+		}
+
+		this.serializer = serializer;
+		this.comparator = comparator;
+		this.ioManager = ioManager;
+		this.channelEnumerator = ioManager.createChannelEnumerator();
+		this.memory = memory;
+		this.segmentSize = memory.get(0).size();
+		this.pendingPartitions = new ArrayDeque<SpilledPartition>();
+
+		this.writeBuffers = new ArrayList<MemorySegment>(memory.subList(0, NUM_IO_BUFFERS));
+		this.readBuffers = new ArrayList<MemorySegment>(memory.subList(NUM_IO_BUFFERS, 2 * NUM_IO_BUFFERS));
+
+		// divide the rest of the memory among the partitions
+		final int tableSegments = memory.size() - 2 * NUM_IO_BUFFERS;
+		final int numPartitions = Math.max(2, Math.min(MAX_NUM_PARTITIONS, tableSegments / MIN_SEGMENTS_PER_PARTITION));
+
+		this.partitions = new ReduceHashTable[numPartitions];
+		this.spilledFiles = new List[numPartitions];
+
+		int offset = 2 * NUM_IO_BUFFERS;
+		for (int i = 0; i < numPartitions; i++) {
+			final int numSegments = tableSegments / numPartitions + (i < tableSegments % numPartitions ? 1 : 0);
+			final List<MemorySegment> partitionMemory = new ArrayList<MemorySegment>(memory.subList(offset, offset + numSegments));
+			this.partitions[i] = new ReduceHashTable<T>(serializer, comparator.duplicate(), reducer, partitionMemory);
+			offset += numSegments;
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Aggregates all records of the given input and emits one record per key to the given collector.
+	 *
+	 * @param input The records to aggregate.
+	 * @param out The collector to emit the aggregated records to.
+	 * @throws Exception Thrown, if the reduce function fails, if a partition cannot be spilled or read, or if a
+	 *                   partition does not fit into memory after the maximal number of recursions.
+	 */
+	public void aggregate(MutableObjectIterator<T> input, Collector<T> out) throws Exception {
+		aggregate(input, 0, out);
+
+		// depth first, so that the partitions of one recursion are done before the files of the next are written
+		while (!this.closed && !this.pendingPartitions.isEmpty()) {
+			final SpilledPartition partition = this.pendingPartitions.removeLast();
+			if (partition.recursionLevel >= MAX_RECURSION_DEPTH) {
+				this.pendingPartitions.addLast(partition);
+				throw new IOException("Hash aggregation exceeded the maximum recursion depth of " + MAX_RECURSION_DEPTH +
+					". The keys of a partition do not fit into memory, probably because too many of them have " +
+					"colliding hash codes.");
+			}
+
+			this.currentSpilledPartition = new SpilledPartitionIterator(partition.files);
+			aggregate(this.currentSpilledPartition, partition.recursionLevel + 1, out);
+			this.currentSpilledPartition = null;
+		}
+	}
+
+	/**
+	 * Closes the table, deletes all spilled files and returns its memory. A running aggregation stops.
+	 *
+	 * @return The memory segments of the table.
+	 */
+	public List<MemorySegment> close() {
+		if (this.closed) {
+			return this.memory;
+		}
+		this.closed = true;
+
+		if (this.currentSpilledPartition != null) {
+			this.currentSpilledPartition.close();
+			this.currentSpilledPartition = null;
+		}
+		for (int i = 0; i < this.spilledFiles.length; i++) {
+			if (this.spilledFiles[i] != null) {
+				deleteFiles(this.spilledFiles[i]);
+				this.spilledFiles[i] = null;
+			}
+		}
+		while (!this.pendingPartitions.isEmpty()) {
+			deleteFiles(this.pendingPartitions.removeFirst().files);
+		}
+		for (ReduceHashTable<T> partition : this.partitions) {
+			partition.close();
+		}
+		return this.memory;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private void aggregate(MutableObjectIterator<T> input, int recursionLevel, Collector<T> out) throws Exception {
+		final ReduceHashTable<T>[] partitions = this.partitions;
+		final TypeComparator<T> comparator = this.comparator;
+
+		for (ReduceHashTable<T> partition : partitions) {
+			partition.reset();
+		}
+
+		T record = this.serializer.createInstance();
+		while (!this.closed && (record = input.next(record)) != null) {
+			final int partitionNumber = MutableHashTable.hash(comparator.hash(record), recursionLevel) % partitions.length;
+			final ReduceHashTable<T> partition = partitions[partitionNumber];
+
+			if (!partition.processRecordWithReduce(record)) {
+				spill(partitionNumber);
+				if (!partition.processRecordWithReduce(record)) {
+					throw new IOException("Cannot write record to fresh hash table. Record too large.");
+				}
+			}
+		}
+		if (this.closed) {
+			return;
+		}
+
+		// emit the partitions that stayed in memory, and write the rest of the spilled ones
+		int numSpilled = 0;
+		for (int i = 0; i < partitions.length; i++) {
+			if (this.spilledFiles[i] == null) {
+				partitions[i].emit(out);
+			} else {
+				if (!partitions[i].isEmpty()) {
+					spill(i);
+				}
+				this.pendingPartitions.addLast(new SpilledPartition(this.spilledFiles[i], recursionLevel));
+				this.spilledFiles[i] = null;
+				numSpilled++;
+			}
+			partitions[i].reset();
+		}
+
+		if (numSpilled > 0 && LOG.isDebugEnabled()) {
+			LOG.debug("Hash aggregation spilled " + numSpilled + " of " + partitions.length +
+				" partitions in recursion level " + recursionLevel + ".");
+		}
+	}
+
+	private void spill(int partitionNumber) throws IOException {
+		final ReduceHashTable<T> partition = this.partitions[partitionNumber];
+
+		final Channel.ID channel = this.channelEnumerator.next();
+		final BlockChannelWriter writer = this.ioManager.createBlockChannelWriter(channel);
+		final ChannelWriterOutputView outView = new ChannelWriterOutputView(writer, this.writeBuffers, this.segmentSize);
+		try {
+			partition.writeTo(outView);
+		}
+		finally {
+			this.writeBuffers = outView.close();
+		}
+
+		List<SpilledFile> files = this.spilledFiles[partitionNumber];
+		if (files == null) {
+			files = new ArrayList<SpilledFile>();
+			this.spilledFiles[partitionNumber] = files;
+		}
+		files.add(new SpilledFile(writer, outView.getBlockCount()));
+
+		partition.reset();
+	}
+
+	private static void deleteFiles(List<SpilledFile> files) {
+		for (SpilledFile file : files) {
+			file.writer.deleteChannel();
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * A file that holds the partial aggregates of a partition, written when the partition's table ran full.
+	 */
+	private static final class SpilledFile {
+
+		private final BlockChannelWriter writer;
+
+		private final int numBlocks;
+
+		private SpilledFile(BlockChannelWriter writer, int numBlocks) {
+			this.writer = writer;
+			this.numBlocks = numBlocks;
+		}
+	}
+
+	/**
+	 * The files of a spilled partition, together with the recursion level in which the partition spilled.
+	 */
+	private static final class SpilledPartition {
+
+		private final List<SpilledFile> files;
+
+		private final int recursionLevel;
+
+		private SpilledPartition(List<SpilledFile> files, int recursionLevel) {
+			this.files = files;
+			this.recursionLevel = recursionLevel;
+		}
+	}
+
+	/**
+	 * Reads the records of all files of a spilled partition, and deletes each file once it is read.
+	 */
+	private final class SpilledPartitionIterator implements MutableObjectIterator<T> {
+
+		private final Iterator<SpilledFile> files;
+
+		private SpilledFile currentFile;
+
+		private BlockChannelReader currentReader;
+
+		private ChannelReaderInputView currentView;
+
+		private SpilledPartitionIterator(List<SpilledFile> files) {
+			this.files = files.iterator();
+		}
+
+		@Override
+		public T next(T reuse) throws IOException {
+			while (true) {
+				if (this.currentView == null) {
+					if (!this.files.hasNext()) {
+						return null;
+					}
+					this.currentFile = this.files.next();
+					this.files.remove();
+					this.currentReader = ioManager.createBlockChannelReader(this.currentFile.writer.getChannelID());
+					this.currentView = new ChannelReaderInputView(this.currentReader, readBuffers,
+						this.currentFile.numBlocks, false);
+				}
+
+				try {
+					return serializer.deserialize(reuse, this.currentView);
+				}
+				catch (EOFException eofex) {
+					readBuffers = this.currentView.close();
+					this.currentReader.deleteChannel();
+					this.currentView = null;
+					this.currentReader = null;
+					this.currentFile = null;
+				}
+			}
+		}
+
+		private void close() {
+			if (this.currentView != null) {
+				try {
+					readBuffers = this.currentView.close();
+				}
+				catch (Throwable t) {
+					LOG.error("Error while closing spilled partition: " + t.getMessage(), t);
+				}
+				this.currentReader.deleteChannel();
+				this.currentView = null;
+			}
+			while (this.files.hasNext()) {
+				this.files.next().writer.deleteChannel();
+			}
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package org.apache.flink.runtime.operators.resettable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -30,24 +31,39 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataInputView;
 import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentSource;
 import org.apache.flink.runtime.io.disk.SpillingBuffer;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
-import org.apache.flink.runtime.memorymanager.ListMemorySegmentSource;
 import org.apache.flink.runtime.memorymanager.MemoryAllocationException;
+import org.apache.flink.runtime.memorymanager.MemoryBroker;
+import org.apache.flink.runtime.memorymanager.MemoryConsumer;
 import org.apache.flink.runtime.memorymanager.MemoryManager;
 import org.apache.flink.runtime.util.ResettableIterator;
 
 /**
  * Implementation of a resettable iterator. While iterating the first time over the data, the iterator writes the
  * records to a spillable buffer. Any subsequent iteration re-reads the data from that buffer.
+ * <p>
+ * If the iterator allocates its own memory, it takes part in the memory exchange of its task: It borrows idle
+ * pages from other consumers before it spills, and it lends the pages that the buffered data did not use.
  * 
  * @param <T> The type of record that the iterator handles.
  */
-public class SpillingResettableIterator<T> implements ResettableIterator<T> {
+public class SpillingResettableIterator<T> implements ResettableIterator<T>, MemoryConsumer {
 	
 	private static final Log LOG = LogFactory.getLog(SpillingResettableIterator.class);
 	
+	/**
+	 * The minimal number of pages that the iterator works with, if the memory is short.
+	 */
+	private static final int MIN_NUM_PAGES = 2;
+	
+	/**
+	 * The number of pages that the iterator tries to borrow at once, before it spills.
+	 */
+	private static final int NUM_PAGES_TO_BORROW = 4;
+	
 	// ------------------------------------------------------------------------
 
 	private T next;
@@ -72,6 +88,10 @@ public class SpillingResettableIterator<T> implements ResettableIterator<T> {
 	
 	private final boolean releaseMemoryOnClose;
 	
+	private final MemoryBroker memoryBroker;
+	
+	private boolean lendingEnabled;		// guarded by the lock on the memory segments list
+	
 	// ------------------------------------------------------------------------
 
 
@@ -80,18 +100,27 @@ public class SpillingResettableIterator<T> implements ResettableIterator<T> {
 			int numPages, AbstractInvokable parentTask)
 	throws MemoryAllocationException
 	{
-		this(input, serializer, memoryManager, ioManager, memoryManager.allocatePages(parentTask, numPages), true);
+		this(input, serializer, memoryManager, ioManager, memoryManager.getMemoryBroker(parentTask), numPages);
 	}
 	
 	public SpillingResettableIterator(Iterator<T> input, TypeSerializer<T> serializer,
 			MemoryManager memoryManager, IOManager ioManager, List<MemorySegment> memory)
 	{
-		this(input, serializer, memoryManager, ioManager, memory, false);
+		this(input, serializer, memoryManager, ioManager, memory, false, null);
+	}
+	
+	private SpillingResettableIterator(Iterator<T> input, TypeSerializer<T> serializer,
+			MemoryManager memoryManager, IOManager ioManager, MemoryBroker broker, int numPages)
+	throws MemoryAllocationException
+	{
+		// if the memory is short, work with less memory and spill earlier, rather than failing
+		this(input, serializer, memoryManager, ioManager,
+			broker.allocatePages(Math.min(numPages, MIN_NUM_PAGES), numPages), true, broker);
 	}
 	
 	private SpillingResettableIterator(Iterator<T> input, TypeSerializer<T> serializer,
 			MemoryManager memoryManager, IOManager ioManager,
-			List<MemorySegment> memory, boolean releaseMemOnClose)
+			List<MemorySegment> memory, boolean releaseMemOnClose, MemoryBroker broker)
 	{
 		this.memoryManager = memoryManager;
 		this.input = input;
@@ -99,12 +128,13 @@ public class SpillingResettableIterator<T> implements ResettableIterator<T> {
 		this.serializer = serializer;
 		this.memorySegments = memory;
 		this.releaseMemoryOnClose = releaseMemOnClose;
+		this.memoryBroker = broker;
 		
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Creating spilling resettable iterator with " + memory.size() + " pages of memory.");
 		}
 		
-		this.buffer = new SpillingBuffer(ioManager, new ListMemorySegmentSource(memory), memoryManager.getPageSize());
+		this.buffer = new SpillingBuffer(ioManager, new BorrowingMemorySource(), memoryManager.getPageSize());
 	}
 
 	
@@ -117,6 +147,33 @@ public class SpillingResettableIterator<T> implements ResettableIterator<T> {
 	public void reset() throws IOException {
 		this.inView = this.buffer.flip();
 		this.currentElementNum = 0;
+		
+		// the data is completely buffered now, the remaining pages are idle
+		if (this.memoryBroker != null) {
+			synchronized (this.memorySegments) {
+				if (this.lendingEnabled) {
+					return;
+				}
+				this.lendingEnabled = true;
+			}
+			this.memoryBroker.register(this);
+		}
+	}
+	
+	@Override
+	public List<MemorySegment> lendPages(int numPages) {
+		synchronized (this.memorySegments) {
+			if (!this.lendingEnabled || this.memorySegments.isEmpty()) {
+				return Collections.emptyList();
+			}
+			
+			final int num = Math.min(numPages, this.memorySegments.size());
+			final ArrayList<MemorySegment> lent = new ArrayList<MemorySegment>(num);
+			for (int i = 0; i < num; i++) {
+				lent.add(this.memorySegments.remove(this.memorySegments.size() - 1));
+			}
+			return lent;
+		}
 	}
 
 	@Override
@@ -178,9 +235,16 @@ public class SpillingResettableIterator<T> implements ResettableIterator<T> {
 
 		this.inView = null;
 		
+		if (this.memoryBroker != null) {
+			this.memoryBroker.unregister(this);
+		}
+		
 		final List<MemorySegment> memory = this.buffer.close();
-		memory.addAll(this.memorySegments);
-		this.memorySegments.clear();
+		synchronized (this.memorySegments) {
+			this.lendingEnabled = false;
+			memory.addAll(this.memorySegments);
+			this.memorySegments.clear();
+		}
 		
 		if (this.releaseMemoryOnClose) {
 			this.memoryManager.release(memory);
@@ -189,4 +253,38 @@ public class SpillingResettableIterator<T> implements ResettableIterator<T> {
 			return memory;
 		}
 	}
+	
+	// ------------------------------------------------------------------------
+	
+	/**
+	 * Draws the pages for the buffer from the iterator's memory. When that is exhausted, it borrows idle pages
+	 * through the memory broker, before the buffer starts spilling.
+	 */
+	private final class BorrowingMemorySource implements MemorySegmentSource {
+		
+		@Override
+		public MemorySegment nextSegment() {
+			final List<MemorySegment> segments = SpillingResettableIterator.this.memorySegments;
+			
+			synchronized (segments) {
+				if (!segments.isEmpty()) {
+					return segments.remove(segments.size() - 1);
+				}
+			}
+			if (memoryBroker == null) {
+				return null;
+			}
+			
+			// borrow outside the lock, the broker calls into the other consumers
+			final List<MemorySegment> borrowed = memoryBroker.borrowPages(SpillingResettableIterator.this, NUM_PAGES_TO_BORROW);
+			if (borrowed.isEmpty()) {
+				return null;
+			}
+			final MemorySegment next = borrowed.remove(borrowed.size() - 1);
+			synchronized (segments) {
+				segments.addAll(borrowed);
+			}
+			return next;
+		}
+	}
 }
@@ -19,6 +19,14 @@
 
 package org.apache.flink.runtime.operators.shipping;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
 import org.apache.flink.api.common.distributions.DataDistribution;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.runtime.io.network.api.ChannelSelector;
@@ -26,6 +34,11 @@ import org.apache.flink.runtime.plugable.SerializationDelegate;
 
 public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T>> {
 	
+	/**
+	 * The number of key groups per channel into which a balanced hash partitioning hashes the keys.
+	 */
+	private static final int KEY_GROUPS_PER_CHANNEL = 32;
+	
 	private final ShipStrategyType strategy;		// the shipping strategy used by this output emitter
 	
 	private int[] channels;						// the reused array defining target channels
@@ -33,6 +46,14 @@ public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T
 	private int nextChannelToSendTo = 0;		// counter to go over channels round robin
 	
 	private final TypeComparator<T> comparator;	// the comparator for hashing / sorting
+	
+	private List<T> rangeSample;				// the sorted sample from which the range boundaries are drawn
+	
+	private Object[] rangeBoundaries;			// the upper boundaries of all but the last range partition
+	
+	private List<T> keyGroupSample;				// the sample from which the sizes of the key groups are estimated
+	
+	private int[] keyGroupChannels;				// the channel of each key group
 
 	// ------------------------------------------------------------------------
 	// Constructors
@@ -71,7 +92,8 @@ public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T
 	 * 
 	 * @param strategy The distribution strategy to be used.
 	 * @param comparator The comparator used to hash / compare the records.
-	 * @param distr The distribution pattern used in the case of a range partitioning.
+	 * @param distr The distribution pattern used in the case of a range partitioning. Range partitioning
+	 *              of generic types draws its boundaries from a sample instead, see {@link #setRangeSample(Collection)}.
 	 */
 	public OutputEmitter(ShipStrategyType strategy, TypeComparator<T> comparator, DataDistribution distr) {
 		if (strategy == null) { 
@@ -92,11 +114,52 @@ public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T
 			throw new IllegalArgumentException("Invalid shipping strategy for OutputEmitter: " + strategy.name());
 		}
 		
-		if ((strategy == ShipStrategyType.PARTITION_RANGE) && distr == null) {
-			throw new NullPointerException("Data distribution must not be null when the ship strategy is range partitioning.");
+		if ((strategy == ShipStrategyType.PARTITION_RANGE) && comparator == null) {
+			throw new NullPointerException("The comparator must not be null when the ship strategy is range partitioning.");
 		}
 	}
+	
+	/**
+	 * Sets the sample of the records from which a range partitioning draws its partition boundaries. The boundaries
+	 * are the records that split the sorted sample into as many equally sized ranges as there are channels.
+	 * 
+	 * @param sample A sample of the records that are range partitioned.
+	 */
+	public void setRangeSample(Collection<T> sample) {
+		if (this.strategy != ShipStrategyType.PARTITION_RANGE) {
+			throw new IllegalStateException("Only a range partitioning output emitter takes a sample.");
+		}
+		
+		final TypeComparator<T> comparator = this.comparator;
+		final List<T> sorted = new ArrayList<T>(sample);
+		Collections.sort(sorted, new Comparator<T>() {
+			@Override
+			public int compare(T o1, T o2) {
+				return comparator.compare(o1, o2);
+			}
+		});
+		
+		this.rangeSample = sorted;
+		this.rangeBoundaries = null;
+	}
 
+	/**
+	 * Sets the sample of the records from which a hash partitioning estimates the sizes of its key groups. Once a
+	 * sample is set, the hash values of the keys select one of many key groups rather than directly a channel, and
+	 * the key groups are assigned to the channels such that the channels receive similar numbers of records. The
+	 * assignment depends only on the contents of the sample, so all emitters with the same sample agree on it.
+	 * 
+	 * @param sample A sample of the records that are hash partitioned.
+	 */
+	public void setKeyGroupSample(Collection<T> sample) {
+		if (this.strategy != ShipStrategyType.PARTITION_HASH) {
+			throw new IllegalStateException("Only a hash partitioning output emitter takes a key group sample.");
+		}
+		
+		this.keyGroupSample = new ArrayList<T>(sample);
+		this.keyGroupChannels = null;
+	}
+	
 	// ------------------------------------------------------------------------
 	// Channel Selection
 	// ------------------------------------------------------------------------
@@ -149,21 +212,75 @@ public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T
 			channels = new int[1];
 		}
 
-		int hash = this.comparator.hash(record);
-
-		hash = murmurHash(hash);
-
+		if (this.keyGroupSample == null) {
+			this.channels[0] = positiveHash(record) % numberOfChannels;
+		}
+		else {
+			if (this.keyGroupChannels == null || this.keyGroupChannels.length != numberOfChannels * KEY_GROUPS_PER_CHANNEL) {
+				this.keyGroupChannels = computeKeyGroupChannels(numberOfChannels);
+			}
+			this.channels[0] = this.keyGroupChannels[positiveHash(record) % this.keyGroupChannels.length];
+		}
+	
+		return this.channels;
+	}
+	
+	private final int positiveHash(T record) {
+		final int hash = murmurHash(this.comparator.hash(record));
+		
 		if (hash >= 0) {
-			this.channels[0] = hash % numberOfChannels;
+			return hash;
 		}
 		else if (hash != Integer.MIN_VALUE) {
-			this.channels[0] = -hash % numberOfChannels;
+			return -hash;
 		}
 		else {
-			this.channels[0] = 0;
+			return 0;
 		}
+	}
 	
-		return this.channels;
+	private final int[] computeKeyGroupChannels(int numberOfChannels) {
+		final int numKeyGroups = numberOfChannels * KEY_GROUPS_PER_CHANNEL;
+		
+		// every key group counts one record more than it has in the sample, so that the key groups that
+		// are missing from the sample are still spread over all channels
+		final long[] sizes = new long[numKeyGroups];
+		Arrays.fill(sizes, 1);
+		for (T record : this.keyGroupSample) {
+			sizes[positiveHash(record) % numKeyGroups]++;
+		}
+		
+		// assign the key groups from the largest to the smallest to the channel with the least records so far.
+		// ties are broken by the indexes of the key groups and channels to keep the assignment deterministic.
+		final Integer[] keyGroups = new Integer[numKeyGroups];
+		for (int i = 0; i < numKeyGroups; i++) {
+			keyGroups[i] = i;
+		}
+		Arrays.sort(keyGroups, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer g1, Integer g2) {
+				final long s1 = sizes[g1];
+				final long s2 = sizes[g2];
+				return s1 > s2 ? -1 : s1 < s2 ? 1 : g1.compareTo(g2);
+			}
+		});
+		
+		// the queue holds the load of each channel, encoded as (load * numberOfChannels + channel)
+		final PriorityQueue<Long> loads = new PriorityQueue<Long>(numberOfChannels);
+		for (int i = 0; i < numberOfChannels; i++) {
+			loads.add(Long.valueOf(i));
+		}
+		
+		final int[] keyGroupChannels = new int[numKeyGroups];
+		for (Integer keyGroup : keyGroups) {
+			final long least = loads.poll();
+			final int channel = (int) (least % numberOfChannels);
+			final long load = least / numberOfChannels + sizes[keyGroup];
+			
+			keyGroupChannels[keyGroup] = channel;
+			loads.add(load * numberOfChannels + channel);
+		}
+		return keyGroupChannels;
 	}
 
 	private final int murmurHash(int k) {
@@ -185,6 +302,48 @@ public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T
 	}
 
 	private final int[] rangePartition(T record, int numberOfChannels) {
-		throw new UnsupportedOperationException();
+		if (this.channels == null || this.channels.length != 1) {
+			this.channels = new int[1];
+		}
+		if (this.rangeBoundaries == null || this.rangeBoundaries.length != numberOfChannels - 1) {
+			this.rangeBoundaries = computeRangeBoundaries(numberOfChannels);
+		}
+		
+		// binary search for the first range whose upper boundary is not smaller than the record
+		final Object[] boundaries = this.rangeBoundaries;
+		int low = 0;
+		int high = boundaries.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			@SuppressWarnings("unchecked")
+			final T boundary = (T) boundaries[mid];
+			if (this.comparator.compare(record, boundary) > 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		
+		this.channels[0] = low;
+		return this.channels;
+	}
+	
+	private final Object[] computeRangeBoundaries(int numberOfChannels) {
+		if (this.rangeSample == null) {
+			throw new IllegalStateException("Range partitioning requires a sample of the records to compute the " +
+					"partition boundaries, but none has been set.");
+		}
+		
+		final int sampleSize = this.rangeSample.size();
+		if (sampleSize == 0) {
+			// only empty inputs give an empty sample, so there is nothing to partition
+			return new Object[0];
+		}
+		
+		final Object[] boundaries = new Object[numberOfChannels - 1];
+		for (int i = 0; i < boundaries.length; i++) {
+			boundaries[i] = this.rangeSample.get((int) ((i + 1) * (long) sampleSize / numberOfChannels));
+		}
+		return boundaries;
 	}
 }
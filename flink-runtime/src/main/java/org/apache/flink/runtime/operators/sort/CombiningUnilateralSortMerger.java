@@ -392,10 +392,8 @@ public class CombiningUnilateralSortMerger<E> extends UnilateralSortMerger<E> {
 
 			// ------------------- Merging Phase ------------------------
 
-			// merge channels until sufficient file handles are available
-			while (isRunning() && channelIDs.size() > this.maxNumFileHandles) {
-				channelIDs = mergeChannelList(channelIDs, this.sortReadMemory, this.writeMemory);
-			}
+			// merge channels until the final merge can read all remaining runs with read-ahead
+			channelIDs = mergeChannelList(channelIDs, this.sortReadMemory, this.writeMemory);
 			
 			// from here on, we won't write again
 			this.memManager.release(this.writeMemory);
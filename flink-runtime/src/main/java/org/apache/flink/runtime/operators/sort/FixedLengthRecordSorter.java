@@ -35,7 +35,7 @@ import org.apache.flink.util.MutableObjectIterator;
 /**
  * 
  */
-public final class FixedLengthRecordSorter<T> implements InMemorySorter<T> {
+public final class FixedLengthRecordSorter<T> implements InMemorySorter<T>, RadixSortable {
 	
 	private static final int MIN_REQUIRED_BUFFERS = 3;
 
@@ -309,6 +309,31 @@ public final class FixedLengthRecordSorter<T> implements InMemorySorter<T> {
 	public int size() {
 		return this.numRecords;
 	}
+	
+	@Override
+	public boolean isNormalizedKeyFullyDetermining() {
+		// the records are compared by their normalized keys only
+		return true;
+	}
+	
+	@Override
+	public int getNormalizedKeyLength() {
+		return this.numKeyBytes;
+	}
+	
+	@Override
+	public int getNormalizedKeyByte(int i, int position) {
+		final int bufferNum = i / this.recordsPerSegment;
+		final int segmentOffset = (i % this.recordsPerSegment) * this.recordSize;
+		
+		final int b = this.sortBuffer.get(bufferNum).get(segmentOffset + position) & 0xff;
+		return this.useNormKeyUninverted ? b : 0xff - b;
+	}
+	
+	@Override
+	public boolean supportsConcurrentSorting() {
+		return MemorySegment.isSwappedInPlace(this.recordSize);
+	}
 
 	// -------------------------------------------------------------------------
 	
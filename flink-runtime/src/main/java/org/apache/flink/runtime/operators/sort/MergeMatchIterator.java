@@ -26,6 +26,7 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.flink.api.common.functions.GenericJoiner;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
@@ -81,6 +82,18 @@ public class MergeMatchIterator<T1, T2, O> implements JoinTaskIterator<T1, T2, O
 
 	private final IOManager ioManager;
 	
+	private final boolean outerJoin1;			// records of the first input without partner are preserved
+	
+	private final boolean outerJoin2;			// records of the second input without partner are preserved
+	
+	private boolean advance1 = true;				// the key group of the first input is consumed
+	
+	private boolean advance2 = true;				// the key group of the second input is consumed
+	
+	private boolean hasKey1;						// the first input is positioned on a key group
+	
+	private boolean hasKey2;						// the second input is positioned on a key group
+	
 	// --------------------------------------------------------------------------------------------
 	
 	public MergeMatchIterator(MutableObjectIterator<T1> input1, MutableObjectIterator<T2> input2,
@@ -88,6 +101,17 @@ public class MergeMatchIterator<T1, T2, O> implements JoinTaskIterator<T1, T2, O
 			TypeSerializer<T2> serializer2, TypeComparator<T2> comparator2, TypePairComparator<T1, T2> pairComparator,
 			MemoryManager memoryManager, IOManager ioManager, int numMemoryPages, AbstractInvokable parentTask)
 	throws MemoryAllocationException
+	{
+		this(input1, input2, serializer1, comparator1, serializer2, comparator2, pairComparator,
+			memoryManager, ioManager, numMemoryPages, parentTask, JoinType.INNER);
+	}
+	
+	public MergeMatchIterator(MutableObjectIterator<T1> input1, MutableObjectIterator<T2> input2,
+			TypeSerializer<T1> serializer1, TypeComparator<T1> comparator1,
+			TypeSerializer<T2> serializer2, TypeComparator<T2> comparator2, TypePairComparator<T1, T2> pairComparator,
+			MemoryManager memoryManager, IOManager ioManager, int numMemoryPages, AbstractInvokable parentTask,
+			JoinType joinType)
+	throws MemoryAllocationException
 	{
 		if (numMemoryPages < 2) {
 			throw new IllegalArgumentException("Merger needs at least 2 memory pages.");
@@ -104,6 +128,8 @@ public class MergeMatchIterator<T1, T2, O> implements JoinTaskIterator<T1, T2, O
 		
 		this.memoryManager = memoryManager;
 		this.ioManager = ioManager;
+		this.outerJoin1 = joinType.isOuterFirst();
+		this.outerJoin2 = joinType.isOuterSecond();
 		
 		this.iterator1 = new KeyGroupedIterator<T1>(input1, this.serializer1, comparator1.duplicate());
 		this.iterator2 = new KeyGroupedIterator<T2>(input2, this.serializer2, comparator2.duplicate());
@@ -154,6 +180,10 @@ public class MergeMatchIterator<T1, T2, O> implements JoinTaskIterator<T1, T2, O
 	public boolean callWithNextKey(final GenericJoiner<T1, T2, O> matchFunction, final Collector<O> collector)
 	throws Exception
 	{
+		if (this.outerJoin1 || this.outerJoin2) {
+			return callWithNextKeyOuter(matchFunction, collector);
+		}
+		
 		if (!this.iterator1.nextKey() || !this.iterator2.nextKey()) {
 			// consume all remanining keys (hack to prevent remaining inputs during iterations, lets get rid of this soon)
 			while (this.iterator1.nextKey());
@@ -191,6 +221,87 @@ public class MergeMatchIterator<T1, T2, O> implements JoinTaskIterator<T1, T2, O
 		
 		// here, we have a common key! call the match function with the cross product of the
 		// values
+		crossMatchingGroup(matchFunction, collector);
+		return true;
+	}
+	
+	/**
+	 * Variant of {@link #callWithNextKey(GenericJoiner, Collector)} for outer joins. Each call handles the
+	 * key group that is smallest among the current key groups of both inputs. A group that has no
+	 * partner in the other input is either passed to the match function, paired with <code>null</code>,
+	 * or dropped, depending on the side that the outer join preserves.
+	 * 
+	 * @throws Exception Forwards all exceptions from the user code and the I/O system.
+	 */
+	private boolean callWithNextKeyOuter(final GenericJoiner<T1, T2, O> matchFunction, final Collector<O> collector)
+	throws Exception
+	{
+		if (this.advance1) {
+			this.hasKey1 = this.iterator1.nextKey();
+			this.advance1 = false;
+		}
+		if (this.advance2) {
+			this.hasKey2 = this.iterator2.nextKey();
+			this.advance2 = false;
+		}
+		
+		if ((!this.hasKey1 && !(this.hasKey2 && this.outerJoin2)) || (!this.hasKey2 && !this.outerJoin1)) {
+			// no more groups that could produce a result. consume the remaining keys, as in the inner join
+			while (this.iterator1.nextKey());
+			while (this.iterator2.nextKey());
+			this.hasKey1 = false;
+			this.hasKey2 = false;
+			return false;
+		}
+		
+		// determine which group comes first. an exhausted input ranks behind all keys
+		final int comp;
+		if (!this.hasKey1) {
+			comp = -1;
+		} else if (!this.hasKey2) {
+			comp = 1;
+		} else {
+			this.comp.setReference(this.iterator1.getCurrent());
+			comp = this.comp.compareToReference(this.iterator2.getCurrent());
+		}
+		
+		if (comp == 0) {
+			crossMatchingGroup(matchFunction, collector);
+			this.advance1 = true;
+			this.advance2 = true;
+		}
+		else if (comp < 0) {
+			// the key of the second input is smaller, its group has no partner
+			if (this.outerJoin2) {
+				final Iterator<T2> values2 = this.iterator2.getValues();
+				while (values2.hasNext()) {
+					matchFunction.join(null, values2.next(), collector);
+				}
+			}
+			this.advance2 = true;
+		}
+		else {
+			// the key of the first input is smaller, its group has no partner
+			if (this.outerJoin1) {
+				final Iterator<T1> values1 = this.iterator1.getValues();
+				while (values1.hasNext()) {
+					matchFunction.join(values1.next(), null, collector);
+				}
+			}
+			this.advance1 = true;
+		}
+		return true;
+	}
+	
+	/**
+	 * Calls the match function with the cross product of the current key groups of both inputs, which
+	 * share the same key.
+	 * 
+	 * @throws Exception Forwards all exceptions from the user code and the I/O system.
+	 */
+	private void crossMatchingGroup(final GenericJoiner<T1, T2, O> matchFunction, final Collector<O> collector)
+	throws Exception
+	{
 		final KeyGroupedIterator<T1>.ValuesIterator values1 = this.iterator1.getValues();
 		final KeyGroupedIterator<T2>.ValuesIterator values2 = this.iterator2.getValues();
 		
@@ -220,7 +331,6 @@ public class MergeMatchIterator<T1, T2, O> implements JoinTaskIterator<T1, T2, O
 				matchFunction.join(firstV1, firstV2, collector);
 			}
 		}
-		return true;
 	}
 
 	/**
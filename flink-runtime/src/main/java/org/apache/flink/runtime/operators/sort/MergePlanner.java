@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.sort;
+
+import java.util.PriorityQueue;
+
+/**
+ * Plans the intermediate merge rounds of an external sort. The planner picks the merge fan-in that minimizes the
+ * estimated I/O cost of merging the sorted runs down to the final, streamed merge. The cost accounts for the
+ * volume that the intermediate merges read and write, and for the seeks between the merge inputs, which become
+ * more frequent the fewer read buffers each input gets.
+ * <p>
+ * Each merge input gets at least {@link #MIN_READ_BUFFERS_PER_INPUT} read buffers, so that the reader always has
+ * one block in flight while the merge consumes another.
+ * <p>
+ * With a fixed fan-in {@code F}, the intermediate merges always combine the smallest runs. The first merge
+ * combines only as many runs as needed so that all later merges, including the final one, use the full fan-in.
+ */
+final class MergePlanner {
+	
+	/**
+	 * The minimal number of read buffers per merge input, to read ahead asynchronously while merging.
+	 */
+	static final int MIN_READ_BUFFERS_PER_INPUT = 2;
+	
+	/**
+	 * The estimated cost of a seek, in terms of the time to transfer one block sequentially.
+	 */
+	private static final double SEEK_COST_IN_BLOCKS = 8.0;
+	
+	/**
+	 * The planner only has static methods.
+	 */
+	private MergePlanner() {}
+	
+	/**
+	 * Computes the fan-in for merging runs of the given sizes with the given memory.
+	 * 
+	 * @param runBlockCounts The number of blocks of each run.
+	 * @param numReadBuffers The number of buffers available to read the runs.
+	 * @param maxFanIn The maximal number of runs to merge at once, bounded by the number of file handles.
+	 * @return The fan-in with the lowest estimated cost, at least two.
+	 */
+	static int computeFanIn(int[] runBlockCounts, int numReadBuffers, int maxFanIn) {
+		final int upperBound = getMaximalFanIn(numReadBuffers, maxFanIn);
+		if (runBlockCounts.length <= upperBound) {
+			// everything is merged in the final merge. use all read buffers for that merge
+			return upperBound;
+		}
+		
+		int bestFanIn = upperBound;
+		double bestCost = Double.MAX_VALUE;
+		for (int fanIn = upperBound; fanIn >= 2; fanIn--) {
+			final double cost = estimateCost(runBlockCounts, numReadBuffers, fanIn);
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestFanIn = fanIn;
+			}
+		}
+		return bestFanIn;
+	}
+	
+	/**
+	 * Gets the largest fan-in for which each merge input gets its minimal number of read buffers.
+	 * 
+	 * @param numReadBuffers The number of buffers available to read the runs.
+	 * @param maxFanIn The maximal number of runs to merge at once, bounded by the number of file handles.
+	 * @return The largest possible fan-in, at least two.
+	 */
+	static int getMaximalFanIn(int numReadBuffers, int maxFanIn) {
+		return Math.max(2, Math.min(maxFanIn, numReadBuffers / MIN_READ_BUFFERS_PER_INPUT));
+	}
+	
+	/**
+	 * Gets the number of runs to combine in the first intermediate merge, such that all later merges can
+	 * combine {@code fanIn} runs and exactly {@code fanIn} runs remain for the final merge.
+	 * 
+	 * @param numRuns The number of runs, which must be larger than the fan-in.
+	 * @param fanIn The fan-in of the merges.
+	 * @return The number of runs to combine in the first merge.
+	 */
+	static int getFirstMergeFanIn(int numRuns, int fanIn) {
+		return ((numRuns - fanIn - 1) % (fanIn - 1)) + 2;
+	}
+	
+	/**
+	 * Gets the number of intermediate merges that reduce the given number of runs to the given fan-in.
+	 * 
+	 * @param numRuns The number of runs.
+	 * @param fanIn The fan-in of the merges.
+	 * @return The number of intermediate merges.
+	 */
+	static int getNumberOfIntermediateMerges(int numRuns, int fanIn) {
+		// every merge reduces the number of runs by (fanIn - 1), so this is ceil((numRuns - fanIn) / (fanIn - 1))
+		return numRuns <= fanIn ? 0 : (numRuns - 2) / (fanIn - 1);
+	}
+	
+	/**
+	 * Estimates the cost of merging the runs with the given fan-in, including the final merge, in blocks.
+	 */
+	static double estimateCost(int[] runBlockCounts, int numReadBuffers, int fanIn) {
+		final PriorityQueue<Long> runs = new PriorityQueue<Long>(runBlockCounts.length);
+		long totalBlocks = 0;
+		for (int blocks : runBlockCounts) {
+			runs.add(Long.valueOf(blocks));
+			totalBlocks += blocks;
+		}
+		
+		double cost = 0.0;
+		int numToMerge = runs.size() > fanIn ? getFirstMergeFanIn(runs.size(), fanIn) : 0;
+		
+		while (runs.size() > fanIn) {
+			long mergedBlocks = 0;
+			for (int i = 0; i < numToMerge; i++) {
+				mergedBlocks += runs.poll().longValue();
+			}
+			runs.add(Long.valueOf(mergedBlocks));
+			
+			// the merged blocks are read and written once
+			cost += mergedBlocks * (2.0 + seekCostPerBlock(numReadBuffers, numToMerge));
+			numToMerge = fanIn;
+		}
+		
+		// the final merge reads all blocks once
+		cost += totalBlocks * (1.0 + seekCostPerBlock(numReadBuffers, runs.size()));
+		return cost;
+	}
+	
+	/**
+	 * Estimates the seek cost per block read, when the given number of inputs share the read buffers. Each
+	 * input issues requests for half of its buffers at once, so a seek happens every that many blocks.
+	 */
+	private static double seekCostPerBlock(int numReadBuffers, int numInputs) {
+		final int blocksPerRequest = Math.max(1, numReadBuffers / numInputs / 2);
+		return SEEK_COST_IN_BLOCKS / blocksPerRequest;
+	}
+}
@@ -36,7 +36,7 @@ import org.apache.flink.util.MutableObjectIterator;
 /**
  * 
  */
-public final class NormalizedKeySorter<T> implements InMemorySorter<T>
+public final class NormalizedKeySorter<T> implements InMemorySorter<T>, RadixSortable
 {
 	private static final int OFFSET_LEN = 8;
 	
@@ -375,6 +375,31 @@ public final class NormalizedKeySorter<T> implements InMemorySorter<T>
 	public int size() {
 		return this.numRecords;
 	}
+	
+	@Override
+	public boolean isNormalizedKeyFullyDetermining() {
+		return this.normalizedKeyFullyDetermines;
+	}
+	
+	@Override
+	public int getNormalizedKeyLength() {
+		return this.numKeyBytes;
+	}
+	
+	@Override
+	public int getNormalizedKeyByte(int i, int position) {
+		final int bufferNum = i / this.indexEntriesPerSegment;
+		final int segmentOffset = (i % this.indexEntriesPerSegment) * this.indexEntrySize;
+		
+		final int b = this.sortIndex.get(bufferNum).get(segmentOffset + OFFSET_LEN + position) & 0xff;
+		return this.useNormKeyUninverted ? b : 0xff - b;
+	}
+	
+	@Override
+	public boolean supportsConcurrentSorting() {
+		// comparisons that fall back to the records use shared deserialization objects
+		return this.normalizedKeyFullyDetermines && MemorySegment.isSwappedInPlace(this.indexEntrySize);
+	}
 
 	// -------------------------------------------------------------------------
 	
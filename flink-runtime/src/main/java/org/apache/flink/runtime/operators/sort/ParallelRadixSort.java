@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A radix sort that sorts large buffers with several threads. The calling thread splits the buffer by the leading
+ * key bytes into disjoint ranges, which are then sorted by the calling thread together with helper tasks that are
+ * submitted to an executor. The calling thread works off all ranges that no helper picked up, so the sort
+ * completes even if the executor is saturated.
+ * <p>
+ * Buffers that are small, not radix sortable, or that do not support concurrent sorting are sorted by the
+ * calling thread alone, as by {@link RadixSort}.
+ */
+public final class ParallelRadixSort implements IndexedSorter {
+	
+	/**
+	 * Buffers with fewer elements are sorted by the calling thread alone.
+	 */
+	private static final int PARALLEL_THRESHOLD = 64 * 1024;
+	
+	/**
+	 * Ranges with fewer elements are not split any further.
+	 */
+	private static final int MIN_RANGE_SIZE = 4 * 1024;
+	
+	/**
+	 * The number of ranges per thread that the buffer is split into, to balance uneven bucket sizes.
+	 */
+	private static final int RANGES_PER_THREAD = 4;
+	
+	private final RadixSort sorter = new RadixSort();
+	
+	private final Executor executor;
+	
+	private final int parallelism;
+	
+	/**
+	 * Creates a new parallel radix sort.
+	 * 
+	 * @param executor The executor that runs the helper tasks.
+	 * @param parallelism The maximal number of threads that sort a single buffer, including the calling thread.
+	 */
+	public ParallelRadixSort(Executor executor, int parallelism) {
+		if (executor == null) {
+			throw new NullPointerException();
+		}
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least one.");
+		}
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public void sort(IndexedSortable s, int l, int r) {
+		if (this.parallelism < 2 || r - l < PARALLEL_THRESHOLD || !RadixSort.isRadixSortable(s) ||
+				!((RadixSortable) s).supportsConcurrentSorting())
+		{
+			this.sorter.sort(s, l, r);
+			return;
+		}
+		
+		final RadixSortable rs = (RadixSortable) s;
+		sortRanges(rs, split(rs, l, r));
+	}
+
+	@Override
+	public void sort(IndexedSortable s) {
+		sort(s, 0, s.size());
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Splits the range by distributing its largest part by the next key byte, until there are sufficiently many
+	 * ranges, or all ranges are small.
+	 */
+	private Range[] split(RadixSortable s, int l, int r) {
+		final int keyLength = s.getNormalizedKeyLength();
+		final int maxRanges = this.parallelism * RANGES_PER_THREAD;
+		
+		final int[] counts = new int[RadixSort.NUM_BUCKETS];
+		final int[] next = new int[RadixSort.NUM_BUCKETS];
+		final int[] ends = new int[RadixSort.NUM_BUCKETS];
+		
+		final PriorityQueue<Range> ranges = new PriorityQueue<Range>(maxRanges, LARGEST_FIRST);
+		ranges.add(new Range(l, r, 0));
+		
+		while (ranges.size() < maxRanges) {
+			final Range largest = ranges.peek();
+			if (largest == null || largest.size() < MIN_RANGE_SIZE) {
+				break;
+			}
+			ranges.poll();
+			
+			Arrays.fill(counts, 0);
+			final int position = RadixSort.distribute(s, largest.start, largest.end, largest.position, keyLength,
+				counts, next, ends);
+			if (position >= keyLength) {
+				// all keys in the range are equal, so it is sorted
+				continue;
+			}
+			
+			for (int b = 0, start = largest.start; b < RadixSort.NUM_BUCKETS; b++) {
+				final int end = start + counts[b];
+				if (end - start > 1) {
+					ranges.add(new Range(start, end, position + 1));
+				}
+				start = end;
+			}
+		}
+		
+		final Range[] result = ranges.toArray(new Range[ranges.size()]);
+		Arrays.sort(result, LARGEST_FIRST);
+		return result;
+	}
+	
+	private void sortRanges(final RadixSortable s, final Range[] ranges) {
+		final AtomicInteger nextRange = new AtomicInteger();
+		final CountDownLatch sortedRanges = new CountDownLatch(ranges.length);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		
+		final Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int i;
+				while ((i = nextRange.getAndIncrement()) < ranges.length) {
+					try {
+						final Range range = ranges[i];
+						sorter.sortRange(s, range.start, range.end, range.position);
+					}
+					catch (Throwable t) {
+						error.compareAndSet(null, t);
+					}
+					finally {
+						sortedRanges.countDown();
+					}
+				}
+			}
+		};
+		
+		// start the helpers. if the executor does not take any more tasks, the calling thread does the work
+		final int numHelpers = Math.min(this.parallelism - 1, ranges.length - 1);
+		for (int i = 0; i < numHelpers; i++) {
+			try {
+				this.executor.execute(worker);
+			}
+			catch (RejectedExecutionException rex) {
+				break;
+			}
+		}
+		
+		worker.run();
+		
+		// wait for the ranges that are still being sorted by helpers
+		boolean interrupted = false;
+		while (true) {
+			try {
+				sortedRanges.await();
+				break;
+			}
+			catch (InterruptedException iex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		
+		final Throwable t = error.get();
+		if (t != null) {
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			} else {
+				throw new RuntimeException("Sorting a range of the buffer failed: " + t.getMessage(), t);
+			}
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private static final class Range {
+		
+		final int start;		// inclusive
+		
+		final int end;			// exclusive
+		
+		final int position;		// the first key byte in which the elements may differ
+		
+		Range(int start, int end, int position) {
+			this.start = start;
+			this.end = end;
+			this.position = position;
+		}
+		
+		int size() {
+			return this.end - this.start;
+		}
+	}
+	
+	private static final Comparator<Range> LARGEST_FIRST = new Comparator<Range>() {
+		@Override
+		public int compare(Range o1, Range o2) {
+			return o2.size() - o1.size();
+		}
+	};
+}
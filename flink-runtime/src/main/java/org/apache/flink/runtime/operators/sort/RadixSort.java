@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.sort;
+
+import java.util.Arrays;
+
+/**
+ * An in-place most-significant-digit radix sort (American flag sort) over the normalized keys of a
+ * {@link RadixSortable}. It distributes the elements into 256 buckets per key byte through swaps only, so it needs
+ * no memory besides the sortable itself, and it does not call the comparator at all. Small buckets are sorted
+ * with the fallback sorter.
+ * <p>
+ * Sortables that are no {@link RadixSortable}, or whose normalized keys do not fully determine the order, are
+ * sorted completely by the fallback sorter.
+ */
+public final class RadixSort implements IndexedSorter {
+	
+	/**
+	 * Ranges smaller than this are sorted by the fallback sorter, for which the comparisons are cheaper than
+	 * another distribution pass.
+	 */
+	private static final int FALLBACK_THRESHOLD = 64;
+	
+	static final int NUM_BUCKETS = 256;
+	
+	private final IndexedSorter fallback;
+	
+	
+	public RadixSort() {
+		this(new QuickSort());
+	}
+	
+	public RadixSort(IndexedSorter fallback) {
+		if (fallback == null) {
+			throw new NullPointerException();
+		}
+		this.fallback = fallback;
+	}
+	
+	/**
+	 * Checks whether the given sortable is sorted by radix sort, rather than by the fallback sorter.
+	 * 
+	 * @param s The sortable to check.
+	 * @return True, if the sortable is radix sorted.
+	 */
+	public static boolean isRadixSortable(IndexedSortable s) {
+		if (s instanceof RadixSortable) {
+			final RadixSortable rs = (RadixSortable) s;
+			return rs.isNormalizedKeyFullyDetermining() && rs.getNormalizedKeyLength() > 0;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public void sort(IndexedSortable s, int l, int r) {
+		if (isRadixSortable(s)) {
+			final RadixSortable rs = (RadixSortable) s;
+			sortInternal(rs, l, r, 0, rs.getNormalizedKeyLength(), new int[NUM_BUCKETS], new int[NUM_BUCKETS]);
+		} else {
+			this.fallback.sort(s, l, r);
+		}
+	}
+
+	@Override
+	public void sort(IndexedSortable s) {
+		sort(s, 0, s.size());
+	}
+	
+	/**
+	 * Sorts a range of a radix sortable, whose elements are known to share the key bytes before the given position.
+	 * The method is thread-safe, as long as the fallback sorter is.
+	 * 
+	 * @param s The sortable to sort.
+	 * @param l The start of the range (inclusive).
+	 * @param r The end of the range (exclusive).
+	 * @param position The position of the first key byte in which the elements may differ.
+	 */
+	void sortRange(RadixSortable s, int l, int r, int position) {
+		sortInternal(s, l, r, position, s.getNormalizedKeyLength(), new int[NUM_BUCKETS], new int[NUM_BUCKETS]);
+	}
+	
+	/**
+	 * Distributes the elements of a range into 256 buckets by their first key byte, at or after the given position,
+	 * in which they differ. Afterwards, the buckets are consecutive ranges of the sortable, in the order of the
+	 * key byte, and their sizes are contained in the given counts array.
+	 * 
+	 * @param s The sortable whose range is distributed.
+	 * @param l The start of the range (inclusive).
+	 * @param r The end of the range (exclusive).
+	 * @param position The position of the first key byte in which the elements may differ.
+	 * @param keyLength The length of the normalized keys.
+	 * @param counts The array that receives the bucket sizes. Must be zeroed and hold 256 elements.
+	 * @param next Scratch array for 256 elements.
+	 * @param ends Scratch array for 256 elements.
+	 * @return The position of the key byte that the elements were distributed by, or the key length, if
+	 *         all keys in the range are equal.
+	 */
+	static int distribute(RadixSortable s, int l, int r, int position, int keyLength, int[] counts, int[] next, int[] ends) {
+		for (; position < keyLength; position++) {
+			// build the histogram of the current key byte
+			for (int i = l; i < r; i++) {
+				counts[s.getNormalizedKeyByte(i, position)]++;
+			}
+			
+			// if all elements fall into the same bucket, continue directly with the next key byte
+			if (counts[s.getNormalizedKeyByte(l, position)] != r - l) {
+				break;
+			}
+			Arrays.fill(counts, 0);
+		}
+		if (position >= keyLength) {
+			return keyLength;
+		}
+		
+		// compute the bucket boundaries
+		for (int b = 0, start = l; b < NUM_BUCKETS; b++) {
+			next[b] = start;
+			start += counts[b];
+			ends[b] = start;
+		}
+		
+		// move every element into its bucket. each swap puts at least one element into its final bucket
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			while (next[b] < ends[b]) {
+				final int v = s.getNormalizedKeyByte(next[b], position);
+				if (v == b) {
+					next[b]++;
+				} else {
+					s.swap(next[b], next[v]++);
+				}
+			}
+		}
+		return position;
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private void sortInternal(RadixSortable s, int l, int r, int position, int keyLength, int[] next, int[] ends) {
+		if (r - l < FALLBACK_THRESHOLD) {
+			this.fallback.sort(s, l, r);
+			return;
+		}
+		
+		final int[] counts = new int[NUM_BUCKETS];
+		position = distribute(s, l, r, position, keyLength, counts, next, ends);
+		if (position >= keyLength) {
+			// all keys in the range are equal
+			return;
+		}
+		
+		// sort the buckets by the remaining key bytes. the arrays are reused by the recursive calls,
+		// so the boundaries are recomputed from the counts
+		final int nextPosition = position + 1;
+		for (int b = 0, start = l; b < NUM_BUCKETS; b++) {
+			final int end = start + counts[b];
+			if (end - start > 1) {
+				sortInternal(s, start, end, nextPosition, keyLength, next, ends);
+			}
+			start = end;
+		}
+	}
+}
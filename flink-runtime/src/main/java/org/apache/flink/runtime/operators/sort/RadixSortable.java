@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.sort;
+
+/**
+ * An {@link IndexedSortable} whose elements carry a normalized key that can be accessed byte by byte. If the
+ * normalized keys fully determine the order of the elements, the sortable can be sorted with a {@link RadixSort}
+ * instead of a comparison-based sort.
+ */
+public interface RadixSortable extends IndexedSortable {
+	
+	/**
+	 * Checks whether the order of the elements is completely determined by their normalized keys.
+	 * 
+	 * @return True, if the normalized keys fully determine the order, false if they are only a prefix.
+	 */
+	boolean isNormalizedKeyFullyDetermining();
+	
+	/**
+	 * Gets the number of bytes of the normalized key of each element.
+	 * 
+	 * @return The length of the normalized keys.
+	 */
+	int getNormalizedKeyLength();
+	
+	/**
+	 * Gets a byte of the normalized key of an element as an unsigned value in the range 0 to 255. The bytes are
+	 * returned such that ascending byte values correspond to the sort order, i.e. they are already inverted
+	 * if the sort order is descending.
+	 * 
+	 * @param i The index of the element.
+	 * @param position The position of the byte in the normalized key.
+	 * @return The byte of the normalized key, as an unsigned value.
+	 */
+	int getNormalizedKeyByte(int i, int position);
+	
+	/**
+	 * Checks whether disjoint index ranges of this sortable may be sorted by different threads at the same time,
+	 * i.e. whether swaps, comparisons and key byte accesses within one range do not touch any shared state.
+	 * 
+	 * @return True, if disjoint ranges may be sorted concurrently.
+	 */
+	boolean supportsConcurrentSorting();
+}
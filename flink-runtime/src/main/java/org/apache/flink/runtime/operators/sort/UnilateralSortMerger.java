@@ -23,19 +23,31 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.TypeSerializerFactory;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.configuration.GlobalConfiguration;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.disk.ChannelReaderInputViewIterator;
 import org.apache.flink.runtime.io.disk.iomanager.BlockChannelAccess;
@@ -48,6 +60,7 @@ import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.disk.iomanager.Channel.ID;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
 import org.apache.flink.runtime.memorymanager.MemoryAllocationException;
+import org.apache.flink.runtime.memorymanager.MemoryBroker;
 import org.apache.flink.runtime.memorymanager.MemoryManager;
 import org.apache.flink.runtime.util.EmptyMutableObjectIterator;
 import org.apache.flink.util.Collector;
@@ -89,6 +102,12 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 	 * The minimum number of segments that are required for the sort to operate.
 	 */
 	protected static final int MIN_NUM_SORT_MEM_SEGMENTS = 10;
+	
+	/**
+	 * The pool of helper threads shared by all sorters in this JVM. Created when the first sorter
+	 * with a thread budget of more than one is instantiated.
+	 */
+	private static ThreadPoolExecutor sortExecutor;
 
 	// ------------------------------------------------------------------------
 	//                                  Threads
@@ -109,6 +128,11 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 	 */
 	private final ThreadBase<E> spillThread;
 	
+	/**
+	 * The number of threads that sort the buffers, including the sorting thread itself.
+	 */
+	private final int numSortThreads;
+	
 	// ------------------------------------------------------------------------
 	//                                   Memory
 	// ------------------------------------------------------------------------
@@ -129,6 +153,11 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 	 */
 	protected final MemoryManager memoryManager;
 	
+	/**
+	 * The broker through which the sorter obtains its memory and borrows idle pages for merging.
+	 */
+	protected final MemoryBroker memoryBroker;
+	
 	// ------------------------------------------------------------------------
 	//                            Miscellaneous Fields
 	// ------------------------------------------------------------------------
@@ -257,6 +286,42 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 			double memoryFraction, int numSortBuffers, int maxNumFileHandles,
 			float startSpillingFraction, boolean noSpillingMemory)
 	throws IOException, MemoryAllocationException
+	{
+		this(memoryManager, ioManager, input, parentTask, serializerFactory, comparator, memoryFraction,
+			numSortBuffers, maxNumFileHandles, startSpillingFraction, noSpillingMemory,
+			GlobalConfiguration.getInteger(ConfigConstants.DEFAULT_SORT_THREADS_KEY, ConfigConstants.DEFAULT_SORT_THREADS));
+	}
+	
+	/**
+	 * Internal constructor that additionally takes the thread budget for sorting the buffers. With a budget
+	 * of more than one thread, several buffers are sorted at the same time and large buffers are sorted
+	 * by several threads. The helper threads come from a pool that is shared by all sorters.
+	 * 
+	 * @param memoryManager The memory manager from which to allocate the memory.
+	 * @param ioManager The I/O manager, which is used to write temporary files to disk.
+	 * @param input The input that is sorted by this sorter.
+	 * @param parentTask The parent task, which owns all resources used by this sorter.
+	 * @param serializerFactory The type serializer.
+	 * @param comparator The type comparator establishing the order relation.
+	 * @param memoryFraction The fraction of memory dedicated to sorting, merging and I/O.
+	 * @param numSortBuffers The number of distinct buffers to use creation of the initial runs.
+	 * @param maxNumFileHandles The maximum number of files to be merged at once.
+	 * @param startSpillingFraction The faction of the buffers that have to be filled before the spilling thread
+	 *                              actually begins spilling data to disk.
+	 * @param noSpillingMemory When set to true, no memory will be allocated for writing and no spilling thread
+	 *                   will be spawned.
+	 * @param numSortThreads The number of threads that sort the buffers, including the sorting thread.
+	 * 
+	 * @throws IOException Thrown, if an error occurs initializing the resources for external sorting.
+	 * @throws MemoryAllocationException Thrown, if not enough memory can be obtained from the memory manager to
+	 *                                   perform the sort.
+	 */
+	protected UnilateralSortMerger(MemoryManager memoryManager, IOManager ioManager,
+			MutableObjectIterator<E> input, AbstractInvokable parentTask, 
+			TypeSerializerFactory<E> serializerFactory, TypeComparator<E> comparator,
+			double memoryFraction, int numSortBuffers, int maxNumFileHandles,
+			float startSpillingFraction, boolean noSpillingMemory, int numSortThreads)
+	throws IOException, MemoryAllocationException
 	{
 		// sanity checks
 		if (memoryManager == null | (ioManager == null && !noSpillingMemory) | serializerFactory == null | comparator == null) {
@@ -268,18 +333,28 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 		if (maxNumFileHandles < 2) {
 			throw new IllegalArgumentException("Merger cannot work with less than two file handles.");
 		}
+		if (numSortThreads < 1) {
+			throw new IllegalArgumentException("The sorter needs at least one sorting thread.");
+		}
 		
 		this.memoryManager = memoryManager;
+		this.numSortThreads = numSortThreads;
+		this.memoryBroker = memoryManager.getMemoryBroker(parentTask);
 		
 		// adjust the memory quotas to the page size
-		final int numPagesTotal = memoryManager.computeNumberOfPages(memoryFraction);
+		final int numPagesRequested = memoryManager.computeNumberOfPages(memoryFraction);
 
-		if (numPagesTotal < MIN_NUM_WRITE_BUFFERS + MIN_NUM_SORT_MEM_SEGMENTS) {
+		if (numPagesRequested < MIN_NUM_WRITE_BUFFERS + MIN_NUM_SORT_MEM_SEGMENTS) {
 			throw new IllegalArgumentException("Too little memory provided to sorter to perform task. " +
 				"Required are at least " + (MIN_NUM_WRITE_BUFFERS + MIN_NUM_SORT_MEM_SEGMENTS) + 
 				" pages. Current page size is " + memoryManager.getPageSize() + " bytes.");
 		}
 		
+		// allocate the memory. if the memory is short, sort with less memory and spill earlier, rather than failing
+		final List<MemorySegment> memory = this.memoryBroker.allocatePages(
+			MIN_NUM_WRITE_BUFFERS + MIN_NUM_SORT_MEM_SEGMENTS, numPagesRequested);
+		final int numPagesTotal = memory.size();
+		
 		// determine how many buffers to use for writing
 		final int numWriteBuffers;
 		if (noSpillingMemory) {
@@ -332,17 +407,15 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 				sortMemory + " bytes total) divided over " + numSortBuffers + " sort buffers (" + 
 				numSegmentsPerSortBuffer + " pages per buffer). Using " + numWriteBuffers + 
 				" buffers for writing sorted results and merging maximally " + maxNumFileHandles +
-				" streams at once.");
+				" streams at once. Sorting with " + numSortThreads + " thread(s).");
 		}
 		
 		this.writeMemory = new ArrayList<MemorySegment>(numWriteBuffers);
 		this.sortReadMemory = new ArrayList<MemorySegment>(sortMemPages);
 		
-		// allocate the memory
-		memoryManager.allocatePages(parentTask, this.sortReadMemory, sortMemPages);
-		if (numWriteBuffers > 0) {
-			memoryManager.allocatePages(parentTask, this.writeMemory, numWriteBuffers);
-		}
+		// divide the memory
+		this.sortReadMemory.addAll(memory.subList(0, sortMemPages));
+		this.writeMemory.addAll(memory.subList(sortMemPages, numPagesTotal));
 		
 		// circular queues pass buffers between the threads
 		final CircularQueues<E> circularQueues = new CircularQueues<E>();
@@ -586,7 +659,42 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 	protected ThreadBase<E> getSortingThread(ExceptionHandler<IOException> exceptionHandler, CircularQueues<E> queues,
 			AbstractInvokable parentTask)
 	{
-		return new SortingThread<E>(exceptionHandler, queues, parentTask);
+		if (this.numSortThreads > 1) {
+			return new SortingThread<E>(exceptionHandler, queues, parentTask,
+				getSortExecutor(this.numSortThreads - 1), this.numSortThreads);
+		} else {
+			return new SortingThread<E>(exceptionHandler, queues, parentTask);
+		}
+	}
+	
+	/**
+	 * Gets the pool of helper threads that is shared by all sorters, creating it if necessary. The pool grows
+	 * to the largest number of helpers any sorter asked for.
+	 * 
+	 * @param numThreads The number of helper threads the sorter needs.
+	 * @return The shared pool of helper threads.
+	 */
+	private static synchronized Executor getSortExecutor(int numThreads) {
+		if (sortExecutor == null) {
+			sortExecutor = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				
+					private final AtomicInteger threadNumber = new AtomicInteger();
+					
+					@Override
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "SortMerger sorting helper " + this.threadNumber.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			sortExecutor.allowCoreThreadTimeOut(true);
+		}
+		else if (sortExecutor.getMaximumPoolSize() < numThreads) {
+			sortExecutor.setMaximumPoolSize(numThreads);
+			sortExecutor.setCorePoolSize(numThreads);
+		}
+		return sortExecutor;
 	}
 
 
@@ -918,6 +1026,10 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 			long bytesUntilSpilling = this.startSpillingBytes;
 			boolean done = false;
 			
+			// the time spent waiting for empty buffers is the time the sorting and spilling hold up the reading
+			final long startTime = System.nanoTime();
+			long waitNanos = 0;
+			
 			// check if we should directly spill
 			if (bytesUntilSpilling < 1) {
 				bytesUntilSpilling = 0;
@@ -930,6 +1042,7 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 			while (!done && isRunning())
 			{
 				// grab the next buffer
+				final long waitStart = System.nanoTime();
 				while (element == null) {
 					try {
 						element = this.queues.empty.take();
@@ -944,6 +1057,8 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 					}
 				}
 				
+				waitNanos += System.nanoTime() - waitStart;
+				
 				// get the new buffer and check it
 				final InMemorySorter<E> buffer = element.buffer;
 				if (!buffer.isEmpty()) {
@@ -1073,19 +1188,35 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 			// send the EOF marker
 			final CircularElement<E> EOF_MARKER = endMarker();
 			this.queues.sort.add(EOF_MARKER);
-			LOG.debug("Reading thread done.");
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Reading thread done. Read input for " + ((System.nanoTime() - startTime) / 1000000) +
+					" msecs, of which " + (waitNanos / 1000000) + " msecs were spent waiting for empty buffers.");
+			}
 		}
 	}
 
 	/**
-	 * The thread that sorts filled buffers.
+	 * The thread that sorts filled buffers. If it is given an executor, it sorts several buffers at the same time
+	 * in tasks on the executor, and splits large buffers among several threads.
 	 */
 	protected static class SortingThread<E> extends ThreadBase<E> {
 		
 		private final IndexedSorter sorter;
+		
+		private final Executor executor;			// runs the sort tasks, null if sorting in this thread only
+		
+		private final Object pendingLock = new Object();	// guards the number of pending sort tasks
+		
+		private int numPendingSorts;
+		
+		private final AtomicReference<Throwable> sortError = new AtomicReference<Throwable>();
+		
+		private final AtomicLong sortNanos = new AtomicLong();	// the time spent sorting, summed over all threads
+		
+		private final AtomicInteger numSortedBuffers = new AtomicInteger();
 
 		/**
-		 * Creates a new sorting thread.
+		 * Creates a new sorting thread that sorts one buffer after the other.
 		 * 
 		 * @param exceptionHandler The exception handler to call for all exceptions.
 		 * @param queues The queues used to pass buffers between the threads.
@@ -1095,8 +1226,29 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 				AbstractInvokable parentTask) {
 			super(exceptionHandler, "SortMerger sorting thread", queues, parentTask);
 
-			// members
-			this.sorter = new QuickSort();
+			// members. buffers with fully normalized keys are radix sorted, all others quick sorted
+			this.sorter = new RadixSort();
+			this.executor = null;
+		}
+		
+		/**
+		 * Creates a new sorting thread that sorts the buffers in tasks on the given executor.
+		 * 
+		 * @param exceptionHandler The exception handler to call for all exceptions.
+		 * @param queues The queues used to pass buffers between the threads.
+		 * @param parentTask The task that started this thread. If non-null, it is used to register this thread.
+		 * @param executor The executor that runs the sort tasks.
+		 * @param parallelism The maximal number of threads that sort a single buffer.
+		 */
+		public SortingThread(ExceptionHandler<IOException> exceptionHandler, CircularQueues<E> queues,
+				AbstractInvokable parentTask, Executor executor, int parallelism) {
+			super(exceptionHandler, "SortMerger sorting thread", queues, parentTask);
+			
+			if (executor == null) {
+				throw new NullPointerException();
+			}
+			this.sorter = new ParallelRadixSort(executor, parallelism);
+			this.executor = executor;
 		}
 
 		/**
@@ -1127,25 +1279,112 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 				}
 
 				if (element != EOF_MARKER && element != SPILLING_MARKER) {
-					if (LOG.isDebugEnabled()) {
-						LOG.debug("Sorting buffer " + element.id + ".");
-					}
-					
-					this.sorter.sort(element.buffer);
-					
-					if (LOG.isDebugEnabled()) {
-						LOG.debug("Sorted buffer " + element.id + ".");
+					if (this.executor == null) {
+						sortBuffer(element);
+						this.queues.spill.add(element);
+					} else {
+						submitSort(element);
 					}
+					continue;
 				}
-				else if (element == EOF_MARKER) {
+				
+				// the markers must not overtake the buffers before them
+				if (!waitForPendingSorts()) {
+					return;
+				}
+				
+				if (element == EOF_MARKER) {
 					if (LOG.isDebugEnabled()) {
-						LOG.debug("Sorting thread done.");
+						LOG.debug("Sorting thread done. Sorted " + this.numSortedBuffers.get() + " buffers in " +
+							(this.sortNanos.get() / 1000000) + " msecs.");
 					}
 					alive = false;
 				}
 				this.queues.spill.add(element);
 			}
 		}
+		
+		private void sortBuffer(CircularElement<E> element) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Sorting buffer " + element.id + ".");
+			}
+			
+			final long start = System.nanoTime();
+			this.sorter.sort(element.buffer);
+			this.sortNanos.addAndGet(System.nanoTime() - start);
+			this.numSortedBuffers.incrementAndGet();
+			
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Sorted buffer " + element.id + ".");
+			}
+		}
+		
+		/**
+		 * Sorts the buffer in a task on the executor, which passes it on to the spilling thread when done.
+		 * The order among the buffers does not matter to the spilling thread, only the order relative to
+		 * the markers.
+		 */
+		private void submitSort(final CircularElement<E> element) {
+			synchronized (this.pendingLock) {
+				this.numPendingSorts++;
+			}
+			
+			final Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						sortBuffer(element);
+						queues.spill.add(element);
+					}
+					catch (Throwable t) {
+						// report directly, as the other threads may be waiting for this buffer
+						sortError.compareAndSet(null, t);
+						internalHandleException(new IOException("Sorting buffer " + element.id + " failed: " +
+							t.getMessage(), t));
+					}
+					finally {
+						synchronized (pendingLock) {
+							numPendingSorts--;
+							pendingLock.notifyAll();
+						}
+					}
+				}
+			};
+			
+			try {
+				this.executor.execute(task);
+			}
+			catch (RejectedExecutionException rex) {
+				task.run();
+			}
+		}
+		
+		/**
+		 * Waits until all submitted buffers are sorted and passed on.
+		 * 
+		 * @return True, if all buffers were sorted, false if the thread was shut down while waiting.
+		 * @throws IOException Thrown, if sorting one of the buffers failed.
+		 */
+		private boolean waitForPendingSorts() throws IOException {
+			synchronized (this.pendingLock) {
+				while (this.numPendingSorts > 0) {
+					try {
+						this.pendingLock.wait();
+					}
+					catch (InterruptedException iex) {
+						if (!isRunning()) {
+							return false;
+						}
+					}
+				}
+			}
+			
+			final Throwable t = this.sortError.get();
+			if (t != null) {
+				throw new IOException("Sorting a buffer failed: " + t.getMessage(), t);
+			}
+			return true;
+		}
 	}
 
 	/**
@@ -1272,6 +1511,7 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 			
 			final Channel.Enumerator enumerator = this.ioManager.createChannelEnumerator();			
 			List<ChannelWithBlockCount> channelIDs = new ArrayList<ChannelWithBlockCount>();
+			long spillNanos = 0;
 
 			
 			// loop as long as the thread is marked alive and we do not see the final element
@@ -1298,6 +1538,8 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 					break;
 				}
 				
+				final long spillStart = System.nanoTime();
+				
 				// open next channel
 				Channel.ID channel = enumerator.next();
 				registerChannelToBeRemovedAtShudown(channel);
@@ -1322,6 +1564,7 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 				unregisterOpenChannelToBeRemovedAtShudown(writer);
 				
 				channelIDs.add(new ChannelWithBlockCount(channel, output.getBlockCount()));
+				spillNanos += System.nanoTime() - spillStart;
 
 				// pass empty sort-buffer to reading thread
 				element.buffer.reset();
@@ -1330,18 +1573,23 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 
 			// done with the spilling
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("Spilling done.");
+				LOG.debug("Spilling done. Spilled " + channelIDs.size() + " buffers in " + (spillNanos / 1000000) + " msecs.");
 				LOG.debug("Releasing sort-buffer memory.");
 			}
 			
 			// clear the sort buffers, but do not return the memory to the manager, as we use it for merging
 			disposeSortBuffers(false);
+			
+			// borrow idle memory from the other consumers of the task, to read the runs with larger buffers
+			borrowMemoryForMerging();
 
 			// ------------------- Merging Phase ------------------------
 			
-			// merge channels until sufficient file handles are available
-			while (isRunning() && channelIDs.size() > this.maxNumFileHandles) {
-				channelIDs = mergeChannelList(channelIDs, this.sortReadMemory, this.writeMemory);
+			// merge channels until the final merge can read all remaining runs with read-ahead
+			final long mergeStart = System.nanoTime();
+			channelIDs = mergeChannelList(channelIDs, this.sortReadMemory, this.writeMemory);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Intermediate merges done in " + ((System.nanoTime() - mergeStart) / 1000000) + " msecs.");
 			}
 			
 			// from here on, we won't write again
@@ -1373,6 +1621,21 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 			}
 		}
 		
+		/**
+		 * Borrows idle pages from the other memory consumers of the task and adds them to the memory that is
+		 * used for reading the sorted runs while merging. The sorter borrows at most as many pages as it has
+		 * itself. The borrowed pages are released together with the sorter's own memory.
+		 */
+		protected final void borrowMemoryForMerging() {
+			final List<MemorySegment> borrowed = memoryBroker.borrowPages(null, this.sortReadMemory.size());
+			if (!borrowed.isEmpty()) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Borrowed " + borrowed.size() + " idle pages for merging.");
+				}
+				this.sortReadMemory.addAll(borrowed);
+			}
+		}
+		
 		/**
 		 * Releases the memory that is registered for in-memory sorted run generation.
 		 */
@@ -1451,50 +1714,64 @@ public class UnilateralSortMerger<E> implements Sorter<E> {
 		}
 
 		/**
-		 * Merges the given sorted runs to a smaller number of sorted runs. 
+		 * Merges the given sorted runs in intermediate rounds, until few enough runs remain to be merged by the
+		 * final merge. The fan-in and the rounds are chosen by the {@link MergePlanner}, based on the sizes of the
+		 * runs and the available read memory. The smallest runs are merged first.
 		 * 
 		 * @param channelIDs The IDs of the sorted runs that need to be merged.
+		 * @param allReadBuffers The buffers to be used by the readers.
 		 * @param writeBuffers The buffers to be used by the writers.
-		 * @param writeBufferSize The size of the write buffers.
-		 * @param  readMemorySize The amount of memory dedicated to the readers.
-		 * @return A list of the IDs of the merged channels.
+		 * @return A list of the IDs of the runs that remain for the final merge.
 		 * @throws IOException Thrown, if the readers or writers encountered an I/O problem.
-		 * @throws MemoryAllocationException Thrown, if the specified memory is insufficient to merge the channels
-		 *                                   or if the memory manager could not provide the requested memory.
 		 */
 		protected final List<ChannelWithBlockCount> mergeChannelList(final List<ChannelWithBlockCount> channelIDs,
 					final List<MemorySegment> allReadBuffers, final List<MemorySegment> writeBuffers)
 		throws IOException
 		{
-			final double numMerges = Math.ceil(channelIDs.size() / ((double) this.maxNumFileHandles));
-			final int channelsToMergePerStep = (int) Math.ceil(channelIDs.size() / numMerges);
+			final int[] blockCounts = new int[channelIDs.size()];
+			for (int i = 0; i < blockCounts.length; i++) {
+				blockCounts[i] = channelIDs.get(i).getBlockCount();
+			}
 			
-			// allocate the memory for the merging step
-			final List<List<MemorySegment>> readBuffers = new ArrayList<List<MemorySegment>>(channelsToMergePerStep);
-			getSegmentsForReaders(readBuffers, allReadBuffers, channelsToMergePerStep);
+			final int fanIn = MergePlanner.computeFanIn(blockCounts, allReadBuffers.size(), this.maxNumFileHandles);
+			if (channelIDs.size() <= fanIn) {
+				return channelIDs;
+			}
 			
-			// the list containing the IDs of the merged channels
-			final ArrayList<ChannelWithBlockCount> mergedChannelIDs = new ArrayList<ChannelWithBlockCount>((int) (numMerges + 1));
-
-			final ArrayList<ChannelWithBlockCount> channelsToMergeThisStep = new ArrayList<ChannelWithBlockCount>(channelsToMergePerStep);
-			int channelNum = 0;
-			while (isRunning() && channelNum < channelIDs.size()) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Merging " + channelIDs.size() + " sorted runs with a fan-in of " + fanIn + " in " +
+					MergePlanner.getNumberOfIntermediateMerges(channelIDs.size(), fanIn) + " intermediate merges.");
+			}
+			
+			// the runs, smallest first
+			final PriorityQueue<ChannelWithBlockCount> runs = new PriorityQueue<ChannelWithBlockCount>(
+				channelIDs.size(), new Comparator<ChannelWithBlockCount>() {
+					@Override
+					public int compare(ChannelWithBlockCount o1, ChannelWithBlockCount o2) {
+						return o1.getBlockCount() < o2.getBlockCount() ? -1 :
+							o1.getBlockCount() > o2.getBlockCount() ? 1 : 0;
+					}
+				});
+			runs.addAll(channelIDs);
+			
+			final ArrayList<ChannelWithBlockCount> channelsToMergeThisStep = new ArrayList<ChannelWithBlockCount>(fanIn);
+			int numToMerge = MergePlanner.getFirstMergeFanIn(runs.size(), fanIn);
+			
+			while (isRunning() && runs.size() > fanIn) {
 				channelsToMergeThisStep.clear();
-
-				for (int i = 0; i < channelsToMergePerStep && channelNum < channelIDs.size(); i++, channelNum++) {
-					channelsToMergeThisStep.add(channelIDs.get(channelNum));
+				for (int i = 0; i < numToMerge; i++) {
+					channelsToMergeThisStep.add(runs.poll());
 				}
 				
-				// merge only, if there is more than one channel
-				if (channelsToMergeThisStep.size() < 2)  {
-					mergedChannelIDs.addAll(channelsToMergeThisStep);
-				}
-				else {
-					mergedChannelIDs.add(mergeChannels(channelsToMergeThisStep, readBuffers, writeBuffers));
-				}
+				// distribute all read memory among the inputs of this merge
+				final List<List<MemorySegment>> readBuffers = new ArrayList<List<MemorySegment>>(numToMerge);
+				getSegmentsForReaders(readBuffers, allReadBuffers, numToMerge);
+				
+				runs.add(mergeChannels(channelsToMergeThisStep, readBuffers, writeBuffers));
+				numToMerge = fanIn;
 			}
 			
-			return mergedChannelIDs;
+			return new ArrayList<ChannelWithBlockCount>(runs);
 		}
 
 		/**
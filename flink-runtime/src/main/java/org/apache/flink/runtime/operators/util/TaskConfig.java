@@ -36,6 +36,7 @@ import org.apache.flink.api.common.aggregators.AggregatorWithName;
 import org.apache.flink.api.common.aggregators.ConvergenceCriterion;
 import org.apache.flink.api.common.distributions.DataDistribution;
 import org.apache.flink.api.common.functions.Function;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.operators.util.UserCodeWrapper;
 import org.apache.flink.api.common.typeutils.TypeComparatorFactory;
 import org.apache.flink.api.common.typeutils.TypePairComparatorFactory;
@@ -76,6 +77,10 @@ public class TaskConfig {
 	private static final String DRIVER_COMPARATOR_PARAMETERS_PREFIX = "driver.comp.params.";
 	
 	private static final String DRIVER_PAIR_COMPARATOR_FACTORY = "driver.paircomp";
+	
+	private static final String DRIVER_JOIN_TYPE = "driver.jointype";
+	
+	private static final String DRIVER_BUILD_SIDE_CACHE_KEY = "driver.buildside.cachekey";
 
 	// -------------------------------------- Inputs ----------------------------------------------
 
@@ -139,6 +144,12 @@ public class TaskConfig {
 	
 	private static final String OUTPUT_DATA_DISTRIBUTION_PREFIX = "out.distribution.";
 	
+	private static final String OUTPUT_RANGE_SAMPLE_PREFIX = "out.range.sample.";
+	
+	private static final String OUTPUT_KEY_GROUP_SAMPLE_PREFIX = "out.keygroup.sample.";
+	
+	private static final String OUTPUT_BUFFER_TIMEOUT_PREFIX = "out.buffer.timeout.";
+	
 	// ------------------------------------- Chaining ---------------------------------------------
 	
 	private static final String CHAINING_NUM_STUBS = "chaining.num";
@@ -373,6 +384,62 @@ public class TaskConfig {
 		}
 	}
 	
+	public void setDriverJoinType(JoinType joinType) {
+		this.config.setInteger(DRIVER_JOIN_TYPE, joinType.ordinal());
+	}
+	
+	public JoinType getDriverJoinType() {
+		final int jt = this.config.getInteger(DRIVER_JOIN_TYPE, -1);
+		if (jt == -1) {
+			return JoinType.INNER;
+		} else if (jt < 0 || jt >= JoinType.values().length) {
+			throw new CorruptConfigurationException("Illegal join type in configuration: " + jt);
+		} else {
+			return JoinType.values()[jt];
+		}
+	}
+	
+	/**
+	 * Sets the key that identifies the contents of the build side of a hash join across jobs. Tasks with
+	 * the same key (and the same subtask index) may reuse each other's hash tables.
+	 * 
+	 * @param key The key of the build side.
+	 */
+	public void setBuildSideCacheKey(String key) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+		this.config.setString(DRIVER_BUILD_SIDE_CACHE_KEY, key);
+	}
+	
+	public String getBuildSideCacheKey() {
+		return this.config.getString(DRIVER_BUILD_SIDE_CACHE_KEY, null);
+	}
+	
+	/**
+	 * Describes the input serializers, the driver comparators and the pair comparator of the driver. Drivers
+	 * with the same description build their data structures with the same layout and key semantics.
+	 * 
+	 * @return The description of the driver's input types.
+	 */
+	public String getDriverInputTypeDescription() {
+		final ArrayList<String> keys = new ArrayList<String>();
+		for (String key : this.config.keySet()) {
+			if (key.startsWith(INPUT_TYPE_SERIALIZER_FACTORY_PREFIX) || key.startsWith(DRIVER_COMPARATOR_FACTORY_PREFIX) ||
+					key.equals(DRIVER_PAIR_COMPARATOR_FACTORY))
+			{
+				keys.add(key);
+			}
+		}
+		Collections.sort(keys);
+		
+		final StringBuilder bld = new StringBuilder();
+		for (String key : keys) {
+			bld.append(key).append('=').append(this.config.getString(key, null)).append(';');
+		}
+		return bld.toString();
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//                                        Inputs
 	// --------------------------------------------------------------------------------------------
@@ -585,6 +652,51 @@ public class TaskConfig {
 		}
 	}
 	
+	/**
+	 * Sets the name of the broadcast variable that holds a sample of the records, from which a range partitioned
+	 * output computes its partition boundaries, if it has no data distribution.
+	 * 
+	 * @param broadcastVariableName The name of the broadcast variable with the sample.
+	 * @param outputNum The number of the range partitioned output.
+	 */
+	public void setOutputRangeSample(String broadcastVariableName, int outputNum) {
+		this.config.setString(OUTPUT_RANGE_SAMPLE_PREFIX + outputNum, broadcastVariableName);
+	}
+	
+	public String getOutputRangeSample(int outputNum) {
+		return this.config.getString(OUTPUT_RANGE_SAMPLE_PREFIX + outputNum, null);
+	}
+	
+	/**
+	 * Sets the name of the broadcast variable that holds a sample of the records, from which a hash partitioned
+	 * output estimates the sizes of its key groups, in order to balance the key groups over the channels.
+	 * 
+	 * @param broadcastVariableName The name of the broadcast variable with the sample.
+	 * @param outputNum The number of the hash partitioned output.
+	 */
+	public void setOutputKeyGroupSample(String broadcastVariableName, int outputNum) {
+		this.config.setString(OUTPUT_KEY_GROUP_SAMPLE_PREFIX + outputNum, broadcastVariableName);
+	}
+	
+	public String getOutputKeyGroupSample(int outputNum) {
+		return this.config.getString(OUTPUT_KEY_GROUP_SAMPLE_PREFIX + outputNum, null);
+	}
+	
+	/**
+	 * Sets the maximal time that records of the given output wait in a partly filled buffer before the buffer
+	 * is sent. Zero sends every record right away, a negative value sends buffers only when they are full.
+	 * 
+	 * @param timeoutMillis The buffer timeout in milliseconds.
+	 * @param outputNum The number of the output.
+	 */
+	public void setOutputBufferTimeout(long timeoutMillis, int outputNum) {
+		this.config.setLong(OUTPUT_BUFFER_TIMEOUT_PREFIX + outputNum, timeoutMillis);
+	}
+	
+	public long getOutputBufferTimeout(int outputNum) {
+		return this.config.getLong(OUTPUT_BUFFER_TIMEOUT_PREFIX + outputNum, -1);
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//                       Parameters to configure the memory and I/O behavior
 	// --------------------------------------------------------------------------------------------
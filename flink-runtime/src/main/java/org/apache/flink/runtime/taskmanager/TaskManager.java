@@ -300,6 +300,17 @@ public class TaskManager implements TaskOperationProtocol {
 				ConfigConstants.TASK_MANAGER_NETWORK_BUFFER_SIZE_KEY,
 				ConfigConstants.DEFAULT_TASK_MANAGER_NETWORK_BUFFER_SIZE);
 
+		final boolean offHeapMemory = GlobalConfiguration.getBoolean(ConfigConstants.TASK_MANAGER_MEMORY_OFF_HEAP_KEY,
+				ConfigConstants.DEFAULT_TASK_MANAGER_MEMORY_OFF_HEAP);
+
+		// the fraction of the free heap space says nothing about the available direct memory
+		if (offHeapMemory && GlobalConfiguration.getInteger(ConfigConstants.TASK_MANAGER_MEMORY_SIZE_KEY, -1) == -1) {
+			throw new Exception("Off-heap memory (" + ConfigConstants.TASK_MANAGER_MEMORY_OFF_HEAP_KEY + ") requires the " +
+					"memory size to be configured explicitly via " + ConfigConstants.TASK_MANAGER_MEMORY_SIZE_KEY +
+					". The JVM's maximum direct memory (-XX:MaxDirectMemorySize) must cover the managed memory and the " +
+					"network buffers.");
+		}
+
 		// Initialize the channel manager
 		try {
 			NetworkConnectionManager networkConnectionManager = null;
@@ -321,13 +332,18 @@ public class TaskManager implements TaskOperationProtocol {
 							ConfigConstants.TASK_MANAGER_NET_CLOSE_AFTER_IDLE_FOR_MS_KEY,
 							ConfigConstants.DEFAULT_TASK_MANAGER_NET_CLOSE_AFTER_IDLE_FOR_MS);
 
+					int numCreditsPerChannel = GlobalConfiguration.getInteger(
+							ConfigConstants.TASK_MANAGER_NET_NUM_CREDITS_PER_CHANNEL_KEY,
+							ConfigConstants.DEFAULT_TASK_MANAGER_NET_NUM_CREDITS_PER_CHANNEL);
+
 					networkConnectionManager = new NettyConnectionManager(
 							localInstanceConnectionInfo.address(), localInstanceConnectionInfo.dataPort(),
-							bufferSize, numInThreads, numOutThreads, closeAfterIdleForMs);
+							bufferSize, numInThreads, numOutThreads, closeAfterIdleForMs, numCreditsPerChannel);
 					break;
 			}
 
-			channelManager = new ChannelManager(lookupService, localInstanceConnectionInfo, numBuffers, bufferSize, networkConnectionManager);
+			channelManager = new ChannelManager(lookupService, localInstanceConnectionInfo, numBuffers, bufferSize,
+					offHeapMemory, networkConnectionManager);
 		} catch (IOException ioe) {
 			LOG.error(StringUtils.stringifyException(ioe));
 			throw new Exception("Failed to instantiate ChannelManager.", ioe);
@@ -372,15 +388,39 @@ public class TaskManager implements TaskOperationProtocol {
 					ConfigConstants.DEFAULT_TASK_MANAGER_NETWORK_BUFFER_SIZE);
 
 			// Initialize the memory manager
-			LOG.info("Initializing memory manager with " + (memorySize >>> 20) + " megabytes of memory. " +
-					"Page size is " + pageSize + " bytes.");
+			LOG.info("Initializing memory manager with " + (memorySize >>> 20) + " megabytes of " +
+					(offHeapMemory ? "off-heap" : "heap") + " memory. Page size is " + pageSize + " bytes.");
 			
 			try {
-				@SuppressWarnings("unused")
 				final boolean lazyAllocation = GlobalConfiguration.getBoolean(ConfigConstants.TASK_MANAGER_MEMORY_LAZY_ALLOCATION_KEY,
 					ConfigConstants.DEFAULT_TASK_MANAGER_MEMORY_LAZY_ALLOCATION);
+				final float cacheFraction = GlobalConfiguration.getFloat(ConfigConstants.TASK_MANAGER_MEMORY_LAZY_CACHE_FRACTION_KEY,
+					ConfigConstants.DEFAULT_TASK_MANAGER_MEMORY_LAZY_CACHE_FRACTION);
+				final long releaseAfterIdleMs = GlobalConfiguration.getInteger(ConfigConstants.TASK_MANAGER_MEMORY_LAZY_RELEASE_AFTER_IDLE_MS_KEY,
+					ConfigConstants.DEFAULT_TASK_MANAGER_MEMORY_LAZY_RELEASE_AFTER_IDLE_MS);
+				final float hashTableCacheFraction = GlobalConfiguration.getFloat(
+					ConfigConstants.TASK_MANAGER_MEMORY_HASH_TABLE_CACHE_FRACTION_KEY,
+					ConfigConstants.DEFAULT_TASK_MANAGER_MEMORY_HASH_TABLE_CACHE_FRACTION);
+				
+				if (cacheFraction < 0.0f || cacheFraction > 1.0f) {
+					throw new Exception("Invalid value for the fraction of cached memory pages: " + cacheFraction);
+				}
+				if (hashTableCacheFraction < 0.0f || hashTableCacheFraction > 1.0f) {
+					throw new Exception("Invalid value for the fraction of memory for cached hash tables: " + hashTableCacheFraction);
+				}
+				if (lazyAllocation) {
+					LOG.info("Memory manager allocates memory lazily. Caching up to " + cacheFraction +
+						" of the pages, releasing them after " + releaseAfterIdleMs + " msecs of idleness.");
+				}
+				
+				final int maxCachedPages = (int) ((memorySize / pageSize) * cacheFraction);
+				this.memoryManager = new DefaultMemoryManager(memorySize, this.numberOfSlots, pageSize, offHeapMemory,
+					lazyAllocation, maxCachedPages, releaseAfterIdleMs);
 				
-				this.memoryManager = new DefaultMemoryManager(memorySize, this.numberOfSlots, pageSize);
+				if (hashTableCacheFraction > 0.0f) {
+					LOG.info("Caching built hash tables in up to " + hashTableCacheFraction + " of the managed memory.");
+					this.memoryManager.getMemoryCache().setMaxPages((int) ((memorySize / pageSize) * hashTableCacheFraction));
+				}
 			} catch (Throwable t) {
 				LOG.fatal("Unable to initialize memory manager with " + (memorySize >>> 20) + " megabytes of memory.", t);
 				throw new Exception("Unable to initialize memory manager.", t);
@@ -426,6 +466,8 @@ public class TaskManager implements TaskOperationProtocol {
 
 							LOG.debug(getMemoryUsageStatsAsString(memoryMXBean));
 
+							LOG.debug(getMemoryManagerStatsAsString());
+
 							LOG.debug(getGarbageCollectorStatsAsString(gcMXBeans));
 						}
 					} catch (InterruptedException e) {
@@ -1133,6 +1175,17 @@ public class TaskManager implements TaskOperationProtocol {
 		return msg;
 	}
 
+	private String getMemoryManagerStatsAsString() {
+		if (!(this.memoryManager instanceof DefaultMemoryManager)) {
+			return "Memory manager stats: n/a";
+		}
+
+		final DefaultMemoryManager mm = (DefaultMemoryManager) this.memoryManager;
+
+		return String.format("Memory manager stats: [PAGES: %d/%d/%d (in use/cached/reserved)]",
+				mm.getNumberOfPagesInUse(), mm.getNumberOfCachedPages(), mm.getNumberOfReservedPages());
+	}
+
 	private String getGarbageCollectorStatsAsString(List<GarbageCollectorMXBean> gcMXBeans) {
 		StringBuilder str = new StringBuilder();
 		str.append("Garbage collector stats: ");
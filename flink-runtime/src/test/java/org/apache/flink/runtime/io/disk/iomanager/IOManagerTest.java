@@ -22,6 +22,7 @@ package org.apache.flink.runtime.io.disk.iomanager;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 
@@ -142,6 +143,78 @@ public class IOManagerTest
 		}
 	}
 	
+	@Test
+	public void channelReadWriteCompressed()
+	{
+		final int NUM_IOS = 333;
+		final int NUM_SEGS = 8;
+		
+		try {
+			final BlockCompression compression = new BlockCompression(LZBlockCompressor.class);
+			final IOManager view = this.ioManager.createCompressingView(compression);
+			final Random rnd = new Random(42);
+			
+			final List<MemorySegment> memSegs = this.memoryManager.allocatePages(new DummyInvokable(), NUM_SEGS);
+			final Channel.ID channelID = view.createChannel();
+			final BlockChannelWriter writer = view.createBlockChannelWriter(channelID);
+			
+			for (int i = 0; i < NUM_IOS; i++) {
+				final MemorySegment memSeg = memSegs.isEmpty() ? writer.getNextReturnedSegment() : memSegs.remove(0);
+				
+				// every third block is incompressible and is stored as is
+				for (int pos = 0; pos < memSeg.size(); pos += 4) {
+					memSeg.putInt(pos, i % 3 == 0 ? rnd.nextInt() : i);
+				}
+				memSeg.putInt(0, i);
+				
+				writer.writeBlock(memSeg);
+			}
+			writer.close();
+			
+			while (memSegs.size() < NUM_SEGS) {
+				memSegs.add(writer.getNextReturnedSegment());
+			}
+			
+			Assert.assertTrue("Blocks were not compressed.", compression.getCompressedBytes() < compression.getUncompressedBytes());
+			Assert.assertTrue("Channel file is not smaller than the written blocks.",
+				new File(channelID.getPath()).length() < ((long) NUM_IOS) * memSegs.get(0).size());
+			
+			final BlockChannelReader reader = view.createBlockChannelReader(channelID);
+			while(!memSegs.isEmpty()) {
+				reader.readBlock(memSegs.remove(0));
+			}
+			
+			for (int i = 0; i < NUM_IOS; i++) {
+				final MemorySegment memSeg = reader.getNextReturnedSegment();
+				
+				Assert.assertEquals("Read memory segment contains invalid data.", i, memSeg.getInt(0));
+				if (i % 3 != 0) {
+					for (int pos = 4; pos < memSeg.size(); pos += 4) {
+						if (memSeg.getInt(pos) != i) {
+							Assert.fail("Read memory segment contains invalid data.");
+						}
+					}
+				}
+				reader.readBlock(memSeg);
+			}
+			
+			reader.closeAndDelete();
+			
+			while (memSegs.size() < NUM_SEGS) {
+				memSegs.add(reader.getNextReturnedSegment());
+			}
+			this.memoryManager.release(memSegs);
+			
+			// shutting down the view leaves the I/O manager running
+			view.shutdown();
+			Assert.assertFalse(this.ioManager.isProperlyShutDown());
+			
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		}
+	}
+	
 	@Test
 	public void channelReadWriteMultipleSegments()
 	{
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.disk.iomanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LZBlockCompressorTest {
+	
+	private static final long SEED = 0x2b7a9c4e1f35d608L;
+	
+	@Test
+	public void testCompressibleData() {
+		final Random rnd = new Random(SEED);
+		final byte[] data = new byte[32 * 1024];
+		
+		// records of a small integer key and a word from a small dictionary
+		final String[] words = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel" };
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		while (buffer.remaining() >= 12) {
+			buffer.putInt(rnd.nextInt(1000));
+			final byte[] word = words[rnd.nextInt(words.length)].getBytes();
+			buffer.put(word, 0, Math.min(word.length, buffer.remaining()));
+		}
+		
+		final int compressedLen = roundTrip(data, 0, data.length);
+		Assert.assertTrue("Compressible data was not compressed.", compressedLen < data.length / 2);
+	}
+	
+	@Test
+	public void testRepetitiveData() {
+		final byte[] data = new byte[32 * 1024];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 7);
+		}
+		
+		final int compressedLen = roundTrip(data, 0, data.length);
+		Assert.assertTrue("Repetitive data was not compressed.", compressedLen < data.length / 50);
+	}
+	
+	@Test
+	public void testIncompressibleData() {
+		final Random rnd = new Random(SEED);
+		final byte[] data = new byte[32 * 1024];
+		rnd.nextBytes(data);
+		
+		final int compressedLen = roundTrip(data, 0, data.length);
+		Assert.assertTrue(compressedLen <= new LZBlockCompressor().getMaxCompressedLength(data.length));
+	}
+	
+	@Test
+	public void testSmallAndOffsetBlocks() {
+		final Random rnd = new Random(SEED);
+		for (int len = 0; len < 100; len++) {
+			final byte[] data = new byte[len + 13];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) rnd.nextInt(3);
+			}
+			roundTrip(data, 13, len);
+		}
+	}
+	
+	@Test
+	public void testCorruptInput() {
+		final byte[] data = new byte[4096];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 13);
+		}
+		
+		final LZBlockCompressor compressor = new LZBlockCompressor();
+		final byte[] compressed = new byte[compressor.getMaxCompressedLength(data.length)];
+		final int compressedLen = compressor.compress(data, 0, data.length, compressed, 0);
+		
+		final Random rnd = new Random(SEED);
+		int detected = 0;
+		for (int i = 0; i < 100; i++) {
+			final byte[] corrupt = Arrays.copyOf(compressed, compressedLen);
+			corrupt[rnd.nextInt(compressedLen)] ^= (byte) (1 + rnd.nextInt(255));
+			try {
+				compressor.decompress(corrupt, 0, rnd.nextBoolean() ? compressedLen : compressedLen / 2,
+					new byte[data.length], 0, data.length);
+			}
+			catch (IOException e) {
+				detected++;
+			}
+			catch (Throwable t) {
+				Assert.fail("Corrupt input caused an exception other than an IOException: " + t);
+			}
+		}
+		
+		try {
+			compressor.decompress(compressed, 0, compressedLen - 1, new byte[data.length], 0, data.length);
+			Assert.fail("Truncated input was not detected.");
+		}
+		catch (IOException e) {
+			// expected
+		}
+		Assert.assertTrue("No corruption was detected.", detected > 0);
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private static int roundTrip(byte[] data, int off, int len) {
+		final LZBlockCompressor compressor = new LZBlockCompressor();
+		final byte[] compressed = new byte[compressor.getMaxCompressedLength(len) + 5];
+		final int compressedLen = compressor.compress(data, off, len, compressed, 5);
+		
+		final byte[] restored = new byte[len + 3];
+		try {
+			compressor.decompress(compressed, 5, compressedLen, restored, 3, len);
+		}
+		catch (IOException e) {
+			Assert.fail("Decompression failed: " + e.getMessage());
+		}
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, off, off + len), Arrays.copyOfRange(restored, 3, 3 + len));
+		return compressedLen;
+	}
+}
@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.io.network.api;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.network.bufferprovider.BufferProvider;
+import org.apache.flink.runtime.io.network.gates.GateID;
+import org.apache.flink.runtime.io.network.gates.OutputGate;
+import org.apache.flink.runtime.jobgraph.JobID;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.operators.testutils.MockEnvironment;
+import org.apache.flink.runtime.testutils.DiscardingRecycler;
+import org.apache.flink.types.IntValue;
+import org.apache.flink.types.Record;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests the buffer timeout of the {@link RecordWriter}.
+ */
+public class RecordWriterTest {
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private MockEnvironment environment;
+
+	private List<Record> output;
+
+	private RecordWriter<Record> writer;
+
+	@Before
+	public void setup() {
+		this.environment = new MockEnvironment(BUFFER_SIZE, null, BUFFER_SIZE);
+		this.output = Collections.synchronizedList(new ArrayList<Record>());
+		this.environment.addOutput(this.output);
+
+		final AbstractInvokable task = new AbstractInvokable() {
+			@Override
+			public void registerInputOutput() {}
+
+			@Override
+			public void invoke() {}
+		};
+		task.setEnvironment(this.environment);
+		this.writer = new RecordWriter<Record>(task);
+	}
+
+	@After
+	public void shutdown() {
+		this.writer.disableBufferTimeout();
+		this.environment.getIOManager().shutdown();
+		this.environment.getMemoryManager().shutdown();
+	}
+
+	@Test
+	public void testNoTimeout() throws Exception {
+		this.writer.initializeSerializers();
+
+		this.writer.emit(new Record(new IntValue(1)));
+		this.writer.emit(new Record(new IntValue(2)));
+		Assert.assertEquals(0, this.output.size());
+		Assert.assertEquals(0, this.writer.getNumberOfSentBuffers());
+
+		this.writer.flush();
+		Assert.assertEquals(2, this.output.size());
+		Assert.assertEquals(1, this.writer.getNumberOfSentBuffers());
+	}
+
+	@Test
+	public void testZeroTimeoutSendsEveryRecord() throws Exception {
+		this.writer.setBufferTimeout(0);
+		this.writer.initializeSerializers();
+
+		for (int i = 1; i <= 3; i++) {
+			this.writer.emit(new Record(new IntValue(i)));
+			Assert.assertEquals(i, this.output.size());
+			Assert.assertEquals(i, this.output.get(i - 1).getField(0, IntValue.class).getValue());
+		}
+		Assert.assertEquals(3, this.writer.getNumberOfSentBuffers());
+		Assert.assertTrue(this.writer.getAverageBufferFillLevel() > 0.0);
+		Assert.assertTrue(this.writer.getAverageBufferFillLevel() < 0.01);
+
+		// nothing is left to flush
+		this.writer.flush();
+		Assert.assertEquals(3, this.output.size());
+	}
+
+	@Test
+	public void testFlusherSendsPartlyFilledBuffers() throws Exception {
+		this.writer.setBufferTimeout(10);
+		this.writer.initializeSerializers();
+
+		this.writer.emit(new Record(new IntValue(1)));
+		this.writer.emit(new Record(new IntValue(2)));
+
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (this.output.size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assert.assertEquals(2, this.output.size());
+		Assert.assertTrue(this.writer.getNumberOfBuffersSentOnTimeout() >= 1);
+
+		// the writer continues with a new buffer after the flusher sent the old one
+		this.writer.emit(new Record(new IntValue(3)));
+		this.writer.disableBufferTimeout();
+		this.writer.flush();
+		Assert.assertEquals(3, this.output.size());
+		Assert.assertEquals(3, this.output.get(2).getField(0, IntValue.class).getValue());
+	}
+
+	@Test
+	public void testFlusherIsNotHeldUpByExhaustedReceiver() throws Exception {
+		// the receiver of this writer has no free buffers
+		final ExhaustedOutputGate exhaustedGate = new ExhaustedOutputGate();
+		final RecordWriter<Record> exhaustedWriter = createWriter(exhaustedGate);
+		exhaustedWriter.setBufferTimeout(5);
+		exhaustedWriter.initializeSerializers();
+
+		try {
+			exhaustedWriter.emit(new Record(new IntValue(0)));
+
+			this.writer.setBufferTimeout(10);
+			this.writer.initializeSerializers();
+
+			this.writer.emit(new Record(new IntValue(1)));
+			this.writer.emit(new Record(new IntValue(2)));
+
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (this.output.size() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			Assert.assertEquals(2, this.output.size());
+			Assert.assertTrue(exhaustedGate.numTries.get() >= 1);
+
+			// the buffer stays with the writer until the receiver has a free buffer again
+			Assert.assertEquals(0, exhaustedWriter.getNumberOfBuffersSentOnTimeout());
+			Assert.assertEquals(0, exhaustedGate.numSent.get());
+
+			exhaustedGate.bufferAvailable.countDown();
+			while (exhaustedWriter.getNumberOfBuffersSentOnTimeout() < 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			Assert.assertEquals(1, exhaustedGate.numSent.get());
+			Assert.assertEquals(1, exhaustedWriter.getNumberOfBuffersSentOnTimeout());
+		}
+		finally {
+			exhaustedWriter.disableBufferTimeout();
+			exhaustedGate.bufferAvailable.countDown();
+		}
+	}
+
+	@Test
+	public void testTimeoutAfterInitialization() throws Exception {
+		this.writer.initializeSerializers();
+		try {
+			this.writer.setBufferTimeout(10);
+			Assert.fail("The buffer timeout was accepted after the initialization of the serializers.");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static RecordWriter<Record> createWriter(OutputGate gate) throws Exception {
+		final BufferProvider bufferProvider = mock(BufferProvider.class);
+		when(bufferProvider.getBufferSize()).thenReturn(BUFFER_SIZE);
+		when(bufferProvider.requestBufferBlocking(anyInt())).thenAnswer(new Answer<Buffer>() {
+			@Override
+			public Buffer answer(InvocationOnMock invocation) {
+				return new Buffer(new MemorySegment(new byte[BUFFER_SIZE]), BUFFER_SIZE, new DiscardingRecycler());
+			}
+		});
+
+		final Environment environment = mock(Environment.class);
+		when(environment.createAndRegisterOutputGate()).thenReturn(gate);
+		when(environment.getOutputBufferProvider()).thenReturn(bufferProvider);
+
+		final AbstractInvokable task = new AbstractInvokable() {
+			@Override
+			public void registerInputOutput() {}
+
+			@Override
+			public void invoke() {}
+		};
+		task.setEnvironment(environment);
+		return new RecordWriter<Record>(task);
+	}
+
+	/**
+	 * An output gate with a single channel, whose receiver has no free buffers until the latch is released.
+	 */
+	private static final class ExhaustedOutputGate extends OutputGate {
+
+		private final CountDownLatch bufferAvailable = new CountDownLatch(1);
+
+		private final AtomicInteger numTries = new AtomicInteger();
+
+		private final AtomicInteger numSent = new AtomicInteger();
+
+		ExhaustedOutputGate() {
+			super(new JobID(), new GateID(), 0);
+		}
+
+		@Override
+		public void sendBuffer(Buffer buffer, int targetChannel) throws IOException, InterruptedException {
+			// waits for a buffer of the receiver
+			this.bufferAvailable.await();
+			buffer.recycleBuffer();
+			this.numSent.incrementAndGet();
+		}
+
+		@Override
+		public boolean trySendBuffer(Buffer buffer, int targetChannel) {
+			this.numTries.incrementAndGet();
+			if (this.bufferAvailable.getCount() > 0) {
+				return false;
+			}
+			buffer.recycleBuffer();
+			this.numSent.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		public int getNumChannels() {
+			return 1;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+	}
+}
@@ -34,8 +34,13 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -358,6 +363,113 @@ public class LocalBufferPoolTest {
 		bufferPool.destroy();
 	}
 
+	@Test
+	public void testSingleConsumerBatchRequest() throws Exception {
+		final LocalBufferPool bufferPool = new LocalBufferPool(GLOBAL_BUFFER_POOL, NUM_BUFFERS / 2);
+
+		final List<Buffer> requestedBuffers = new ArrayList<Buffer>();
+
+		Assert.assertEquals(16, bufferPool.requestBuffers(BUFFER_SIZE, 16, requestedBuffers));
+		Assert.assertEquals(16, requestedBuffers.size());
+		Assert.assertEquals(16, bufferPool.numRequestedBuffers());
+		Assert.assertEquals(NUM_BUFFERS - 16, GLOBAL_BUFFER_POOL.numAvailableBuffers());
+
+		// the designated number of buffers limits the batch
+		Assert.assertEquals((NUM_BUFFERS / 2) - 16, bufferPool.requestBuffers(BUFFER_SIZE, NUM_BUFFERS, requestedBuffers));
+		Assert.assertEquals(NUM_BUFFERS / 2, bufferPool.numRequestedBuffers());
+
+		Assert.assertEquals(0, bufferPool.requestBuffers(BUFFER_SIZE, 1, requestedBuffers));
+
+		// recycled buffers are handed out again
+		requestedBuffers.remove(0).recycleBuffer();
+		requestedBuffers.remove(0).recycleBuffer();
+
+		Assert.assertEquals(2, bufferPool.requestBuffers(BUFFER_SIZE / 2, 4, requestedBuffers));
+		Assert.assertEquals(BUFFER_SIZE / 2, requestedBuffers.get(requestedBuffers.size() - 1).size());
+		Assert.assertEquals(NUM_BUFFERS / 2, bufferPool.numRequestedBuffers());
+		Assert.assertEquals(0, bufferPool.numAvailableBuffers());
+
+		for (Buffer buffer : requestedBuffers) {
+			buffer.recycleBuffer();
+		}
+
+		Assert.assertEquals(NUM_BUFFERS / 2, bufferPool.numAvailableBuffers());
+
+		bufferPool.destroy();
+	}
+
+	@Test
+	public void testConcurrentRecyclersBlockingRequest() throws Exception {
+		final int numDesignatedBuffers = 8;
+		final int numRequests = 20000;
+
+		final LocalBufferPool bufferPool = new LocalBufferPool(GLOBAL_BUFFER_POOL, numDesignatedBuffers);
+
+		final BlockingQueue<Buffer> requestedBuffers = new LinkedBlockingQueue<Buffer>();
+		final Throwable[] error = new Throwable[1];
+		final boolean[] isFinished = new boolean[1];
+
+		// the buffers are requested by the test thread and recycled by multiple threads
+		Thread[] recyclers = new Thread[4];
+		for (int i = 0; i < recyclers.length; i++) {
+			recyclers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							Buffer buffer = requestedBuffers.poll(10, TimeUnit.MILLISECONDS);
+
+							if (buffer != null) {
+								buffer.recycleBuffer();
+							}
+							else {
+								synchronized (isFinished) {
+									if (isFinished[0]) {
+										return;
+									}
+								}
+							}
+						}
+					} catch (Throwable t) {
+						error[0] = t;
+					}
+				}
+			});
+
+			recyclers[i].start();
+		}
+
+		for (int i = 0; i < numRequests; i++) {
+			Buffer buffer = bufferPool.requestBufferBlocking(BUFFER_SIZE);
+			Assert.assertNotNull(buffer);
+
+			requestedBuffers.add(buffer);
+
+			// shrink and grow the pool while buffers are in use
+			if (i == numRequests / 2) {
+				bufferPool.setNumDesignatedBuffers(numDesignatedBuffers / 2);
+			}
+			else if (i == (3 * numRequests) / 4) {
+				bufferPool.setNumDesignatedBuffers(numDesignatedBuffers);
+			}
+		}
+
+		synchronized (isFinished) {
+			isFinished[0] = true;
+		}
+
+		for (Thread recycler : recyclers) {
+			recycler.join();
+		}
+
+		Assert.assertNull(error[0]);
+
+		Assert.assertTrue(bufferPool.numRequestedBuffers() <= numDesignatedBuffers);
+		Assert.assertEquals(bufferPool.numRequestedBuffers(), bufferPool.numAvailableBuffers());
+
+		bufferPool.destroy();
+	}
+
 	// --------------------------------------------------------------------
 
 	private static class RecyclingBufferAvailableAnswer implements Answer<Void> {
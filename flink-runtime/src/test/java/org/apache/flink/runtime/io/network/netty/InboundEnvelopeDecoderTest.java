@@ -33,6 +33,7 @@ import org.apache.flink.runtime.event.task.AbstractEvent;
 import org.apache.flink.runtime.io.network.Buffer;
 import org.apache.flink.runtime.io.network.BufferRecycler;
 import org.apache.flink.runtime.io.network.Envelope;
+import org.apache.flink.runtime.io.network.NetworkCompression;
 import org.apache.flink.runtime.io.network.bufferprovider.BufferAvailabilityListener;
 import org.apache.flink.runtime.io.network.bufferprovider.BufferProvider;
 import org.apache.flink.runtime.io.network.bufferprovider.BufferProviderBroker;
@@ -43,6 +44,7 @@ import org.apache.flink.runtime.io.network.netty.OutboundEnvelopeEncoder;
 import org.apache.flink.runtime.jobgraph.JobID;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -52,6 +54,7 @@ import org.mockito.stubbing.Answer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -324,6 +327,78 @@ public class InboundEnvelopeDecoderTest {
 		Assert.assertEquals(1, buf.refCnt());
 	}
 
+	@Test
+	public void testCreditRequestReservesBuffers() throws Exception {
+		final EmbeddedChannel ch = new EmbeddedChannel(
+				new OutboundEnvelopeEncoder(),
+				new InboundEnvelopeDecoder(this.bufferProviderBroker));
+
+		when(this.bufferProviderBroker.getBufferProvider(anyJobId(), anyChannelId()))
+				.thenReturn(this.bufferProvider);
+
+		when(this.bufferProvider.getBufferSize())
+				.thenReturn(MAX_BUFFER_SIZE);
+
+		// the first batch request is served with a single buffer, the following ones with none
+		when(this.bufferProvider.requestBuffers(anyInt(), anyInt(), Matchers.anyCollectionOf(Buffer.class)))
+				.thenAnswer(new Answer<Integer>() {
+					private boolean served;
+
+					@SuppressWarnings("unchecked")
+					@Override
+					public Integer answer(InvocationOnMock invocation) throws Throwable {
+						if (this.served) {
+							return 0;
+						}
+						this.served = true;
+						((Collection<Buffer>) invocation.getArguments()[2]).add(allocBuffer());
+						return 1;
+					}
+				});
+
+		ArgumentCaptor<BufferAvailabilityListener> listener = ArgumentCaptor.forClass(BufferAvailabilityListener.class);
+		when(this.bufferProvider.registerBufferAvailabilityListener(listener.capture()))
+				.thenReturn(BufferAvailabilityRegistration.SUCCEEDED_REGISTERED);
+
+		// --------------------------------------------------------------------
+
+		// two envelopes of the same channel
+		Envelope[] envelopes = new Envelope[2];
+		envelopes[0] = nextEnvelope(true);
+		envelopes[1] = new Envelope(envelopes[0].getSequenceNumber() + 1, envelopes[0].getJobID(), envelopes[0].getSource());
+		envelopes[1].setBuffer(allocBuffer(envelopes[0].getBuffer().size()));
+
+		// 1. request two credits: the first one is announced right away, the
+		// second one after a buffer has become available
+		ByteBuf request = ch.alloc().buffer(OutboundEnvelopeEncoder.HEADER_SIZE);
+		OutboundEnvelopeEncoder.encodeCreditRequest(envelopes[0].getJobID(), envelopes[0].getSource(), 2, request);
+
+		ch.writeInbound(request);
+
+		Assert.assertNull(ch.readInbound());
+		verifyCreditAnnouncement((ByteBuf) ch.readOutbound(), envelopes[0].getSource(), 1);
+		Assert.assertNull(ch.readOutbound());
+
+		listener.getValue().bufferAvailable(allocBuffer());
+		ch.runPendingTasks();
+
+		verifyCreditAnnouncement((ByteBuf) ch.readOutbound(), envelopes[0].getSource(), 1);
+		Assert.assertNull(ch.readOutbound());
+
+		// 2. the credited envelopes are decoded into the reserved buffers,
+		// although the buffer provider has no buffer available
+		ByteBuf buf = encode(ch, envelopes);
+
+		decodeAndVerify(ch, buf, envelopes);
+
+		Assert.assertTrue(ch.config().isAutoRead());
+		// the buffers for both credits are requested in one batch
+		verify(this.bufferProvider).requestBuffers(anyInt(), Matchers.eq(2), Matchers.anyCollectionOf(Buffer.class));
+		verify(this.bufferProvider, times(2)).requestBuffers(anyInt(), anyInt(), Matchers.anyCollectionOf(Buffer.class));
+		verify(this.bufferProvider, times(0)).requestBuffer(anyInt());
+		Assert.assertEquals(0, buf.refCnt());
+	}
+
 	@Test
 	public void testEncodeDecode() throws Exception {
 		final EmbeddedChannel ch = new EmbeddedChannel(
@@ -375,6 +450,61 @@ public class InboundEnvelopeDecoderTest {
 		buf.release();
 	}
 
+	@Test
+	public void testEncodeDecodeCompressed() throws Exception {
+		final EmbeddedChannel ch = new EmbeddedChannel(
+				new OutboundEnvelopeEncoder(), new InboundEnvelopeDecoder(this.bufferProviderBroker));
+
+		when(this.bufferProviderBroker.getBufferProvider(anyJobId(), anyChannelId()))
+				.thenReturn(this.bufferProvider);
+
+		when(this.bufferProvider.requestBuffer(anyInt())).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				// the buffers of the pool have the network buffer size, which
+				// is larger than the requested size of a compressed buffer
+				Buffer buffer = allocBuffer();
+				buffer.limitSize((Integer) invocation.getArguments()[0]);
+				return buffer;
+			}
+		});
+
+		// --------------------------------------------------------------------
+
+		Envelope[] envelopes = new Envelope[]{
+				nextCompressibleEnvelope(32768),
+				nextEnvelope(16384),
+				nextCompressibleEnvelope(3782, new TestEvent1(34872527)),
+				nextCompressibleEnvelope(12)
+		};
+
+		int uncompressedSize = 0;
+		for (Envelope env : envelopes) {
+			// the random buffer does not become smaller and is sent uncompressed
+			env.setCompression(NetworkCompression.ALWAYS);
+			uncompressedSize += env.getBuffer().size();
+		}
+
+		ByteBuf buf = encode(ch, envelopes);
+		Assert.assertTrue(buf.readableBytes() < uncompressedSize);
+
+		// 1. complete ByteBuf as input
+		int refCount = buf.retain().refCnt();
+
+		decodeAndVerify(ch, buf, envelopes);
+		Assert.assertEquals(refCount - 1, buf.refCnt());
+
+		// 2. random slices
+		buf.readerIndex(0);
+		ByteBuf[] slices = randomSlices(buf);
+
+		ch.writeInbound((Object[]) slices);
+
+		decodeAndVerify(ch, envelopes);
+
+		buf.release();
+	}
+
 	@Test
 	public void testEncodeDecodeRandomEnvelopes() throws Exception {
 		final InboundEnvelopeDecoder decoder = new InboundEnvelopeDecoder(this.bufferProviderBroker);
@@ -497,6 +627,17 @@ public class InboundEnvelopeDecoderTest {
 		return env;
 	}
 
+	private Envelope nextCompressibleEnvelope(int bufferSize, AbstractEvent... events) {
+		Envelope env = nextEnvelope(bufferSize, events);
+
+		MemorySegment segment = env.getBuffer().getMemorySegment();
+		for (int i = 0; i < bufferSize; i++) {
+			segment.put(i, (byte) (i % 7));
+		}
+
+		return env;
+	}
+
 	private Envelope nextEnvelope(boolean withBuffer, boolean withEvents) {
 		int bufferSize = 0;
 		AbstractEvent[] events = null;
@@ -580,6 +721,20 @@ public class InboundEnvelopeDecoderTest {
 		}
 	}
 
+	private static void verifyCreditAnnouncement(ByteBuf announcement, ChannelID expectedSourceId, int expectedNumCredits) {
+		Assert.assertNotNull("No credit announcement available, but expected one", announcement);
+		Assert.assertEquals(InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_SIZE, announcement.readableBytes());
+
+		ByteBuffer nioBuffer = ByteBuffer.allocate(InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_SIZE);
+		announcement.readBytes(nioBuffer);
+		announcement.release();
+		nioBuffer.flip();
+
+		Assert.assertEquals(InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_MAGIC_NUMBER, nioBuffer.getInt());
+		Assert.assertEquals(expectedSourceId, ChannelID.fromByteBuffer(nioBuffer));
+		Assert.assertEquals(expectedNumCredits, nioBuffer.getInt());
+	}
+
 	private static void assertEqualEnvelopes(Envelope expected, Envelope actual) {
 		Assert.assertTrue(expected.getSequenceNumber() == actual.getSequenceNumber() &&
 				expected.getJobID().equals(actual.getJobID()) &&
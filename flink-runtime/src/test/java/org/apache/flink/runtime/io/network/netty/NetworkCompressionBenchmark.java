@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Random;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.network.BufferRecycler;
+import org.apache.flink.runtime.io.network.Envelope;
+import org.apache.flink.runtime.io.network.NetworkCompression;
+import org.apache.flink.runtime.io.network.bufferprovider.BufferAvailabilityListener;
+import org.apache.flink.runtime.io.network.bufferprovider.BufferProvider;
+import org.apache.flink.runtime.io.network.bufferprovider.BufferProviderBroker;
+import org.apache.flink.runtime.io.network.channels.ChannelID;
+import org.apache.flink.runtime.jobgraph.JobID;
+
+/**
+ * Measures the throughput and the number of bytes on the wire of the network compression modes. Compressible
+ * and incompressible buffers are pushed through the {@link OutboundEnvelopeEncoder} and the
+ * {@link InboundEnvelopeDecoder}, without a network in between.
+ */
+public class NetworkCompressionBenchmark {
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private static final int NUM_DISTINCT_BUFFERS = 64;
+
+	private static final int NUM_BUFFERS = 20000;
+
+	private static final int NUM_WARMUP_BUFFERS = 5000;
+
+	private static final BufferRecycler NOOP_RECYCLER = new BufferRecycler() {
+		@Override
+		public void recycle(MemorySegment buffer) {}
+	};
+
+
+	public static void main(String[] args) throws Exception {
+		final MemorySegment[] compressible = createCompressibleSegments();
+		final MemorySegment[] incompressible = createIncompressibleSegments();
+
+		for (NetworkCompression compression : NetworkCompression.values()) {
+			runBenchmark("compressible", compressible, compression);
+			runBenchmark("incompressible", incompressible, compression);
+		}
+	}
+
+	private static void runBenchmark(String dataName, MemorySegment[] segments, NetworkCompression compression)
+			throws Exception
+	{
+		final EmbeddedChannel sender = new EmbeddedChannel(new OutboundEnvelopeEncoder());
+		final EmbeddedChannel receiver = new EmbeddedChannel(new InboundEnvelopeDecoder(new ReusingBufferProviderBroker()));
+
+		final JobID jobId = new JobID();
+		final ChannelID channelId = new ChannelID();
+
+		// warm up the code paths, including the adaptive compression state of the channel
+		transfer(sender, receiver, jobId, channelId, segments, compression, 0, NUM_WARMUP_BUFFERS);
+
+		final long start = System.nanoTime();
+		final long bytesOnWire = transfer(sender, receiver, jobId, channelId, segments, compression,
+				NUM_WARMUP_BUFFERS, NUM_BUFFERS);
+		final long elapsed = System.nanoTime() - start;
+
+		final long payloadBytes = ((long) NUM_BUFFERS) * BUFFER_SIZE;
+		final double mbPerSecond = (payloadBytes / (1024.0 * 1024.0)) / (elapsed / 1000000000.0);
+
+		System.out.println(String.format("%-6s %-14s: %,8.1f MB/s, %,d of %,d bytes on the wire (%.1f%%), %,d msecs.",
+				compression, dataName, mbPerSecond, bytesOnWire, payloadBytes, 100.0 * bytesOnWire / payloadBytes,
+				elapsed / 1000000));
+
+		sender.close();
+		receiver.close();
+	}
+
+	/**
+	 * Encodes and decodes the given number of buffers and returns the number of encoded bytes.
+	 */
+	private static long transfer(EmbeddedChannel sender, EmbeddedChannel receiver, JobID jobId, ChannelID channelId,
+			MemorySegment[] segments, NetworkCompression compression, int firstSeqNum, int numBuffers)
+	{
+		long bytesOnWire = 0;
+
+		for (int i = 0; i < numBuffers; i++) {
+			final Envelope envelope = new Envelope(firstSeqNum + i, jobId, channelId);
+			envelope.setBuffer(new Buffer(segments[i % segments.length], BUFFER_SIZE, NOOP_RECYCLER));
+			envelope.setCompression(compression);
+
+			sender.writeOutbound(envelope);
+
+			ByteBuf encoded;
+			while ((encoded = (ByteBuf) sender.readOutbound()) != null) {
+				bytesOnWire += encoded.readableBytes();
+				receiver.writeInbound(encoded);
+			}
+
+			Envelope decoded;
+			while ((decoded = (Envelope) receiver.readInbound()) != null) {
+				if (decoded.getBuffer() != null) {
+					decoded.getBuffer().recycleBuffer();
+				}
+			}
+		}
+
+		return bytesOnWire;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates buffers that look like serialized records: a running key and a few words of text.
+	 */
+	private static MemorySegment[] createCompressibleSegments() {
+		final String[] words = { "flink", "stratosphere", "record", "buffer", "network", "channel",
+				"partition", "compression", "envelope", "stream", "operator", "task" };
+		final Random rnd = new Random(42);
+
+		final MemorySegment[] segments = new MemorySegment[NUM_DISTINCT_BUFFERS];
+		long key = 0;
+		for (int i = 0; i < segments.length; i++) {
+			final MemorySegment segment = new MemorySegment(new byte[BUFFER_SIZE]);
+			int pos = 0;
+			while (pos < BUFFER_SIZE) {
+				final byte[] record = (key++ + "|" + words[rnd.nextInt(words.length)] + " " +
+						words[rnd.nextInt(words.length)] + "|" + rnd.nextInt(1000) + "\n").getBytes();
+				final int len = Math.min(record.length, BUFFER_SIZE - pos);
+				segment.put(pos, record, 0, len);
+				pos += len;
+			}
+			segments[i] = segment;
+		}
+		return segments;
+	}
+
+	private static MemorySegment[] createIncompressibleSegments() {
+		final Random rnd = new Random(42);
+
+		final MemorySegment[] segments = new MemorySegment[NUM_DISTINCT_BUFFERS];
+		for (int i = 0; i < segments.length; i++) {
+			final byte[] data = new byte[BUFFER_SIZE];
+			rnd.nextBytes(data);
+			segments[i] = new MemorySegment(data);
+		}
+		return segments;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Hands out a single buffer of the network buffer size, which the benchmark recycles after each envelope.
+	 */
+	private static final class ReusingBufferProviderBroker implements BufferProviderBroker, BufferProvider {
+
+		private final MemorySegment segment = new MemorySegment(new byte[BUFFER_SIZE]);
+
+		@Override
+		public BufferProvider getBufferProvider(JobID jobID, ChannelID sourceChannelID) {
+			return this;
+		}
+
+		@Override
+		public Buffer requestBuffer(int minBufferSize) {
+			return new Buffer(this.segment, minBufferSize, NOOP_RECYCLER);
+		}
+
+		@Override
+		public Buffer requestBufferBlocking(int minBufferSize) {
+			return requestBuffer(minBufferSize);
+		}
+
+		@Override
+		public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) throws IOException {
+			for (int i = 0; i < numBuffers; i++) {
+				target.add(requestBuffer(minBufferSize));
+			}
+			return numBuffers;
+		}
+
+		@Override
+		public int getBufferSize() {
+			return BUFFER_SIZE;
+		}
+
+		@Override
+		public void reportAsynchronousEvent() {}
+
+		@Override
+		public BufferAvailabilityRegistration registerBufferAvailabilityListener(BufferAvailabilityListener listener) {
+			return BufferAvailabilityRegistration.FAILED_BUFFER_AVAILABLE;
+		}
+	}
+}
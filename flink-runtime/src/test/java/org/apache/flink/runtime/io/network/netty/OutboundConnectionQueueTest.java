@@ -20,6 +20,8 @@ package org.apache.flink.runtime.io.network.netty;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -34,6 +36,9 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleStateEvent;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.network.BufferRecycler;
 import org.apache.flink.runtime.io.network.Envelope;
 import org.apache.flink.runtime.io.network.NetworkConnectionManager;
 import org.apache.flink.runtime.io.network.RemoteReceiver;
@@ -44,6 +49,7 @@ import org.mockito.Mockito;
 import org.powermock.reflect.Whitebox;
 
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -76,6 +82,10 @@ public class OutboundConnectionQueueTest {
 	private Throwable exception;
 
 	private void initTest(boolean autoTriggerWrite) {
+		initTest(autoTriggerWrite, 0);
+	}
+
+	private void initTest(boolean autoTriggerWrite, int maxCreditsPerChannel) {
 		controller = new TestControlHandler(autoTriggerWrite);
 		verifier = new TestVerificationHandler();
 
@@ -91,7 +101,7 @@ public class OutboundConnectionQueueTest {
 
 		receiver = Mockito.mock(RemoteReceiver.class);
 
-		queue = new OutboundConnectionQueue(channel, receiver, connectionManager, 0);
+		queue = new OutboundConnectionQueue(channel, receiver, connectionManager, 0, maxCreditsPerChannel);
 
 		channel.pipeline().addFirst("Test Control Handler", controller);
 		channel.pipeline().addFirst("Test Verification Handler", verifier);
@@ -219,6 +229,81 @@ public class OutboundConnectionQueueTest {
 		Assert.assertTrue(exception instanceof IllegalStateException);
 	}
 
+	/**
+	 * Verifies that envelopes with a buffer are only sent after the receiver
+	 * announced credits for their channel and that a channel without credits
+	 * does not hold back the envelopes of the other channels.
+	 */
+	public void testCreditBasedFlowControl() throws Exception {
+		initTest(true, 1);
+
+		final JobID jid = new JobID();
+		final ChannelID blocked = new ChannelID();
+		final ChannelID credited = new ChannelID();
+
+		Assert.assertTrue(queue.enqueue(envelopeWithBuffer(1, jid, blocked)));
+		Assert.assertTrue(queue.enqueue(envelopeWithBuffer(1, jid, credited)));
+		Assert.assertTrue(queue.enqueue(envelopeWithBuffer(2, jid, credited)));
+		// Envelope without buffer, which must not overtake the queued buffers
+		Assert.assertTrue(queue.enqueue(new Envelope(3, jid, credited)));
+
+		// One credit is requested per channel (max credits per channel)
+		verifier.verifyCreditRequest(blocked, 1);
+		verifier.verifyCreditRequest(credited, 1);
+		verifier.verifyNoCreditRequest();
+
+		verifier.verifyEnvelopeReceived(blocked, null);
+		verifier.verifyEnvelopeReceived(credited, null);
+		Assert.assertEquals(4, queue.getNumQueuedEnvelopes());
+
+		// The first credit requests the next one
+		announceCredits(credited, 1);
+
+		verifier.verifyEnvelopeReceived(credited, 1);
+		verifier.verifyEnvelopeReceived(blocked, null);
+		verifier.verifyCreditRequest(credited, 1);
+		verifier.verifyNoCreditRequest();
+
+		announceCredits(credited, 1);
+
+		verifier.verifyEnvelopeReceived(credited, 3);
+		verifier.verifyEnvelopeReceived(blocked, null);
+		verifier.verifyNoCreditRequest();
+		Assert.assertEquals(1, queue.getNumQueuedEnvelopes());
+
+		// Verify idle event doesn't close channel with envelopes waiting for credits
+		controller.fireIdle();
+
+		Mockito.verify(connectionManager, Mockito.times(0)).close(Mockito.any(RemoteReceiver.class));
+
+		announceCredits(blocked, 1);
+
+		verifier.verifyEnvelopeReceived(blocked, 1);
+		Assert.assertEquals(0, queue.getNumQueuedEnvelopes());
+
+		controller.fireIdle();
+		verifier.waitForClose();
+
+		Mockito.verify(connectionManager, Mockito.times(1)).close(Mockito.any(RemoteReceiver.class));
+	}
+
+	private static Envelope envelopeWithBuffer(int seqNum, JobID jid, ChannelID cid) {
+		Envelope env = new Envelope(seqNum, jid, cid);
+		env.setBuffer(new Buffer(new MemorySegment(new byte[16]), 16, Mockito.mock(BufferRecycler.class)));
+
+		return env;
+	}
+
+	private void announceCredits(ChannelID cid, int numCredits) {
+		ByteBuf announcement = Unpooled.buffer(InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_SIZE);
+
+		announcement.writeInt(InboundEnvelopeDecoder.CREDIT_ANNOUNCEMENT_MAGIC_NUMBER);
+		cid.writeTo(announcement);
+		announcement.writeInt(numCredits);
+
+		channel.pipeline().fireChannelRead(announcement);
+	}
+
 	// ------------------------------------------------------------------------
 
 	public void testConcurrentEnqueueAndClose() throws Exception {
@@ -506,6 +591,8 @@ public class OutboundConnectionQueueTest {
 
 		private final Map<ChannelID, CountDownLatch> envelopeLatches = new HashMap<ChannelID, CountDownLatch>();
 
+		private final Queue<ByteBuf> creditRequests = new ArrayDeque<ByteBuf>();
+
 		private CountDownLatch closeLatch;
 
 		@Override
@@ -541,6 +628,11 @@ public class OutboundConnectionQueueTest {
 					envelopeLatches.remove(source).countDown();
 				}
 			}
+			else if (msg instanceof ByteBuf) {
+				creditRequests.add((ByteBuf) msg);
+
+				promise.setSuccess();
+			}
 		}
 
 		@Override
@@ -577,6 +669,26 @@ public class OutboundConnectionQueueTest {
 			}
 		}
 
+		public void verifyCreditRequest(ChannelID source, int expectedNumCredits) {
+			ByteBuf request = creditRequests.poll();
+			Assert.assertNotNull("Did not receive a credit request from channel " + source, request);
+			Assert.assertEquals(OutboundEnvelopeEncoder.HEADER_SIZE, request.readableBytes());
+
+			ByteBuffer header = ByteBuffer.allocate(OutboundEnvelopeEncoder.HEADER_SIZE);
+			request.readBytes(header);
+			request.release();
+			header.flip();
+
+			Assert.assertEquals(OutboundEnvelopeEncoder.CREDIT_REQUEST_MAGIC_NUMBER, header.getInt());
+			Assert.assertEquals(expectedNumCredits, header.getInt());
+			JobID.fromByteBuffer(header);
+			Assert.assertEquals(source, ChannelID.fromByteBuffer(header));
+		}
+
+		public void verifyNoCreditRequest() {
+			Assert.assertTrue("Received unexpected credit request.", creditRequests.isEmpty());
+		}
+
 		public CountDownLatch waitForEnvelopes(Integer expectedSequenceNum, ChannelID... ids) {
 			CountDownLatch latch = new CountDownLatch(ids.length);
 
@@ -596,6 +708,7 @@ public class OutboundConnectionQueueTest {
 		testCloseWithQueuedEnvelopes();
 		testEnqueueAfterClose();
 		testUnknownUserEvent();
+		testCreditBasedFlowControl();
 		testMultipleIdleEvents();
 		testConcurrentEnqueueAndClose();
 	}
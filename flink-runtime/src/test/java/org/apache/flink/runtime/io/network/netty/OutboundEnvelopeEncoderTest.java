@@ -20,13 +20,18 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
 
 import org.junit.Assert;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.network.Buffer;
+import org.apache.flink.runtime.io.network.BufferRecycler;
 import org.apache.flink.runtime.io.network.Envelope;
+import org.apache.flink.runtime.io.network.NetworkCompression;
 import org.apache.flink.runtime.io.network.channels.ChannelID;
 import org.apache.flink.runtime.io.network.netty.OutboundEnvelopeEncoder;
 import org.apache.flink.runtime.jobgraph.JobID;
@@ -103,4 +108,78 @@ public class OutboundEnvelopeEncoderTest {
 		// --------------------------------------------------------------------
 		verify(buffer, times(numBuffers)).recycleBuffer();
 	}
+
+	@Test
+	public void testBufferIsRecycledAfterWrite() {
+		final MemorySegment segment = new MemorySegment(new byte[MAX_BUFFER_SIZE]);
+		final Buffer buffer = mock(Buffer.class);
+		when(buffer.getMemorySegment()).thenReturn(segment);
+		when(buffer.size()).thenReturn(MAX_BUFFER_SIZE);
+
+		// holds back the write of the encoded envelope (as a socket, which is not writable)
+		final ChannelPromise[] pendingWrite = new ChannelPromise[1];
+
+		final EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+			@Override
+			public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+				Assert.assertEquals(OutboundEnvelopeEncoder.HEADER_SIZE + MAX_BUFFER_SIZE, ((ByteBuf) msg).readableBytes());
+
+				((ByteBuf) msg).release();
+				pendingWrite[0] = promise;
+			}
+		}, new OutboundEnvelopeEncoder());
+
+		Envelope env = new Envelope(0, new JobID(), new ChannelID());
+		env.setBuffer(buffer);
+
+		ChannelPromise envelopePromise = channel.newPromise();
+		channel.writeAndFlush(env, envelopePromise);
+
+		// the encoded envelope shares the memory of the buffer
+		verify(buffer, times(0)).recycleBuffer();
+		Assert.assertFalse(envelopePromise.isDone());
+
+		pendingWrite[0].setSuccess();
+
+		verify(buffer, times(1)).recycleBuffer();
+		Assert.assertTrue(envelopePromise.isSuccess());
+	}
+
+	@Test
+	public void testAdaptiveCompression() {
+		final EmbeddedChannel channel = new EmbeddedChannel(new OutboundEnvelopeEncoder());
+		final ChannelID source = new ChannelID();
+
+		// C = compressible buffer, R = random buffer
+		final boolean[] compressible = new boolean[]{true, false, true, false, true, true, true};
+
+		// each poor probe (R) pauses the compression and doubles the pause for the next one
+		final boolean[] expectCompressed = new boolean[]{true, false, false, false, false, false, true};
+
+		for (int i = 0; i < compressible.length; i++) {
+			byte[] data = new byte[MAX_BUFFER_SIZE];
+			if (compressible[i]) {
+				for (int j = 0; j < data.length; j++) {
+					data[j] = (byte) (j % 7);
+				}
+			}
+			else {
+				random.nextBytes(data);
+			}
+
+			Envelope env = new Envelope(i, new JobID(), source);
+			env.setBuffer(new Buffer(new MemorySegment(data), data.length, mock(BufferRecycler.class)));
+			env.setCompression(NetworkCompression.ADAPTIVE);
+
+			Assert.assertTrue(channel.writeOutbound(env));
+
+			ByteBuf encodedMsg = (ByteBuf) channel.readOutbound();
+			int expectedMagicNumber = expectCompressed[i]
+					? OutboundEnvelopeEncoder.COMPRESSED_MAGIC_NUMBER
+					: OutboundEnvelopeEncoder.MAGIC_NUMBER;
+
+			Assert.assertEquals("Buffer " + i, expectedMagicNumber, encodedMsg.getInt(0));
+			encodedMsg.release();
+		}
+	}
 }
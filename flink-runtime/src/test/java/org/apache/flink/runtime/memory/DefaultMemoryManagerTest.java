@@ -22,6 +22,7 @@ package org.apache.flink.runtime.memory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Assert;
 
@@ -164,6 +165,134 @@ public class DefaultMemoryManagerTest
 		}
 	}
 	
+	@Test
+	public void lazyAllocationAndCaching()
+	{
+		final int maxCachedPages = NUM_PAGES / 4;
+		final DefaultMemoryManager lazyManager = new DefaultMemoryManager(MEMORY_SIZE, 1, PAGE_SIZE, false,
+			true, maxCachedPages, -1);
+		
+		try {
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			
+			// nothing is allocated upfront
+			Assert.assertEquals(0, lazyManager.getNumberOfReservedPages());
+			
+			final List<MemorySegment> segs = lazyManager.allocatePages(mockInvoke, NUM_PAGES / 2);
+			Assert.assertEquals(NUM_PAGES / 2, lazyManager.getNumberOfPagesInUse());
+			Assert.assertEquals(NUM_PAGES / 2, lazyManager.getNumberOfReservedPages());
+			Assert.assertEquals(0, lazyManager.getNumberOfCachedPages());
+			
+			// the full capacity is still available, even though it was never allocated
+			segs.addAll(lazyManager.allocatePages(mockInvoke, NUM_PAGES / 2));
+			try {
+				lazyManager.allocatePages(mockInvoke, 1);
+				Assert.fail("Expected MemoryAllocationException.");
+			} catch (MemoryAllocationException maex) {
+				// expected
+			}
+			
+			// releasing keeps only a bounded number of pages
+			lazyManager.releaseAll(mockInvoke);
+			Assert.assertTrue("Released memory segments have not been destroyed.", allMemorySegmentsFreed(segs));
+			Assert.assertEquals(0, lazyManager.getNumberOfPagesInUse());
+			Assert.assertEquals(maxCachedPages, lazyManager.getNumberOfCachedPages());
+			Assert.assertTrue(lazyManager.verifyEmpty());
+			
+			// cached pages are reused
+			final List<MemorySegment> reused = lazyManager.allocatePages(mockInvoke, 1);
+			Assert.assertEquals(maxCachedPages - 1, lazyManager.getNumberOfCachedPages());
+			Assert.assertTrue(allMemorySegmentsValid(reused));
+			lazyManager.release(reused);
+			
+			// and can be given back to the JVM
+			Assert.assertEquals(maxCachedPages, lazyManager.releaseCachedMemory());
+			Assert.assertEquals(0, lazyManager.getNumberOfReservedPages());
+			Assert.assertTrue(lazyManager.verifyEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+		finally {
+			lazyManager.shutdown();
+		}
+	}
+	
+	@Test
+	public void eagerAllocationKeepsMemory()
+	{
+		Assert.assertEquals(NUM_PAGES, this.memoryManager.getNumberOfReservedPages());
+		Assert.assertEquals(NUM_PAGES, this.memoryManager.getNumberOfCachedPages());
+		Assert.assertEquals(0, this.memoryManager.releaseCachedMemory());
+		Assert.assertEquals(NUM_PAGES, this.memoryManager.getNumberOfReservedPages());
+	}
+	
+	@Test
+	public void concurrentAllocationAndRelease()
+	{
+		final int numThreads = 8;
+		final int numRounds = 200;
+		final DefaultMemoryManager stripedManager = new DefaultMemoryManager(MEMORY_SIZE, numThreads, PAGE_SIZE);
+		final int pagesPerRequest = NUM_PAGES / numThreads / 2;
+		
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Thread[] threads = new Thread[numThreads];
+		
+		for (int t = 0; t < numThreads; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						final AbstractInvokable owner = new DummyInvokable();
+						for (int round = 0; round < numRounds; round++) {
+							final List<MemorySegment> segs = stripedManager.allocatePages(owner, pagesPerRequest);
+							
+							// mark the pages as ours and check that nobody else writes into them
+							for (MemorySegment seg : segs) {
+								seg.putInt(0, System.identityHashCode(owner));
+							}
+							for (MemorySegment seg : segs) {
+								if (seg.getInt(0) != System.identityHashCode(owner)) {
+									throw new Exception("A page was handed out twice.");
+								}
+							}
+							
+							if (round % 2 == 0) {
+								stripedManager.release(segs);
+							} else {
+								stripedManager.releaseAll(owner);
+							}
+						}
+					}
+					catch (Throwable t) {
+						error.set(t);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		
+		try {
+			for (Thread t : threads) {
+				t.join();
+			}
+			
+			if (error.get() != null) {
+				error.get().printStackTrace();
+				Assert.fail("Concurrent allocation failed: " + error.get().getMessage());
+			}
+			Assert.assertTrue(stripedManager.verifyEmpty());
+			Assert.assertEquals(0, stripedManager.getNumberOfPagesInUse());
+		}
+		catch (InterruptedException e) {
+			Assert.fail("Interrupted while waiting for the allocating threads.");
+		}
+		finally {
+			stripedManager.shutdown();
+		}
+	}
+	
 	private boolean allMemorySegmentsValid(List<MemorySegment> memSegs)
 	{
 		for (MemorySegment seg : memSegs) {
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.memorymanager.DefaultMemoryManager;
+import org.apache.flink.runtime.memorymanager.MemoryAllocationException;
+import org.apache.flink.runtime.memorymanager.MemoryBroker;
+import org.apache.flink.runtime.memorymanager.MemoryConsumer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MemoryBrokerTest {
+	
+	private static final int PAGE_SIZE = 1024 * 32;
+	
+	private static final int NUM_PAGES = 100;
+	
+	private DefaultMemoryManager memoryManager;
+	
+	private AbstractInvokable owner;
+	
+	@Before
+	public void setUp() {
+		this.memoryManager = new DefaultMemoryManager(NUM_PAGES * PAGE_SIZE, 1, PAGE_SIZE);
+		this.owner = new DefaultMemoryManagerTest.DummyInvokable();
+	}
+	
+	@After
+	public void tearDown() {
+		this.memoryManager.releaseAll(this.owner);
+		if (!this.memoryManager.verifyEmpty()) {
+			Assert.fail("Memory manager is not complete empty and valid at the end of the test.");
+		}
+		this.memoryManager = null;
+	}
+	
+	@Test
+	public void brokerPerTask() {
+		final MemoryBroker broker = this.memoryManager.getMemoryBroker(this.owner);
+		assertSame(broker, this.memoryManager.getMemoryBroker(this.owner));
+		assertNotSame(broker, this.memoryManager.getMemoryBroker(new DefaultMemoryManagerTest.DummyInvokable()));
+		
+		// releasing the task's memory discards the broker
+		this.memoryManager.releaseAll(this.owner);
+		assertNotSame(broker, this.memoryManager.getMemoryBroker(this.owner));
+	}
+	
+	@Test
+	public void borrowIdlePages() {
+		try {
+			final MemoryBroker broker = this.memoryManager.getMemoryBroker(this.owner);
+			
+			final IdleConsumer lender = new IdleConsumer(this.memoryManager.allocatePages(this.owner, 10));
+			final IdleConsumer borrower = new IdleConsumer(this.memoryManager.allocatePages(this.owner, 3));
+			broker.register(lender);
+			broker.register(borrower);
+			
+			// the borrower is not asked to lend to itself
+			List<MemorySegment> borrowed = broker.borrowPages(borrower, 4);
+			assertEquals(4, borrowed.size());
+			assertEquals(6, lender.idle.size());
+			assertEquals(3, borrower.idle.size());
+			
+			borrowed = broker.borrowPages(borrower, 20);
+			assertEquals(6, borrowed.size());
+			assertEquals(0, lender.idle.size());
+			assertEquals(10, broker.getNumberOfExchangedPages());
+			
+			// unregistered consumers are not asked
+			broker.unregister(borrower);
+			assertTrue(broker.borrowPages(lender, 5).isEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateFullRequest() {
+		try {
+			final MemoryBroker broker = this.memoryManager.getMemoryBroker(this.owner);
+			assertEquals(20, broker.allocatePages(2, 20).size());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateReducedRequest() {
+		try {
+			final MemoryBroker broker = this.memoryManager.getMemoryBroker(this.owner);
+			this.memoryManager.allocatePages(this.owner, NUM_PAGES - 5);
+			
+			// the request is reduced until the memory manager can serve it
+			assertEquals(5, broker.allocatePages(2, 20).size());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateWithIdlePages() {
+		try {
+			final MemoryBroker broker = this.memoryManager.getMemoryBroker(this.owner);
+			final IdleConsumer lender = new IdleConsumer(this.memoryManager.allocatePages(this.owner, 10));
+			broker.register(lender);
+			this.memoryManager.allocatePages(this.owner, NUM_PAGES - 15);
+			
+			// ten pages come from the idle consumer, five from the memory manager
+			assertEquals(15, broker.allocatePages(2, 20).size());
+			assertEquals(0, lender.idle.size());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateFailsBelowMinimum() {
+		try {
+			final MemoryBroker broker = this.memoryManager.getMemoryBroker(this.owner);
+			this.memoryManager.allocatePages(this.owner, NUM_PAGES - 1);
+			
+			try {
+				broker.allocatePages(2, 20);
+				fail("MemoryAllocationException expected");
+			}
+			catch (MemoryAllocationException maex) {
+				// expected
+			}
+			
+			// the failed request must not hold on to any memory
+			assertEquals(1, broker.allocatePages(1, 1).size());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private static final class IdleConsumer implements MemoryConsumer {
+		
+		private final List<MemorySegment> idle;
+		
+		private IdleConsumer(List<MemorySegment> idle) {
+			this.idle = idle;
+		}
+		
+		@Override
+		public synchronized List<MemorySegment> lendPages(int numPages) {
+			if (this.idle.isEmpty()) {
+				return Collections.emptyList();
+			}
+			final List<MemorySegment> lent = new ArrayList<MemorySegment>();
+			while (lent.size() < numPages && !this.idle.isEmpty()) {
+				lent.add(this.idle.remove(this.idle.size() - 1));
+			}
+			return lent;
+		}
+	}
+}
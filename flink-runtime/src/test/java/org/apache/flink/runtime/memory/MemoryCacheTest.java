@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.memorymanager.DefaultMemoryManager;
+import org.apache.flink.runtime.memorymanager.MemoryAllocationException;
+import org.apache.flink.runtime.memorymanager.MemoryCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MemoryCacheTest {
+
+	private static final int PAGE_SIZE = 1024 * 32;
+
+	private static final int NUM_PAGES = 100;
+
+	private DefaultMemoryManager memoryManager;
+
+	private MemoryCache cache;
+
+	private AbstractInvokable owner;
+
+	@Before
+	public void setUp() {
+		this.memoryManager = new DefaultMemoryManager(NUM_PAGES * PAGE_SIZE, 1, PAGE_SIZE);
+		this.cache = this.memoryManager.getMemoryCache();
+		this.cache.setMaxPages(50);
+		this.owner = new DefaultMemoryManagerTest.DummyInvokable();
+	}
+
+	@After
+	public void tearDown() {
+		this.cache.clear();
+		this.memoryManager.releaseAll(this.owner);
+		if (!this.memoryManager.verifyEmpty()) {
+			Assert.fail("Memory manager is not complete empty and valid at the end of the test.");
+		}
+		this.memoryManager = null;
+	}
+
+	@Test
+	public void checkOutAndCheckIn() throws Exception {
+		final CachedPages entry = new CachedPages(10);
+		assertTrue(this.cache.checkIn("a", entry));
+		assertEquals(10, this.cache.getNumberOfCachedPages());
+
+		// checked out entries are used exclusively and not counted against the budget
+		assertSame(entry, this.cache.checkOut("a"));
+		assertNull(this.cache.checkOut("a"));
+		assertEquals(0, this.cache.getNumberOfCachedPages());
+
+		assertTrue(this.cache.checkIn("a", entry));
+		assertFalse(entry.released);
+
+		// a newer entry under the same key replaces the older one
+		final CachedPages newer = new CachedPages(5);
+		assertTrue(this.cache.checkIn("a", newer));
+		assertTrue(entry.released);
+		assertEquals(5, this.cache.getNumberOfCachedPages());
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws Exception {
+		final CachedPages a = new CachedPages(20);
+		final CachedPages b = new CachedPages(20);
+		final CachedPages c = new CachedPages(20);
+		assertTrue(this.cache.checkIn("a", a));
+		assertTrue(this.cache.checkIn("b", b));
+
+		// exceeding the budget evicts the entry that was used least recently
+		assertTrue(this.cache.checkIn("c", c));
+		assertTrue(a.released);
+		assertFalse(b.released);
+		assertFalse(c.released);
+		assertEquals(40, this.cache.getNumberOfCachedPages());
+
+		// an entry larger than the budget is not cached
+		final CachedPages large = new CachedPages(60);
+		assertFalse(this.cache.checkIn("large", large));
+		assertFalse(large.released);
+		large.release();
+
+		// shrinking the budget evicts entries
+		this.cache.setMaxPages(20);
+		assertTrue(b.released);
+		assertFalse(c.released);
+		assertEquals(20, this.cache.getNumberOfCachedPages());
+	}
+
+	@Test
+	public void allocationEvictsCachedEntries() throws Exception {
+		final CachedPages a = new CachedPages(30);
+		final CachedPages b = new CachedPages(20);
+		assertTrue(this.cache.checkIn("a", a));
+		assertTrue(this.cache.checkIn("b", b));
+
+		// the cached entries must not starve the tasks
+		final List<MemorySegment> segments = this.memoryManager.allocatePages(this.owner, 60);
+		assertEquals(60, segments.size());
+		assertTrue(a.released);
+		assertFalse(b.released);
+
+		try {
+			this.memoryManager.allocatePages(this.owner, 50);
+			fail("Allocation must fail, if the cache cannot free enough memory.");
+		}
+		catch (MemoryAllocationException maex) {
+			// expected
+		}
+		assertTrue(b.released);
+		assertEquals(0, this.cache.getNumberOfCachedPages());
+
+		this.memoryManager.release(segments);
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private final class CachedPages implements MemoryCache.Entry {
+
+		private final List<MemorySegment> pages;
+
+		private boolean released;
+
+		private CachedPages(int numPages) throws MemoryAllocationException {
+			this.pages = memoryManager.allocatePages(cache.getOwner(), numPages);
+		}
+
+		@Override
+		public int getNumPages() {
+			return this.pages.size();
+		}
+
+		@Override
+		public void release() {
+			memoryManager.release(this.pages);
+			this.released = true;
+		}
+	}
+}
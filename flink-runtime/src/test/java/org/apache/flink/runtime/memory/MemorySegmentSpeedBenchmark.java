@@ -18,8 +18,11 @@
 
 package org.apache.flink.runtime.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import org.apache.flink.core.memory.MemorySegment;
+
 import org.apache.flink.runtime.memorymanager.CheckedMemorySegment;
 import org.apache.flink.runtime.memorymanager.SimpleMemorySegment;
 import org.apache.flink.runtime.memorymanager.UnsafeMemorySegment;
@@ -78,6 +81,10 @@ public class MemorySegmentSpeedBenchmark {
 		testGetByteArrays1024(smallSegment, SMALL_SEGMENT_SIZE / 1024, SMALL_SEGMENTS_ROUNDS);
 		testPutByteArrays1024(largeSegment, LARGE_SEGMENT_SIZE / 1024, LARGE_SEGMENT_ROUNDS);
 		testGetByteArrays1024(largeSegment, LARGE_SEGMENT_SIZE / 1024, LARGE_SEGMENT_ROUNDS);
+		
+		// bulk operations on sort-index-sized and record-sized chunks
+		testBulkOperations(SMALL_SEGMENT_SIZE, 16, SMALL_SEGMENTS_ROUNDS / 10);
+		testBulkOperations(SMALL_SEGMENT_SIZE, 128, SMALL_SEGMENTS_ROUNDS / 10);
 	}
 	
 	// --------------------------------------------------------------------------------------------
@@ -864,4 +871,151 @@ public class MemorySegmentSpeedBenchmark {
 		long end = System.nanoTime();
 		return end - start;
 	}
+	
+	// --------------------------------------------------------------------------------------------
+	//                                  Bulk Operations
+	// --------------------------------------------------------------------------------------------
+	
+	private static final void testBulkOperations(int segmentSize, int chunkSize, int rounds) {
+		final byte[] data = new byte[segmentSize];
+		new java.util.Random(LONG_VALUE).nextBytes(data);
+		
+		final MemorySegment heap1 = new MemorySegment(data.clone());
+		final MemorySegment heap2 = new MemorySegment(data.clone());
+		final MemorySegment offHeap1 = new MemorySegment(ByteBuffer.allocateDirect(segmentSize));
+		final MemorySegment offHeap2 = new MemorySegment(ByteBuffer.allocateDirect(segmentSize));
+		offHeap1.put(0, data);
+		offHeap2.put(0, data);
+		
+		final int num = segmentSize / chunkSize;
+		
+		long elapsedBytewise = timeCompareBytewise(heap1, heap2, chunkSize, num, rounds);
+		long elapsedHeap = timeCompareBulk(heap1, heap2, chunkSize, num, rounds);
+		long elapsedOffHeap = timeCompareBulk(offHeap1, offHeap2, chunkSize, num, rounds);
+		System.out.println(String.format("Comparing %d x %d chunks of %d bytes: bytewise=%,d nsecs, heap=%,d nsecs, off-heap=%,d nsecs.", rounds, num, chunkSize, elapsedBytewise, elapsedHeap, elapsedOffHeap));
+		
+		elapsedBytewise = timeHashBytewise(heap1, chunkSize, num, rounds);
+		elapsedHeap = timeHashBulk(heap1, chunkSize, num, rounds);
+		elapsedOffHeap = timeHashBulk(offHeap1, chunkSize, num, rounds);
+		System.out.println(String.format("Hashing %d x %d chunks of %d bytes: bytewise=%,d nsecs, heap=%,d nsecs, off-heap=%,d nsecs.", rounds, num, chunkSize, elapsedBytewise, elapsedHeap, elapsedOffHeap));
+		
+		elapsedBytewise = timeSwapBytewise(heap1, heap2, chunkSize, num, rounds);
+		elapsedHeap = timeSwapBulk(heap1, heap2, chunkSize, num, rounds);
+		elapsedOffHeap = timeSwapBulk(offHeap1, offHeap2, chunkSize, num, rounds);
+		System.out.println(String.format("Swapping %d x %d chunks of %d bytes: bytewise=%,d nsecs, heap=%,d nsecs, off-heap=%,d nsecs.", rounds, num, chunkSize, elapsedBytewise, elapsedHeap, elapsedOffHeap));
+		
+		elapsedHeap = timeCopyBulk(heap1, offHeap1, chunkSize, num, rounds);
+		elapsedOffHeap = timeCopyBulk(offHeap1, heap1, chunkSize, num, rounds);
+		System.out.println(String.format("Copying %d x %d chunks of %d bytes: heap-to-off-heap=%,d nsecs, off-heap-to-heap=%,d nsecs.", rounds, num, chunkSize, elapsedHeap, elapsedOffHeap));
+	}
+	
+	private static long timeCompareBytewise(final MemorySegment seg1, final MemorySegment seg2, final int len, final int num, final int rounds) {
+		long result = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				int val = 0;
+				for (int pos = 0; pos < len && (val = (seg1.get(offset + pos) & 0xff) - (seg2.get(offset + pos) & 0xff)) == 0; pos++);
+				result += val;
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		sideEffect += result;
+		return end - start;
+	}
+	
+	private static long timeCompareBulk(final MemorySegment seg1, final MemorySegment seg2, final int len, final int num, final int rounds) {
+		long result = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				result += MemorySegment.compare(seg1, seg2, offset, offset, len);
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		sideEffect += result;
+		return end - start;
+	}
+	
+	private static long timeHashBytewise(final MemorySegment seg, final int len, final int num, final int rounds) {
+		long result = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				int code = 0;
+				for (int pos = 0; pos < len; pos++) {
+					code = 31 * code + seg.get(offset + pos);
+				}
+				result += code;
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		sideEffect += result;
+		return end - start;
+	}
+	
+	private static long timeHashBulk(final MemorySegment seg, final int len, final int num, final int rounds) {
+		long result = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				result += seg.hash(offset, len);
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		sideEffect += result;
+		return end - start;
+	}
+	
+	private static long timeSwapBytewise(final MemorySegment seg1, final MemorySegment seg2, final int len, final int num, final int rounds) {
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				for (int pos = 0; pos < len; pos++) {
+					final byte tmp = seg1.get(offset + pos);
+					seg1.put(offset + pos, seg2.get(offset + pos));
+					seg2.put(offset + pos, tmp);
+				}
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		return end - start;
+	}
+	
+	private static long timeSwapBulk(final MemorySegment seg1, final MemorySegment seg2, final int len, final int num, final int rounds) {
+		final byte[] tempBuffer = new byte[len];
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				MemorySegment.swapBytes(seg1, seg2, tempBuffer, offset, offset, len);
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		return end - start;
+	}
+	
+	private static long timeCopyBulk(final MemorySegment source, final MemorySegment target, final int len, final int num, final int rounds) {
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			int offset = 0;
+			for (int i = 0; i < num; i++) {
+				source.copyTo(offset, target, offset, len);
+				offset += len;
+			}
+		}
+		long end = System.nanoTime();
+		return end - start;
+	}
 }
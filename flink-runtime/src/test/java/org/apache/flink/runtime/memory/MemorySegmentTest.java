@@ -51,7 +51,7 @@ public class MemorySegmentTest {
 	@Before
 	public void setUp() throws Exception{
 		try {
-			this.manager = new DefaultMemoryManager(MANAGED_MEMORY_SIZE, 1, PAGE_SIZE);
+			this.manager = createMemoryManager();
 			this.segment = manager.allocatePages(new DefaultMemoryManagerTest.DummyInvokable(), 1).get(0);
 			this.random = new Random(RANDOM_SEED);
 		} catch (Exception e) {
@@ -60,6 +60,10 @@ public class MemorySegmentTest {
 		}
 	}
 
+	protected DefaultMemoryManager createMemoryManager() {
+		return new DefaultMemoryManager(MANAGED_MEMORY_SIZE, 1, PAGE_SIZE);
+	}
+
 	@After
 	public void tearDown() {
 		this.manager.release(this.segment);
@@ -545,4 +549,114 @@ public class MemorySegmentTest {
 			}
 		}
 	}
+
+	@Test
+	public void compareAndEquality() {
+		// a heap segment as the reference, so that mixed heap / off-heap comparisons are covered as well
+		final MemorySegment other = new MemorySegment(new byte[PAGE_SIZE]);
+		
+		final byte[] bytes = new byte[PAGE_SIZE];
+		random.nextBytes(bytes);
+		segment.put(0, bytes);
+		other.put(0, bytes);
+		
+		// all lengths around the long word boundaries, at unaligned offsets
+		for (int len = 0; len <= 40; len++) {
+			for (int off = 0; off < 9; off++) {
+				assertEquals(0, MemorySegment.compare(segment, other, off, off, len));
+				assertTrue(MemorySegment.equalTo(segment, other, off, off, len));
+				
+				if (len > 0) {
+					// flip a single byte at every position and check the sign against the byte-wise order
+					for (int pos = 0; pos < len; pos++) {
+						final byte original = other.get(off + pos);
+						final byte changed = (byte) (original + 1 + random.nextInt(255));
+						other.put(off + pos, changed);
+						
+						final int expected = (original & 0xff) - (changed & 0xff);
+						final int cmp = MemorySegment.compare(segment, other, off, off, len);
+						assertEquals(Integer.signum(expected), Integer.signum(cmp));
+						assertEquals(-Integer.signum(cmp), Integer.signum(MemorySegment.compare(other, segment, off, off, len)));
+						assertTrue(!MemorySegment.equalTo(segment, other, off, off, len));
+						
+						other.put(off + pos, original);
+					}
+				}
+			}
+		}
+		
+		try {
+			MemorySegment.compare(segment, other, PAGE_SIZE - 4, 0, 8);
+			fail("IndexOutOfBoundsException expected");
+		} catch (Exception e) {
+			assertTrue(e instanceof IndexOutOfBoundsException);
+		}
+		
+		try {
+			MemorySegment.equalTo(segment, other, 0, -1, 8);
+			fail("IndexOutOfBoundsException expected");
+		} catch (Exception e) {
+			assertTrue(e instanceof IndexOutOfBoundsException);
+		}
+	}
+	
+	@Test
+	public void rangeHash() {
+		final MemorySegment other = new MemorySegment(new byte[PAGE_SIZE]);
+		
+		final byte[] bytes = new byte[1024];
+		random.nextBytes(bytes);
+		segment.put(0, bytes);
+		other.put(17, bytes);
+		
+		// equal byte sequences hash equally, regardless of position and kind of segment
+		for (int len = 0; len <= bytes.length; len += 7) {
+			assertEquals(other.hash(17, len), segment.hash(0, len));
+		}
+		
+		// a single changed byte changes the hash
+		final int before = segment.hash(0, 100);
+		segment.put(50, (byte) (segment.get(50) + 1));
+		assertTrue(before != segment.hash(0, 100));
+		
+		try {
+			segment.hash(PAGE_SIZE - 10, 11);
+			fail("IndexOutOfBoundsException expected");
+		} catch (Exception e) {
+			assertTrue(e instanceof IndexOutOfBoundsException);
+		}
+	}
+	
+	@Test
+	public void swapBytes() {
+		final MemorySegment other = new MemorySegment(new byte[PAGE_SIZE]);
+		final byte[] tempBuffer = new byte[1024];
+		
+		// lengths below and above the in-place threshold
+		final int[] lengths = { 0, 1, 7, 8, 13, 16, 64, 65, 100, 1024 };
+		for (int len : lengths) {
+			final byte[] first = new byte[len];
+			final byte[] second = new byte[len];
+			random.nextBytes(first);
+			random.nextBytes(second);
+			
+			segment.put(3, first);
+			other.put(11, second);
+			MemorySegment.swapBytes(segment, other, tempBuffer, 3, 11, len);
+			
+			final byte[] result = new byte[len];
+			segment.get(3, result);
+			assertArrayEquals(second, result);
+			other.get(11, result);
+			assertArrayEquals(first, result);
+			
+			// swap within the same segment
+			segment.put(2000, first);
+			MemorySegment.swapBytes(segment, segment, tempBuffer, 3, 2000, len);
+			segment.get(3, result);
+			assertArrayEquals(first, result);
+			segment.get(2000, result);
+			assertArrayEquals(second, result);
+		}
+	}
 }
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.memory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.memorymanager.DefaultMemoryManager;
+import org.junit.Test;
+
+/**
+ * Runs the memory segment tests against segments that are backed by off-heap memory, and checks
+ * the interplay of heap and off-heap segments.
+ */
+public class OffHeapMemorySegmentTest extends MemorySegmentTest {
+
+	@Override
+	protected DefaultMemoryManager createMemoryManager() {
+		return new DefaultMemoryManager(MANAGED_MEMORY_SIZE, 1, PAGE_SIZE, true);
+	}
+
+	@Test
+	public void testCopyBetweenHeapAndOffHeap() {
+		final Random rnd = new Random(RANDOM_SEED);
+		final int size = 1021;
+
+		final byte[] expected = new byte[size];
+		rnd.nextBytes(expected);
+
+		final MemorySegment heap = new MemorySegment(expected.clone());
+		final MemorySegment offHeap = new MemorySegment(ByteBuffer.allocateDirect(size + 16));
+		assertFalse(heap.isOffHeap());
+		assertTrue(offHeap.isOffHeap());
+
+		heap.copyTo(0, offHeap, 7, size);
+
+		final byte[] actual = new byte[size];
+		offHeap.get(7, actual);
+		assertArrayEquals(expected, actual);
+		assertEquals(0, MemorySegment.compare(heap, offHeap, 0, 7, size));
+
+		final MemorySegment target = new MemorySegment(new byte[size]);
+		offHeap.copyTo(7, target, 0, size);
+		assertEquals(0, MemorySegment.compare(heap, target, 0, 0, size));
+
+		// overlapping copy within the same off-heap segment
+		offHeap.copyTo(7, offHeap, 9, size);
+		offHeap.get(9, actual);
+		assertArrayEquals(expected, actual);
+
+		try {
+			heap.copyTo(0, offHeap, 17, size);
+			fail("IndexOutOfBoundsException expected");
+		} catch (Exception e) {
+			assertTrue(e instanceof IndexOutOfBoundsException);
+		}
+	}
+
+	@Test
+	public void testSwapBetweenHeapAndOffHeap() {
+		final MemorySegment heap = new MemorySegment(new byte[64]);
+		final MemorySegment offHeap = new MemorySegment(ByteBuffer.allocateDirect(64));
+
+		heap.putLong(8, 42L);
+		offHeap.putLong(16, 17L);
+
+		MemorySegment.swapBytes(heap, offHeap, new byte[8], 8, 16, 8);
+
+		assertEquals(17L, heap.getLong(8));
+		assertEquals(42L, offHeap.getLong(16));
+	}
+
+	@Test
+	public void testWrapIsDirect() {
+		final MemorySegment offHeap = new MemorySegment(ByteBuffer.allocateDirect(128));
+		offHeap.putInt(64, 12345);
+
+		ByteBuffer wrapped = offHeap.wrap(64, 32);
+		assertTrue(wrapped.isDirect());
+		assertEquals(64, wrapped.position());
+		assertEquals(32, wrapped.remaining());
+
+		// re-wrapping a range before the previous one must work as well
+		wrapped = offHeap.wrap(0, 16);
+		assertEquals(0, wrapped.position());
+		assertEquals(16, wrapped.limit());
+	}
+
+	@Test
+	public void testFreedSegmentRejectsAccess() {
+		final MemorySegment offHeap = new MemorySegment(ByteBuffer.allocateDirect(128));
+		offHeap.free();
+
+		assertTrue(offHeap.isFreed());
+		try {
+			offHeap.getLong(0);
+			fail("IndexOutOfBoundsException expected");
+		} catch (Exception e) {
+			assertTrue(e instanceof IndexOutOfBoundsException);
+		}
+	}
+}
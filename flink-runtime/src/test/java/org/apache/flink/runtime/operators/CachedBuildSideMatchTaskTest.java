@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.flink.api.common.functions.GenericJoiner;
+import org.apache.flink.api.java.typeutils.runtime.record.RecordComparator;
+import org.apache.flink.api.java.typeutils.runtime.record.RecordPairComparatorFactory;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.memorymanager.MemoryCache;
+import org.apache.flink.runtime.operators.testutils.DriverTestBase;
+import org.apache.flink.runtime.operators.testutils.DummyInvokable;
+import org.apache.flink.runtime.operators.testutils.MockEnvironment;
+import org.apache.flink.runtime.operators.testutils.UniformRecordGenerator;
+import org.apache.flink.types.IntValue;
+import org.apache.flink.types.Key;
+import org.apache.flink.types.Record;
+import org.apache.flink.util.MutableObjectIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that hash joins hand their hash table to the memory cache and that later tasks with the same build side
+ * reuse it instead of building it again.
+ */
+public class CachedBuildSideMatchTaskTest extends DriverTestBase<GenericJoiner<Record, Record, Record>> {
+
+	private static final long HASH_MEM = 6*1024*1024;
+
+	@SuppressWarnings("unchecked")
+	private final RecordComparator comparator1 = new RecordComparator(
+		new int[]{0}, (Class<? extends Key<?>>[])new Class[]{ IntValue.class });
+
+	@SuppressWarnings("unchecked")
+	private final RecordComparator comparator2 = new RecordComparator(
+		new int[]{0}, (Class<? extends Key<?>>[])new Class[]{ IntValue.class });
+
+	private final List<Record> outList = new ArrayList<Record>();
+
+	private final MockEnvironment environment;
+
+	private final AbstractInvokable task;
+
+	private final MemoryCache cache;
+
+	private final double hash_frac;
+
+	private MutableObjectIterator<Record> input1;
+
+	private MutableObjectIterator<Record> input2;
+
+
+	public CachedBuildSideMatchTaskTest() {
+		super(HASH_MEM, 0);
+		this.hash_frac = (double)HASH_MEM/this.getMemoryManager().getMemorySize();
+
+		// the driver identifies its subtask through the task's environment
+		this.environment = new MockEnvironment(PAGE_SIZE, null, PAGE_SIZE);
+		this.task = new DummyInvokable();
+		this.task.setEnvironment(this.environment);
+
+		this.cache = getMemoryManager().getMemoryCache();
+		this.cache.setMaxPages(getMemoryManager().computeNumberOfPages(1.0));
+	}
+
+	@After
+	public void clearCache() throws Exception {
+		this.cache.clear();
+		this.environment.getIOManager().shutdown();
+		this.environment.getMemoryManager().shutdown();
+	}
+
+	@Test
+	public void testReuseCachedBuildSide() {
+		addInputComparator(this.comparator1);
+		addInputComparator(this.comparator2);
+		getTaskConfig().setDriverPairComparator(RecordPairComparatorFactory.get());
+		getTaskConfig().setDriverStrategy(DriverStrategy.HYBRIDHASH_BUILD_FIRST);
+		getTaskConfig().setRelativeMemoryDriver(this.hash_frac);
+		getTaskConfig().setBuildSideCacheKey("build-side");
+		setOutput(this.outList);
+
+		try {
+			// the first task builds the hash table and hands it to the cache
+			this.input1 = new UniformRecordGenerator(20, 1, false);
+			this.input2 = new UniformRecordGenerator(10, 2, false);
+			testDriver(new MatchDriver<Record, Record, Record>(), MatchTaskTest.MockMatchStub.class);
+
+			Assert.assertEquals("Wrong result set size.", 20, this.outList.size());
+			Assert.assertTrue("The hash table was not cached.", this.cache.getNumberOfCachedPages() > 0);
+			this.outList.clear();
+
+			// the second task probes the cached table. its own build side is consumed, but not used
+			final UniformRecordGenerator ignoredBuildSide = new UniformRecordGenerator(5, 1, false);
+			this.input1 = ignoredBuildSide;
+			this.input2 = new UniformRecordGenerator(20, 1, false);
+			testDriver(new MatchDriver<Record, Record, Record>(), MatchTaskTest.MockMatchStub.class);
+
+			Assert.assertEquals("The cached hash table was not reused.", 20, this.outList.size());
+			Assert.assertNull("The build side was not consumed.", ignoredBuildSide.next(new Record()));
+			Assert.assertTrue("The hash table was not cached again.", this.cache.getNumberOfCachedPages() > 0);
+			this.outList.clear();
+
+			// a different build side does not match the cached table
+			getTaskConfig().setBuildSideCacheKey("other-build-side");
+			this.input1 = new UniformRecordGenerator(5, 1, false);
+			this.input2 = new UniformRecordGenerator(20, 1, false);
+			testDriver(new MatchDriver<Record, Record, Record>(), MatchTaskTest.MockMatchStub.class);
+
+			Assert.assertEquals("Wrong result set size.", 5, this.outList.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test caused an exception.");
+		}
+
+		this.outList.clear();
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	@Override
+	public <X> MutableObjectIterator<X> getInput(int index) {
+		@SuppressWarnings("unchecked")
+		final MutableObjectIterator<X> input = (MutableObjectIterator<X>) (index == 0 ? this.input1 : this.input2);
+		return input;
+	}
+
+	@Override
+	public AbstractInvokable getOwningNepheleTask() {
+		return this.task;
+	}
+}
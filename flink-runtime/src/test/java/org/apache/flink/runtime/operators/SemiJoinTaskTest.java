@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.operators;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.flink.api.common.functions.AbstractFunction;
+import org.apache.flink.api.java.typeutils.runtime.record.RecordComparator;
+import org.apache.flink.api.java.typeutils.runtime.record.RecordPairComparatorFactory;
+import org.apache.flink.runtime.operators.testutils.DriverTestBase;
+import org.apache.flink.runtime.operators.testutils.UniformRecordGenerator;
+import org.apache.flink.types.IntValue;
+import org.apache.flink.types.Key;
+import org.apache.flink.types.Record;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SemiJoinTaskTest extends DriverTestBase<AbstractFunction>
+{
+	private static final long HASH_MEM = 40 * PAGE_SIZE;
+	
+	private final double hash_frac;
+	
+	@SuppressWarnings("unchecked")
+	private final RecordComparator comparator1 = new RecordComparator(
+		new int[]{0}, (Class<? extends Key<?>>[])new Class[]{ IntValue.class });
+	
+	@SuppressWarnings("unchecked")
+	private final RecordComparator comparator2 = new RecordComparator(
+		new int[]{0}, (Class<? extends Key<?>>[])new Class[]{ IntValue.class });
+	
+	private final List<Record> outList = new ArrayList<Record>();
+	
+	
+	public SemiJoinTaskTest() {
+		super(HASH_MEM, 0);
+		hash_frac = (double)HASH_MEM/this.getMemoryManager().getMemorySize();
+	}
+	
+	@Test
+	public void testSemiJoinTask() {
+		// keys 0 to 19 on the first side, keys 0 to 9 with duplicates on the second side
+		runSemiJoin(DriverStrategy.HYBRIDHASH_SEMI_JOIN, new UniformRecordGenerator(20, 2, false),
+			new UniformRecordGenerator(10, 3, false));
+		
+		Assert.assertEquals(20, this.outList.size());
+		checkKeys(0, 10, 2);
+	}
+	
+	@Test
+	public void testAntiJoinTask() {
+		runSemiJoin(DriverStrategy.HYBRIDHASH_ANTI_JOIN, new UniformRecordGenerator(20, 2, false),
+			new UniformRecordGenerator(10, 3, false));
+		
+		Assert.assertEquals(20, this.outList.size());
+		checkKeys(10, 20, 2);
+	}
+	
+	@Test
+	public void testAntiJoinTaskWithEmptySecondInput() {
+		runSemiJoin(DriverStrategy.HYBRIDHASH_ANTI_JOIN, new UniformRecordGenerator(20, 2, false),
+			new UniformRecordGenerator(0, 0, false));
+		
+		Assert.assertEquals(40, this.outList.size());
+		checkKeys(0, 20, 2);
+	}
+	
+	@Test
+	public void testSpillingSemiJoinTask() {
+		// the second side does not fit into memory and has several records per key
+		runSemiJoin(DriverStrategy.HYBRIDHASH_SEMI_JOIN, new UniformRecordGenerator(100000, 1, false),
+			new UniformRecordGenerator(50000, 4, false));
+		
+		Assert.assertEquals(50000, this.outList.size());
+		checkKeys(0, 50000, 1);
+	}
+	
+	@Test
+	public void testSpillingAntiJoinTask() {
+		runSemiJoin(DriverStrategy.HYBRIDHASH_ANTI_JOIN, new UniformRecordGenerator(100000, 1, false),
+			new UniformRecordGenerator(50000, 4, false));
+		
+		Assert.assertEquals(50000, this.outList.size());
+		checkKeys(50000, 100000, 1);
+	}
+	
+	private void runSemiJoin(DriverStrategy strategy, UniformRecordGenerator input1, UniformRecordGenerator input2) {
+		setOutput(this.outList);
+		addInputComparator(this.comparator1);
+		addInputComparator(this.comparator2);
+		getTaskConfig().setDriverPairComparator(RecordPairComparatorFactory.get());
+		getTaskConfig().setDriverStrategy(strategy);
+		getTaskConfig().setRelativeMemoryDriver(hash_frac);
+		
+		final SemiJoinDriver<Record, Record> testTask = new SemiJoinDriver<Record, Record>();
+		
+		try {
+			addInput(input1);
+			addInput(input2);
+			testDriver(testTask, MockStub.class);
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("The test caused an exception.");
+		}
+	}
+	
+	/**
+	 * Checks that the output holds exactly the given number of records for each key in the range.
+	 */
+	private void checkKeys(int fromKey, int toKey, int valsPerKey) {
+		final Set<Long> seen = new HashSet<Long>();
+		for (Record r : this.outList) {
+			final int key = r.getField(0, IntValue.class).getValue();
+			final int val = r.getField(1, IntValue.class).getValue();
+			Assert.assertTrue("Unexpected key " + key, key >= fromKey && key < toKey);
+			Assert.assertTrue("Record with key " + key + " was forwarded twice.", seen.add(((long) key << 32) | val));
+		}
+		Assert.assertEquals((toKey - fromKey) * valsPerKey, seen.size());
+	}
+	
+	public static final class MockStub extends AbstractFunction {
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.drivers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.flink.api.common.functions.GenericGroupReduce;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.java.functions.GroupReduceFunction;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.operators.DriverStrategy;
+import org.apache.flink.runtime.operators.HashGroupReduceDriver;
+import org.apache.flink.runtime.util.EmptyMutableObjectIterator;
+import org.apache.flink.runtime.util.RegularToMutableObjectIterator;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.MutableObjectIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("serial")
+public class HashGroupReduceDriverTest {
+
+	private IOManager ioManager;
+
+	@Before
+	public void setup() {
+		this.ioManager = new IOManager();
+	}
+
+	@After
+	public void tearDown() {
+		this.ioManager.shutdown();
+	}
+
+	@Test
+	public void testEmptyInput() {
+		try {
+			TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> context = createContext();
+
+			TupleTypeInfo<Tuple2<Integer, Integer>> typeInfo = getTypeInfo();
+			MutableObjectIterator<Tuple2<Integer, Integer>> input = EmptyMutableObjectIterator.get();
+			GatheringCollector<Tuple2<Integer, Integer>> result = new GatheringCollector<Tuple2<Integer,Integer>>(typeInfo.createSerializer());
+
+			context.setInput1(input, typeInfo.createSerializer());
+			context.setComparator1(typeInfo.createComparator(new int[]{0}, new boolean[] {true}));
+			context.setCollector(result);
+			context.setUdf(new SumCountReducer());
+
+			runDriver(context);
+
+			Assert.assertEquals(0, result.getList().size());
+		}
+		catch (Exception e) {
+			System.err.println(e.getMessage());
+			e.printStackTrace();
+			Assert.fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSumAndCount() {
+		try {
+			// enough keys to make partitions spill
+			final int numKeys = 20000;
+			final int numRecords = 100000;
+
+			TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> context = createContext();
+
+			final Random rnd = new Random(5465462346L);
+			final List<Tuple2<Integer, Integer>> data = new ArrayList<Tuple2<Integer, Integer>>(numRecords);
+			final int[] expected = new int[numKeys];
+			for (int i = 0; i < numRecords; i++) {
+				final int key = rnd.nextInt(numKeys);
+				final int value = rnd.nextInt(100);
+				expected[key] += value;
+				data.add(new Tuple2<Integer, Integer>(key, value));
+			}
+
+			TupleTypeInfo<Tuple2<Integer, Integer>> typeInfo = getTypeInfo();
+			MutableObjectIterator<Tuple2<Integer, Integer>> input = new RegularToMutableObjectIterator<Tuple2<Integer, Integer>>(data.iterator(), typeInfo.createSerializer());
+			TypeComparator<Tuple2<Integer, Integer>> comparator = typeInfo.createComparator(new int[]{0}, new boolean[] {true});
+			GatheringCollector<Tuple2<Integer, Integer>> result = new GatheringCollector<Tuple2<Integer,Integer>>(typeInfo.createSerializer());
+
+			context.setInput1(input, typeInfo.createSerializer());
+			context.setComparator1(comparator);
+			context.setCollector(result);
+			context.setUdf(new SumCountReducer());
+
+			runDriver(context);
+
+			final boolean[] seen = new boolean[numKeys];
+			for (Tuple2<Integer, Integer> record : result.getList()) {
+				final int key = record.f0 >= 0 ? record.f0 : -record.f0 - 1;
+				Assert.assertTrue("The final reduce was not called.", record.f0 < 0);
+				Assert.assertFalse("Key emitted twice.", seen[key]);
+				seen[key] = true;
+				Assert.assertEquals(expected[key], record.f1.intValue());
+			}
+		}
+		catch (Exception e) {
+			System.err.println(e.getMessage());
+			e.printStackTrace();
+			Assert.fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCombineEmittingSeveralRecords() {
+		try {
+			TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> context = createContext();
+
+			List<Tuple2<Integer, Integer>> data = new ArrayList<Tuple2<Integer, Integer>>();
+			data.add(new Tuple2<Integer, Integer>(1, 1));
+			data.add(new Tuple2<Integer, Integer>(1, 2));
+			Collections.shuffle(data);
+
+			TupleTypeInfo<Tuple2<Integer, Integer>> typeInfo = getTypeInfo();
+			context.setInput1(new RegularToMutableObjectIterator<Tuple2<Integer, Integer>>(data.iterator(), typeInfo.createSerializer()),
+				typeInfo.createSerializer());
+			context.setComparator1(typeInfo.createComparator(new int[]{0}, new boolean[] {true}));
+			context.setCollector(new GatheringCollector<Tuple2<Integer,Integer>>(typeInfo.createSerializer()));
+			context.setUdf(new IdentityReducer());
+
+			try {
+				runDriver(context);
+				Assert.fail("The driver accepted a combine method that emits more than one record per group.");
+			}
+			catch (Exception e) {
+				// expected
+			}
+		}
+		catch (Exception e) {
+			System.err.println(e.getMessage());
+			e.printStackTrace();
+			Assert.fail(e.getMessage());
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> createContext() {
+		TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> context =
+				new TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>>(1024 * 1024);
+		context.getTaskConfig().setRelativeMemoryDriver(0.5);
+		context.setDriverStrategy(DriverStrategy.HASHED_GROUP_REDUCE);
+		context.setIOManager(this.ioManager);
+		return context;
+	}
+
+	private static void runDriver(TestTaskContext<GenericGroupReduce<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> context)
+			throws Exception
+	{
+		HashGroupReduceDriver<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>> driver =
+				new HashGroupReduceDriver<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>>();
+		driver.setup(context);
+		try {
+			driver.prepare();
+			driver.run();
+		}
+		finally {
+			driver.cleanup();
+		}
+		Assert.assertTrue("The driver did not release its memory.", context.getMemoryManager().verifyEmpty());
+	}
+
+	private static TupleTypeInfo<Tuple2<Integer, Integer>> getTypeInfo() {
+		@SuppressWarnings("unchecked")
+		TupleTypeInfo<Tuple2<Integer, Integer>> typeInfo = (TupleTypeInfo<Tuple2<Integer, Integer>>)
+				TypeExtractor.getForObject(new Tuple2<Integer, Integer>(0, 0));
+		return typeInfo;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Sums the values in the combine method, and marks the key of the final result by making it negative.
+	 */
+	public static final class SumCountReducer extends GroupReduceFunction<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>> {
+
+		@Override
+		public void combine(Iterator<Tuple2<Integer, Integer>> values, Collector<Tuple2<Integer, Integer>> out) {
+			Tuple2<Integer, Integer> current = values.next();
+			int sum = current.f1;
+			while (values.hasNext()) {
+				sum += values.next().f1;
+			}
+			current.f1 = sum;
+			out.collect(current);
+		}
+
+		@Override
+		public void reduce(Iterator<Tuple2<Integer, Integer>> values, Collector<Tuple2<Integer, Integer>> out) {
+			Tuple2<Integer, Integer> current = values.next();
+			int sum = current.f1;
+			while (values.hasNext()) {
+				sum += values.next().f1;
+			}
+			out.collect(new Tuple2<Integer, Integer>(-current.f0 - 1, sum));
+		}
+	}
+
+	public static final class IdentityReducer extends GroupReduceFunction<Tuple2<Integer, Integer>, Tuple2<Integer, Integer>> {
+
+		@Override
+		public void reduce(Iterator<Tuple2<Integer, Integer>> values, Collector<Tuple2<Integer, Integer>> out) {
+			while (values.hasNext()) {
+				out.collect(values.next());
+			}
+		}
+	}
+}
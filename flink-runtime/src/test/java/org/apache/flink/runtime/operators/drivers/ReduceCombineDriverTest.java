@@ -19,8 +19,11 @@
 
 package org.apache.flink.runtime.operators.drivers;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.flink.api.common.functions.GenericReduce;
 import org.apache.flink.api.common.typeutils.TypeComparator;
@@ -216,10 +219,126 @@ public class ReduceCombineDriverTest {
 		}
 	}
 	
+	@Test
+	public void testHashReduceDriver() {
+		try {
+			TestTaskContext<GenericReduce<Tuple2<String, Integer>>, Tuple2<String, Integer>> context =
+					new TestTaskContext<GenericReduce<Tuple2<String,Integer>>, Tuple2<String,Integer>>(1024 * 1024);
+			context.getTaskConfig().setRelativeMemoryDriver(0.5);
+			
+			List<Tuple2<String, Integer>> data = DriverTestData.createReduceImmutableData();
+			Collections.shuffle(data);
+			
+			TupleTypeInfo<Tuple2<String, Integer>> typeInfo = (TupleTypeInfo<Tuple2<String, Integer>>) TypeExtractor.getForObject(data.get(0));
+			MutableObjectIterator<Tuple2<String, Integer>> input = new RegularToMutableObjectIterator<Tuple2<String, Integer>>(data.iterator(), typeInfo.createSerializer());
+			TypeComparator<Tuple2<String, Integer>> comparator = typeInfo.createComparator(new int[]{0}, new boolean[] {true});
+			
+			GatheringCollector<Tuple2<String, Integer>> result = new GatheringCollector<Tuple2<String,Integer>>(typeInfo.createSerializer());
+			
+			context.setDriverStrategy(DriverStrategy.HASHED_PARTIAL_REDUCE);
+			context.setInput1(input, typeInfo.createSerializer());
+			context.setComparator1(comparator);
+			context.setCollector(result);
+			context.setUdf(new SumFirstReducer());
+			
+			ReduceCombineDriver<Tuple2<String, Integer>> driver = new ReduceCombineDriver<Tuple2<String,Integer>>();
+			driver.setup(context);
+			driver.prepare();
+			driver.run();
+			
+			// the hash table emits the groups in no particular order
+			List<Tuple2<String, Integer>> res = result.getList();
+			Collections.sort(res, new Comparator<Tuple2<String, Integer>>() {
+				@Override
+				public int compare(Tuple2<String, Integer> o1, Tuple2<String, Integer> o2) {
+					return o1.f0.compareTo(o2.f0);
+				}
+			});
+			
+			Object[] expected = new Object[] {
+				new Tuple2<String, Integer>("a", 1), new Tuple2<String, Integer>("b", 2), new Tuple2<String, Integer>("c", 3),
+				new Tuple2<String, Integer>("d", 9), new Tuple2<String, Integer>("e", 21), new Tuple2<String, Integer>("f", 42) };
+			
+			DriverTestData.compareTupleArrays(expected, res.toArray());
+		}
+		catch (Exception e) {
+			System.err.println(e.getMessage());
+			e.printStackTrace();
+			Assert.fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testHashReduceDriverFallsBackToSort() {
+		try {
+			TestTaskContext<GenericReduce<Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>> context =
+					new TestTaskContext<GenericReduce<Tuple2<Integer, Integer>>, Tuple2<Integer, Integer>>(1024 * 1024);
+			context.getTaskConfig().setRelativeMemoryDriver(0.5);
+			
+			// many distinct keys, each twice, so that a full hash table has hardly reduced anything
+			final int numKeys = 50000;
+			List<Tuple2<Integer, Integer>> data = new ArrayList<Tuple2<Integer, Integer>>();
+			for (int i = 0; i < 2 * numKeys; i++) {
+				data.add(new Tuple2<Integer, Integer>(i % numKeys, 1));
+			}
+			Collections.shuffle(data, new Random(42));
+			
+			TupleTypeInfo<Tuple2<Integer, Integer>> typeInfo = (TupleTypeInfo<Tuple2<Integer, Integer>>) TypeExtractor.getForObject(data.get(0));
+			MutableObjectIterator<Tuple2<Integer, Integer>> input = new RegularToMutableObjectIterator<Tuple2<Integer, Integer>>(data.iterator(), typeInfo.createSerializer());
+			TypeComparator<Tuple2<Integer, Integer>> comparator = typeInfo.createComparator(new int[]{0}, new boolean[] {true});
+			
+			GatheringCollector<Tuple2<Integer, Integer>> result = new GatheringCollector<Tuple2<Integer, Integer>>(typeInfo.createSerializer());
+			
+			context.setDriverStrategy(DriverStrategy.HASHED_PARTIAL_REDUCE);
+			context.setInput1(input, typeInfo.createSerializer());
+			context.setComparator1(comparator);
+			context.setCollector(result);
+			context.setUdf(new SumIntReducer());
+			
+			ReduceCombineDriver<Tuple2<Integer, Integer>> driver = new ReduceCombineDriver<Tuple2<Integer, Integer>>();
+			driver.setup(context);
+			driver.prepare();
+			driver.run();
+			driver.cleanup();
+			
+			// the partial aggregates add up to the totals
+			final int[] sums = new int[numKeys];
+			for (Tuple2<Integer, Integer> t : result.getList()) {
+				sums[t.f0] += t.f1;
+			}
+			for (int i = 0; i < numKeys; i++) {
+				Assert.assertEquals(2, sums[i]);
+			}
+		}
+		catch (Exception e) {
+			System.err.println(e.getMessage());
+			e.printStackTrace();
+			Assert.fail(e.getMessage());
+		}
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//  Test UDFs
 	// --------------------------------------------------------------------------------------------
 	
+	public static final class SumFirstReducer extends ReduceFunction<Tuple2<String, Integer>> {
+
+		@Override
+		public Tuple2<String, Integer> reduce(Tuple2<String, Integer> value1, Tuple2<String, Integer> value2) {
+			value1.f1 = value1.f1 + value2.f1;
+			return value1;
+		}
+	}
+	
+	public static final class SumIntReducer extends ReduceFunction<Tuple2<Integer, Integer>> {
+
+		@Override
+		public Tuple2<Integer, Integer> reduce(Tuple2<Integer, Integer> value1, Tuple2<Integer, Integer> value2) {
+			value2.f1 = value1.f1 + value2.f1;
+			return value2;
+		}
+	}
+	
 	public static final class ConcatSumFirstReducer extends ReduceFunction<Tuple2<String, Integer>> {
 
 		@Override
@@ -58,6 +58,8 @@ public class TestTaskContext<S, T> implements PactTaskContext<S, T> {
 	private Collector<T> outputCollector;
 	
 	private MemoryManager memoryManager;
+	
+	private IOManager ioManager;
 
 	// --------------------------------------------------------------------------------------------
 	//  Constructors
@@ -119,6 +121,10 @@ public class TestTaskContext<S, T> implements PactTaskContext<S, T> {
 		this.config.setDriverStrategy(strategy);
 	}
 	
+	public void setIOManager(IOManager ioManager) {
+		this.ioManager = ioManager;
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//  Context Methods
 	// --------------------------------------------------------------------------------------------
@@ -140,7 +146,7 @@ public class TestTaskContext<S, T> implements PactTaskContext<S, T> {
 
 	@Override
 	public IOManager getIOManager() {
-		return null;
+		return this.ioManager;
 	}
 
 	@Override
@@ -23,11 +23,14 @@ import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.operators.hash.MutableHashTable;
 import org.apache.flink.runtime.operators.hash.MultiLevelHashTester.BucketBoundaries;
 import org.apache.flink.runtime.operators.hash.util.LastBitsToRange;
@@ -35,6 +38,10 @@ import org.apache.flink.runtime.operators.hash.util.RandomIterator;
 import org.apache.flink.runtime.operators.hash.util.RangeCalculator;
 import org.apache.flink.runtime.operators.hash.util.RangeIterator;
 import org.apache.flink.runtime.operators.hash.util.StepRangeIterator;
+import org.apache.flink.runtime.operators.testutils.types.IntList;
+import org.apache.flink.runtime.operators.testutils.types.IntListComparator;
+import org.apache.flink.runtime.operators.testutils.types.IntListPairComparator;
+import org.apache.flink.runtime.operators.testutils.types.IntListSerializer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -151,6 +158,72 @@ public class HashFunctionCollisionBenchmark {
 		LOG.debug("End Two Level hash test");
 	}
 
+	/**
+	 * Updates all records of a compacting hash table with records of a different length in every round, as
+	 * the solution set of a delta iteration is updated in every superstep. The memory is tight, so that the
+	 * garbage of the updates must be compacted continuously.
+	 */
+	@Test
+	public void testCompactingHashTableUpdates() {
+		final int NUM_RECORDS = 50000;
+		final int NUM_ROUNDS = 10;
+		final int MAX_LIST_SIZE = 8;
+		final int PAGE_SIZE = 16 * 1024;
+		final int NUM_MEM_PAGES = 75 * NUM_RECORDS / PAGE_SIZE;
+		
+		Random rnd = new Random(SEED);
+		
+		List<MemorySegment> memory = new ArrayList<MemorySegment>();
+		for (int i = 0; i < NUM_MEM_PAGES; i++) {
+			memory.add(new MemorySegment(new byte[PAGE_SIZE]));
+		}
+		
+		CompactingHashTable<IntList> table = new CompactingHashTable<IntList>(new IntListSerializer(), new IntListComparator(), memory);
+		table.open();
+		
+		try {
+			final IntList[] records = new IntList[NUM_RECORDS];
+			for (int i = 0; i < NUM_RECORDS; i++) {
+				records[i] = new IntList(i, new int[rnd.nextInt(MAX_LIST_SIZE) + 1]);
+				table.insert(records[i]);
+			}
+			
+			IntList tempHolder = new IntList();
+			for (int round = 0; round < NUM_ROUNDS; round++) {
+				long maxUpdateNanos = 0;
+				final long roundStart = System.nanoTime();
+				
+				for (int i = 0; i < NUM_RECORDS; i++) {
+					final int[] value = new int[rnd.nextInt(MAX_LIST_SIZE) + 1];
+					value[0] = round;
+					records[i] = new IntList(i, value);
+					
+					final long updateStart = System.nanoTime();
+					table.insertOrReplaceRecord(records[i], tempHolder);
+					maxUpdateNanos = Math.max(maxUpdateNanos, System.nanoTime() - updateStart);
+				}
+				
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Update round " + round + ": " + ((System.nanoTime() - roundStart) / 1000000) + 
+						" ms, slowest update " + (maxUpdateNanos / 1000) + " us");
+				}
+			}
+			
+			AbstractHashTableProber<IntList, IntList> prober = table.getProber(new IntListComparator(), new IntListPairComparator());
+			IntList target = new IntList();
+			for (int i = 0; i < NUM_RECORDS; i++) {
+				Assert.assertTrue(prober.getMatchFor(records[i], target));
+				Assert.assertArrayEquals(records[i].getValue(), target.getValue());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Error: " + e.getMessage());
+		} finally {
+			table.close();
+		}
+		Assert.assertEquals("Memory lost", NUM_MEM_PAGES, table.getFreeMemory().size());
+	}
+
 }
 
 class MultiLevelHashTester {
@@ -28,6 +28,7 @@ import java.util.Map.Entry;
 
 import org.apache.flink.api.common.functions.AbstractFunction;
 import org.apache.flink.api.common.functions.GenericJoiner;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
@@ -46,6 +47,7 @@ import org.apache.flink.runtime.operators.testutils.DummyInvokable;
 import org.apache.flink.runtime.operators.testutils.TestData;
 import org.apache.flink.runtime.operators.testutils.UniformIntPairGenerator;
 import org.apache.flink.runtime.operators.testutils.UnionIterator;
+import org.apache.flink.runtime.operators.util.JoinTaskIterator;
 import org.apache.flink.runtime.operators.testutils.TestData.Generator;
 import org.apache.flink.runtime.operators.testutils.TestData.Generator.KeyMode;
 import org.apache.flink.runtime.operators.testutils.TestData.Generator.ValueMode;
@@ -495,6 +497,70 @@ public class HashMatchIteratorITCase {
 		}
 	}
 	
+	@Test
+	public void testBuildFirstOuterJoins() {
+		for (JoinType type : new JoinType[] { JoinType.LEFT_OUTER, JoinType.RIGHT_OUTER, JoinType.FULL_OUTER }) {
+			testOuterJoin(type, true);
+		}
+	}
+	
+	@Test
+	public void testBuildSecondOuterJoins() {
+		for (JoinType type : new JoinType[] { JoinType.LEFT_OUTER, JoinType.RIGHT_OUTER, JoinType.FULL_OUTER }) {
+			testOuterJoin(type, false);
+		}
+	}
+	
+	private void testOuterJoin(JoinType type, boolean buildFirst) {
+		try {
+			// the second input has keys that the first one lacks, and vice versa. the first input
+			// does not fit into memory, such that partitions are spilled when it is the build side
+			Generator generator1 = new Generator(SEED1, 500, 4096, KeyMode.RANDOM, ValueMode.RANDOM_LENGTH);
+			Generator generator2 = new Generator(SEED2, 1000, 2048, KeyMode.RANDOM, ValueMode.RANDOM_LENGTH);
+			
+			final TestData.GeneratorIterator input1 = new TestData.GeneratorIterator(generator1, INPUT_1_SIZE);
+			final TestData.GeneratorIterator input2 = new TestData.GeneratorIterator(generator2, INPUT_2_SIZE);
+			
+			// collect expected data
+			final Map<TestData.Key, Collection<RecordMatch>> expectedMatchesMap = matchRecordValues(
+				collectRecordData(input1), collectRecordData(input2), type.isOuterFirst(), type.isOuterSecond());
+			
+			final JoinFunction matcher = new RecordMatchRemovingJoin(expectedMatchesMap);
+			final Collector<Record> collector = new DiscardingOutputCollector<Record>();
+	
+			// reset the generators
+			generator1.reset();
+			generator2.reset();
+			input1.reset();
+			input2.reset();
+	
+			// compare with iterator values
+			final JoinTaskIterator<Record, Record, Record> iterator = buildFirst ?
+					new BuildFirstHashMatchIterator<Record, Record, Record>(
+						input1, input2, this.recordSerializer, this.record1Comparator, 
+						this.recordSerializer, this.record2Comparator, this.recordPairComparator,
+						this.memoryManager, ioManager, this.parentTask, 1.0, type) :
+					new BuildSecondHashMatchIterator<Record, Record, Record>(
+						input1, input2, this.recordSerializer, this.record1Comparator, 
+						this.recordSerializer, this.record2Comparator, this.recordPairComparator,
+						this.memoryManager, ioManager, this.parentTask, 1.0, type);
+			
+			iterator.open();
+			
+			while (iterator.callWithNextKey(matcher, collector));
+			
+			iterator.close();
+	
+			// assert that each expected match was seen
+			Assert.assertTrue("Expected matches were not seen for " + type + ": " + expectedMatchesMap.keySet(),
+				expectedMatchesMap.isEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("An exception occurred during the test: " + e.getMessage());
+		}
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//                                    Utilities
 	// --------------------------------------------------------------------------------------------
@@ -504,6 +570,14 @@ public class HashMatchIteratorITCase {
 	static Map<TestData.Key, Collection<RecordMatch>> matchRecordValues(
 			Map<TestData.Key, Collection<TestData.Value>> leftMap,
 			Map<TestData.Key, Collection<TestData.Value>> rightMap)
+	{
+		return matchRecordValues(leftMap, rightMap, false, false);
+	}
+	
+	static Map<TestData.Key, Collection<RecordMatch>> matchRecordValues(
+			Map<TestData.Key, Collection<TestData.Value>> leftMap,
+			Map<TestData.Key, Collection<TestData.Value>> rightMap,
+			boolean outerLeft, boolean outerRight)
 	{
 		Map<TestData.Key, Collection<RecordMatch>> map = new HashMap<TestData.Key, Collection<RecordMatch>>();
 
@@ -512,6 +586,13 @@ public class HashMatchIteratorITCase {
 			Collection<TestData.Value> rightValues = rightMap.get(key);
 
 			if (rightValues == null) {
+				if (outerLeft) {
+					Collection<RecordMatch> unmatched = new ArrayList<RecordMatch>();
+					for (TestData.Value leftValue : leftValues) {
+						unmatched.add(new RecordMatch(leftValue, null));
+					}
+					map.put(key, unmatched);
+				}
 				continue;
 			}
 
@@ -527,6 +608,18 @@ public class HashMatchIteratorITCase {
 				}
 			}
 		}
+		
+		if (outerRight) {
+			for (TestData.Key key : rightMap.keySet()) {
+				if (!leftMap.containsKey(key)) {
+					Collection<RecordMatch> unmatched = new ArrayList<RecordMatch>();
+					for (TestData.Value rightValue : rightMap.get(key)) {
+						unmatched.add(new RecordMatch(null, rightValue));
+					}
+					map.put(key, unmatched);
+				}
+			}
+		}
 
 		return map;
 	}
@@ -622,12 +715,13 @@ public class HashMatchIteratorITCase {
 		@Override
 		public boolean equals(Object obj) {
 			RecordMatch o = (RecordMatch) obj;
-			return this.left.equals(o.left) && this.right.equals(o.right);
+			return (this.left == null ? o.left == null : this.left.equals(o.left)) &&
+				(this.right == null ? o.right == null : this.right.equals(o.right));
 		}
 		
 		@Override
 		public int hashCode() {
-			return this.left.hashCode() ^ this.right.hashCode();
+			return (this.left == null ? 0 : this.left.hashCode()) ^ (this.right == null ? 0 : this.right.hashCode());
 		}
 
 		@Override
@@ -677,9 +771,10 @@ public class HashMatchIteratorITCase {
 		@Override
 		public void join(Record rec1, Record rec2, Collector<Record> out)
 		{
-			TestData.Key key = rec1.getField(0, TestData.Key.class);
-			TestData.Value value1 = rec1.getField(1, TestData.Value.class);
-			TestData.Value value2 = rec2.getField(1, TestData.Value.class);
+			// for outer joins, one of the records may be null
+			TestData.Key key = (rec1 != null ? rec1 : rec2).getField(0, TestData.Key.class);
+			TestData.Value value1 = rec1 == null ? null : rec1.getField(1, TestData.Value.class);
+			TestData.Value value2 = rec2 == null ? null : rec2.getField(1, TestData.Value.class);
 			//System.err.println("rec1 key = "+key+"  rec2 key= "+rec2.getField(0, TestData.Key.class));
 			Collection<RecordMatch> matches = this.toRemoveFrom.get(key);
 			if (matches == null) {
@@ -24,6 +24,7 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -552,17 +553,19 @@ public class HashTableITCase {
 	
 	/*
 	 * This test is basically identical to the "testSpillingHashJoinWithMassiveCollisions" test, only that the number
-	 * of repeated values (causing bucket collisions) are large enough to make sure that their target partition no longer
-	 * fits into memory by itself and needs to be repartitioned in the recursion again.
+	 * of repeated build-side values (causing bucket collisions) is large enough to make sure that their target partition
+	 * no longer fits into memory by itself and can not be split by recursive partitioning. The join falls back to a
+	 * block nested loop join for that partition.
 	 */
 	@Test
-	public void testFailingHashJoinTooManyRecursions() throws IOException
+	public void testSpillingHashJoinWithUnsplittablePartition() throws IOException
 	{
 		// the following two values are known to have a hash-code collision on the first recursion level.
 		// we use them to make sure one partition grows over-proportionally large
 		final int REPEATED_VALUE_1 = 40559;
 		final int REPEATED_VALUE_2 = 92882;
-		final int REPEATED_VALUE_COUNT = 3000000; 
+		final int REPEATED_VALUE_COUNT = 3000000;
+		final int REPEATED_PROBE_VALUE_COUNT = 3;
 		
 		final int NUM_KEYS = 1000000;
 		final int BUILD_VALS_PER_KEY = 3;
@@ -578,10 +581,10 @@ public class HashTableITCase {
 		builds.add(build3);
 		MutableObjectIterator<Record> buildInput = new UnionIterator<Record>(builds);
 	
-		// create a probe input that gives 10 million pairs with 10 values sharing a key
+		// create a probe input that gives 10 million pairs with 10 values sharing a key, plus few pairs with the colliding keys
 		MutableObjectIterator<Record> probe1 = new UniformRecordGenerator(NUM_KEYS, PROBE_VALS_PER_KEY, true);
-		MutableObjectIterator<Record> probe2 = new ConstantsKeyValuePairsIterator(REPEATED_VALUE_1, 17, REPEATED_VALUE_COUNT);
-		MutableObjectIterator<Record> probe3 = new ConstantsKeyValuePairsIterator(REPEATED_VALUE_2, 23, REPEATED_VALUE_COUNT);
+		MutableObjectIterator<Record> probe2 = new ConstantsKeyValuePairsIterator(REPEATED_VALUE_1, 17, REPEATED_PROBE_VALUE_COUNT);
+		MutableObjectIterator<Record> probe3 = new ConstantsKeyValuePairsIterator(REPEATED_VALUE_2, 23, REPEATED_PROBE_VALUE_COUNT);
 		List<MutableObjectIterator<Record>> probes = new ArrayList<MutableObjectIterator<Record>>();
 		probes.add(probe1);
 		probes.add(probe2);
@@ -608,23 +611,24 @@ public class HashTableITCase {
 		
 		final Record recordReuse = new Record();
 
-		try {
-			while (join.nextRecord()) {	
-				HashBucketIterator<Record, Record> buildSide = join.getBuildSideIterator();
-				if (buildSide.next(recordReuse) == null) {
-					fail("No build side values found for a probe key.");
-				}
-				while (buildSide.next(recordReuse) != null);
+		long numRecordsInJoinResult = 0;
+		
+		while (join.nextRecord())
+		{
+			HashBucketIterator<Record, Record> buildSide = join.getBuildSideIterator();
+			while (buildSide.next(recordReuse) != null) {
+				numRecordsInJoinResult++;
 			}
-			
-			fail("Hash Join must have failed due to too many recursions.");
-		}
-		catch (Exception ex) {
-			// expected
 		}
 		
 		join.close();
 		
+		// the repeated values are also among the uniform keys, so their probe-side and build-side records add up
+		final long expectedNumResults = ((long) NUM_KEYS) * BUILD_VALS_PER_KEY * PROBE_VALS_PER_KEY +
+				2L * (REPEATED_PROBE_VALUE_COUNT + PROBE_VALS_PER_KEY) * REPEATED_VALUE_COUNT +
+				2L * REPEATED_PROBE_VALUE_COUNT * BUILD_VALS_PER_KEY;
+		Assert.assertEquals("Wrong number of records in join result.", expectedNumResults, numRecordsInJoinResult);
+		
 		// ----------------------------------------------------------------------------------------
 		
 		this.memManager.release(join.getFreedMemory());
@@ -929,6 +933,79 @@ public class HashTableITCase {
 	}
 	
 
+	/*
+	 * Probes a spilled hash table mostly with keys that do not occur on the build side. The Bloom filters
+	 * of the spilled partitions must drop most of those probe records, without losing any match.
+	 */
+	@Test
+	public void testSpillingHashJoinWithBloomFilterIntPair() throws IOException
+	{
+		final int NUM_BUILD_KEYS = 1000000;
+		final int BUILD_VALS_PER_KEY = 3;
+		final int NUM_PROBE_KEYS = 4 * NUM_BUILD_KEYS;
+		
+		// the build side contains every key of [0, 1M) three times
+		MutableObjectIterator<IntPair> buildInput = new UniformIntPairGenerator(NUM_BUILD_KEYS, BUILD_VALS_PER_KEY, false);
+
+		// the probe side contains every key of [0, 4M) once, so that only a quarter of the keys find a partner
+		MutableObjectIterator<IntPair> probeInput = new UniformIntPairGenerator(NUM_PROBE_KEYS, 1, true);
+
+		// allocate the memory for the HashTable
+		List<MemorySegment> memSegments;
+		try {
+			memSegments = this.memManager.allocatePages(MEM_OWNER, 896);
+		}
+		catch (MemoryAllocationException maex) {
+			fail("Memory for the Join could not be provided.");
+			return;
+		}
+		
+		// ----------------------------------------------------------------------------------------
+		
+		final MutableHashTable<IntPair, IntPair> join = new MutableHashTable<IntPair, IntPair>(
+				this.pairBuildSideAccesssor, this.pairProbeSideAccesssor, 
+				this.pairBuildSideComparator, this.pairProbeSideComparator, this.pairComparator,
+				memSegments, ioManager);
+		join.open(buildInput, probeInput);
+	
+		final IntPair recordReuse = new IntPair();
+		final BitSet probeKeysSeen = new BitSet(NUM_BUILD_KEYS);
+		long numProbesWithoutPartner = 0;
+
+		while (join.nextRecord())
+		{
+			final int key = join.getCurrentProbeRecord().getKey();
+			
+			int numBuildValues = 0;
+			HashBucketIterator<IntPair, IntPair> buildSide = join.getBuildSideIterator();
+			while (buildSide.next(recordReuse) != null) {
+				Assert.assertEquals("Probe-side key was different than build-side key.", key, recordReuse.getKey());
+				numBuildValues++;
+			}
+			
+			if (numBuildValues == 0) {
+				numProbesWithoutPartner++;
+			}
+			else {
+				Assert.assertEquals("Wrong number of build values for key " + key, BUILD_VALS_PER_KEY, numBuildValues);
+				Assert.assertFalse("Probe key " + key + " was matched twice.", probeKeysSeen.get(key));
+				probeKeysSeen.set(key);
+			}
+		}
+		
+		final long numFiltered = join.getNumProbeRecordsFiltered();
+		join.close();
+		
+		Assert.assertEquals("Wrong number of matched probe keys", NUM_BUILD_KEYS, probeKeysSeen.cardinality());
+		Assert.assertTrue("The Bloom filters dropped no probe records.", numFiltered > 0);
+		Assert.assertEquals("Probe records without partner were lost.", NUM_PROBE_KEYS - NUM_BUILD_KEYS,
+			numFiltered + numProbesWithoutPartner);
+		
+		// ----------------------------------------------------------------------------------------
+		
+		this.memManager.release(join.getFreedMemory());
+	}
+	
 	@Test
 	public void testSpillingHashJoinWithMassiveCollisionsIntPair() throws IOException
 	{
@@ -1153,17 +1230,19 @@ public class HashTableITCase {
 	
 	/*
 	 * This test is basically identical to the "testSpillingHashJoinWithMassiveCollisions" test, only that the number
-	 * of repeated values (causing bucket collisions) are large enough to make sure that their target partition no longer
-	 * fits into memory by itself and needs to be repartitioned in the recursion again.
+	 * of repeated build-side values (causing bucket collisions) is large enough to make sure that their target partition
+	 * no longer fits into memory by itself and can not be split by recursive partitioning. The join falls back to a
+	 * block nested loop join for that partition.
 	 */
 	@Test
-	public void testFailingHashJoinTooManyRecursionsIntPair() throws IOException
+	public void testSpillingHashJoinWithUnsplittablePartitionIntPair() throws IOException
 	{
 		// the following two values are known to have a hash-code collision on the first recursion level.
 		// we use them to make sure one partition grows over-proportionally large
 		final int REPEATED_VALUE_1 = 40559;
 		final int REPEATED_VALUE_2 = 92882;
-		final int REPEATED_VALUE_COUNT = 3000000; 
+		final int REPEATED_VALUE_COUNT = 3000000;
+		final int REPEATED_PROBE_VALUE_COUNT = 3;
 		
 		final int NUM_KEYS = 1000000;
 		final int BUILD_VALS_PER_KEY = 3;
@@ -1179,10 +1258,10 @@ public class HashTableITCase {
 		builds.add(build3);
 		MutableObjectIterator<IntPair> buildInput = new UnionIterator<IntPair>(builds);
 	
-		// create a probe input that gives 10 million pairs with 10 values sharing a key
+		// create a probe input that gives 10 million pairs with 10 values sharing a key, plus few pairs with the colliding keys
 		MutableObjectIterator<IntPair> probe1 = new UniformIntPairGenerator(NUM_KEYS, PROBE_VALS_PER_KEY, true);
-		MutableObjectIterator<IntPair> probe2 = new ConstantsIntPairsIterator(REPEATED_VALUE_1, 17, REPEATED_VALUE_COUNT);
-		MutableObjectIterator<IntPair> probe3 = new ConstantsIntPairsIterator(REPEATED_VALUE_2, 23, REPEATED_VALUE_COUNT);
+		MutableObjectIterator<IntPair> probe2 = new ConstantsIntPairsIterator(REPEATED_VALUE_1, 17, REPEATED_PROBE_VALUE_COUNT);
+		MutableObjectIterator<IntPair> probe3 = new ConstantsIntPairsIterator(REPEATED_VALUE_2, 23, REPEATED_PROBE_VALUE_COUNT);
 		List<MutableObjectIterator<IntPair>> probes = new ArrayList<MutableObjectIterator<IntPair>>();
 		probes.add(probe1);
 		probes.add(probe2);
@@ -1209,24 +1288,119 @@ public class HashTableITCase {
 		
 		final IntPair recordReuse = new IntPair();
 
+		long numRecordsInJoinResult = 0;
+		
+		while (join.nextRecord())
+		{
+			HashBucketIterator<IntPair, IntPair> buildSide = join.getBuildSideIterator();
+			while (buildSide.next(recordReuse) != null) {
+				numRecordsInJoinResult++;
+			}
+		}
+		
+		join.close();
+		
+		// the repeated values are also among the uniform keys, so their probe-side and build-side records add up
+		final long expectedNumResults = ((long) NUM_KEYS) * BUILD_VALS_PER_KEY * PROBE_VALS_PER_KEY +
+				2L * (REPEATED_PROBE_VALUE_COUNT + PROBE_VALS_PER_KEY) * REPEATED_VALUE_COUNT +
+				2L * REPEATED_PROBE_VALUE_COUNT * BUILD_VALS_PER_KEY;
+		Assert.assertEquals("Wrong number of records in join result.", expectedNumResults, numRecordsInJoinResult);
+		
+		// ----------------------------------------------------------------------------------------
+		
+		this.memManager.release(join.getFreedMemory());
+	}
+	
+	/*
+	 * Runs an outer join over a partition that can not be split by recursive partitioning, such that the join
+	 * falls back to a block nested loop join. Neither the uniform build-side keys beyond the probe key range
+	 * nor the repeated build-side key that does not occur on the probe side find a partner.
+	 */
+	@Test
+	public void testSpillingOuterHashJoinWithUnsplittablePartitionIntPair() throws IOException
+	{
+		// the following two values are known to have a hash-code collision on the first recursion level.
+		// only the first one occurs on the probe side
+		final int REPEATED_VALUE_1 = 40559;
+		final int REPEATED_VALUE_2 = 92882;
+		final int REPEATED_VALUE_COUNT = 3000000;
+		final int REPEATED_PROBE_VALUE_COUNT = 3;
+		
+		final int NUM_BUILD_KEYS = 1000000;
+		final int NUM_PROBE_KEYS = 50000;
+		final int BUILD_VALS_PER_KEY = 3;
+		final int PROBE_VALS_PER_KEY = 10;
+		
+		List<MutableObjectIterator<IntPair>> builds = new ArrayList<MutableObjectIterator<IntPair>>();
+		builds.add(new UniformIntPairGenerator(NUM_BUILD_KEYS, BUILD_VALS_PER_KEY, false));
+		builds.add(new ConstantsIntPairsIterator(REPEATED_VALUE_1, 17, REPEATED_VALUE_COUNT));
+		builds.add(new ConstantsIntPairsIterator(REPEATED_VALUE_2, 23, REPEATED_VALUE_COUNT));
+		MutableObjectIterator<IntPair> buildInput = new UnionIterator<IntPair>(builds);
+	
+		List<MutableObjectIterator<IntPair>> probes = new ArrayList<MutableObjectIterator<IntPair>>();
+		probes.add(new UniformIntPairGenerator(NUM_PROBE_KEYS, PROBE_VALS_PER_KEY, true));
+		probes.add(new ConstantsIntPairsIterator(REPEATED_VALUE_1, 17, REPEATED_PROBE_VALUE_COUNT));
+		MutableObjectIterator<IntPair> probeInput = new UnionIterator<IntPair>(probes);
+		
+		// allocate the memory for the HashTable
+		List<MemorySegment> memSegments;
 		try {
-			while (join.nextRecord())
-			{	
-				HashBucketIterator<IntPair, IntPair> buildSide = join.getBuildSideIterator();
-				if (buildSide.next(recordReuse) == null) {
-					fail("No build side values found for a probe key.");
+			memSegments = this.memManager.allocatePages(MEM_OWNER, 896);
+		}
+		catch (MemoryAllocationException maex) {
+			fail("Memory for the Join could not be provided.");
+			return;
+		}
+		
+		// ----------------------------------------------------------------------------------------
+		
+		final MutableHashTable<IntPair, IntPair> join = new MutableHashTable<IntPair, IntPair>(
+				this.pairBuildSideAccesssor, this.pairProbeSideAccesssor, 
+				this.pairBuildSideComparator, this.pairProbeSideComparator, this.pairComparator,
+				memSegments, ioManager);
+		join.setBuildSideOuterJoin(true);
+		join.setProbeSideOuterJoin(true);
+		join.open(buildInput, probeInput);
+		
+		final IntPair recordReuse = new IntPair();
+
+		long numMatches = 0;
+		long numUnmatchedBuild = 0;
+		long numUnmatchedProbe = 0;
+		
+		while (join.nextRecord())
+		{
+			if (join.getCurrentProbeRecord() == null) {
+				MutableObjectIterator<IntPair> unmatched = join.getUnmatchedBuildSideIterator();
+				while (unmatched.next(recordReuse) != null) {
+					numUnmatchedBuild++;
 				}
-				while (buildSide.next(recordReuse) != null);
+				continue;
 			}
 			
-			fail("Hash Join must have failed due to too many recursions.");
-		}
-		catch (Exception ex) {
-			// expected
+			HashBucketIterator<IntPair, IntPair> buildSide = join.getBuildSideIterator();
+			long numPartners = 0;
+			while (buildSide.next(recordReuse) != null) {
+				numPartners++;
+			}
+			numMatches += numPartners;
+			if (numPartners == 0) {
+				numUnmatchedProbe++;
+			}
 		}
 		
 		join.close();
 		
+		// the first repeated value is also among the uniform probe keys
+		final long expectedNumMatches = ((long) NUM_PROBE_KEYS - 1) * BUILD_VALS_PER_KEY * PROBE_VALS_PER_KEY +
+				((long) REPEATED_PROBE_VALUE_COUNT + PROBE_VALS_PER_KEY) * (REPEATED_VALUE_COUNT + BUILD_VALS_PER_KEY);
+		final long expectedNumUnmatchedBuild = ((long) NUM_BUILD_KEYS - NUM_PROBE_KEYS) * BUILD_VALS_PER_KEY +
+				REPEATED_VALUE_COUNT;
+		
+		Assert.assertEquals("Wrong number of records in join result.", expectedNumMatches, numMatches);
+		Assert.assertEquals("Wrong number of build-side records without partner.", expectedNumUnmatchedBuild, numUnmatchedBuild);
+		Assert.assertEquals("Wrong number of probe-side records without partner.", 0, numUnmatchedProbe);
+		
 		// ----------------------------------------------------------------------------------------
 		
 		this.memManager.release(join.getFreedMemory());
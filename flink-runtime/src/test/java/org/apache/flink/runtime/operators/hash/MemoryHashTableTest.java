@@ -21,11 +21,15 @@ package org.apache.flink.runtime.operators.hash;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 
@@ -33,9 +37,11 @@ import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.operators.hash.AbstractHashTableProber;
 import org.apache.flink.runtime.operators.hash.AbstractMutableHashTable;
 import org.apache.flink.runtime.operators.hash.CompactingHashTable;
+import org.apache.flink.runtime.operators.testutils.UniformIntPairGenerator;
 import org.apache.flink.runtime.operators.testutils.UniformStringPairGenerator;
 import org.apache.flink.runtime.operators.testutils.types.IntList;
 import org.apache.flink.runtime.operators.testutils.types.IntListComparator;
@@ -712,6 +718,398 @@ public class MemoryHashTableTest {
 	}
 	
 	
+	@Test
+	public void testSpillingBuildAndDeferredProbes() {
+		final IOManager ioManager = new IOManager();
+		try {
+			final int NUM_MEM_PAGES = 60;
+			
+			final IntPair[] pairs = getRandomizedIntPairs(NUM_PAIRS, rnd);
+			
+			CompactingHashTable<IntPair> table = new CompactingHashTable<IntPair>(serializer, comparator, getMemory(NUM_MEM_PAGES, PAGE_SIZE), ioManager);
+			table.open();
+			
+			for (int i = 0; i < NUM_PAIRS; i++) {
+				table.insert(pairs[i]);
+			}
+			
+			CompactingHashTable<IntPair>.HashTableProber<IntPair> prober = table.getProber(comparator, pairComparator, serializer);
+			IntPair target = new IntPair();
+			
+			MutableObjectIterator<IntPair> probes = new UniformIntPairGenerator(NUM_PAIRS, 1, false);
+			int numDeferred = 0;
+			int numMatches = 0;
+			do {
+				IntPair probe = new IntPair();
+				while ((probe = probes.next(probe)) != null) {
+					if (prober.isSpilled(probe)) {
+						prober.defer(probe);
+						numDeferred++;
+					} else {
+						assertTrue(prober.getMatchFor(probe, target));
+						assertEquals(probe.getKey() + KEY_VALUE_DIFF, target.getValue());
+						numMatches++;
+					}
+				}
+			} while ((probes = prober.nextDeferredProbes()) != null);
+			
+			assertTrue("No partition was spilled.", numDeferred > 0);
+			assertEquals(NUM_PAIRS, numMatches);
+			
+			table.close();
+			assertEquals("Memory lost", NUM_MEM_PAGES, table.getFreeMemory().size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Error: " + e.getMessage());
+		} finally {
+			ioManager.shutdown();
+		}
+	}
+	
+	@Test
+	public void testSpillingUpdatesAndEntryIterator() {
+		final IOManager ioManager = new IOManager();
+		try {
+			final int NUM_MEM_PAGES = 60;
+			
+			final IntPair[] pairs = getRandomizedIntPairs(NUM_PAIRS, rnd);
+			
+			CompactingHashTable<IntPair> table = new CompactingHashTable<IntPair>(serializer, comparator, getMemory(NUM_MEM_PAGES, PAGE_SIZE), ioManager);
+			table.open();
+			
+			for (int i = 0; i < NUM_PAIRS; i++) {
+				table.insert(pairs[i]);
+			}
+			
+			// overwrite every other record, partly in memory and partly in spilled partitions
+			IntPair tempHolder = new IntPair();
+			boolean[] updated = new boolean[NUM_PAIRS];
+			for (int i = 0; i < NUM_PAIRS; i += 2) {
+				updated[pairs[i].getKey()] = true;
+				table.insertOrReplaceRecord(new IntPair(pairs[i].getKey(), -pairs[i].getKey()), tempHolder);
+			}
+			
+			// a few lookups read spilled partitions back
+			CompactingHashTable<IntPair>.HashTableProber<IntPair> prober = table.getProber(comparator, pairComparator);
+			IntPair target = new IntPair();
+			for (int i = 1; i < 200; i += 2) {
+				assertTrue(prober.getMatchFor(pairs[i], target));
+				assertEquals(pairs[i].getValue(), target.getValue());
+			}
+			
+			boolean[] seen = new boolean[NUM_PAIRS];
+			int count = 0;
+			MutableObjectIterator<IntPair> iter = table.getEntryIterator();
+			while ((target = iter.next(target)) != null) {
+				final int key = target.getKey();
+				assertFalse("Duplicate key " + key, seen[key]);
+				seen[key] = true;
+				count++;
+				assertEquals(updated[key] ? -key : key + KEY_VALUE_DIFF, target.getValue());
+			}
+			assertEquals(NUM_PAIRS, count);
+			
+			table.close();
+			assertEquals("Memory lost", NUM_MEM_PAGES, table.getFreeMemory().size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Error: " + e.getMessage());
+		} finally {
+			ioManager.shutdown();
+		}
+	}
+	
+	
+	@Test
+	public void testIncrementalCompactionLookupsAndUpdates() {
+		try {
+			final int NUM_MEM_PAGES = SIZE * NUM_PAIRS / PAGE_SIZE;
+			
+			final IntPair[] pairs = getRandomizedIntPairs(NUM_PAIRS, rnd);
+			final int[] expected = new int[NUM_PAIRS];
+			
+			CompactingHashTable<IntPair> table = new CompactingHashTable<IntPair>(serializer, comparator, getMemory(NUM_MEM_PAGES, PAGE_SIZE));
+			table.open();
+			insertAndOverwrite(table, pairs, expected);
+			
+			final int compacted = 0;
+			startIncrementalCompaction(table, compacted, 10);
+			
+			// split the records of the partition by whether their bucket was already moved
+			final int numPartitions = getNumPartitions(table);
+			final int[] bucketOfKey = new int[NUM_PAIRS];
+			final List<Integer> movedKeys = new ArrayList<Integer>();
+			final List<Integer> unmovedKeys = new ArrayList<Integer>();
+			for (int key = 0; key < NUM_PAIRS; key++) {
+				bucketOfKey[key] = getBucket(table, key);
+				if (bucketOfKey[key] % numPartitions == compacted) {
+					(isBucketMoved(table, bucketOfKey[key]) ? movedKeys : unmovedKeys).add(key);
+				}
+			}
+			assertFalse("No bucket was moved.", movedKeys.isEmpty());
+			assertFalse("All buckets were moved.", unmovedKeys.isEmpty());
+			
+			// the buckets at the end of the partition are the last ones reached by the compaction steps
+			Collections.sort(unmovedKeys, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer k1, Integer k2) {
+					return bucketOfKey[k2] - bucketOfKey[k1];
+				}
+			});
+			
+			CompactingHashTable<IntPair>.HashTableProber<IntPair> prober = table.getProber(comparator, pairComparator);
+			IntPair target = new IntPair();
+			IntPair tempHolder = new IntPair();
+			
+			// every access advances the compaction, so the buckets that were not moved yet go first
+			int numUnmovedAccesses = 0;
+			for (int i = 0; i < unmovedKeys.size() && getCompactingPartition(table) == compacted; i++) {
+				final int key = unmovedKeys.get(i);
+				if (isBucketMoved(table, bucketOfKey[key])) {
+					continue;
+				}
+				numUnmovedAccesses++;
+				
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+				assertTrue("The accessed bucket was not moved.", isBucketMoved(table, bucketOfKey[key]));
+				
+				expected[key] = 5 * key;
+				if (i % 2 == 0) {
+					prober.updateMatch(new IntPair(key, expected[key]));
+				} else {
+					table.insertOrReplaceRecord(new IntPair(key, expected[key]), tempHolder);
+				}
+			}
+			assertTrue("No bucket was accessed before it was moved.", numUnmovedAccesses > 0);
+			
+			for (int key : movedKeys) {
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+				
+				expected[key] = 3 * key;
+				table.insertOrReplaceRecord(new IntPair(key, expected[key]), tempHolder);
+			}
+			
+			Whitebox.invokeMethod(table, "finishIncrementalCompaction", -1);
+			assertEquals(-1, getCompactingPartition(table));
+			
+			for (int key = 0; key < NUM_PAIRS; key++) {
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+			}
+			
+			table.close();
+			assertEquals("Memory lost", NUM_MEM_PAGES, table.getFreeMemory().size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Error: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testEntryIteratorDuringIncrementalCompaction() {
+		try {
+			final int NUM_MEM_PAGES = SIZE * NUM_PAIRS / PAGE_SIZE;
+			
+			final IntPair[] pairs = getRandomizedIntPairs(NUM_PAIRS, rnd);
+			final int[] expected = new int[NUM_PAIRS];
+			
+			CompactingHashTable<IntPair> table = new CompactingHashTable<IntPair>(serializer, comparator, getMemory(NUM_MEM_PAGES, PAGE_SIZE));
+			table.open();
+			insertAndOverwrite(table, pairs, expected);
+			
+			startIncrementalCompaction(table, 1, 2);
+			
+			boolean[] seen = new boolean[NUM_PAIRS];
+			int count = 0;
+			IntPair target = new IntPair();
+			MutableObjectIterator<IntPair> iter = table.getEntryIterator();
+			while ((target = iter.next(target)) != null) {
+				final int key = target.getKey();
+				assertFalse("Duplicate key " + key, seen[key]);
+				seen[key] = true;
+				count++;
+				assertEquals(expected[key], target.getValue());
+			}
+			assertEquals(NUM_PAIRS, count);
+			
+			// the iterator moved the buckets it read, so the compaction has nothing left to move
+			Whitebox.invokeMethod(table, "finishIncrementalCompaction", -1);
+			
+			AbstractHashTableProber<IntPair, IntPair> prober = table.getProber(comparator, pairComparator);
+			target = new IntPair();
+			for (int key = 0; key < NUM_PAIRS; key++) {
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+			}
+			
+			table.close();
+			assertEquals("Memory lost", NUM_MEM_PAGES, table.getFreeMemory().size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Error: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testResizeDuringIncrementalCompaction() {
+		try {
+			final int NUM_MEM_PAGES = SIZE * NUM_PAIRS / PAGE_SIZE;
+			
+			final IntPair[] pairs = getRandomizedIntPairs(NUM_PAIRS, rnd);
+			final int[] expected = new int[NUM_PAIRS];
+			
+			List<MemorySegment> memory = getMemory(NUM_MEM_PAGES, PAGE_SIZE);
+			CompactingHashTable<IntPair> table = new CompactingHashTable<IntPair>(serializer, comparator, memory);
+			table.open();
+			insertAndOverwrite(table, pairs, expected);
+			
+			startIncrementalCompaction(table, 2, 5);
+			final int numBuckets = Whitebox.<Integer>getInternalState(table, "numBuckets");
+			
+			// make sure there is enough memory for resize
+			memory.addAll(getMemory(ADDITIONAL_MEM, PAGE_SIZE));
+			Boolean b = Whitebox.<Boolean>invokeMethod(table, "resizeHashTable");
+			assertTrue(b.booleanValue());
+			
+			// the buckets are split only after all records of the compacted partition were moved
+			assertEquals(-1, getCompactingPartition(table));
+			assertEquals(2 * numBuckets, Whitebox.<Integer>getInternalState(table, "numBuckets").intValue());
+			
+			AbstractHashTableProber<IntPair, IntPair> prober = table.getProber(comparator, pairComparator);
+			IntPair target = new IntPair();
+			IntPair tempHolder = new IntPair();
+			for (int key = 0; key < NUM_PAIRS; key++) {
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+			}
+			
+			for (int key = 0; key < NUM_PAIRS; key += 3) {
+				expected[key] = 3 * key;
+				table.insertOrReplaceRecord(new IntPair(key, expected[key]), tempHolder);
+			}
+			for (int key = 0; key < NUM_PAIRS; key++) {
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+			}
+			
+			table.close();
+			assertEquals("Memory lost", NUM_MEM_PAGES + ADDITIONAL_MEM, table.getFreeMemory().size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Error: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSpillingDuringIncrementalCompaction() {
+		final IOManager ioManager = new IOManager();
+		try {
+			final int NUM_MEM_PAGES = SIZE * NUM_PAIRS / PAGE_SIZE;
+			
+			final IntPair[] pairs = getRandomizedIntPairs(NUM_PAIRS, rnd);
+			final int[] expected = new int[NUM_PAIRS];
+			
+			CompactingHashTable<IntPair> table = new CompactingHashTable<IntPair>(serializer, comparator, getMemory(NUM_MEM_PAGES, PAGE_SIZE), ioManager);
+			table.open();
+			insertAndOverwrite(table, pairs, expected);
+			
+			final int compacted = 0;
+			startIncrementalCompaction(table, compacted, 3);
+			
+			// make the compacted partition the coldest one, which must be passed over nonetheless
+			int[] accessCounts = Whitebox.getInternalState(table, "accessCounts");
+			Arrays.fill(accessCounts, 1000);
+			accessCounts[compacted] = 0;
+			
+			Boolean b = Whitebox.<Boolean>invokeMethod(table, "spillColdestPartition", -1);
+			assertTrue(b.booleanValue());
+			
+			Object[] spilledPartitions = Whitebox.getInternalState(table, "spilledPartitions");
+			assertNull("The compacted partition was spilled.", spilledPartitions[compacted]);
+			assertEquals(1, Whitebox.<Integer>getInternalState(table, "numSpilledPartitions").intValue());
+			assertEquals(compacted, getCompactingPartition(table));
+			
+			// the lookups read the spilled partition back while the compaction goes on
+			AbstractHashTableProber<IntPair, IntPair> prober = table.getProber(comparator, pairComparator);
+			IntPair target = new IntPair();
+			for (int key = 0; key < NUM_PAIRS; key++) {
+				assertTrue(prober.getMatchFor(new IntPair(key, 0), target));
+				assertEquals(expected[key], target.getValue());
+			}
+			assertEquals(0, Whitebox.<Integer>getInternalState(table, "numSpilledPartitions").intValue());
+			
+			table.close();
+			assertEquals("Memory lost", NUM_MEM_PAGES, table.getFreeMemory().size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail("Error: " + e.getMessage());
+		} finally {
+			ioManager.shutdown();
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	//                              Incremental Compaction Utilities
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Inserts the pairs and overwrites every record once, so that all partitions hold garbage.
+	 */
+	private static void insertAndOverwrite(CompactingHashTable<IntPair> table, IntPair[] pairs, int[] expected) throws Exception {
+		for (int i = 0; i < pairs.length; i++) {
+			table.insert(pairs[i]);
+		}
+		IntPair tempHolder = new IntPair();
+		for (int i = 0; i < pairs.length; i++) {
+			final int key = pairs[i].getKey();
+			expected[key] = -key;
+			table.insertOrReplaceRecord(new IntPair(key, expected[key]), tempHolder);
+		}
+		// an incremental compaction started by the updates would interfere with the one of the test
+		Whitebox.invokeMethod(table, "finishIncrementalCompaction", -1);
+	}
+	
+	private static void startIncrementalCompaction(CompactingHashTable<IntPair> table, int partitionNumber, int numSteps) throws Exception {
+		Whitebox.invokeMethod(table, "startIncrementalCompaction", partitionNumber);
+		for (int i = 0; i < numSteps; i++) {
+			Whitebox.invokeMethod(table, "compactIncrementally");
+		}
+		assertEquals(partitionNumber, getCompactingPartition(table));
+	}
+	
+	private static int getCompactingPartition(CompactingHashTable<?> table) {
+		return Whitebox.<Integer>getInternalState(table, "compactingPartition");
+	}
+	
+	private static int getNumPartitions(CompactingHashTable<?> table) {
+		return Whitebox.<List<?>>getInternalState(table, "partitions").size();
+	}
+	
+	private int getBucket(CompactingHashTable<IntPair> table, int key) throws Exception {
+		final int hashCode = Whitebox.<Integer>invokeMethod(CompactingHashTable.class, "hash", this.comparator.hash(new IntPair(key, 0)));
+		return hashCode % Whitebox.<Integer>getInternalState(table, "numBuckets");
+	}
+	
+	/**
+	 * Checks whether the bucket's epoch matches the one of its partition, i.e. whether its records are on the
+	 * partition's current pages.
+	 */
+	private static boolean isBucketMoved(CompactingHashTable<?> table, int bucket) {
+		final MemorySegment[] buckets = Whitebox.getInternalState(table, "buckets");
+		final byte[] epochs = Whitebox.getInternalState(table, "compactionEpochs");
+		final int bucketsPerSegmentBits = Whitebox.<Integer>getInternalState(table, "bucketsPerSegmentBits");
+		final int bucketsPerSegmentMask = Whitebox.<Integer>getInternalState(table, "bucketsPerSegmentMask");
+		final int bucketSize = Whitebox.<Integer>getInternalState(CompactingHashTable.class, "HASH_BUCKET_SIZE");
+		final int partitionOffset = Whitebox.<Integer>getInternalState(CompactingHashTable.class, "HEADER_PARTITION_OFFSET");
+		final int epochOffset = Whitebox.<Integer>getInternalState(CompactingHashTable.class, "HEADER_EPOCH_OFFSET");
+		
+		final MemorySegment segment = buckets[bucket >>> bucketsPerSegmentBits];
+		final int offset = (bucket & bucketsPerSegmentMask) * bucketSize;
+		return segment.get(offset + epochOffset) == epochs[segment.get(offset + partitionOffset)];
+	}
+	
 	private static IntPair[] getRandomizedIntPairs(int num, Random rnd) {
 		IntPair[] pairs = new IntPair[num];
 		
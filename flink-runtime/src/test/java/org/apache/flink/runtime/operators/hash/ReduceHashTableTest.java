@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.flink.api.java.functions.ReduceFunction;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.operators.testutils.types.IntPair;
+import org.apache.flink.runtime.operators.testutils.types.IntPairComparator;
+import org.apache.flink.runtime.operators.testutils.types.IntPairSerializer;
+import org.apache.flink.runtime.operators.testutils.types.StringPair;
+import org.apache.flink.runtime.operators.testutils.types.StringPairComparator;
+import org.apache.flink.runtime.operators.testutils.types.StringPairSerializer;
+import org.apache.flink.util.Collector;
+import org.junit.Test;
+
+@SuppressWarnings("serial")
+public class ReduceHashTableTest {
+	
+	private static final long RANDOM_SEED = 58723953465322L;
+	
+	private static final int PAGE_SIZE = 16 * 1024;
+	
+	@Test
+	public void testSumFewKeys() {
+		try {
+			final int numKeys = 1000;
+			final int numRecords = 100000;
+			
+			ReduceHashTable<IntPair> table = new ReduceHashTable<IntPair>(new IntPairSerializer(), new IntPairComparator(),
+				new SumReducer(), getMemory(32, PAGE_SIZE));
+			
+			final Random rnd = new Random(RANDOM_SEED);
+			final long[] expected = new long[numKeys];
+			
+			final IntPair record = new IntPair();
+			for (int i = 0; i < numRecords; i++) {
+				record.setKey(rnd.nextInt(numKeys));
+				record.setValue(rnd.nextInt(100));
+				expected[record.getKey()] += record.getValue();
+				assertTrue(table.processRecordWithReduce(record));
+			}
+			assertEquals(numKeys, table.size());
+			
+			final ListCollector<IntPair> out = new ListCollector<IntPair>();
+			table.emit(out);
+			assertEquals(numKeys, out.list.size());
+			
+			final boolean[] seen = new boolean[numKeys];
+			for (IntPair pair : out.list) {
+				assertFalse("Key emitted twice.", seen[pair.getKey()]);
+				seen[pair.getKey()] = true;
+				assertEquals(expected[pair.getKey()], pair.getValue());
+			}
+			
+			table.reset();
+			assertTrue(table.isEmpty());
+			out.list.clear();
+			table.emit(out);
+			assertTrue(out.list.isEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testGrowingRecords() {
+		try {
+			final int numKeys = 50;
+			final int numRecords = 5000;
+			
+			ReduceHashTable<StringPair> table = new ReduceHashTable<StringPair>(new StringPairSerializer(),
+				new StringPairComparator(), new ConcatReducer(), getMemory(32, PAGE_SIZE));
+			
+			final Random rnd = new Random(RANDOM_SEED);
+			final Map<String, Integer> expectedLengths = new HashMap<String, Integer>();
+			
+			for (int i = 0; i < numRecords; i++) {
+				final String key = "key-" + rnd.nextInt(numKeys);
+				final String value = rnd.nextBoolean() ? "x" : "yy";
+				
+				final Integer len = expectedLengths.get(key);
+				expectedLengths.put(key, len == null ? value.length() : len + value.length());
+				assertTrue(table.processRecordWithReduce(new StringPair(key, value)));
+			}
+			
+			final ListCollector<StringPair> out = new ListCollector<StringPair>();
+			table.emit(out);
+			assertEquals(expectedLengths.size(), out.list.size());
+			
+			for (StringPair pair : out.list) {
+				final Integer len = expectedLengths.remove(pair.getKey());
+				assertNotNull("Unexpected or duplicate key " + pair.getKey(), len);
+				assertEquals(len.intValue(), pair.getValue().length());
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testFullTable() {
+		try {
+			ReduceHashTable<StringPair> table = new ReduceHashTable<StringPair>(new StringPairSerializer(),
+				new StringPairComparator(), new ConcatReducer(), getMemory(2, 4096));
+			
+			final Map<String, Integer> expectedLengths = new HashMap<String, Integer>();
+			final ListCollector<StringPair> out = new ListCollector<StringPair>();
+			
+			// distinct keys and growing values, so that the table repeatedly runs full
+			final Random rnd = new Random(RANDOM_SEED);
+			int numFull = 0;
+			for (int i = 0; i < 10000; i++) {
+				final String key = "k" + rnd.nextInt(300);
+				final StringPair record = new StringPair(key, "value");
+				
+				final Integer len = expectedLengths.get(key);
+				expectedLengths.put(key, len == null ? 5 : len + 5);
+				
+				if (!table.processRecordWithReduce(record)) {
+					assertEquals("A rejected record must not be modified.", "value", record.getValue());
+					
+					numFull++;
+					table.emit(out);
+					table.reset();
+					assertTrue(table.processRecordWithReduce(record));
+				}
+			}
+			table.emit(out);
+			assertTrue("The table never ran full.", numFull > 0);
+			
+			// the partial aggregates add up to the totals
+			final Map<String, Integer> foundLengths = new HashMap<String, Integer>();
+			for (StringPair pair : out.list) {
+				final Integer len = foundLengths.get(pair.getKey());
+				foundLengths.put(pair.getKey(), len == null ? pair.getValue().length() : len + pair.getValue().length());
+			}
+			assertEquals(expectedLengths, foundLengths);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	private static List<MemorySegment> getMemory(int numPages, int pageSize) {
+		List<MemorySegment> memory = new ArrayList<MemorySegment>();
+		
+		for (int i = 0; i < numPages; i++) {
+			memory.add(new MemorySegment(new byte[pageSize]));
+		}
+		
+		return memory;
+	}
+	
+	private static final class SumReducer extends ReduceFunction<IntPair> {
+		
+		@Override
+		public IntPair reduce(IntPair value1, IntPair value2) {
+			value1.setValue(value1.getValue() + value2.getValue());
+			return value1;
+		}
+	}
+	
+	private static final class ConcatReducer extends ReduceFunction<StringPair> {
+		
+		@Override
+		public StringPair reduce(StringPair value1, StringPair value2) {
+			value2.setValue(value1.getValue() + value2.getValue());
+			return value2;
+		}
+	}
+	
+	private static final class ListCollector<T> implements Collector<T> {
+		
+		private final List<T> list = new ArrayList<T>();
+		
+		@Override
+		public void collect(T record) {
+			this.list.add(record);
+		}
+		
+		@Override
+		public void close() {}
+	}
+}
@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.flink.api.java.functions.ReduceFunction;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.operators.testutils.types.IntPair;
+import org.apache.flink.runtime.operators.testutils.types.IntPairComparator;
+import org.apache.flink.runtime.operators.testutils.types.IntPairSerializer;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.MutableObjectIterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("serial")
+public class SpillingReduceHashTableTest {
+
+	private static final long RANDOM_SEED = 76518743207143L;
+
+	private static final int PAGE_SIZE = 4 * 1024;
+
+	private IOManager ioManager;
+
+	@Before
+	public void setup() {
+		this.ioManager = new IOManager();
+	}
+
+	@After
+	public void tearDown() {
+		this.ioManager.shutdown();
+		if (!this.ioManager.isProperlyShutDown()) {
+			fail("I/O manager was not property shut down.");
+		}
+	}
+
+	@Test
+	public void testSumInMemory() {
+		try {
+			// few keys, so that no partition spills
+			checkSum(1000, 100000, 64);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSumWithSpilledPartitions() {
+		try {
+			// too many keys for the memory, so that partitions spill and are aggregated recursively
+			checkSum(20000, 200000, 64);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSumWithMinimalMemory() {
+		try {
+			checkSum(2000, 20000, SpillingReduceHashTable.MIN_NUM_MEMORY_SEGMENTS);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCollidingHashCodes() {
+		final SpillingReduceHashTable<IntPair> table = new SpillingReduceHashTable<IntPair>(new IntPairSerializer(),
+			new ConstantHashComparator(), new SumReducer(), getMemory(16), this.ioManager);
+		try {
+			// all keys fall into the same partition in every recursion
+			table.aggregate(new SequenceIterator(20000, 20000), new ListCollector<IntPair>());
+			fail("The aggregation should have failed because of colliding hash codes.");
+		}
+		catch (IOException ioex) {
+			// expected
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		finally {
+			assertEquals(16, table.close().size());
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private void checkSum(int numKeys, int numRecords, int numPages) throws Exception {
+		final SpillingReduceHashTable<IntPair> table = new SpillingReduceHashTable<IntPair>(new IntPairSerializer(),
+			new IntPairComparator(), new SumReducer(), getMemory(numPages), this.ioManager);
+
+		final long[] expected = new long[numKeys];
+		final boolean[] present = new boolean[numKeys];
+		final Random rnd = new Random(RANDOM_SEED);
+		final List<IntPair> input = new ArrayList<IntPair>(numRecords);
+		for (int i = 0; i < numRecords; i++) {
+			final IntPair record = new IntPair(rnd.nextInt(numKeys), rnd.nextInt(100));
+			expected[record.getKey()] += record.getValue();
+			present[record.getKey()] = true;
+			input.add(record);
+		}
+
+		final ListCollector<IntPair> out = new ListCollector<IntPair>();
+		try {
+			table.aggregate(new ListIterator(input), out);
+		}
+		finally {
+			assertEquals(numPages, table.close().size());
+		}
+
+		final boolean[] seen = new boolean[numKeys];
+		for (IntPair pair : out.list) {
+			assertFalse("Key emitted twice.", seen[pair.getKey()]);
+			seen[pair.getKey()] = true;
+			assertEquals(expected[pair.getKey()], pair.getValue());
+		}
+		for (int key = 0; key < numKeys; key++) {
+			assertEquals("Key " + key + " is missing.", present[key], seen[key]);
+		}
+	}
+
+	private static List<MemorySegment> getMemory(int numPages) {
+		List<MemorySegment> memory = new ArrayList<MemorySegment>();
+
+		for (int i = 0; i < numPages; i++) {
+			memory.add(new MemorySegment(new byte[PAGE_SIZE]));
+		}
+
+		return memory;
+	}
+
+	private static final class SumReducer extends ReduceFunction<IntPair> {
+
+		@Override
+		public IntPair reduce(IntPair value1, IntPair value2) {
+			value1.setValue(value1.getValue() + value2.getValue());
+			return value1;
+		}
+	}
+
+	private static final class ConstantHashComparator extends IntPairComparator {
+
+		@Override
+		public int hash(IntPair object) {
+			return 42;
+		}
+
+		@Override
+		public IntPairComparator duplicate() {
+			return new ConstantHashComparator();
+		}
+	}
+
+	private static final class ListIterator implements MutableObjectIterator<IntPair> {
+
+		private final List<IntPair> records;
+
+		private int position;
+
+		private ListIterator(List<IntPair> records) {
+			this.records = records;
+		}
+
+		@Override
+		public IntPair next(IntPair reuse) {
+			if (this.position < this.records.size()) {
+				final IntPair record = this.records.get(this.position++);
+				reuse.setKey(record.getKey());
+				reuse.setValue(record.getValue());
+				return reuse;
+			}
+			return null;
+		}
+	}
+
+	private static final class SequenceIterator implements MutableObjectIterator<IntPair> {
+
+		private final int numKeys;
+
+		private int remaining;
+
+		private SequenceIterator(int numKeys, int numRecords) {
+			this.numKeys = numKeys;
+			this.remaining = numRecords;
+		}
+
+		@Override
+		public IntPair next(IntPair reuse) {
+			if (this.remaining-- > 0) {
+				reuse.setKey(this.remaining % this.numKeys);
+				reuse.setValue(1);
+				return reuse;
+			}
+			return null;
+		}
+	}
+
+	private static final class ListCollector<T> implements Collector<T> {
+
+		private final List<T> list = new ArrayList<T>();
+
+		@Override
+		public void collect(T record) {
+			this.list.add(record);
+		}
+
+		@Override
+		public void close() {}
+	}
+}
@@ -29,7 +29,9 @@ import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializerFactory;
 import org.apache.flink.api.java.typeutils.runtime.record.RecordComparator;
 import org.apache.flink.api.java.typeutils.runtime.record.RecordSerializerFactory;
+import org.apache.flink.runtime.io.disk.iomanager.BlockCompression;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.LZBlockCompressor;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
 import org.apache.flink.runtime.memorymanager.DefaultMemoryManager;
 import org.apache.flink.runtime.memorymanager.MemoryManager;
@@ -245,6 +247,139 @@ public class ExternalSortITCase {
 		merger.close();
 	}
 
+	@Test
+	public void testSpillingSortWithCompression() throws Exception {
+		// comparator
+		final Comparator<TestData.Key> keyComparator = new TestData.KeyComparator();
+		
+		final TestData.Generator generator = new TestData.Generator(SEED, KEY_MAX, VALUE_LENGTH, KeyMode.RANDOM, ValueMode.CONSTANT, VAL);
+		final MutableObjectIterator<Record> source = new TestData.GeneratorIterator(generator, NUM_PAIRS);
+		
+		final BlockCompression compression = new BlockCompression(LZBlockCompressor.class);
+		final IOManager compressingIOManager = this.ioManager.createCompressingView(compression);
+
+		// merge iterator
+		LOG.debug("Initializing sortmerger...");
+		
+		Sorter<Record> merger = new UnilateralSortMerger<Record>(this.memoryManager, compressingIOManager, 
+				source, this.parentTask, this.pactRecordSerializer, this.pactRecordComparator,
+				(double)16/78, 64, 0.7f);
+
+		// check order
+		MutableObjectIterator<Record> iterator = merger.getIterator();
+		
+		LOG.debug("Checking results...");
+		int pairsEmitted = 1;
+
+		Record rec1 = new Record();
+		Record rec2 = new Record();
+		
+		Assert.assertTrue((rec1 = iterator.next(rec1)) != null);
+		while ((rec2 = iterator.next(rec2)) != null) {
+			final Key k1 = rec1.getField(0, TestData.Key.class);
+			final Key k2 = rec2.getField(0, TestData.Key.class);
+			pairsEmitted++;
+			
+			Assert.assertTrue(keyComparator.compare(k1, k2) <= 0); 
+			
+			Record tmp = rec1;
+			rec1 = rec2;
+			k1.setKey(k2.getKey());
+			
+			rec2 = tmp;
+		}
+		Assert.assertTrue(NUM_PAIRS == pairsEmitted);
+		
+		merger.close();
+		
+		LOG.debug("Spill compression: " + compression);
+		Assert.assertTrue("No blocks were spilled.", compression.getUncompressedBytes() > 0);
+		Assert.assertTrue("Spilled blocks were not compressed.", compression.getCompressedBytes() < compression.getUncompressedBytes());
+	}
+
+	@Test
+	public void testSpillingSortWithSmallFanIn() throws Exception {
+		// comparator
+		final Comparator<TestData.Key> keyComparator = new TestData.KeyComparator();
+		
+		final TestData.Generator generator = new TestData.Generator(SEED, KEY_MAX, VALUE_LENGTH, KeyMode.RANDOM, ValueMode.CONSTANT, VAL);
+		final MutableObjectIterator<Record> source = new TestData.GeneratorIterator(generator, NUM_PAIRS);
+		
+		// merge iterator with little memory and few file handles, to force intermediate merges
+		LOG.debug("Initializing sortmerger...");
+		
+		Sorter<Record> merger = new UnilateralSortMerger<Record>(this.memoryManager, this.ioManager, 
+				source, this.parentTask, this.pactRecordSerializer, this.pactRecordComparator,
+				(double)1/78, 4, 0.7f);
+		
+		// check order
+		MutableObjectIterator<Record> iterator = merger.getIterator();
+		
+		LOG.debug("Checking results...");
+		int pairsEmitted = 1;
+		
+		Record rec1 = new Record();
+		Record rec2 = new Record();
+		
+		Assert.assertTrue((rec1 = iterator.next(rec1)) != null);
+		while ((rec2 = iterator.next(rec2)) != null) {
+			final Key k1 = rec1.getField(0, TestData.Key.class);
+			final Key k2 = rec2.getField(0, TestData.Key.class);
+			pairsEmitted++;
+			
+			Assert.assertTrue(keyComparator.compare(k1, k2) <= 0); 
+			
+			Record tmp = rec1;
+			rec1 = rec2;
+			k1.setKey(k2.getKey());
+			
+			rec2 = tmp;
+		}
+		Assert.assertEquals("Not all pairs were read back in.", NUM_PAIRS, pairsEmitted);
+		
+		merger.close();
+	}
+	
+	@Test
+	public void testParallelSpillingSortIntPair() throws Exception {
+		// amount of pairs
+		final int PAIRS = 2000000;
+		
+		final RandomIntPairGenerator generator = new RandomIntPairGenerator(12345678, PAIRS);
+		
+		final TypeSerializerFactory<IntPair> serializerFactory = new IntPairSerializer.IntPairSerializerFactory();
+		final TypeComparator<IntPair> comparator = new IntPairComparator();
+		
+		// merge iterator that sorts with four threads
+		LOG.debug("Initializing sortmerger...");
+		
+		Sorter<IntPair> merger = new UnilateralSortMerger<IntPair>(this.memoryManager, this.ioManager, 
+				generator, this.parentTask, serializerFactory, comparator, (double)16/78, 4, 64, 0.7f, false, 4);
+		
+		// check order
+		MutableObjectIterator<IntPair> iterator = merger.getIterator();
+		
+		LOG.debug("Checking results...");
+		int pairsRead = 1;
+		
+		IntPair rec1 = new IntPair();
+		IntPair rec2 = new IntPair();
+		
+		Assert.assertTrue((rec1 = iterator.next(rec1)) != null);
+		
+		while ((rec2 = iterator.next(rec2)) != null) {
+			pairsRead++;
+			
+			Assert.assertTrue(rec1.getKey() <= rec2.getKey());
+			
+			IntPair tmp = rec1;
+			rec1 = rec2;
+			rec2 = tmp;
+		}
+		Assert.assertEquals("Not all pairs were read back in.", PAIRS, pairsRead);
+		merger.close();
+	}
+
 //	@Test
 	public void testSpillingSortWithIntermediateMerge() throws Exception {
 		// amount of pairs
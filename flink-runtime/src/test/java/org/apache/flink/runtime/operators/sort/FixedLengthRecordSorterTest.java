@@ -28,6 +28,7 @@ import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.memorymanager.DefaultMemoryManager;
 import org.apache.flink.runtime.operators.sort.FixedLengthRecordSorter;
 import org.apache.flink.runtime.operators.sort.QuickSort;
+import org.apache.flink.runtime.operators.sort.RadixSort;
 import org.apache.flink.runtime.operators.testutils.DummyInvokable;
 import org.apache.flink.runtime.operators.testutils.RandomIntPairGenerator;
 import org.apache.flink.runtime.operators.testutils.UniformIntPairGenerator;
@@ -370,4 +371,47 @@ public class FixedLengthRecordSorterTest
 		// release the memory occupied by the buffers
 		this.memoryManager.release(sorter.dispose());
 	}
+	
+	@Test
+	public void testRadixSort() throws Exception {
+		final int NUM_RECORDS = 559273;
+		final int numSegments = MEMORY_SIZE / MEMORY_PAGE_SIZE;
+		final List<MemorySegment> memory = this.memoryManager.allocatePages(new DummyInvokable(), numSegments);
+		
+		FixedLengthRecordSorter<IntPair> sorter = newSortBuffer(memory);
+		Assert.assertTrue("The sorter should be radix sortable.", RadixSort.isRadixSortable(sorter));
+		
+		RandomIntPairGenerator generator = new RandomIntPairGenerator(SEED);
+		
+		// write the records
+		IntPair record = new IntPair();
+		int num = -1;
+		do {
+			generator.next(record);
+			num++;
+		}
+		while (sorter.write(record) && num < NUM_RECORDS);
+		
+		new RadixSort().sort(sorter);
+		
+		MutableObjectIterator<IntPair> iter = sorter.getIterator();
+		IntPair readTarget = new IntPair();
+		
+		int count = 1;
+		iter.next(readTarget);
+		int last = readTarget.getKey();
+		
+		while ((readTarget = iter.next(readTarget)) != null) {
+			final int current = readTarget.getKey();
+			if (last > current) {
+				Assert.fail("Next key is not larger or equal to previous key.");
+			}
+			last = current;
+			count++;
+		}
+		Assert.assertEquals("Records got lost while sorting.", sorter.size(), count);
+		
+		// release the memory occupied by the buffers
+		this.memoryManager.release(sorter.dispose());
+	}
 }
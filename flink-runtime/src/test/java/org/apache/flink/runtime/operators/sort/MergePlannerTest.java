@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.operators.sort;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MergePlannerTest {
+	
+	@Test
+	public void testFanInBoundedByReadAhead() {
+		final int[] runs = new int[1000];
+		Arrays.fill(runs, 100);
+		
+		// every input needs two read buffers, so 64 buffers allow at most 32 inputs
+		Assert.assertTrue(MergePlanner.computeFanIn(runs, 64, 128) <= 32);
+		Assert.assertTrue(MergePlanner.computeFanIn(runs, 1024, 16) <= 16);
+		
+		// very little memory still merges two runs at a time
+		Assert.assertEquals(2, MergePlanner.computeFanIn(runs, 3, 128));
+	}
+	
+	@Test
+	public void testNoIntermediateMergeIfRunsFit() {
+		final int[] runs = new int[] {10, 20, 30, 40};
+		Assert.assertEquals(MergePlanner.getMaximalFanIn(64, 128), MergePlanner.computeFanIn(runs, 64, 128));
+		Assert.assertEquals(0, MergePlanner.getNumberOfIntermediateMerges(runs.length, 32));
+	}
+	
+	@Test
+	public void testFirstMergeLeavesFullFanIn() {
+		for (int fanIn = 2; fanIn < 40; fanIn++) {
+			for (int numRuns = fanIn + 1; numRuns < 500; numRuns++) {
+				final int first = MergePlanner.getFirstMergeFanIn(numRuns, fanIn);
+				Assert.assertTrue(first >= 2 && first <= fanIn);
+				
+				// after the first merge, the full fan-in merges must end at exactly fanIn runs
+				int remaining = numRuns - first + 1;
+				int merges = 1;
+				while (remaining > fanIn) {
+					remaining -= fanIn - 1;
+					merges++;
+				}
+				Assert.assertEquals(fanIn, remaining);
+				Assert.assertEquals(merges, MergePlanner.getNumberOfIntermediateMerges(numRuns, fanIn));
+			}
+		}
+	}
+	
+	@Test
+	public void testChosenFanInIsCheapest() {
+		final int[] runs = new int[300];
+		for (int i = 0; i < runs.length; i++) {
+			runs[i] = 50 + (i * 37) % 400;
+		}
+		
+		final int numReadBuffers = 256;
+		final int fanIn = MergePlanner.computeFanIn(runs, numReadBuffers, 128);
+		final double cost = MergePlanner.estimateCost(runs, numReadBuffers, fanIn);
+		
+		for (int f = 2; f <= MergePlanner.getMaximalFanIn(numReadBuffers, 128); f++) {
+			Assert.assertTrue(cost <= MergePlanner.estimateCost(runs, numReadBuffers, f));
+		}
+	}
+}
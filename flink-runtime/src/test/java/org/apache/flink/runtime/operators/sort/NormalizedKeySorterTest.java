@@ -21,13 +21,17 @@ package org.apache.flink.runtime.operators.sort;
 
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.flink.api.java.typeutils.runtime.record.RecordComparator;
 import org.apache.flink.api.java.typeutils.runtime.record.RecordSerializer;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.memorymanager.DefaultMemoryManager;
 import org.apache.flink.runtime.operators.sort.NormalizedKeySorter;
+import org.apache.flink.runtime.operators.sort.ParallelRadixSort;
 import org.apache.flink.runtime.operators.sort.QuickSort;
+import org.apache.flink.runtime.operators.sort.RadixSort;
 import org.apache.flink.runtime.operators.testutils.DummyInvokable;
 import org.apache.flink.runtime.operators.testutils.TestData;
 import org.apache.flink.runtime.operators.testutils.TestData.Key;
@@ -368,6 +372,120 @@ public class NormalizedKeySorterTest
 		this.memoryManager.release(sorter.dispose());
 	}
 	
+	@Test
+	public void testRadixSort() throws Exception
+	{
+		final int NUM_RECORDS = 559273;
+		
+		final int numSegments = MEMORY_SIZE / MEMORY_PAGE_SIZE;
+		final List<MemorySegment> memory = this.memoryManager.allocatePages(new DummyInvokable(), numSegments);
+		
+		NormalizedKeySorter<Record> sorter = newSortBuffer(memory);
+		Assert.assertTrue("The sorter should be radix sortable.", RadixSort.isRadixSortable(sorter));
+		
+		TestData.Generator generator = new TestData.Generator(SEED, KEY_MAX, VALUE_LENGTH, KeyMode.RANDOM,
+			ValueMode.RANDOM_LENGTH);
+		
+		// write the records
+		Record record = new Record();
+		int num = 0;
+		do {
+			generator.next(record);
+			num++;
+		}
+		while (sorter.write(record) && num < NUM_RECORDS);
+		
+		new RadixSort().sort(sorter);
+		
+		MutableObjectIterator<Record> iter = sorter.getIterator();
+		Record readTarget = new Record();
+		
+		Key current = new Key();
+		Key last = new Key();
+		
+		int count = 1;
+		iter.next(readTarget);
+		readTarget.getFieldInto(0, last);
+		
+		while ((readTarget = iter.next(readTarget)) != null) {
+			readTarget.getFieldInto(0, current);
+			
+			final int cmp = last.compareTo(current);
+			if (cmp > 0) {
+				Assert.fail("Next key is not larger or equal to previous key.");
+			}
+			
+			Key tmp = current;
+			current = last;
+			last = tmp;
+			count++;
+		}
+		Assert.assertEquals("Records got lost while sorting.", sorter.size(), count);
+		
+		// release the memory occupied by the buffers
+		this.memoryManager.release(sorter.dispose());
+	}
+	
+	@Test
+	public void testParallelRadixSort() throws Exception
+	{
+		final int NUM_RECORDS = 559273;
+		
+		final int numSegments = MEMORY_SIZE / MEMORY_PAGE_SIZE;
+		final List<MemorySegment> memory = this.memoryManager.allocatePages(new DummyInvokable(), numSegments);
+		
+		NormalizedKeySorter<Record> sorter = newSortBuffer(memory);
+		Assert.assertTrue("The sorter should support concurrent sorting.", sorter.supportsConcurrentSorting());
+		
+		TestData.Generator generator = new TestData.Generator(SEED, KEY_MAX, VALUE_LENGTH, KeyMode.RANDOM,
+			ValueMode.RANDOM_LENGTH);
+		
+		// write the records
+		Record record = new Record();
+		int num = 0;
+		do {
+			generator.next(record);
+			num++;
+		}
+		while (sorter.write(record) && num < NUM_RECORDS);
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			new ParallelRadixSort(executor, 4).sort(sorter);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		MutableObjectIterator<Record> iter = sorter.getIterator();
+		Record readTarget = new Record();
+		
+		Key current = new Key();
+		Key last = new Key();
+		
+		int count = 1;
+		iter.next(readTarget);
+		readTarget.getFieldInto(0, last);
+		
+		while ((readTarget = iter.next(readTarget)) != null) {
+			readTarget.getFieldInto(0, current);
+			
+			final int cmp = last.compareTo(current);
+			if (cmp > 0) {
+				Assert.fail("Next key is not larger or equal to previous key.");
+			}
+			
+			Key tmp = current;
+			current = last;
+			last = tmp;
+			count++;
+		}
+		Assert.assertEquals("Records got lost while sorting.", sorter.size(), count);
+		
+		// release the memory occupied by the buffers
+		this.memoryManager.release(sorter.dispose());
+	}
+	
 	@Test
 	public void testSortShortStringKeys() throws Exception
 	{
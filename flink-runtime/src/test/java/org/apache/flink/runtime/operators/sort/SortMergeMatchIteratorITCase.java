@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinType;
 import org.apache.flink.api.common.typeutils.TypeComparator;
 import org.apache.flink.api.common.typeutils.TypePairComparator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
@@ -258,6 +259,53 @@ public class SortMergeMatchIteratorITCase {
 	
 	
 	
+	@Test
+	public void testMergeOuterJoins() {
+		for (JoinType type : new JoinType[] { JoinType.LEFT_OUTER, JoinType.RIGHT_OUTER, JoinType.FULL_OUTER }) {
+			try {
+				// the second input has keys that the first one lacks, and vice versa
+				final TestData.Generator generator1 = new Generator(SEED1, 500, 4096, KeyMode.SORTED, ValueMode.RANDOM_LENGTH);
+				final TestData.Generator generator2 = new Generator(SEED2, 1000, 2048, KeyMode.SORTED, ValueMode.RANDOM_LENGTH);
+	
+				final TestData.GeneratorIterator input1 = new TestData.GeneratorIterator(generator1, INPUT_1_SIZE);
+				final TestData.GeneratorIterator input2 = new TestData.GeneratorIterator(generator2, INPUT_2_SIZE);
+				
+				// collect expected data
+				final Map<TestData.Key, Collection<Match>> expectedMatchesMap = matchValues(
+					collectData(input1), collectData(input2), type.isOuterFirst(), type.isOuterSecond());
+				
+				final JoinFunction matcher = new MatchRemovingMatcher(expectedMatchesMap);
+				final Collector<Record> collector = new DiscardingOutputCollector<Record>();
+		
+				// reset the generators
+				generator1.reset();
+				generator2.reset();
+				input1.reset();
+				input2.reset();
+		
+				// compare with iterator values
+				MergeMatchIterator<Record, Record, Record> iterator = 
+					new MergeMatchIterator<Record, Record, Record>(
+						input1, input2, this.serializer1, this.comparator1, this.serializer2, this.comparator2,
+						this.pairComparator, this.memoryManager, this.ioManager, PAGES_FOR_BNLJN, this.parentTask, type);
+		
+				iterator.open();
+				
+				while (iterator.callWithNextKey(matcher, collector));
+				
+				iterator.close();
+		
+				// assert that each expected match was seen
+				Assert.assertTrue("Expected matches were not seen for " + type + ": " + expectedMatchesMap.keySet(),
+					expectedMatchesMap.isEmpty());
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				Assert.fail("An exception occurred during the test: " + e.getMessage());
+			}
+		}
+	}
+	
 	// --------------------------------------------------------------------------------------------
 	//                                    Utilities
 	// --------------------------------------------------------------------------------------------
@@ -265,6 +313,14 @@ public class SortMergeMatchIteratorITCase {
 	private Map<TestData.Key, Collection<Match>> matchValues(
 			Map<TestData.Key, Collection<TestData.Value>> leftMap,
 			Map<TestData.Key, Collection<TestData.Value>> rightMap)
+	{
+		return matchValues(leftMap, rightMap, false, false);
+	}
+	
+	private Map<TestData.Key, Collection<Match>> matchValues(
+			Map<TestData.Key, Collection<TestData.Value>> leftMap,
+			Map<TestData.Key, Collection<TestData.Value>> rightMap,
+			boolean outerLeft, boolean outerRight)
 	{
 		Map<TestData.Key, Collection<Match>> map = new HashMap<TestData.Key, Collection<Match>>();
 
@@ -273,6 +329,13 @@ public class SortMergeMatchIteratorITCase {
 			Collection<TestData.Value> rightValues = rightMap.get(key);
 
 			if (rightValues == null) {
+				if (outerLeft) {
+					Collection<Match> unmatched = new ArrayList<Match>();
+					for (TestData.Value leftValue : leftValues) {
+						unmatched.add(new Match(leftValue, null));
+					}
+					map.put(key, unmatched);
+				}
 				continue;
 			}
 
@@ -288,6 +351,18 @@ public class SortMergeMatchIteratorITCase {
 				}
 			}
 		}
+		
+		if (outerRight) {
+			for (TestData.Key key : rightMap.keySet()) {
+				if (!leftMap.containsKey(key)) {
+					Collection<Match> unmatched = new ArrayList<Match>();
+					for (TestData.Value rightValue : rightMap.get(key)) {
+						unmatched.add(new Match(null, rightValue));
+					}
+					map.put(key, unmatched);
+				}
+			}
+		}
 
 		return map;
 	}
@@ -329,12 +404,13 @@ public class SortMergeMatchIteratorITCase {
 		@Override
 		public boolean equals(Object obj) {
 			Match o = (Match) obj;
-			return this.left.equals(o.left) && this.right.equals(o.right);
+			return (this.left == null ? o.left == null : this.left.equals(o.left)) &&
+				(this.right == null ? o.right == null : this.right.equals(o.right));
 		}
 		
 		@Override
 		public int hashCode() {
-			return this.left.hashCode() ^ this.right.hashCode();
+			return (this.left == null ? 0 : this.left.hashCode()) ^ (this.right == null ? 0 : this.right.hashCode());
 		}
 
 		@Override
@@ -355,9 +431,10 @@ public class SortMergeMatchIteratorITCase {
 		@Override
 		public void join(Record rec1, Record rec2, Collector<Record> out)
 		{
-			TestData.Key key = rec1.getField(0, TestData.Key.class);
-			TestData.Value value1 = rec1.getField(1, TestData.Value.class);
-			TestData.Value value2 = rec2.getField(1, TestData.Value.class);
+			// for outer joins, one of the records may be null
+			TestData.Key key = (rec1 != null ? rec1 : rec2).getField(0, TestData.Key.class);
+			TestData.Value value1 = rec1 == null ? null : rec1.getField(1, TestData.Value.class);
+			TestData.Value value2 = rec2 == null ? null : rec2.getField(1, TestData.Value.class);
 			
 			Collection<Match> matches = this.toRemoveFrom.get(key);
 			if (matches == null) {
@@ -20,6 +20,7 @@
 package org.apache.flink.runtime.operators.testutils;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -118,17 +119,29 @@ public class MockEnvironment implements Environment, BufferProvider, LocalBuffer
 
 	@Override
 	public Buffer requestBuffer(int minBufferSize) throws IOException {
+		// the buffer may have been sent partly filled before
+		mockBuffer.limitSize(mockBuffer.getMemorySegment().size());
 		return mockBuffer;
 	}
 
 	@Override
 	public Buffer requestBufferBlocking(int minBufferSize) throws IOException, InterruptedException {
-		return mockBuffer;
+		return requestBuffer(minBufferSize);
+	}
+
+	@Override
+	public int requestBuffers(int minBufferSize, int numBuffers, Collection<Buffer> target) throws IOException {
+		// there is only the one mock buffer
+		if (numBuffers <= 0) {
+			return 0;
+		}
+		target.add(requestBuffer(minBufferSize));
+		return 1;
 	}
 
 	@Override
 	public int getBufferSize() {
-		return this.mockBuffer.size();
+		return this.mockBuffer.getMemorySegment().size();
 	}
 
 	@Override
@@ -228,10 +241,22 @@ public class MockEnvironment implements Environment, BufferProvider, LocalBuffer
 			}
 		}
 
+		@Override
+		public boolean trySendBuffer(Buffer buffer, int targetChannel) throws IOException, InterruptedException {
+			// the mock receiver never runs out of buffers
+			sendBuffer(buffer, targetChannel);
+			return true;
+		}
+
 		@Override
 		public int getNumChannels() {
 			return 1;
 		}
+		
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
 	}
 
 	@Override
@@ -24,6 +24,11 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -442,6 +447,126 @@ public class OutputEmitterTest extends TestCase {
 		
 	}
 	
+	@Test
+	public void testPartitionHashWithKeyGroupSample() {
+		@SuppressWarnings("unchecked")
+		final TypeComparator<Record> intComp = new RecordComparatorFactory(new int[] {0}, new Class[] {IntValue.class}).createComparator();
+		final OutputEmitter<Record> oe1 = new OutputEmitter<Record>(ShipStrategyType.PARTITION_HASH, intComp);
+		final OutputEmitter<Record> oe2 = new OutputEmitter<Record>(ShipStrategyType.PARTITION_HASH, intComp);
+		final SerializationDelegate<Record> delegate = new SerializationDelegate<Record>(new RecordSerializerFactory().getSerializer());
+		
+		final int numChannels = 20;
+		
+		// skewed keys, a few of them are twenty times as frequent as the others
+		final List<Integer> keys = new ArrayList<Integer>();
+		for (int k = 0; k < 2000; k++) {
+			final int frequency = k < 40 ? 200 : 10;
+			for (int i = 0; i < frequency; i++) {
+				keys.add(k);
+			}
+		}
+		Collections.shuffle(keys, new Random(7563457834563L));
+		final int numRecords = keys.size();
+		
+		final List<Record> sample = new ArrayList<Record>();
+		for (int i = 0; i < numRecords; i += 5) {
+			sample.add(new Record(new IntValue(keys.get(i))));
+		}
+		oe1.setKeyGroupSample(sample);
+		
+		// the assignment of the key groups must not depend on the order of the sample
+		final List<Record> reversedSample = new ArrayList<Record>(sample);
+		Collections.reverse(reversedSample);
+		oe2.setKeyGroupSample(reversedSample);
+		
+		final int[] hit = new int[numChannels];
+		for (Integer key : keys) {
+			delegate.setInstance(new Record(new IntValue(key)));
+			
+			final int[] chans = oe1.selectChannels(delegate, numChannels);
+			assertTrue(chans.length == 1);
+			final int c = chans[0];
+			assertTrue(c >= 0 && c < numChannels);
+			assertEquals(c, oe2.selectChannels(delegate, numChannels)[0]);
+			hit[c]++;
+		}
+		
+		// the channels are balanced, despite the skewed keys
+		for (int i = 0; i < numChannels; i++) {
+			assertTrue(hit[i] < 1.2 * numRecords / numChannels);
+			assertTrue(hit[i] > 0.8 * numRecords / numChannels);
+		}
+	}
+	
+	@Test
+	public void testPartitionRangeWithSample() {
+		@SuppressWarnings("unchecked")
+		final TypeComparator<Record> intComp = new RecordComparatorFactory(new int[] {0}, new Class[] {IntValue.class}).createComparator();
+		final OutputEmitter<Record> oe = new OutputEmitter<Record>(ShipStrategyType.PARTITION_RANGE, intComp);
+		final SerializationDelegate<Record> delegate = new SerializationDelegate<Record>(new RecordSerializerFactory().getSerializer());
+		
+		final int numChannels = 50;
+		final int numRecords = 100000;
+		final Random rnd = new Random(7563457834563L);
+		
+		// skewed keys, most of them are small
+		final int[] keys = new int[numRecords];
+		final List<Record> sample = new ArrayList<Record>();
+		for (int i = 0; i < numRecords; i++) {
+			final int k = rnd.nextInt(1000);
+			keys[i] = k * k;
+			if (i % 20 == 0) {
+				sample.add(new Record(new IntValue(keys[i])));
+			}
+		}
+		oe.setRangeSample(sample);
+		
+		final int[] hit = new int[numChannels];
+		final int[] minKey = new int[numChannels];
+		final int[] maxKey = new int[numChannels];
+		Arrays.fill(minKey, Integer.MAX_VALUE);
+		Arrays.fill(maxKey, Integer.MIN_VALUE);
+		
+		for (int i = 0; i < numRecords; i++) {
+			delegate.setInstance(new Record(new IntValue(keys[i])));
+			
+			final int[] chans = oe.selectChannels(delegate, numChannels);
+			assertTrue(chans.length == 1);
+			final int c = chans[0];
+			hit[c]++;
+			minKey[c] = Math.min(minKey[c], keys[i]);
+			maxKey[c] = Math.max(maxKey[c], keys[i]);
+		}
+		
+		int lastMax = Integer.MIN_VALUE;
+		for (int i = 0; i < numChannels; i++) {
+			// the ranges are ascending and do not overlap
+			if (hit[i] > 0) {
+				assertTrue(minKey[i] > lastMax);
+				lastMax = maxKey[i];
+			}
+			// the ranges are balanced, despite the skewed keys
+			assertTrue(hit[i] < 2 * numRecords / numChannels);
+		}
+	}
+	
+	@Test
+	public void testPartitionRangeWithoutSample() {
+		@SuppressWarnings("unchecked")
+		final TypeComparator<Record> intComp = new RecordComparatorFactory(new int[] {0}, new Class[] {IntValue.class}).createComparator();
+		final OutputEmitter<Record> oe = new OutputEmitter<Record>(ShipStrategyType.PARTITION_RANGE, intComp);
+		final SerializationDelegate<Record> delegate = new SerializationDelegate<Record>(new RecordSerializerFactory().getSerializer());
+		delegate.setInstance(new Record(new IntValue(1)));
+		
+		try {
+			oe.selectChannels(delegate, 10);
+			Assert.fail("Range partitioning without a sample did not fail.");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+	
 //	@Test
 //	public void testPartitionRange() {
 //		final Random rnd = new Random(SEED);
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.testutils;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Random;
 
 import org.apache.flink.core.memory.MemorySegment;
@@ -63,6 +64,17 @@ public class TestBufferProvider implements BufferProvider {
 		return new Buffer(segment, sizeOfBuffer, this.recycler);
 	}
 
+	@Override
+	public int requestBuffers(int sizeOfBuffer, int numBuffers, Collection<Buffer> target) throws IOException {
+		int numReturned = 0;
+		Buffer buffer;
+		while (numReturned < numBuffers && (buffer = requestBuffer(sizeOfBuffer)) != null) {
+			target.add(buffer);
+			numReturned++;
+		}
+		return numReturned;
+	}
+
 	@Override
 	public int getBufferSize() {
 		return Integer.MAX_VALUE;
@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.test.javaApiOperators;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.flink.api.common.operators.Order;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.functions.MapFunction;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.test.javaApiOperators.util.CollectionDataSets;
+import org.apache.flink.test.util.JavaProgramTestBase;
+import org.junit.Assert;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@SuppressWarnings("serial")
+@RunWith(Parameterized.class)
+public class PartitionITCase extends JavaProgramTestBase {
+
+	private static int NUM_PROGRAMS = 4;
+
+	private int curProgId = config.getInteger("ProgramId", -1);
+	private String resultPath;
+	private String expectedResult;
+
+	public PartitionITCase(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	protected void preSubmit() throws Exception {
+		resultPath = getTempDirPath("result");
+	}
+
+	@Override
+	protected void testProgram() throws Exception {
+		expectedResult = PartitionProgs.runProgram(curProgId, resultPath);
+	}
+
+	@Override
+	protected void postSubmit() throws Exception {
+		switch (curProgId) {
+		case 1:
+			checkKeysPerSubtask(true);
+			break;
+		case 4:
+			checkKeysPerSubtask(false);
+			break;
+		default:
+			compareResultsByLinesInMemoryWithStrictOrder(expectedResult, resultPath);
+		}
+	}
+
+	/**
+	 * Checks a result of "key,subtask" lines: All records with the same key must have been processed by the same
+	 * subtask. For range partitionings, the subtasks must receive ascending ranges of keys.
+	 */
+	private void checkKeysPerSubtask(boolean ascendingRanges) throws Exception {
+		List<String> lines = new ArrayList<String>();
+		readAllResultLines(lines, resultPath);
+
+		String[] keys = new String[lines.size()];
+		Map<Long, Integer> subtaskPerKey = new TreeMap<Long, Integer>();
+		for (int i = 0; i < lines.size(); i++) {
+			String[] fields = lines.get(i).split(",");
+			Long key = Long.valueOf(fields[0]);
+			Integer subtask = Integer.valueOf(fields[1]);
+			keys[i] = fields[0];
+
+			Integer previous = subtaskPerKey.put(key, subtask);
+			Assert.assertTrue("Key " + key + " was processed by several subtasks.", previous == null || previous.equals(subtask));
+		}
+
+		String[] expectedKeys = expectedResult.split("\n");
+		Arrays.sort(expectedKeys);
+		Arrays.sort(keys);
+		Assert.assertArrayEquals(expectedKeys, keys);
+
+		if (ascendingRanges) {
+			int lastSubtask = -1;
+			for (Map.Entry<Long, Integer> entry : subtaskPerKey.entrySet()) {
+				Assert.assertTrue("The ranges of the subtasks are not ascending at key " + entry.getKey() + ".",
+					entry.getValue() >= lastSubtask);
+				lastSubtask = entry.getValue();
+			}
+		}
+	}
+
+	@Parameters
+	public static Collection<Object[]> getConfigurations() throws IOException {
+		LinkedList<Configuration> tConfigs = new LinkedList<Configuration>();
+
+		for(int i=1; i <= NUM_PROGRAMS; i++) {
+			Configuration config = new Configuration();
+			config.setInteger("ProgramId", i);
+			tConfigs.add(config);
+		}
+
+		return toParameterList(tConfigs);
+	}
+
+	private static class PartitionProgs {
+
+		public static String runProgram(int progId, String resultPath) throws Exception {
+
+			switch(progId) {
+			case 1: {
+
+				/*
+				 * check that a range partitioning sends each key to one subtask, in ascending ranges
+				 */
+
+				final ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+				DataSet<Tuple3<Integer, Long, String>> ds = CollectionDataSets.get3TupleDataSet(env);
+				DataSet<Tuple2<Long, Integer>> partitionedDs = ds.partitionByRange(1).map(new KeyAndSubtask());
+
+				partitionedDs.writeAsCsv(resultPath);
+				env.execute();
+
+				// return expected keys
+				return "1\n" +
+						"2\n2\n" +
+						"3\n3\n3\n" +
+						"4\n4\n4\n4\n" +
+						"5\n5\n5\n5\n5\n" +
+						"6\n6\n6\n6\n6\n6\n";
+			}
+			case 2: {
+
+				/*
+				 * check correctness of a globally sorted output in descending order
+				 */
+
+				final ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+				DataSet<Tuple3<Integer, Long, String>> ds = CollectionDataSets.get3TupleDataSet(env);
+				ds.writeAsCsv(resultPath).sortGlobalOutput(0, Order.DESCENDING).setParallelism(4);
+				env.execute();
+
+				// return expected result
+				return "21,6,Comment#15\n" +
+						"20,6,Comment#14\n" +
+						"19,6,Comment#13\n" +
+						"18,6,Comment#12\n" +
+						"17,6,Comment#11\n" +
+						"16,6,Comment#10\n" +
+						"15,5,Comment#9\n" +
+						"14,5,Comment#8\n" +
+						"13,5,Comment#7\n" +
+						"12,5,Comment#6\n" +
+						"11,5,Comment#5\n" +
+						"10,4,Comment#4\n" +
+						"9,4,Comment#3\n" +
+						"8,4,Comment#2\n" +
+						"7,4,Comment#1\n" +
+						"6,3,Luke Skywalker\n" +
+						"5,3,I am fine.\n" +
+						"4,3,Hello world, how are you?\n" +
+						"3,2,Hello world\n" +
+						"2,2,Hello\n" +
+						"1,1,Hi\n";
+			}
+			case 3: {
+
+				/*
+				 * check correctness of a globally sorted output on two fields with mixed orders
+				 */
+
+				final ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+				DataSet<Tuple3<Integer, Long, String>> ds = CollectionDataSets.get3TupleDataSet(env);
+				ds.writeAsCsv(resultPath).sortGlobalOutput(1, Order.DESCENDING).sortGlobalOutput(0, Order.ASCENDING)
+					.setParallelism(4);
+				env.execute();
+
+				// return expected result
+				return "16,6,Comment#10\n" +
+						"17,6,Comment#11\n" +
+						"18,6,Comment#12\n" +
+						"19,6,Comment#13\n" +
+						"20,6,Comment#14\n" +
+						"21,6,Comment#15\n" +
+						"11,5,Comment#5\n" +
+						"12,5,Comment#6\n" +
+						"13,5,Comment#7\n" +
+						"14,5,Comment#8\n" +
+						"15,5,Comment#9\n" +
+						"7,4,Comment#1\n" +
+						"8,4,Comment#2\n" +
+						"9,4,Comment#3\n" +
+						"10,4,Comment#4\n" +
+						"4,3,Hello world, how are you?\n" +
+						"5,3,I am fine.\n" +
+						"6,3,Luke Skywalker\n" +
+						"2,2,Hello\n" +
+						"3,2,Hello world\n" +
+						"1,1,Hi\n";
+			}
+			case 4: {
+
+				/*
+				 * check that a balanced hash partitioning sends each key to one subtask
+				 */
+
+				final ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+				DataSet<Tuple3<Integer, Long, String>> ds = CollectionDataSets.get3TupleDataSet(env);
+				DataSet<Tuple2<Long, Integer>> partitionedDs = ds.partitionByBalancedHash(1).map(new KeyAndSubtask());
+
+				partitionedDs.writeAsCsv(resultPath);
+				env.execute();
+
+				// return expected keys
+				return "1\n" +
+						"2\n2\n" +
+						"3\n3\n3\n" +
+						"4\n4\n4\n4\n" +
+						"5\n5\n5\n5\n5\n" +
+						"6\n6\n6\n6\n6\n6\n";
+			}
+			default:
+				throw new IllegalArgumentException("Invalid program id");
+			}
+		}
+	}
+
+	public static class KeyAndSubtask extends MapFunction<Tuple3<Integer, Long, String>, Tuple2<Long, Integer>> {
+
+		@Override
+		public Tuple2<Long, Integer> map(Tuple3<Integer, Long, String> value) {
+			return new Tuple2<Long, Integer>(value.f1, getRuntimeContext().getIndexOfThisSubtask());
+		}
+	}
+}